@@ -7,6 +7,7 @@ plugins {
     alias(libs.plugins.indra.checkstyle)
     alias(libs.plugins.blossom)
     alias(libs.plugins.errorprone)
+    alias(libs.plugins.jmh)
     alias(libs.plugins.publisher)
 }
 
@@ -58,5 +59,10 @@ tasks.withType<JavaCompile> {
         check("NullAway", CheckSeverity.ERROR)
         option("NullAway:AnnotatedPackages", "dev.siebrenvde.ntfy")
         option("NullAway:JSpecifyMode", "true")
+        option("NullAway:CustomInitializerAnnotations", "org.openjdk.jmh.annotations.Setup")
     }
 }
+
+tasks.named<JavaCompile>("jmhCompileGeneratedClasses") {
+    options.errorprone.isEnabled = false
+}
@@ -0,0 +1,76 @@
+package dev.siebrenvde.ntfy.internal;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link HeaderEncoder} with the previous header encoding for typical titles
+ *
+ * <p>Run with <code>-prof gc</code> to compare allocations per operation</p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HeaderEncoderBenchmark {
+
+    @Param({"ascii", "latin1", "emoji"})
+    public String title = "ascii";
+
+    private String value = "";
+
+    /**
+     * Picks the title to encode
+     */
+    @Setup
+    public void setup() {
+        this.value = switch (this.title) {
+            case "ascii" -> "Backup of server 'db-01' finished successfully";
+            case "latin1" -> "Sauvegarde du serveur « db-01 » terminée avec succès";
+            case "emoji" -> "🚨🔥 Disk usage on db-01 at 95% 🔥🚨 💾📈";
+            default -> throw new IllegalArgumentException("unknown title " + this.title);
+        };
+    }
+
+    /**
+     * {@return the value encoded with the previous encoder}
+     */
+    @Benchmark
+    public String legacy() {
+        return legacyEncode(this.value);
+    }
+
+    /**
+     * {@return the value encoded with {@link HeaderEncoder}}
+     */
+    @Benchmark
+    public String headerEncoder() {
+        return HeaderEncoder.encode(this.value);
+    }
+
+    private static String legacyEncode(final String input) {
+        for (int i = 0; i < input.length(); i++) {
+            final int c = input.codePointAt(i);
+            if (c < 32 || c > 126) {
+                return "=?UTF-8?B?" + Base64.getEncoder().encodeToString(input.getBytes(StandardCharsets.UTF_8)) + "?=";
+            }
+        }
+        return input;
+    }
+
+}
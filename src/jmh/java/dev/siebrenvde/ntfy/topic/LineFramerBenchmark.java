@@ -0,0 +1,137 @@
+package dev.siebrenvde.ntfy.topic;
+
+import dev.siebrenvde.ntfy.response.ReceivedMessage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares ways of framing and decoding a <code>since=all</code> catch-up stream of the <code>/json</code> endpoint
+ *
+ * <p>The stream is split into 16 KiB heap buffers, the size the JDK http client hands a body subscriber.
+ * Run with <code>-prof gc</code> to compare allocations per operation.</p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LineFramerBenchmark {
+
+    private static final int CHUNK_SIZE = 16 * 1024;
+
+    @Param({"1", "16"})
+    public int megabytes = 1;
+
+    private final LineFramer framer = new LineFramer(StreamSubscription.MAX_EVENT_LENGTH);
+    private List<ByteBuffer> chunks = List.of();
+
+    /**
+     * Generates the catch-up stream
+     */
+    @Setup
+    public void setup() {
+        final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        final long time = 1_700_000_000L;
+        for (int i = 0; stream.size() < this.megabytes * 1024 * 1024; i++) {
+            final String line = "{\"id\":\"m" + Integer.toString(i, 36) + "\",\"time\":" + (time + i) + ",\"expires\":" + (time + i + 43200) +
+                ",\"event\":\"message\",\"topic\":\"backups\",\"title\":\"Backup " + i + " finished\",\"message\":\"Backup of server 'db-01' finished successfully in " + (i % 600) + " seconds\"" +
+                ",\"priority\":" + (i % 5 + 1) + ",\"tags\":[\"floppy_disk\",\"db-01\"]}\n";
+            stream.writeBytes(line.getBytes(StandardCharsets.UTF_8));
+        }
+        final byte[] bytes = stream.toByteArray();
+        final List<ByteBuffer> chunks = new ArrayList<>();
+        for (int start = 0; start < bytes.length; start += CHUNK_SIZE) {
+            chunks.add(ByteBuffer.wrap(Arrays.copyOfRange(bytes, start, Math.min(start + CHUNK_SIZE, bytes.length))));
+        }
+        this.chunks = chunks;
+    }
+
+    /**
+     * Decodes every line to a string first, as a reader-based decoder would
+     *
+     * @param blackhole the blackhole consuming the messages
+     */
+    @Benchmark
+    public void stringPerLine(final Blackhole blackhole) {
+        final ByteArrayOutputStream line = new ByteArrayOutputStream();
+        for (final ByteBuffer chunk : this.chunks) {
+            chunk.clear();
+            while (chunk.hasRemaining()) {
+                final byte b = chunk.get();
+                if (b != '\n') {
+                    line.write(b);
+                    continue;
+                }
+                final byte[] json = line.toString(StandardCharsets.UTF_8).getBytes(StandardCharsets.UTF_8);
+                line.reset();
+                blackhole.consume(ReceivedMessage.fromJson(json, 0, json.length));
+            }
+        }
+    }
+
+    /**
+     * Copies every line into a reusable buffer, as the subscription did before {@link LineFramer}
+     *
+     * @param blackhole the blackhole consuming the messages
+     */
+    @Benchmark
+    public void copyingFramer(final Blackhole blackhole) {
+        byte[] line = new byte[512];
+        int lineLength = 0;
+        for (final ByteBuffer chunk : this.chunks) {
+            chunk.clear();
+            while (chunk.hasRemaining()) {
+                final int start = chunk.position();
+                final int limit = chunk.limit();
+                int end = start;
+                while (end < limit && chunk.get(end) != '\n') end++;
+                final int length = end - start;
+                if (line.length < lineLength + length) line = Arrays.copyOf(line, Math.max(2 * line.length, lineLength + length));
+                chunk.get(line, lineLength, length);
+                lineLength += length;
+                if (end < limit) {
+                    chunk.get();
+                    blackhole.consume(ReceivedMessage.fromJson(line, 0, lineLength));
+                    lineLength = 0;
+                }
+            }
+        }
+    }
+
+    /**
+     * Frames the stream with {@link LineFramer}, which only copies the lines crossing a chunk boundary
+     *
+     * @param blackhole the blackhole consuming the messages
+     * @throws IOException never, the lines are well within the maximum length
+     */
+    @Benchmark
+    public void lineFramer(final Blackhole blackhole) throws IOException {
+        final LineFramer.LineHandler handler = (bytes, offset, length) -> blackhole.consume(ReceivedMessage.fromJson(bytes, offset, length));
+        for (final ByteBuffer chunk : this.chunks) {
+            chunk.clear();
+            this.framer.frame(chunk, handler);
+        }
+        this.framer.finish(handler);
+    }
+
+}
@@ -0,0 +1,117 @@
+package dev.siebrenvde.ntfy.topic;
+
+import com.sun.net.httpserver.HttpServer;
+import dev.siebrenvde.ntfy.internal.VirtualThreads;
+import dev.siebrenvde.ntfy.message.Message;
+import dev.siebrenvde.ntfy.message.PreparedMessage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares 10k concurrent blocking publishes from platform threads and virtual threads
+ *
+ * <p>Publishes go to a local http server which answers every request with a fixed publish response,
+ * so the benchmark measures the client side only. Requires Java 21+ for the virtual thread run.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class VirtualThreadsBenchmark {
+
+    private static final int PUBLISHES = 10_000;
+    private static final int PLATFORM_THREADS = 256;
+    private static final byte[] RESPONSE = "{\"id\":\"benchmark\",\"time\":1069977600,\"expires\":1070020800}".getBytes(StandardCharsets.UTF_8);
+
+    @Param({"platform", "virtual"})
+    public String threads = "platform";
+
+    private HttpServer server;
+    private ExecutorService serverThreads;
+    private ExecutorService callers;
+    private Topic topic;
+    private PreparedMessage message;
+
+    /**
+     * Starts the local server and creates the topic and caller threads
+     *
+     * @throws IOException if the server could not be started
+     */
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        final boolean virtual = "virtual".equals(this.threads);
+
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), PUBLISHES);
+        this.server.createContext("/", exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            exchange.sendResponseHeaders(200, RESPONSE.length);
+            try (OutputStream body = exchange.getResponseBody()) {
+                body.write(RESPONSE);
+            }
+        });
+        this.serverThreads = Executors.newCachedThreadPool();
+        this.server.setExecutor(this.serverThreads);
+        this.server.start();
+
+        this.topic = Topic.topic("benchmark")
+            .host("http://127.0.0.1:" + this.server.getAddress().getPort())
+            .virtualThreads(virtual)
+            .build();
+        this.message = Message.message("benchmark").prepare();
+        this.callers = virtual ? VirtualThreads.newExecutor() : Executors.newFixedThreadPool(PLATFORM_THREADS);
+    }
+
+    /**
+     * Stops the local server and the caller threads
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        this.callers.shutdownNow();
+        this.server.stop(0);
+        this.serverThreads.shutdownNow();
+    }
+
+    /**
+     * Publishes {@value #PUBLISHES} messages, each from its own blocking task
+     *
+     * @throws ExecutionException if a publish failed
+     * @throws InterruptedException if interrupted while waiting for the publishes
+     */
+    @Benchmark
+    public void publish() throws ExecutionException, InterruptedException {
+        final List<Future<?>> futures = new ArrayList<>(PUBLISHES);
+        for (int i = 0; i < PUBLISHES; i++) {
+            futures.add(this.callers.submit(() -> this.topic.publish(this.message)));
+        }
+        for (final Future<?> future : futures) {
+            future.get();
+        }
+    }
+
+}
@@ -0,0 +1,20 @@
+package dev.siebrenvde.ntfy.internal;
+
+import org.jetbrains.annotations.ApiStatus;
+
+/**
+ * A value decoded from JSON which retains its encoded form
+ *
+ * <p>Implemented by every {@link dev.siebrenvde.ntfy.response.ReceivedMessage}</p>
+ */
+@ApiStatus.Internal
+public interface EncodedJson {
+
+    /**
+     * {@return the JSON this value was decoded from}
+     *
+     * <p>The array is the value's own and must not be modified</p>
+     */
+    byte[] json();
+
+}
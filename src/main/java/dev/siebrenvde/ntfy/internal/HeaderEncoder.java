@@ -0,0 +1,72 @@
+package dev.siebrenvde.ntfy.internal;
+
+import org.jetbrains.annotations.ApiStatus;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Encodes header values as RFC 2047 encoded words when they are not printable ASCII
+ *
+ * <p>Printable ASCII values are returned as is, without allocating.
+ * Other values are base64 encoded into a buffer owned by the current thread and turned into the encoded word
+ * in place, so only the UTF-8 bytes and the resulting {@link String} are allocated.
+ * Both the UTF-8 and the base64 encoding use the JDK's intrinsified implementations,
+ * which are faster than encoding in a single hand-written pass.</p>
+ */
+@ApiStatus.Internal
+public final class HeaderEncoder {
+
+    private static final byte[] PREFIX = "=?UTF-8?B?".getBytes(StandardCharsets.US_ASCII);
+    private static final Base64.Encoder BASE64 = Base64.getEncoder();
+
+    /**
+     * Buffers larger than this are not kept for the next value,
+     * so a single large value does not pin memory on every thread that encoded one
+     */
+    private static final int MAX_RETAINED_CAPACITY = 8192;
+
+    private static final ThreadLocal<byte[]> BUFFER = ThreadLocal.withInitial(() -> new byte[512]);
+
+    /**
+     * Encodes a header value
+     *
+     * @param value the value
+     * @return the value itself if it only contains printable ASCII characters, otherwise a UTF-8 base64 encoded word
+     */
+    public static String encode(final String value) {
+        final int length = value.length();
+        for (int i = 0; i < length; i++) {
+            final char c = value.charAt(i);
+            if (c < 32 || c > 126) {
+                return encodeWord(value);
+            }
+        }
+        return value;
+    }
+
+    private static String encodeWord(final String value) {
+        final byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        final int encodedLength = 4 * ((utf8.length + 2) / 3);
+        final int length = PREFIX.length + encodedLength + 2;
+
+        byte[] buffer = BUFFER.get();
+        if (buffer.length < length) {
+            buffer = new byte[length];
+            if (length <= MAX_RETAINED_CAPACITY) BUFFER.set(buffer);
+        }
+
+        // The encoder always writes from the start of the buffer, so move the result behind the prefix
+        BASE64.encode(utf8, buffer);
+        System.arraycopy(buffer, 0, buffer, PREFIX.length, encodedLength);
+        System.arraycopy(PREFIX, 0, buffer, 0, PREFIX.length);
+        buffer[length - 2] = '?';
+        buffer[length - 1] = '=';
+        return new String(buffer, 0, length, StandardCharsets.ISO_8859_1);
+    }
+
+    private HeaderEncoder() {
+
+    }
+
+}
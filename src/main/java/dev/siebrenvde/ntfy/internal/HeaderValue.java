@@ -0,0 +1,20 @@
+package dev.siebrenvde.ntfy.internal;
+
+import org.jetbrains.annotations.ApiStatus;
+
+/**
+ * A value serialized for a request header
+ *
+ * <p>Implemented by every {@link dev.siebrenvde.ntfy.message.action.Action}</p>
+ */
+@ApiStatus.Internal
+public interface HeaderValue {
+
+    /**
+     * {@return this value serialized for its header}
+     *
+     * <p>The value is computed once and cached</p>
+     */
+    String headerValue();
+
+}
@@ -0,0 +1,309 @@
+package dev.siebrenvde.ntfy.internal;
+
+import com.google.gson.JsonSyntaxException;
+import org.jetbrains.annotations.ApiStatus;
+import org.jetbrains.annotations.Contract;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Reads JSON directly from a UTF-8 byte array
+ *
+ * <p>The counterpart of {@link JsonBodyWriter}: unlike Gson's {@code JsonReader},
+ * the input is not decoded to a {@code char[]} first, only the strings that are read are decoded</p>
+ *
+ * <p>Malformed input results in a {@link JsonSyntaxException}</p>
+ */
+@ApiStatus.Internal
+public final class JsonBodyReader {
+
+    // Deeper values are rejected by skipValue, which recurses once per level, instead of overflowing the stack
+    static final int MAX_DEPTH = 255;
+
+    private final byte[] bytes;
+    private final int limit;
+    private int position;
+
+    private JsonBodyReader(final byte[] bytes, final int offset, final int length) {
+        this.bytes = bytes;
+        this.position = offset;
+        this.limit = offset + length;
+    }
+
+    @Contract(value = "_, _, _ -> new", pure = true)
+    public static JsonBodyReader reader(final byte[] bytes, final int offset, final int length) {
+        return new JsonBodyReader(bytes, offset, length);
+    }
+
+    @Contract(value = "_ -> new", pure = true)
+    public static JsonBodyReader reader(final byte[] bytes) {
+        return new JsonBodyReader(bytes, 0, bytes.length);
+    }
+
+    public void beginObject() {
+        this.expect('{');
+    }
+
+    public void endObject() {
+        this.expect('}');
+    }
+
+    public void beginArray() {
+        this.expect('[');
+    }
+
+    public void endArray() {
+        this.expect(']');
+    }
+
+    /**
+     * {@return whether the current object or array has another element}
+     *
+     * <p>Consumes the comma separating the elements</p>
+     */
+    public boolean hasNext() {
+        final int c = this.peek();
+        if (c == ',') {
+            this.position++;
+            return true;
+        }
+        return c != '}' && c != ']';
+    }
+
+    public String nextName() {
+        final String name = this.nextString();
+        this.expect(':');
+        return name;
+    }
+
+    /**
+     * Reads a name and looks it up without decoding it
+     *
+     * @param names the UTF-8 encoded names to look for
+     * @return the index of the name in <code>names</code>, or <code>-1</code> if it is not one of them
+     */
+    public int nextName(final byte[][] names) {
+        this.expect('"');
+        final int start = this.position;
+        int end = start;
+        while (end < this.limit && this.bytes[end] != '"' && this.bytes[end] != '\\') end++;
+        if (end >= this.limit || this.bytes[end] == '\\') {
+            // Falls back to decoding names with escapes, which ntfy never sends
+            this.position = start - 1;
+            final byte[] name = this.nextName().getBytes(StandardCharsets.UTF_8);
+            for (int i = 0; i < names.length; i++) {
+                if (Arrays.equals(name, names[i])) return i;
+            }
+            return -1;
+        }
+        this.position = end + 1;
+        this.expect(':');
+        for (int i = 0; i < names.length; i++) {
+            if (Arrays.equals(this.bytes, start, end, names[i], 0, names[i].length)) return i;
+        }
+        return -1;
+    }
+
+    /**
+     * {@return the offset of the next value, which a new reader can start reading from}
+     */
+    public int offset() {
+        this.peek();
+        return this.position;
+    }
+
+    public String nextString() {
+        this.expect('"');
+        final int start = this.position;
+        // Fast path for strings without escapes, which are decoded straight from the input
+        for (int i = start; i < this.limit; i++) {
+            final byte b = this.bytes[i];
+            if (b == '"') {
+                this.position = i + 1;
+                return new String(this.bytes, start, i - start, StandardCharsets.UTF_8);
+            }
+            if (b == '\\') break;
+        }
+        return this.nextEscapedString(start);
+    }
+
+    private String nextEscapedString(final int start) {
+        final StringBuilder builder = new StringBuilder();
+        int segment = start;
+        while (true) {
+            if (this.position >= this.limit) throw this.error("Unterminated string");
+            final byte b = this.bytes[this.position];
+            if (b == '"') {
+                builder.append(new String(this.bytes, segment, this.position - segment, StandardCharsets.UTF_8));
+                this.position++;
+                return builder.toString();
+            }
+            if (b != '\\') {
+                this.position++;
+                continue;
+            }
+            builder.append(new String(this.bytes, segment, this.position - segment, StandardCharsets.UTF_8));
+            if (++this.position >= this.limit) throw this.error("Unterminated escape");
+            final byte escaped = this.bytes[this.position++];
+            switch (escaped) {
+                case '"', '\\', '/' -> builder.append((char) escaped);
+                case 'b' -> builder.append('\b');
+                case 'f' -> builder.append('\f');
+                case 'n' -> builder.append('\n');
+                case 'r' -> builder.append('\r');
+                case 't' -> builder.append('\t');
+                case 'u' -> {
+                    if (this.position + 4 > this.limit) throw this.error("Unterminated escape");
+                    int c = 0;
+                    for (int i = 0; i < 4; i++) {
+                        final int digit = Character.digit(this.bytes[this.position++], 16);
+                        if (digit < 0) throw this.error("Invalid unicode escape");
+                        c = (c << 4) | digit;
+                    }
+                    builder.append((char) c);
+                }
+                default -> throw this.error("Invalid escape");
+            }
+            segment = this.position;
+        }
+    }
+
+    /**
+     * Reads a number as a long, truncating any fraction
+     *
+     * @return the number
+     */
+    public long nextLong() {
+        this.peek();
+        final int start = this.position;
+        boolean integer = true;
+        while (this.position < this.limit) {
+            final byte b = this.bytes[this.position];
+            if (b == '.' || b == 'e' || b == 'E') {
+                integer = false;
+            } else if (!(b >= '0' && b <= '9') && b != '-' && b != '+') {
+                break;
+            }
+            this.position++;
+        }
+        if (start == this.position) throw this.error("Expected a number");
+        // Fast path for the integers ntfy sends, which are parsed without decoding them to a string first
+        if (integer && this.position - start <= 18) {
+            final boolean negative = this.bytes[start] == '-';
+            int i = negative || this.bytes[start] == '+' ? start + 1 : start;
+            if (i < this.position) {
+                long value = 0;
+                for (; i < this.position; i++) {
+                    final byte b = this.bytes[i];
+                    if (b < '0' || b > '9') break;
+                    value = value * 10 + (b - '0');
+                }
+                if (i == this.position) return negative ? -value : value;
+            }
+        }
+        final String number = new String(this.bytes, start, this.position - start, StandardCharsets.US_ASCII);
+        try {
+            return integer ? Long.parseLong(number) : (long) Double.parseDouble(number);
+        } catch (final NumberFormatException e) {
+            throw this.error("Invalid number '" + number + "'");
+        }
+    }
+
+    public boolean nextBoolean() {
+        if (this.peek() == 't') {
+            this.literal("true");
+            return true;
+        }
+        this.literal("false");
+        return false;
+    }
+
+    /**
+     * Consumes a <code>null</code> if it is the next value
+     *
+     * @return whether the next value was <code>null</code>
+     */
+    public boolean nextNull() {
+        if (this.peek() != 'n') return false;
+        this.literal("null");
+        return true;
+    }
+
+    /**
+     * Skips the next value
+     *
+     * <p>Objects and arrays nested deeper than {@value #MAX_DEPTH} levels are rejected</p>
+     */
+    public void skipValue() {
+        this.skipValue(0);
+    }
+
+    private void skipValue(final int depth) {
+        final int c = this.peek();
+        if ((c == '{' || c == '[') && depth == MAX_DEPTH) throw this.error("Nesting deeper than " + MAX_DEPTH + " levels");
+        switch (c) {
+            case '{' -> {
+                this.beginObject();
+                while (this.hasNext()) {
+                    this.skipString();
+                    this.expect(':');
+                    this.skipValue(depth + 1);
+                }
+                this.endObject();
+            }
+            case '[' -> {
+                this.beginArray();
+                while (this.hasNext()) this.skipValue(depth + 1);
+                this.endArray();
+            }
+            case '"' -> this.skipString();
+            case 't', 'f' -> this.nextBoolean();
+            case 'n' -> this.nextNull();
+            default -> this.nextLong();
+        }
+    }
+
+    private void skipString() {
+        this.expect('"');
+        while (this.position < this.limit) {
+            final byte b = this.bytes[this.position++];
+            if (b == '"') return;
+            if (b == '\\') this.position++;
+        }
+        throw this.error("Unterminated string");
+    }
+
+    /**
+     * Skips whitespace and throws if there is no further input
+     *
+     * @return the next byte
+     */
+    private int peek() {
+        while (this.position < this.limit) {
+            final byte b = this.bytes[this.position];
+            if (b != ' ' && b != '\n' && b != '\r' && b != '\t') return b;
+            this.position++;
+        }
+        throw this.error("Unexpected end of input");
+    }
+
+    private void expect(final char c) {
+        if (this.peek() != c) throw this.error("Expected '" + c + "'");
+        this.position++;
+    }
+
+    private void literal(final String literal) {
+        for (int i = 0; i < literal.length(); i++) {
+            if (this.position >= this.limit || this.bytes[this.position] != literal.charAt(i)) {
+                throw this.error("Expected " + literal);
+            }
+            this.position++;
+        }
+    }
+
+    private JsonSyntaxException error(final String message) {
+        return new JsonSyntaxException(message + " at offset " + this.position);
+    }
+
+}
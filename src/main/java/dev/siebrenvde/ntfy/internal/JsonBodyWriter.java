@@ -0,0 +1,205 @@
+package dev.siebrenvde.ntfy.internal;
+
+import org.jetbrains.annotations.ApiStatus;
+import org.jetbrains.annotations.Contract;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Writes compact JSON directly into a UTF-8 byte array
+ *
+ * <p>Unlike Gson's {@code JsonWriter}, strings are encoded straight into the output
+ * so no intermediate {@link String} or {@code char[]} is created for the document</p>
+ */
+@ApiStatus.Internal
+public final class JsonBodyWriter {
+
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+    private byte[] buffer;
+    private int size;
+    private boolean needsComma;
+    private boolean afterName;
+
+    private JsonBodyWriter(final int capacity, final boolean needsComma) {
+        this.buffer = new byte[capacity];
+        this.needsComma = needsComma;
+    }
+
+    @Contract(value = "-> new", pure = true)
+    public static JsonBodyWriter writer() {
+        return new JsonBodyWriter(256, false);
+    }
+
+    /**
+     * Creates a writer that continues an object which already has at least one field
+     *
+     * <p>The first name written will be preceded by a comma</p>
+     *
+     * @return a new writer
+     */
+    @Contract(value = "-> new", pure = true)
+    public static JsonBodyWriter continuation() {
+        return new JsonBodyWriter(256, true);
+    }
+
+    public JsonBodyWriter beginObject() {
+        this.beforeValue();
+        this.write((byte) '{');
+        this.needsComma = false;
+        return this;
+    }
+
+    public JsonBodyWriter endObject() {
+        this.write((byte) '}');
+        this.needsComma = true;
+        return this;
+    }
+
+    public JsonBodyWriter beginArray() {
+        this.beforeValue();
+        this.write((byte) '[');
+        this.needsComma = false;
+        return this;
+    }
+
+    public JsonBodyWriter endArray() {
+        this.write((byte) ']');
+        this.needsComma = true;
+        return this;
+    }
+
+    public JsonBodyWriter name(final String name) {
+        if (this.needsComma) this.write((byte) ',');
+        this.string(name);
+        this.write((byte) ':');
+        this.afterName = true;
+        return this;
+    }
+
+    public JsonBodyWriter value(final String value) {
+        this.beforeValue();
+        this.string(value);
+        this.needsComma = true;
+        return this;
+    }
+
+    public JsonBodyWriter value(final long value) {
+        this.beforeValue();
+        if (value == Long.MIN_VALUE) {
+            this.ascii(Long.toString(value));
+        } else {
+            long remaining = value;
+            if (remaining < 0) {
+                this.write((byte) '-');
+                remaining = -remaining;
+            }
+            final int start = this.size;
+            do {
+                this.write((byte) ('0' + remaining % 10));
+                remaining /= 10;
+            } while (remaining != 0);
+            reverse(this.buffer, start, this.size - 1);
+        }
+        this.needsComma = true;
+        return this;
+    }
+
+    public JsonBodyWriter value(final boolean value) {
+        this.beforeValue();
+        this.ascii(value ? "true" : "false");
+        this.needsComma = true;
+        return this;
+    }
+
+    public byte[] toByteArray() {
+        return Arrays.copyOf(this.buffer, this.size);
+    }
+
+    private void beforeValue() {
+        if (this.afterName) {
+            this.afterName = false;
+        } else if (this.needsComma) {
+            this.write((byte) ',');
+        }
+    }
+
+    private void string(final String value) {
+        this.ensureCapacity(value.length() + 2);
+        this.write((byte) '"');
+        final int length = value.length();
+        for (int i = 0; i < length; i++) {
+            final char c = value.charAt(i);
+            if (c < 0x80) {
+                switch (c) {
+                    case '"' -> this.escape('"');
+                    case '\\' -> this.escape('\\');
+                    case '\n' -> this.escape('n');
+                    case '\r' -> this.escape('r');
+                    case '\t' -> this.escape('t');
+                    case '\b' -> this.escape('b');
+                    case '\f' -> this.escape('f');
+                    default -> {
+                        if (c < 0x20) {
+                            this.escape('u');
+                            this.write((byte) '0');
+                            this.write((byte) '0');
+                            this.write(HEX[c >> 4]);
+                            this.write(HEX[c & 0xF]);
+                        } else {
+                            this.write((byte) c);
+                        }
+                    }
+                }
+            } else if (c < 0x800) {
+                this.write((byte) (0xC0 | (c >> 6)));
+                this.write((byte) (0x80 | (c & 0x3F)));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                final int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                this.write((byte) (0xF0 | (codePoint >> 18)));
+                this.write((byte) (0x80 | ((codePoint >> 12) & 0x3F)));
+                this.write((byte) (0x80 | ((codePoint >> 6) & 0x3F)));
+                this.write((byte) (0x80 | (codePoint & 0x3F)));
+            } else if (Character.isSurrogate(c)) {
+                this.write((byte) '?');
+            } else {
+                this.write((byte) (0xE0 | (c >> 12)));
+                this.write((byte) (0x80 | ((c >> 6) & 0x3F)));
+                this.write((byte) (0x80 | (c & 0x3F)));
+            }
+        }
+        this.write((byte) '"');
+    }
+
+    private void escape(final char c) {
+        this.write((byte) '\\');
+        this.write((byte) c);
+    }
+
+    private void ascii(final String value) {
+        for (int i = 0; i < value.length(); i++) {
+            this.write((byte) value.charAt(i));
+        }
+    }
+
+    private void write(final byte b) {
+        if (this.size == this.buffer.length) this.ensureCapacity(1);
+        this.buffer[this.size++] = b;
+    }
+
+    private void ensureCapacity(final int additional) {
+        if (this.size + additional > this.buffer.length) {
+            this.buffer = Arrays.copyOf(this.buffer, Math.max(this.buffer.length * 2, this.size + additional));
+        }
+    }
+
+    private static void reverse(final byte[] bytes, final int from, final int to) {
+        for (int i = from, j = to; i < j; i++, j--) {
+            final byte b = bytes[i];
+            bytes[i] = bytes[j];
+            bytes[j] = b;
+        }
+    }
+
+}
@@ -0,0 +1,119 @@
+package dev.siebrenvde.ntfy.internal;
+
+import org.jetbrains.annotations.ApiStatus;
+import org.jspecify.annotations.Nullable;
+
+import java.net.http.HttpResponse.BodySubscriber;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+
+/**
+ * Collects a response body into a byte array of limited size and decodes it once complete
+ *
+ * <p>The body is copied straight from the received buffers, without decoding it to a {@link String} first.
+ * Once the maximum size is reached the rest of the body is not read and the collected part is decoded.</p>
+ *
+ * @param <T> the decoded body type
+ */
+@ApiStatus.Internal
+public final class LimitedBodySubscriber<T> implements BodySubscriber<T> {
+
+    private final int maxSize;
+    private final Decoder<T> decoder;
+    private final CompletableFuture<T> body = new CompletableFuture<>();
+    private byte[] bytes;
+    private int size;
+    private Flow.@Nullable Subscription subscription;
+
+    /**
+     * Creates a new subscriber
+     *
+     * @param maxSize the maximum number of bytes to collect
+     * @param sizeHint the expected size of the body, or <code>-1</code> if unknown
+     * @param decoder the decoder
+     */
+    public LimitedBodySubscriber(final int maxSize, final long sizeHint, final Decoder<T> decoder) {
+        this.maxSize = maxSize;
+        this.decoder = decoder;
+        this.bytes = new byte[(int) Math.min(maxSize, sizeHint >= 0 ? sizeHint : 256)];
+    }
+
+    @Override
+    public CompletionStage<T> getBody() {
+        return this.body;
+    }
+
+    @Override
+    public void onSubscribe(final Flow.Subscription subscription) {
+        this.subscription = subscription;
+        subscription.request(Long.MAX_VALUE);
+    }
+
+    @Override
+    public void onNext(final List<ByteBuffer> buffers) {
+        if (this.body.isDone()) return;
+        for (final ByteBuffer buffer : buffers) {
+            final int remaining = buffer.remaining();
+            if (remaining > this.maxSize - this.size) {
+                if (this.subscription != null) this.subscription.cancel();
+                this.append(buffer, this.maxSize - this.size);
+                this.decode(true);
+                return;
+            }
+            this.append(buffer, remaining);
+        }
+    }
+
+    private void append(final ByteBuffer buffer, final int length) {
+        if (this.bytes.length - this.size < length) {
+            this.bytes = Arrays.copyOf(this.bytes, (int) Math.min(this.maxSize, Math.max(2L * this.bytes.length, (long) this.size + length)));
+        }
+        buffer.get(this.bytes, this.size, length);
+        this.size += length;
+    }
+
+    @Override
+    public void onError(final Throwable throwable) {
+        this.body.completeExceptionally(throwable);
+    }
+
+    @Override
+    public void onComplete() {
+        this.decode(false);
+    }
+
+    private void decode(final boolean truncated) {
+        if (this.body.isDone()) return;
+        try {
+            this.body.complete(this.decoder.decode(this.bytes, this.size, truncated));
+        } catch (final Throwable e) {
+            // Also errors, or the body would never complete
+            this.body.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * Decodes a collected body
+     *
+     * @param <T> the decoded body type
+     */
+    @FunctionalInterface
+    public interface Decoder<T> {
+
+        /**
+         * Decodes a body
+         *
+         * @param bytes the array holding the body, which may be longer than the body
+         * @param length the length of the collected body
+         * @param truncated whether the body was larger than the maximum size and only its start was collected
+         * @return the decoded body
+         */
+        T decode(byte[] bytes, int length, boolean truncated);
+
+    }
+
+}
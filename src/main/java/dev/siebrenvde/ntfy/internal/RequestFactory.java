@@ -0,0 +1,33 @@
+package dev.siebrenvde.ntfy.internal;
+
+import org.jetbrains.annotations.ApiStatus;
+
+import java.net.URI;
+import java.net.http.HttpRequest;
+
+/**
+ * Creates the requests publishing a prepared message
+ *
+ * <p>Implemented by every {@link dev.siebrenvde.ntfy.message.PreparedMessage}</p>
+ */
+@ApiStatus.Internal
+public interface RequestFactory {
+
+    /**
+     * Creates a request publishing the message with headers
+     *
+     * @param uri the topic's uri
+     * @return a new request builder
+     */
+    HttpRequest.Builder newRequest(URI uri);
+
+    /**
+     * Creates a request publishing the message as JSON
+     *
+     * @param uri the server's root uri
+     * @param topic the start of the JSON object, holding the topic field
+     * @return a new request builder
+     */
+    HttpRequest.Builder newJsonRequest(URI uri, byte[] topic);
+
+}
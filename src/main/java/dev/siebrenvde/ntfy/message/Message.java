@@ -6,6 +6,7 @@ import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.Unmodifiable;
 import org.jspecify.annotations.Nullable;
 
+import java.io.FileNotFoundException;
 import java.util.List;
 
 /**
@@ -146,6 +147,17 @@ public sealed interface Message permits MessageImpl {
     @Contract(pure = true)
     boolean firebase();
 
+    /**
+     * Prepares this message for publishing
+     *
+     * <p>The returned message can be published to multiple topics without encoding this message again</p>
+     *
+     * @return a prepared message
+     * @throws FileNotFoundException if the file for a file attachment was not found
+     */
+    @Contract(value = "-> new", pure = true)
+    PreparedMessage prepare() throws FileNotFoundException;
+
     /**
      * Creates a new builder from this message
      *
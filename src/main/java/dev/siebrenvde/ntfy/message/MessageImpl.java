@@ -4,6 +4,7 @@ import dev.siebrenvde.ntfy.message.action.Action;
 import dev.siebrenvde.ntfy.message.attachment.Attachment;
 import org.jspecify.annotations.Nullable;
 
+import java.io.FileNotFoundException;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -25,6 +26,11 @@ record MessageImpl(
     boolean firebase
 ) implements Message {
 
+    @Override
+    public PreparedMessage prepare() throws FileNotFoundException {
+        return new PreparedMessageImpl(this);
+    }
+
     @Override
     public Builder toBuilder() {
         return new BuilderImpl()
@@ -0,0 +1,34 @@
+package dev.siebrenvde.ntfy.message;
+
+import org.jetbrains.annotations.Contract;
+
+import java.io.FileNotFoundException;
+
+/**
+ * Represents a message which has already been encoded for publishing
+ *
+ * <p>A prepared message can be published to any number of topics without encoding the message again</p>
+ *
+ * @see Message#prepare()
+ */
+public sealed interface PreparedMessage permits PreparedMessageImpl {
+
+    /**
+     * Prepares a message for publishing
+     *
+     * @param message the message
+     * @return a prepared message
+     * @throws FileNotFoundException if the file for a file attachment was not found
+     */
+    @Contract(value = "_ -> new", pure = true)
+    static PreparedMessage prepare(final Message message) throws FileNotFoundException {
+        return new PreparedMessageImpl(message);
+    }
+
+    /**
+     * {@return the message this prepared message was created from}
+     */
+    @Contract(pure = true)
+    Message message();
+
+}
@@ -0,0 +1,288 @@
+package dev.siebrenvde.ntfy.message;
+
+import dev.siebrenvde.ntfy.internal.HeaderEncoder;
+import dev.siebrenvde.ntfy.internal.HeaderValue;
+import dev.siebrenvde.ntfy.internal.JsonBodyWriter;
+import dev.siebrenvde.ntfy.internal.RequestFactory;
+import dev.siebrenvde.ntfy.message.action.Action;
+import dev.siebrenvde.ntfy.message.action.BroadcastAction;
+import dev.siebrenvde.ntfy.message.action.HttpAction;
+import dev.siebrenvde.ntfy.message.action.ViewAction;
+import dev.siebrenvde.ntfy.message.attachment.Attachment;
+import dev.siebrenvde.ntfy.message.attachment.FileAttachment;
+import dev.siebrenvde.ntfy.message.attachment.UrlAttachment;
+import org.jetbrains.annotations.VisibleForTesting;
+import org.jspecify.annotations.Nullable;
+
+import java.io.FileNotFoundException;
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.net.http.HttpRequest.BodyPublisher;
+import java.net.http.HttpRequest.BodyPublishers;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.StringJoiner;
+
+import static dev.siebrenvde.ntfy.internal.Util.checkNotNull;
+
+final class PreparedMessageImpl implements PreparedMessage, RequestFactory {
+
+    private final Message message;
+    private final String[] headers;
+    private final BodyPublisher body;
+    private final boolean put;
+    private volatile byte @Nullable [] json;
+
+    PreparedMessageImpl(final Message message) throws FileNotFoundException {
+        checkNotNull(message, "message");
+        this.message = message;
+
+        final List<String> headers = new ArrayList<>();
+        BodyPublisher body = BodyPublishers.noBody();
+        boolean put = false;
+
+        if (message.body() != null) {
+            header(headers, "Message", HeaderEncoder.encode(message.body()));
+        }
+
+        if (message.title() != null) {
+            header(headers, "Title", HeaderEncoder.encode(message.title()));
+        }
+
+        if (message.priority() != Priority.DEFAULT) {
+            header(headers, "Priority", message.priority().name());
+        }
+
+        if (!message.tags().isEmpty()) {
+            header(headers, "Tags", HeaderEncoder.encode(String.join(",", message.tags())));
+        }
+
+        if (message.markdown()) {
+            header(headers, "Markdown", "true");
+        }
+
+        if (!message.actions().isEmpty()) {
+            final StringJoiner actions = new StringJoiner(";");
+            for (final Action action : message.actions()) {
+                actions.add(((HeaderValue) action).headerValue());
+            }
+            header(headers, "Actions", HeaderEncoder.encode(actions.toString()));
+        }
+
+        if (message.clickAction() != null) {
+            header(headers, "Click", HeaderEncoder.encode(message.clickAction()));
+        }
+
+        final Attachment attachment = message.attachment();
+        if (attachment != null) {
+            if (attachment.fileName() != null) {
+                header(headers, "Filename", HeaderEncoder.encode(attachment.fileName()));
+            }
+
+            if (attachment instanceof final UrlAttachment url) {
+                header(headers, "Attach", HeaderEncoder.encode(url.url()));
+            } else if (attachment instanceof final FileAttachment file) {
+                body = BodyPublishers.ofFile(file.file());
+                put = true;
+
+                if (file.fileName() == null) {
+                    header(headers, "Filename", HeaderEncoder.encode(file.file().getFileName().toString()));
+                }
+            }
+        }
+
+        if (message.icon() != null) {
+            header(headers, "Icon", HeaderEncoder.encode(message.icon()));
+        }
+
+        if (message.email() != null) {
+            header(headers, "Email", HeaderEncoder.encode(message.email()));
+        }
+
+        if (message.phone() != null) {
+            header(headers, "Call", HeaderEncoder.encode(message.phone()));
+        }
+
+        if (!message.cache()) {
+            header(headers, "Cache", "no");
+        }
+
+        if (!message.firebase()) {
+            header(headers, "Firebase", "no");
+        }
+
+        this.headers = headers.toArray(new String[0]);
+        this.body = body;
+        this.put = put;
+    }
+
+    @Override
+    public Message message() {
+        return this.message;
+    }
+
+    @Override
+    public HttpRequest.Builder newRequest(final URI uri) {
+        final HttpRequest.Builder builder = HttpRequest.newBuilder(uri);
+        for (int i = 0; i < this.headers.length; i += 2) {
+            builder.header(this.headers[i], this.headers[i + 1]);
+        }
+        if (this.put) {
+            builder.PUT(this.body);
+        } else {
+            builder.POST(this.body);
+        }
+        return builder;
+    }
+
+    @Override
+    @SuppressWarnings("UastIncorrectHttpHeaderInspection")
+    public HttpRequest.Builder newJsonRequest(final URI uri, final byte[] topic) {
+        final HttpRequest.Builder builder = HttpRequest.newBuilder(uri)
+            .header("Content-Type", "application/json")
+            .POST(BodyPublishers.concat(BodyPublishers.ofByteArray(topic), BodyPublishers.ofByteArray(this.json())));
+        if (!this.message.cache()) {
+            builder.header("Cache", "no");
+        }
+        if (!this.message.firebase()) {
+            builder.header("Firebase", "no");
+        }
+        return builder;
+    }
+
+    /**
+     * {@return the message fields as a JSON object without its opening brace}
+     *
+     * <p>Meant to be written after an object start that already contains the topic field</p>
+     */
+    @VisibleForTesting
+    byte[] json() {
+        byte[] json = this.json;
+        if (json == null) {
+            json = encodeJson(this.message);
+            this.json = json;
+        }
+        return json;
+    }
+
+    private static byte[] encodeJson(final Message message) {
+        final JsonBodyWriter writer = JsonBodyWriter.continuation();
+
+        if (message.body() != null) {
+            writer.name("message").value(message.body());
+        }
+
+        if (message.title() != null) {
+            writer.name("title").value(message.title());
+        }
+
+        if (message.priority() != Priority.DEFAULT) {
+            writer.name("priority").value(message.priority().level());
+        }
+
+        if (!message.tags().isEmpty()) {
+            writer.name("tags").beginArray();
+            for (final String tag : message.tags()) writer.value(tag);
+            writer.endArray();
+        }
+
+        if (message.markdown()) {
+            writer.name("markdown").value(true);
+        }
+
+        if (!message.actions().isEmpty()) {
+            writer.name("actions").beginArray();
+            for (final Action action : message.actions()) {
+                writer.beginObject()
+                    .name("action").value(action.action())
+                    .name("label").value(action.label());
+                if (action.clear()) writer.name("clear").value(true);
+
+                if (action instanceof final ViewAction view) {
+                    writer.name("url").value(view.url());
+                } else if (action instanceof final BroadcastAction broadcast) {
+                    if (!broadcast.intent().equals(BroadcastAction.DEFAULT_INTENT)) {
+                        writer.name("intent").value(broadcast.intent());
+                    }
+
+                    if (!broadcast.extras().isEmpty()) {
+                        writer.name("extras").beginObject();
+                        broadcast.extras().forEach((key, value) -> writer.name(key).value(value));
+                        writer.endObject();
+                    }
+                } else if (action instanceof final HttpAction http) {
+                    writer.name("url").value(http.url());
+
+                    if (http.method() != HttpAction.DEFAULT_METHOD) {
+                        writer.name("method").value(http.method().name());
+                    }
+
+                    if (!http.headers().isEmpty()) {
+                        writer.name("headers").beginObject();
+                        http.headers().forEach((header, value) -> writer.name(header).value(value));
+                        writer.endObject();
+                    }
+
+                    if (http.body() != null) {
+                        writer.name("body").value(http.body());
+                    }
+                }
+                writer.endObject();
+            }
+            writer.endArray();
+        }
+
+        if (message.clickAction() != null) {
+            writer.name("click").value(message.clickAction());
+        }
+
+        final Attachment attachment = message.attachment();
+        if (attachment != null) {
+            if (attachment.fileName() != null) {
+                writer.name("filename").value(attachment.fileName());
+            }
+
+            if (attachment instanceof final UrlAttachment url) {
+                writer.name("attach").value(url.url());
+            }
+        }
+
+        if (message.icon() != null) {
+            writer.name("icon").value(message.icon());
+        }
+
+        if (message.email() != null) {
+            writer.name("email").value(message.email());
+        }
+
+        if (message.phone() != null) {
+            writer.name("call").value(message.phone());
+        }
+
+        return writer.endObject().toByteArray();
+    }
+
+    private static void header(final List<String> headers, final String name, final String value) {
+        headers.add(name);
+        headers.add(value);
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (!(o instanceof final PreparedMessageImpl that)) return false;
+        return this.message.equals(that.message);
+    }
+
+    @Override
+    public int hashCode() {
+        return this.message.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "PreparedMessageImpl{" +
+            "message=" + this.message +
+            '}';
+    }
+
+}
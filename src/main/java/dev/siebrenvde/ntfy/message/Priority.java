@@ -1,14 +1,30 @@
 package dev.siebrenvde.ntfy.message;
 
+import org.jetbrains.annotations.Contract;
+
 /**
  * An enum representing the available priority levels
  *
  * @see <a href="https://docs.ntfy.sh/publish/#message-priority">Message priority</a>
  */
 public enum Priority {
-    MAX,
-    HIGH,
-    DEFAULT,
-    LOW,
-    MIN
+    MAX(5),
+    HIGH(4),
+    DEFAULT(3),
+    LOW(2),
+    MIN(1);
+
+    private final int level;
+
+    Priority(final int level) {
+        this.level = level;
+    }
+
+    /**
+     * {@return the numeric priority level used by ntfy, from 1 (min) to 5 (max)}
+     */
+    @Contract(pure = true)
+    public int level() {
+        return this.level;
+    }
 }
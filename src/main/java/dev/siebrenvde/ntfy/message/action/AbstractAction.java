@@ -1,13 +1,18 @@
 package dev.siebrenvde.ntfy.message.action;
 
+import dev.siebrenvde.ntfy.internal.HeaderValue;
+import org.jspecify.annotations.Nullable;
+
+import java.util.Map;
 import java.util.Objects;
 
 import static dev.siebrenvde.ntfy.internal.Util.checkNotNull;
 
-abstract sealed class AbstractAction implements Action permits BroadcastActionImpl, HttpActionImpl, ViewActionImpl {
+abstract sealed class AbstractAction implements Action, HeaderValue permits BroadcastActionImpl, HttpActionImpl, ViewActionImpl {
 
     private final String label;
     private final boolean clear;
+    private @Nullable String headerValue;
 
     AbstractAction(final String label, final boolean clear) {
         checkNotNull(label, "label");
@@ -29,6 +34,52 @@ abstract sealed class AbstractAction implements Action permits BroadcastActionIm
         return this.clear;
     }
 
+    @Override
+    public final String headerValue() {
+        // Racy single-check: actions are immutable, so computing the value twice is harmless
+        String value = this.headerValue;
+        if (value == null) {
+            final StringBuilder builder = new StringBuilder(64);
+            appendPart(builder, "action", this.action());
+            appendPart(builder, "label", this.label);
+            if (this.clear) appendPart(builder, "clear", "true");
+            this.appendParts(builder);
+            value = builder.toString();
+            this.headerValue = value;
+        }
+        return value;
+    }
+
+    /**
+     * Appends the parts specific to this action to its header value
+     *
+     * @param builder the builder holding the header value
+     */
+    abstract void appendParts(StringBuilder builder);
+
+    static void appendPart(final StringBuilder builder, final String key, final String value) {
+        if (!builder.isEmpty()) builder.append(',');
+        builder.append(key).append('=');
+        if (value.indexOf(',') >= 0 || value.indexOf(';') >= 0 || value.indexOf('"') >= 0) {
+            builder.append('"').append(value.replace("\"", "\\\"")).append('"');
+        } else {
+            builder.append(value);
+        }
+    }
+
+    /**
+     * Appends every entry of a map as a part, sorted by key so that the header value is deterministic
+     *
+     * @param builder the builder holding the header value
+     * @param prefix the prefix of the keys
+     * @param map the map
+     */
+    static void appendParts(final StringBuilder builder, final String prefix, final Map<String, String> map) {
+        map.entrySet().stream()
+            .sorted(Map.Entry.comparingByKey())
+            .forEachOrdered(entry -> appendPart(builder, prefix + entry.getKey(), entry.getValue()));
+    }
+
     @Override
     public boolean equals(final Object o) {
         if (!(o instanceof final AbstractAction that)) return false;
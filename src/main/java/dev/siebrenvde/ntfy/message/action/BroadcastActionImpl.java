@@ -40,6 +40,12 @@ final class BroadcastActionImpl extends AbstractAction implements BroadcastActio
             .clear(this.clear());
     }
 
+    @Override
+    void appendParts(final StringBuilder builder) {
+        if (!this.intent.equals(DEFAULT_INTENT)) appendPart(builder, "intent", this.intent);
+        appendParts(builder, "extras.", this.extras);
+    }
+
     @Override
     public boolean equals(final Object o) {
         if (!(o instanceof final BroadcastActionImpl that)) return false;
@@ -57,6 +57,14 @@ final class HttpActionImpl extends AbstractAction implements HttpAction {
             .clear(this.clear());
     }
 
+    @Override
+    void appendParts(final StringBuilder builder) {
+        appendPart(builder, "url", this.url);
+        if (this.method != DEFAULT_METHOD) appendPart(builder, "method", this.method.name());
+        appendParts(builder, "headers.", this.headers);
+        if (this.body != null) appendPart(builder, "body", this.body);
+    }
+
     @Override
     public boolean equals(final Object o) {
         if (!(o instanceof final HttpActionImpl that)) return false;
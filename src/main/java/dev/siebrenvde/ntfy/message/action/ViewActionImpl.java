@@ -29,6 +29,11 @@ final class ViewActionImpl extends AbstractAction implements ViewAction {
         return this.url;
     }
 
+    @Override
+    void appendParts(final StringBuilder builder) {
+        appendPart(builder, "url", this.url);
+    }
+
     @Override
     public boolean equals(final Object o) {
         if (!(o instanceof final ViewActionImpl that)) return false;
@@ -10,7 +10,7 @@ import org.jspecify.annotations.Nullable;
 public sealed interface ErrorResponse permits ErrorResponseImpl {
 
     /**
-     * {@return the ntfy error code}
+     * {@return the ntfy error code, or <code>0</code> if the response did not come from ntfy}
      */
     @Contract(pure = true)
     int code();
@@ -38,4 +38,14 @@ public sealed interface ErrorResponse permits ErrorResponseImpl {
         return ErrorResponseImpl.fromJson(json);
     }
 
+    @ApiStatus.Internal
+    static ErrorResponse fromResponse(final int status, final String body) {
+        return ErrorResponseImpl.fromResponse(status, body);
+    }
+
+    @ApiStatus.Internal
+    static ErrorResponse fromResponse(final int status, final byte[] body, final int length) {
+        return ErrorResponseImpl.fromResponse(status, body, length);
+    }
+
 }
@@ -1,8 +1,12 @@
 package dev.siebrenvde.ntfy.response;
 
-import dev.siebrenvde.ntfy.internal.Util;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonSyntaxException;
+import dev.siebrenvde.ntfy.internal.JsonBodyReader;
 import org.jspecify.annotations.Nullable;
 
+import java.nio.charset.StandardCharsets;
+
 record ErrorResponseImpl(
     int code,
     int http,
@@ -11,7 +15,55 @@ record ErrorResponseImpl(
 ) implements ErrorResponse {
 
     static ErrorResponseImpl fromJson(final String json) {
-        return Util.GSON.fromJson(json, ErrorResponseImpl.class);
+        final byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        return fromJson(bytes, bytes.length);
+    }
+
+    static ErrorResponseImpl fromJson(final byte[] json, final int length) {
+        final JsonBodyReader reader = JsonBodyReader.reader(json, 0, length);
+        int code = 0;
+        int http = 0;
+        @Nullable String error = null;
+        @Nullable String link = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            final String field = reader.nextName();
+            if (reader.nextNull()) continue;
+            switch (field) {
+                case "code" -> code = (int) reader.nextLong();
+                case "http" -> http = (int) reader.nextLong();
+                case "error" -> error = reader.nextString();
+                case "link" -> link = reader.nextString();
+                default -> reader.skipValue();
+            }
+        }
+        reader.endObject();
+        if (error == null) throw new JsonSyntaxException("Response is missing the error");
+        return new ErrorResponseImpl(code, http, error, link);
+    }
+
+    static ErrorResponseImpl fromResponse(final int status, final String body) {
+        final byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        return fromResponse(status, bytes, bytes.length);
+    }
+
+    /**
+     * Parses an error response, falling back to a generic error
+     * if the body is not a ntfy error, such as an html page from a reverse proxy
+     *
+     * @param status the http status code
+     * @param body the array holding the response body
+     * @param length the length of the response body
+     * @return the error response
+     */
+    static ErrorResponseImpl fromResponse(final int status, final byte[] body, final int length) {
+        try {
+            final ErrorResponseImpl response = fromJson(body, length);
+            if (response.http() != 0) return response;
+        } catch (final JsonParseException ignored) {
+            // Not a ntfy error, use the generic error below
+        }
+        return new ErrorResponseImpl(0, status, "Unexpected response from server (HTTP " + status + ")", null);
     }
 
 }
@@ -29,9 +29,75 @@ public sealed interface PublishResponse permits PublishResponseImpl {
     @Contract(pure = true)
     @Nullable Instant expires();
 
+    /**
+     * {@return the topic the message was published to, or <code>null</code> if the server did not include it}
+     *
+     * <p>Parsed from the response when first accessed</p>
+     */
+    @Contract(pure = true)
+    @Nullable String topic();
+
+    /**
+     * {@return the event type of the message, or <code>null</code> if the server did not include it}
+     *
+     * <p>Parsed from the response when first accessed</p>
+     */
+    @Contract(pure = true)
+    @Nullable String event();
+
+    /**
+     * {@return the attachment of the message, or <code>null</code> if it has none}
+     *
+     * <p>Parsed from the response when first accessed</p>
+     */
+    @Contract(pure = true)
+    @Nullable Attachment attachment();
+
     @ApiStatus.Internal
     static PublishResponse fromJson(final String json) {
         return PublishResponseImpl.fromJson(json);
     }
 
+    @ApiStatus.Internal
+    static PublishResponse fromJson(final byte[] json, final int length) {
+        return PublishResponseImpl.fromJson(json, length);
+    }
+
+    /**
+     * Represents an attachment of a published message
+     */
+    sealed interface Attachment permits PublishResponseImpl.AttachmentImpl {
+
+        /**
+         * {@return the url the attachment can be downloaded from}
+         */
+        @Contract(pure = true)
+        String url();
+
+        /**
+         * {@return the name of the attachment, or <code>null</code> if the server did not include it}
+         */
+        @Contract(pure = true)
+        @Nullable String name();
+
+        /**
+         * {@return the mime type of the attachment, or <code>null</code> if it is an external attachment}
+         */
+        @Contract(pure = true)
+        @Nullable String type();
+
+        /**
+         * {@return the size of the attachment in bytes, or <code>0</code> if it is an external attachment}
+         */
+        @Contract(pure = true)
+        long size();
+
+        /**
+         * {@return the time at which the attachment will be deleted, or <code>null</code> if it is an external attachment}
+         */
+        @Contract(pure = true)
+        @Nullable Instant expires();
+
+    }
+
 }
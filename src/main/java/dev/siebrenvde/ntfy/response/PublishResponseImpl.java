@@ -1,18 +1,192 @@
 package dev.siebrenvde.ntfy.response;
 
-import dev.siebrenvde.ntfy.internal.Util;
+import com.google.gson.JsonSyntaxException;
+import dev.siebrenvde.ntfy.internal.JsonBodyReader;
 import org.jspecify.annotations.Nullable;
 
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
+import java.util.Objects;
 
-record PublishResponseImpl(
-    String id,
-    Instant time,
-    @Nullable Instant expires
-) implements PublishResponse {
+/**
+ * Decodes the id and times of the message straight from the response body,
+ * the remaining fields are decoded from the retained body when first accessed
+ */
+final class PublishResponseImpl implements PublishResponse {
+
+    private static final byte[] EMPTY = {'{', '}'};
+
+    private final String id;
+    private final Instant time;
+    private final @Nullable Instant expires;
+    private final byte[] body;
+    private final int length;
+    private @Nullable Details details;
+
+    PublishResponseImpl(final String id, final Instant time, final @Nullable Instant expires) {
+        this(id, time, expires, EMPTY, EMPTY.length);
+    }
+
+    private PublishResponseImpl(
+        final String id,
+        final Instant time,
+        final @Nullable Instant expires,
+        final byte[] body,
+        final int length
+    ) {
+        this.id = id;
+        this.time = time;
+        this.expires = expires;
+        this.body = body;
+        this.length = length;
+    }
 
     static PublishResponseImpl fromJson(final String json) {
-        return Util.GSON.fromJson(json, PublishResponseImpl.class);
+        final byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        return fromJson(bytes, bytes.length);
+    }
+
+    /**
+     * Decodes a publish response
+     *
+     * <p>The array is retained, so it must not be modified afterwards</p>
+     *
+     * @param json the array holding the response body
+     * @param length the length of the response body
+     * @return the publish response
+     */
+    static PublishResponseImpl fromJson(final byte[] json, final int length) {
+        final JsonBodyReader reader = JsonBodyReader.reader(json, 0, length);
+        @Nullable String id = null;
+        @Nullable Instant time = null;
+        @Nullable Instant expires = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "id" -> id = reader.nextString();
+                case "time" -> time = Instant.ofEpochSecond(reader.nextLong());
+                case "expires" -> expires = reader.nextNull() ? null : Instant.ofEpochSecond(reader.nextLong());
+                default -> reader.skipValue();
+            }
+        }
+        reader.endObject();
+        if (id == null || time == null) throw new JsonSyntaxException("Response is missing the message id or time");
+        return new PublishResponseImpl(id, time, expires, json, length);
+    }
+
+    @Override
+    public String id() {
+        return this.id;
+    }
+
+    @Override
+    public Instant time() {
+        return this.time;
+    }
+
+    @Override
+    public @Nullable Instant expires() {
+        return this.expires;
+    }
+
+    @Override
+    public @Nullable String topic() {
+        return this.details().topic();
+    }
+
+    @Override
+    public @Nullable String event() {
+        return this.details().event();
+    }
+
+    @Override
+    public @Nullable Attachment attachment() {
+        return this.details().attachment();
+    }
+
+    // Racy single-check: concurrent callers may each decode the details, but will see equal values
+    private Details details() {
+        @Nullable Details details = this.details;
+        if (details == null) {
+            details = Details.fromJson(JsonBodyReader.reader(this.body, 0, this.length));
+            this.details = details;
+        }
+        return details;
+    }
+
+    @Override
+    public boolean equals(final @Nullable Object o) {
+        if (this == o) return true;
+        if (!(o instanceof final PublishResponseImpl that)) return false;
+        return this.id.equals(that.id) && this.time.equals(that.time) && Objects.equals(this.expires, that.expires);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(this.id, this.time, this.expires);
+    }
+
+    @Override
+    public String toString() {
+        return "PublishResponseImpl[id=" + this.id + ", time=" + this.time + ", expires=" + this.expires + "]";
+    }
+
+    private record Details(
+        @Nullable String topic,
+        @Nullable String event,
+        @Nullable AttachmentImpl attachment
+    ) {
+
+        static Details fromJson(final JsonBodyReader reader) {
+            @Nullable String topic = null;
+            @Nullable String event = null;
+            @Nullable AttachmentImpl attachment = null;
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "topic" -> topic = reader.nextNull() ? null : reader.nextString();
+                    case "event" -> event = reader.nextNull() ? null : reader.nextString();
+                    case "attachment" -> attachment = reader.nextNull() ? null : AttachmentImpl.fromJson(reader);
+                    default -> reader.skipValue();
+                }
+            }
+            reader.endObject();
+            return new Details(topic, event, attachment);
+        }
+
+    }
+
+    record AttachmentImpl(
+        String url,
+        @Nullable String name,
+        @Nullable String type,
+        long size,
+        @Nullable Instant expires
+    ) implements Attachment {
+
+        static @Nullable AttachmentImpl fromJson(final JsonBodyReader reader) {
+            @Nullable String url = null;
+            @Nullable String name = null;
+            @Nullable String type = null;
+            long size = 0;
+            @Nullable Instant expires = null;
+            reader.beginObject();
+            while (reader.hasNext()) {
+                final String field = reader.nextName();
+                if (reader.nextNull()) continue;
+                switch (field) {
+                    case "url" -> url = reader.nextString();
+                    case "name" -> name = reader.nextString();
+                    case "type" -> type = reader.nextString();
+                    case "size" -> size = reader.nextLong();
+                    case "expires" -> expires = Instant.ofEpochSecond(reader.nextLong());
+                    default -> reader.skipValue();
+                }
+            }
+            reader.endObject();
+            return url != null ? new AttachmentImpl(url, name, type, size, expires) : null;
+        }
+
     }
 
 }
@@ -0,0 +1,101 @@
+package dev.siebrenvde.ntfy.response;
+
+import dev.siebrenvde.ntfy.message.Priority;
+import org.jetbrains.annotations.ApiStatus;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.Unmodifiable;
+import org.jspecify.annotations.Nullable;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Represents a message received from a subscription to a topic
+ *
+ * @see dev.siebrenvde.ntfy.topic.Topic#subscribe()
+ */
+public sealed interface ReceivedMessage permits ReceivedMessageImpl {
+
+    /**
+     * {@return the message id}
+     */
+    @Contract(pure = true)
+    String id();
+
+    /**
+     * {@return the time at which the message was published}
+     */
+    @Contract(pure = true)
+    Instant time();
+
+    /**
+     * {@return the time at which the message will be deleted, or <code>null</code> if caching is disabled}
+     */
+    @Contract(pure = true)
+    @Nullable Instant expires();
+
+    /**
+     * {@return the topic the message was published to}
+     */
+    @Contract(pure = true)
+    String topic();
+
+    /**
+     * {@return the message body}
+     */
+    @Contract(pure = true)
+    @Nullable String body();
+
+    /**
+     * {@return the message title}
+     */
+    @Contract(pure = true)
+    @Nullable String title();
+
+    /**
+     * {@return the priority}
+     *
+     * @see <a href="https://docs.ntfy.sh/publish/#message-priority">Message priority</a>
+     */
+    @Contract(pure = true)
+    Priority priority();
+
+    /**
+     * {@return a list of tags}
+     *
+     * @see <a href="https://docs.ntfy.sh/publish/#tags-emojis">Tags &amp; emojis</a>
+     */
+    @Contract(pure = true)
+    @Unmodifiable List<String> tags();
+
+    /**
+     * {@return the url opened when the notification is clicked}
+     *
+     * @see <a href="https://docs.ntfy.sh/publish/#click-action">Click action</a>
+     */
+    @Contract(pure = true)
+    @Nullable String click();
+
+    /**
+     * {@return the attachment of the message, or <code>null</code> if it has none}
+     */
+    @Contract(pure = true)
+    PublishResponse.@Nullable Attachment attachment();
+
+    /**
+     * Decodes a line of a subscription stream
+     *
+     * <p>Only the id, time, topic and priority are decoded up front, the remaining fields are decoded when first accessed.
+     * The line is copied, so the array may be reused afterwards.</p>
+     *
+     * @param json the array holding the line
+     * @param offset the offset of the line in the array
+     * @param length the length of the line
+     * @return the message, or <code>null</code> if the line is another event, such as a keepalive
+     */
+    @ApiStatus.Internal
+    static @Nullable ReceivedMessage fromJson(final byte[] json, final int offset, final int length) {
+        return ReceivedMessageImpl.fromJson(json, offset, length);
+    }
+
+}
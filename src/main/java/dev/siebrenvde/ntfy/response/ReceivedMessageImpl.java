@@ -0,0 +1,255 @@
+package dev.siebrenvde.ntfy.response;
+
+import com.google.gson.JsonSyntaxException;
+import dev.siebrenvde.ntfy.internal.EncodedJson;
+import dev.siebrenvde.ntfy.internal.JsonBodyReader;
+import dev.siebrenvde.ntfy.message.Priority;
+import org.jspecify.annotations.Nullable;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Decodes the fields messages are routed by, the id, time, topic and priority, in a single pass over the event,
+ * which also records where the values of the remaining fields start.
+ * Those are decoded from the retained event when first accessed,
+ * so a malformed value of one of them only results in a {@link JsonSyntaxException} when it is accessed.
+ */
+final class ReceivedMessageImpl implements ReceivedMessage, EncodedJson {
+
+    private static final byte[][] FIELDS = fields("event", "id", "time", "expires", "topic", "message", "title", "priority", "tags", "click", "attachment");
+    private static final int EVENT = 0;
+    private static final int ID = 1;
+    private static final int TIME = 2;
+    private static final int EXPIRES = 3;
+    private static final int TOPIC = 4;
+    private static final int BODY = 5;
+    private static final int TITLE = 6;
+    private static final int PRIORITY = 7;
+    private static final int TAGS = 8;
+    private static final int CLICK = 9;
+    private static final int ATTACHMENT = 10;
+    private static final Priority[] PRIORITIES = Priority.values();
+
+    /** Offset of a field that is missing or <code>null</code> */
+    private static final int ABSENT = -1;
+    /** Value of a time that is missing or <code>null</code> */
+    private static final long UNSET = Long.MIN_VALUE;
+
+    private final String id;
+    private final Instant time;
+    private final long expires;
+    private final String topic;
+    private final Priority priority;
+    private final byte[] json;
+    private final int bodyOffset;
+    private final int titleOffset;
+    private final int tagsOffset;
+    private final int clickOffset;
+    private final int attachmentOffset;
+    private @Nullable String body;
+    private @Nullable String title;
+    private @Nullable List<String> tags;
+    private @Nullable String click;
+    private @Nullable AttachmentHolder attachment;
+
+    private ReceivedMessageImpl(
+        final String id,
+        final Instant time,
+        final long expires,
+        final String topic,
+        final Priority priority,
+        final byte[] json,
+        final int[] offsets
+    ) {
+        this.id = id;
+        this.time = time;
+        this.expires = expires;
+        this.topic = topic;
+        this.priority = priority;
+        this.json = json;
+        this.bodyOffset = offsets[BODY];
+        this.titleOffset = offsets[TITLE];
+        this.tagsOffset = offsets[TAGS];
+        this.clickOffset = offsets[CLICK];
+        this.attachmentOffset = offsets[ATTACHMENT];
+    }
+
+    /**
+     * Decodes a line of a subscription stream
+     *
+     * <p>The line is copied if it is a message, so the array may be reused afterwards</p>
+     *
+     * @param json the array holding the line
+     * @param offset the offset of the line in the array
+     * @param length the length of the line
+     * @return the message, or <code>null</code> if the line is another event
+     */
+    static @Nullable ReceivedMessageImpl fromJson(final byte[] json, final int offset, final int length) {
+        final JsonBodyReader reader = JsonBodyReader.reader(json, offset, length);
+        @Nullable String event = null;
+        @Nullable String id = null;
+        long time = UNSET;
+        long expires = UNSET;
+        @Nullable String topic = null;
+        Priority priority = Priority.DEFAULT;
+        final int[] offsets = {ABSENT, ABSENT, ABSENT, ABSENT, ABSENT, ABSENT, ABSENT, ABSENT, ABSENT, ABSENT, ABSENT};
+        reader.beginObject();
+        while (reader.hasNext()) {
+            final int field = reader.nextName(FIELDS);
+            if (reader.nextNull()) continue;
+            switch (field) {
+                case EVENT -> event = reader.nextString();
+                case ID -> id = reader.nextString();
+                case TIME -> time = reader.nextLong();
+                case EXPIRES -> expires = reader.nextLong();
+                case TOPIC -> topic = reader.nextString();
+                case PRIORITY -> priority = priority(reader.nextLong());
+                case BODY, TITLE, TAGS, CLICK, ATTACHMENT -> {
+                    offsets[field] = reader.offset() - offset;
+                    reader.skipValue();
+                }
+                default -> reader.skipValue();
+            }
+        }
+        reader.endObject();
+        if (!"message".equals(event)) return null;
+        if (id == null || time == UNSET || topic == null) throw new JsonSyntaxException("Message is missing the id, time or topic");
+        return new ReceivedMessageImpl(id, Instant.ofEpochSecond(time), expires, topic, priority, Arrays.copyOfRange(json, offset, offset + length), offsets);
+    }
+
+    @Override
+    public String id() {
+        return this.id;
+    }
+
+    @Override
+    public Instant time() {
+        return this.time;
+    }
+
+    @Override
+    public @Nullable Instant expires() {
+        return this.expires != UNSET ? Instant.ofEpochSecond(this.expires) : null;
+    }
+
+    @Override
+    public String topic() {
+        return this.topic;
+    }
+
+    // The lazy fields use racy single-checks: concurrent callers may each decode a field, but will see equal values
+
+    @Override
+    public @Nullable String body() {
+        @Nullable String body = this.body;
+        if (body == null && this.bodyOffset != ABSENT) {
+            body = this.reader(this.bodyOffset).nextString();
+            this.body = body;
+        }
+        return body;
+    }
+
+    @Override
+    public @Nullable String title() {
+        @Nullable String title = this.title;
+        if (title == null && this.titleOffset != ABSENT) {
+            title = this.reader(this.titleOffset).nextString();
+            this.title = title;
+        }
+        return title;
+    }
+
+    @Override
+    public Priority priority() {
+        return this.priority;
+    }
+
+    @Override
+    public List<String> tags() {
+        @Nullable List<String> tags = this.tags;
+        if (tags == null) {
+            tags = this.tagsOffset != ABSENT ? tags(this.reader(this.tagsOffset)) : List.of();
+            this.tags = tags;
+        }
+        return tags;
+    }
+
+    @Override
+    public @Nullable String click() {
+        @Nullable String click = this.click;
+        if (click == null && this.clickOffset != ABSENT) {
+            click = this.reader(this.clickOffset).nextString();
+            this.click = click;
+        }
+        return click;
+    }
+
+    @Override
+    public PublishResponseImpl.@Nullable AttachmentImpl attachment() {
+        if (this.attachmentOffset == ABSENT) return null;
+        @Nullable AttachmentHolder attachment = this.attachment;
+        if (attachment == null) {
+            attachment = new AttachmentHolder(PublishResponseImpl.AttachmentImpl.fromJson(this.reader(this.attachmentOffset)));
+            this.attachment = attachment;
+        }
+        return attachment.attachment();
+    }
+
+    @Override
+    public byte[] json() {
+        return this.json;
+    }
+
+    private JsonBodyReader reader(final int offset) {
+        return JsonBodyReader.reader(this.json, offset, this.json.length - offset);
+    }
+
+    @Override
+    public boolean equals(final @Nullable Object o) {
+        if (this == o) return true;
+        if (!(o instanceof final ReceivedMessageImpl that)) return false;
+        return this.id.equals(that.id) && this.time.equals(that.time) && this.topic.equals(that.topic) && this.priority == that.priority;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(this.id, this.time, this.topic, this.priority);
+    }
+
+    @Override
+    public String toString() {
+        return "ReceivedMessageImpl[id=" + this.id + ", time=" + this.time + ", topic=" + this.topic + ", priority=" + this.priority + "]";
+    }
+
+    private static Priority priority(final long level) {
+        for (final Priority priority : PRIORITIES) {
+            if (priority.level() == level) return priority;
+        }
+        return Priority.DEFAULT;
+    }
+
+    private static List<String> tags(final JsonBodyReader reader) {
+        final List<String> tags = new ArrayList<>();
+        reader.beginArray();
+        while (reader.hasNext()) tags.add(reader.nextString());
+        reader.endArray();
+        return List.copyOf(tags);
+    }
+
+    private static byte[][] fields(final String... names) {
+        final byte[][] fields = new byte[names.length][];
+        for (int i = 0; i < names.length; i++) fields[i] = names[i].getBytes(StandardCharsets.UTF_8);
+        return fields;
+    }
+
+    /**
+     * Distinguishes an attachment without a url, which decodes to <code>null</code>, from one that was not decoded yet
+     */
+    private record AttachmentHolder(PublishResponseImpl.@Nullable AttachmentImpl attachment) {}
+
+}
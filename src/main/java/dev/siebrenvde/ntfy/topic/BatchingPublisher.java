@@ -0,0 +1,187 @@
+package dev.siebrenvde.ntfy.topic;
+
+import dev.siebrenvde.ntfy.message.Message;
+import dev.siebrenvde.ntfy.response.ErrorResponse;
+import dev.siebrenvde.ntfy.response.PublishResponse;
+import dev.siebrenvde.ntfy.util.Result;
+import org.jetbrains.annotations.Contract;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Queues messages for a topic and publishes them in batches
+ *
+ * <p>A batch is sent as soon as {@link #maxBatchSize()} messages are queued,
+ * or once the oldest queued message has waited for {@link #linger()}.
+ * All messages in a batch are sent concurrently over the topic's http client,
+ * and the next batch is only sent once the previous one has completed.
+ * When the queue is full the {@link OverflowPolicy} decides what happens to new messages.</p>
+ */
+public sealed interface BatchingPublisher extends AutoCloseable permits BatchingPublisherImpl {
+
+    int DEFAULT_MAX_BATCH_SIZE = 64;
+    Duration DEFAULT_LINGER = Duration.ofMillis(5);
+    int DEFAULT_QUEUE_CAPACITY = 1024;
+    OverflowPolicy DEFAULT_OVERFLOW_POLICY = OverflowPolicy.BLOCK;
+
+    /**
+     * Creates a new batching publisher builder
+     *
+     * @param topic the topic to publish to
+     * @return a batching publisher builder
+     */
+    @Contract(value = "_ -> new", pure = true)
+    static Builder batching(final Topic topic) {
+        return new BatchingPublisherImpl.BuilderImpl(topic);
+    }
+
+    /**
+     * {@return the topic messages are published to}
+     */
+    @Contract(pure = true)
+    Topic topic();
+
+    /**
+     * {@return the maximum number of messages in a batch}
+     */
+    @Contract(pure = true)
+    int maxBatchSize();
+
+    /**
+     * {@return the maximum time a message waits for its batch to fill up}
+     */
+    @Contract(pure = true)
+    Duration linger();
+
+    /**
+     * {@return the maximum number of queued messages}
+     */
+    @Contract(pure = true)
+    int queueCapacity();
+
+    /**
+     * {@return what happens when a message is submitted while the queue is full}
+     */
+    @Contract(pure = true)
+    OverflowPolicy overflowPolicy();
+
+    /**
+     * Queues a message to be published
+     *
+     * <p>If the queue is full, this either blocks, drops the oldest queued message
+     * or fails fast depending on the {@link #overflowPolicy()}</p>
+     *
+     * @param message the message
+     * @return a {@link Result} with either a {@link PublishResponse} or an {@link ErrorResponse},
+     *     which completes exceptionally with a {@link RejectedExecutionException} if the message was rejected or dropped
+     * @throws InterruptedException if interrupted while waiting for space in the queue
+     */
+    CompletableFuture<Result<PublishResponse, ErrorResponse>> submit(Message message) throws InterruptedException;
+
+    /**
+     * Queues a message to be published
+     *
+     * @param message the message
+     * @return a {@link Result} with either a {@link PublishResponse} or an {@link ErrorResponse}
+     * @throws InterruptedException if interrupted while waiting for space in the queue
+     * @see #submit(Message)
+     */
+    default CompletableFuture<Result<PublishResponse, ErrorResponse>> submit(final String message) throws InterruptedException {
+        return this.submit(Message.message(message));
+    }
+
+    /**
+     * Publishes all currently queued messages without waiting for their batches to fill up
+     *
+     * @return a future which completes once all messages queued or in flight before calling this method have completed
+     */
+    CompletableFuture<Void> flush();
+
+    /**
+     * Stops accepting new messages, then publishes all queued messages and waits for them to complete
+     */
+    @Override
+    void close();
+
+    /**
+     * An enum representing what happens when a message is submitted while the queue is full
+     */
+    enum OverflowPolicy {
+        /**
+         * Blocks the caller until there is space in the queue
+         */
+        BLOCK,
+        /**
+         * Drops the oldest queued message to make room for the new message
+         */
+        DROP_OLDEST,
+        /**
+         * Rejects the new message
+         */
+        FAIL_FAST
+    }
+
+    /**
+     * Builder for {@link BatchingPublisher}
+     */
+    sealed interface Builder permits BatchingPublisherImpl.BuilderImpl {
+
+        /**
+         * Sets the maximum number of messages in a batch
+         *
+         * <p>Must be positive and non-zero</p>
+         *
+         * @param maxBatchSize the maximum number of messages
+         * @return the builder
+         * @see BatchingPublisher#DEFAULT_MAX_BATCH_SIZE
+         */
+        @Contract(value = "_ -> this", mutates = "this")
+        Builder maxBatchSize(int maxBatchSize);
+
+        /**
+         * Sets the maximum time a message waits for its batch to fill up
+         *
+         * <p>Must not be negative</p>
+         *
+         * @param linger the linger time
+         * @return the builder
+         * @see BatchingPublisher#DEFAULT_LINGER
+         */
+        @Contract(value = "_ -> this", mutates = "this")
+        Builder linger(Duration linger);
+
+        /**
+         * Sets the maximum number of queued messages
+         *
+         * <p>Must be positive and non-zero</p>
+         *
+         * @param queueCapacity the maximum number of messages
+         * @return the builder
+         * @see BatchingPublisher#DEFAULT_QUEUE_CAPACITY
+         */
+        @Contract(value = "_ -> this", mutates = "this")
+        Builder queueCapacity(int queueCapacity);
+
+        /**
+         * Sets what happens when a message is submitted while the queue is full
+         *
+         * @param overflowPolicy the overflow policy
+         * @return the builder
+         * @see BatchingPublisher#DEFAULT_OVERFLOW_POLICY
+         */
+        @Contract(value = "_ -> this", mutates = "this")
+        Builder overflowPolicy(OverflowPolicy overflowPolicy);
+
+        /**
+         * Builds the batching publisher
+         *
+         * @return a new batching publisher
+         */
+        @Contract(value = "-> new", pure = true)
+        BatchingPublisher build();
+
+    }
+
+}
@@ -0,0 +1,322 @@
+package dev.siebrenvde.ntfy.topic;
+
+import dev.siebrenvde.ntfy.message.Message;
+import dev.siebrenvde.ntfy.message.PreparedMessage;
+import dev.siebrenvde.ntfy.response.ErrorResponse;
+import dev.siebrenvde.ntfy.response.PublishResponse;
+import dev.siebrenvde.ntfy.util.Result;
+import org.jspecify.annotations.Nullable;
+
+import java.io.FileNotFoundException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static dev.siebrenvde.ntfy.internal.Util.checkArgument;
+import static dev.siebrenvde.ntfy.internal.Util.checkNotNull;
+
+final class BatchingPublisherImpl implements BatchingPublisher {
+
+    private final Topic topic;
+    private final int maxBatchSize;
+    private final Duration linger;
+    private final int queueCapacity;
+    private final OverflowPolicy overflowPolicy;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notFull = this.lock.newCondition();
+    private final ArrayDeque<Entry> queue = new ArrayDeque<>();
+    private long sequence;
+    private long flushUntil = -1;
+    private @Nullable List<Entry> inFlight;
+    private boolean lingerScheduled;
+    private boolean closed;
+
+    BatchingPublisherImpl(final Topic topic, final int maxBatchSize, final Duration linger, final int queueCapacity, final OverflowPolicy overflowPolicy) {
+        this.topic = topic;
+        this.maxBatchSize = maxBatchSize;
+        this.linger = linger;
+        this.queueCapacity = queueCapacity;
+        this.overflowPolicy = overflowPolicy;
+    }
+
+    @Override
+    public Topic topic() {
+        return this.topic;
+    }
+
+    @Override
+    public int maxBatchSize() {
+        return this.maxBatchSize;
+    }
+
+    @Override
+    public Duration linger() {
+        return this.linger;
+    }
+
+    @Override
+    public int queueCapacity() {
+        return this.queueCapacity;
+    }
+
+    @Override
+    public OverflowPolicy overflowPolicy() {
+        return this.overflowPolicy;
+    }
+
+    @Override
+    public CompletableFuture<Result<PublishResponse, ErrorResponse>> submit(final Message message) throws InterruptedException {
+        checkNotNull(message, "message");
+        final PreparedMessage prepared;
+        try {
+            prepared = message.prepare();
+        } catch (final FileNotFoundException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+
+        final Entry entry;
+        @Nullable Entry dropped = null;
+        final @Nullable List<Entry> batch;
+        this.lock.lockInterruptibly();
+        try {
+            while (!this.closed && this.queue.size() >= this.queueCapacity) {
+                if (this.overflowPolicy == OverflowPolicy.BLOCK) {
+                    this.notFull.await();
+                } else if (this.overflowPolicy == OverflowPolicy.DROP_OLDEST) {
+                    dropped = this.queue.poll();
+                } else {
+                    return CompletableFuture.failedFuture(new RejectedExecutionException("Queue is full"));
+                }
+            }
+            if (this.closed) {
+                return CompletableFuture.failedFuture(new RejectedExecutionException("Publisher is closed"));
+            }
+            entry = new Entry(prepared, this.sequence++);
+            this.queue.add(entry);
+            batch = this.nextBatch();
+        } finally {
+            this.lock.unlock();
+        }
+
+        if (dropped != null) {
+            dropped.future.completeExceptionally(new RejectedExecutionException("Dropped to make room for a newer message"));
+        }
+        this.send(batch);
+        return entry.future;
+    }
+
+    @Override
+    public CompletableFuture<Void> flush() {
+        final List<CompletableFuture<?>> futures = new ArrayList<>();
+        final @Nullable List<Entry> batch;
+        this.lock.lock();
+        try {
+            if (this.inFlight != null) {
+                for (final Entry entry : this.inFlight) futures.add(entry.future);
+            }
+            for (final Entry entry : this.queue) futures.add(entry.future);
+            this.flushUntil = this.sequence - 1;
+            batch = this.nextBatch();
+        } finally {
+            this.lock.unlock();
+        }
+        this.send(batch);
+        // A future failing only means that message failed, the flush itself has still completed
+        return CompletableFuture.allOf(
+            futures.stream()
+                .map(future -> future.handle((result, throwable) -> null))
+                .toArray(CompletableFuture[]::new)
+        );
+    }
+
+    @Override
+    public void close() {
+        this.lock.lock();
+        try {
+            this.closed = true;
+            this.notFull.signalAll();
+        } finally {
+            this.lock.unlock();
+        }
+        this.flush().join();
+    }
+
+    /**
+     * Takes the next batch off the queue if no batch is in flight and a batch is due,
+     * otherwise schedules the linger timer if needed
+     *
+     * <p>Must be called while holding the lock</p>
+     *
+     * @return the batch to send, or <code>null</code> if no batch is due
+     */
+    private @Nullable List<Entry> nextBatch() {
+        final @Nullable Entry head = this.queue.peek();
+        if (this.inFlight != null || head == null) return null;
+
+        if (this.queue.size() < this.maxBatchSize && head.sequence > this.flushUntil) {
+            if (!this.lingerScheduled) {
+                this.lingerScheduled = true;
+                CompletableFuture.delayedExecutor(this.linger.toNanos(), TimeUnit.NANOSECONDS).execute(this::lingerExpired);
+            }
+            return null;
+        }
+
+        final List<Entry> batch = new ArrayList<>(Math.min(this.queue.size(), this.maxBatchSize));
+        while (batch.size() < this.maxBatchSize && !this.queue.isEmpty()) {
+            batch.add(this.queue.removeFirst());
+        }
+        this.inFlight = batch;
+        this.notFull.signalAll();
+        return batch;
+    }
+
+    private void lingerExpired() {
+        final @Nullable List<Entry> batch;
+        this.lock.lock();
+        try {
+            this.lingerScheduled = false;
+            final @Nullable Entry head = this.queue.peek();
+            if (head != null) this.flushUntil = Math.max(this.flushUntil, head.sequence);
+            batch = this.nextBatch();
+        } finally {
+            this.lock.unlock();
+        }
+        this.send(batch);
+    }
+
+    /**
+     * Sends batches until one is still in flight or no batch is due
+     *
+     * <p>Publishes that are rejected before they are sent, for example by a rate limiter,
+     * complete immediately, so the following batches are sent on this thread instead of recursing</p>
+     *
+     * @param batch the batch to send, or <code>null</code> if no batch is due
+     */
+    private void send(@Nullable List<Entry> batch) {
+        while (batch != null) {
+            final CompletableFuture<Void> requests = this.publish(batch);
+            if (!requests.isDone()) {
+                requests.whenComplete((ignored, throwable) -> this.send(this.completed()));
+                return;
+            }
+            batch = this.completed();
+        }
+    }
+
+    private CompletableFuture<Void> publish(final List<Entry> batch) {
+        final CompletableFuture<?>[] requests = new CompletableFuture<?>[batch.size()];
+        for (int i = 0; i < batch.size(); i++) {
+            final Entry entry = batch.get(i);
+            CompletableFuture<Result<PublishResponse, ErrorResponse>> request;
+            try {
+                request = this.topic.publishAsync(entry.message);
+            } catch (final RuntimeException e) {
+                request = CompletableFuture.failedFuture(e);
+            }
+            requests[i] = request.whenComplete((result, throwable) -> {
+                if (throwable != null) {
+                    entry.future.completeExceptionally(throwable);
+                } else {
+                    entry.future.complete(result);
+                }
+            });
+        }
+        return CompletableFuture.allOf(requests);
+    }
+
+    /**
+     * Marks the batch in flight as completed
+     *
+     * @return the next batch to send, or <code>null</code> if no batch is due
+     */
+    private @Nullable List<Entry> completed() {
+        this.lock.lock();
+        try {
+            this.inFlight = null;
+            return this.nextBatch();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "BatchingPublisherImpl{" +
+            "topic=" + this.topic +
+            ", maxBatchSize=" + this.maxBatchSize +
+            ", linger=" + this.linger +
+            ", queueCapacity=" + this.queueCapacity +
+            ", overflowPolicy=" + this.overflowPolicy +
+            '}';
+    }
+
+    private static final class Entry {
+
+        private final PreparedMessage message;
+        private final long sequence;
+        private final CompletableFuture<Result<PublishResponse, ErrorResponse>> future = new CompletableFuture<>();
+
+        Entry(final PreparedMessage message, final long sequence) {
+            this.message = message;
+            this.sequence = sequence;
+        }
+
+    }
+
+    static final class BuilderImpl implements BatchingPublisher.Builder {
+
+        private final Topic topic;
+        private int maxBatchSize = DEFAULT_MAX_BATCH_SIZE;
+        private Duration linger = DEFAULT_LINGER;
+        private int queueCapacity = DEFAULT_QUEUE_CAPACITY;
+        private OverflowPolicy overflowPolicy = DEFAULT_OVERFLOW_POLICY;
+
+        BuilderImpl(final Topic topic) {
+            checkNotNull(topic, "topic");
+            this.topic = topic;
+        }
+
+        @Override
+        public Builder maxBatchSize(final int maxBatchSize) {
+            checkArgument(maxBatchSize > 0, "maxBatchSize must be positive");
+            this.maxBatchSize = maxBatchSize;
+            return this;
+        }
+
+        @Override
+        public Builder linger(final Duration linger) {
+            checkNotNull(linger, "linger");
+            checkArgument(!linger.isNegative(), "linger must not be negative");
+            this.linger = linger;
+            return this;
+        }
+
+        @Override
+        public Builder queueCapacity(final int queueCapacity) {
+            checkArgument(queueCapacity > 0, "queueCapacity must be positive");
+            this.queueCapacity = queueCapacity;
+            return this;
+        }
+
+        @Override
+        public Builder overflowPolicy(final OverflowPolicy overflowPolicy) {
+            checkNotNull(overflowPolicy, "overflowPolicy");
+            this.overflowPolicy = overflowPolicy;
+            return this;
+        }
+
+        @Override
+        public BatchingPublisher build() {
+            return new BatchingPublisherImpl(this.topic, this.maxBatchSize, this.linger, this.queueCapacity, this.overflowPolicy);
+        }
+
+    }
+
+}
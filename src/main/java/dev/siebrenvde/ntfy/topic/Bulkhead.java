@@ -0,0 +1,46 @@
+package dev.siebrenvde.ntfy.topic;
+
+import org.jetbrains.annotations.Contract;
+
+import static dev.siebrenvde.ntfy.internal.Util.checkArgument;
+
+/**
+ * Limits the number of requests in flight per host, so that a slow host cannot use up
+ * the connections and memory needed by topics on other hosts
+ *
+ * <p>Publishes to a host which already has {@link #maxConcurrentCalls()} requests in flight
+ * fail immediately with a {@link PublishRejectedException}.</p>
+ *
+ * <p>A bulkhead can be shared between topics, in which case topics on the same host share their limit.</p>
+ *
+ * @see Topic.Builder#bulkhead(Bulkhead)
+ */
+public sealed interface Bulkhead permits BulkheadImpl {
+
+    /**
+     * Creates a new bulkhead
+     *
+     * @param maxConcurrentCalls the maximum number of requests in flight per host, must be positive and non-zero
+     * @return a new bulkhead
+     */
+    @Contract(value = "_ -> new", pure = true)
+    static Bulkhead bulkhead(final int maxConcurrentCalls) {
+        checkArgument(maxConcurrentCalls > 0, "maxConcurrentCalls must be positive");
+        return new BulkheadImpl(maxConcurrentCalls);
+    }
+
+    /**
+     * {@return the maximum number of requests in flight per host}
+     */
+    @Contract(pure = true)
+    int maxConcurrentCalls();
+
+    /**
+     * {@return the number of requests currently in flight to the topic's host}
+     *
+     * @param topic the topic
+     */
+    @Contract(pure = true)
+    int activeCalls(Topic topic);
+
+}
@@ -0,0 +1,54 @@
+package dev.siebrenvde.ntfy.topic;
+
+import java.net.URI;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+final class BulkheadImpl implements Bulkhead {
+
+    private final int maxConcurrentCalls;
+    private final ConcurrentHashMap<URI, AtomicInteger> calls = new ConcurrentHashMap<>();
+
+    BulkheadImpl(final int maxConcurrentCalls) {
+        this.maxConcurrentCalls = maxConcurrentCalls;
+    }
+
+    @Override
+    public int maxConcurrentCalls() {
+        return this.maxConcurrentCalls;
+    }
+
+    @Override
+    public int activeCalls(final Topic topic) {
+        final AtomicInteger active = this.calls.get(((TopicImpl) topic).hostUri());
+        return active == null ? 0 : active.get();
+    }
+
+    /**
+     * Takes a slot for a request to a host
+     *
+     * @param host the host
+     * @return <code>true</code> if the request may be sent, in which case {@link #release(URI)} must be called once it completes
+     */
+    boolean tryAcquire(final URI host) {
+        final AtomicInteger active = this.calls.computeIfAbsent(host, key -> new AtomicInteger());
+        while (true) {
+            final int current = active.get();
+            if (current >= this.maxConcurrentCalls) return false;
+            if (active.compareAndSet(current, current + 1)) return true;
+        }
+    }
+
+    void release(final URI host) {
+        final AtomicInteger active = this.calls.get(host);
+        if (active != null) active.decrementAndGet();
+    }
+
+    @Override
+    public String toString() {
+        return "BulkheadImpl{" +
+            "maxConcurrentCalls=" + this.maxConcurrentCalls +
+            '}';
+    }
+
+}
@@ -0,0 +1,53 @@
+package dev.siebrenvde.ntfy.topic;
+
+import dev.siebrenvde.ntfy.response.ReceivedMessage;
+import org.jetbrains.annotations.Contract;
+
+import java.time.Instant;
+
+import static dev.siebrenvde.ntfy.internal.Util.checkNotNull;
+
+/**
+ * The last message received from a topic, which a subscription resumes after
+ *
+ * @see CheckpointStore
+ */
+public sealed interface Checkpoint permits CheckpointImpl {
+
+    /**
+     * Creates a new checkpoint
+     *
+     * @param id the id of the message
+     * @param time the time the message was published
+     * @return a new checkpoint
+     */
+    @Contract(value = "_, _ -> new", pure = true)
+    static Checkpoint checkpoint(final String id, final Instant time) {
+        return new CheckpointImpl(id, time);
+    }
+
+    /**
+     * Creates a new checkpoint from a received message
+     *
+     * @param message the message
+     * @return a new checkpoint
+     */
+    @Contract(value = "_ -> new", pure = true)
+    static Checkpoint checkpoint(final ReceivedMessage message) {
+        checkNotNull(message, "message");
+        return new CheckpointImpl(message.id(), message.time());
+    }
+
+    /**
+     * {@return the id of the message}
+     */
+    @Contract(pure = true)
+    String id();
+
+    /**
+     * {@return the time the message was published}
+     */
+    @Contract(pure = true)
+    Instant time();
+
+}
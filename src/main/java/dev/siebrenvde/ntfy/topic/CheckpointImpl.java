@@ -0,0 +1,17 @@
+package dev.siebrenvde.ntfy.topic;
+
+import java.time.Instant;
+
+import static dev.siebrenvde.ntfy.internal.Util.checkNotNull;
+
+record CheckpointImpl(
+    String id,
+    Instant time
+) implements Checkpoint {
+
+    CheckpointImpl {
+        checkNotNull(id, "id");
+        checkNotNull(time, "time");
+    }
+
+}
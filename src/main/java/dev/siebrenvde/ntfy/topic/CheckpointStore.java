@@ -0,0 +1,69 @@
+package dev.siebrenvde.ntfy.topic;
+
+import org.jetbrains.annotations.Contract;
+import org.jspecify.annotations.Nullable;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Persists the last message received from every topic, so subscriptions can resume where they left off after a restart
+ *
+ * <p>Topics are identified by their url, such as <code>https://ntfy.sh/mytopic</code>.
+ * {@link #save(String, Checkpoint)} is called for every received message on the thread that received it,
+ * so implementations should not block on slow storage.</p>
+ *
+ * @see SubscriptionManager.Builder#checkpointStore(CheckpointStore)
+ */
+public interface CheckpointStore extends Closeable {
+
+    /**
+     * The time after which a checkpoint saved to a {@link #file(Path) file store} is written and synced to disk,
+     * together with the checkpoints saved in the meantime
+     */
+    Duration FILE_SYNC_INTERVAL = Duration.ofSeconds(1);
+
+    /**
+     * Opens a checkpoint store backed by an append-only file
+     *
+     * <p>Saved checkpoints are appended to the file in batches, which are written and synced to disk
+     * {@link #FILE_SYNC_INTERVAL} after the first checkpoint of the batch was saved.
+     * A crash can therefore lose the checkpoints of the last interval, after which those messages are received again.
+     * The file is compacted when it is opened and whenever it has grown well beyond one line per topic.</p>
+     *
+     * @param file the file, which is created if it does not exist
+     * @return a new checkpoint store
+     * @throws IOException if the file cannot be read or opened for writing
+     */
+    @Contract("_ -> new")
+    static CheckpointStore file(final Path file) throws IOException {
+        return FileCheckpointStore.open(file);
+    }
+
+    /**
+     * Loads the checkpoint of a topic
+     *
+     * @param topic the url of the topic
+     * @return the checkpoint, or <code>null</code> if none was saved
+     */
+    @Nullable Checkpoint load(String topic);
+
+    /**
+     * Saves the checkpoint of a topic, replacing the previous one
+     *
+     * @param topic the url of the topic
+     * @param checkpoint the checkpoint
+     */
+    void save(String topic, Checkpoint checkpoint);
+
+    /**
+     * Writes out all saved checkpoints and releases the store's resources
+     *
+     * @throws IOException if the checkpoints could not be written
+     */
+    @Override
+    void close() throws IOException;
+
+}
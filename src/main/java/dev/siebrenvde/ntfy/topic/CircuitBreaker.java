@@ -0,0 +1,240 @@
+package dev.siebrenvde.ntfy.topic;
+
+import org.jetbrains.annotations.Contract;
+
+import java.net.URI;
+import java.time.Duration;
+
+/**
+ * Stops publishing to a host that keeps failing, so that requests to it fail fast instead of piling up
+ *
+ * <p>Each host has its own circuit, which starts {@link State#CLOSED}.
+ * The outcomes of the last {@link #windowSize()} requests are recorded, and once at least {@link #minimumCalls()}
+ * have been recorded the circuit opens if the share of failed requests reaches {@link #failureRateThreshold()},
+ * or the share of requests slower than {@link #slowCallDuration()} reaches {@link #slowCallRateThreshold()}.
+ * A request fails if it threw an exception or the server responded with a <code>5xx</code> or <code>408</code> status.</p>
+ *
+ * <p>While the circuit is {@link State#OPEN}, publishes fail immediately with a {@link CircuitOpenException}.
+ * After {@link #openDuration()} the circuit becomes {@link State#HALF_OPEN} and lets {@link #halfOpenCalls()} requests through.
+ * Once those have completed the circuit closes again, unless their failure or slow call rate reaches its threshold,
+ * in which case it opens again.</p>
+ *
+ * <p>A circuit breaker can be shared between topics, in which case topics on the same host share a circuit.</p>
+ *
+ * @see Topic.Builder#circuitBreaker(CircuitBreaker)
+ */
+public sealed interface CircuitBreaker permits CircuitBreakerImpl {
+
+    double DEFAULT_FAILURE_RATE_THRESHOLD = 0.5;
+    double DEFAULT_SLOW_CALL_RATE_THRESHOLD = 1.0;
+    Duration DEFAULT_SLOW_CALL_DURATION = Duration.ofSeconds(10);
+    int DEFAULT_WINDOW_SIZE = 20;
+    int DEFAULT_MINIMUM_CALLS = 10;
+    Duration DEFAULT_OPEN_DURATION = Duration.ofSeconds(30);
+    int DEFAULT_HALF_OPEN_CALLS = 3;
+
+    /**
+     * Creates a new circuit breaker builder
+     *
+     * @return a circuit breaker builder
+     */
+    @Contract(value = "-> new", pure = true)
+    static Builder circuitBreaker() {
+        return new CircuitBreakerImpl.BuilderImpl();
+    }
+
+    /**
+     * {@return the share of failed requests at which the circuit opens}
+     */
+    @Contract(pure = true)
+    double failureRateThreshold();
+
+    /**
+     * {@return the share of slow requests at which the circuit opens}
+     */
+    @Contract(pure = true)
+    double slowCallRateThreshold();
+
+    /**
+     * {@return the duration after which a request is considered slow}
+     */
+    @Contract(pure = true)
+    Duration slowCallDuration();
+
+    /**
+     * {@return the number of most recent requests used to calculate the failure and slow call rates}
+     */
+    @Contract(pure = true)
+    int windowSize();
+
+    /**
+     * {@return the number of requests that must be recorded before the circuit can open}
+     */
+    @Contract(pure = true)
+    int minimumCalls();
+
+    /**
+     * {@return how long the circuit stays open before letting trial requests through}
+     */
+    @Contract(pure = true)
+    Duration openDuration();
+
+    /**
+     * {@return the number of trial requests let through while the circuit is half-open}
+     */
+    @Contract(pure = true)
+    int halfOpenCalls();
+
+    /**
+     * {@return the current state of the circuit for the topic's host}
+     *
+     * @param topic the topic
+     */
+    @Contract(pure = true)
+    State state(Topic topic);
+
+    /**
+     * An enum representing the state of a circuit
+     */
+    enum State {
+        /**
+         * Requests are sent and their outcomes are recorded
+         */
+        CLOSED,
+        /**
+         * Requests are rejected without being sent
+         */
+        OPEN,
+        /**
+         * A limited number of trial requests are sent to decide whether the circuit closes again
+         */
+        HALF_OPEN
+    }
+
+    /**
+     * Listens for state changes of circuits
+     */
+    @FunctionalInterface
+    interface Listener {
+
+        /**
+         * Called after the circuit for a host changed state
+         *
+         * @param host the host
+         * @param from the previous state
+         * @param to the new state
+         */
+        void onStateChange(URI host, State from, State to);
+
+    }
+
+    /**
+     * Builder for {@link CircuitBreaker}
+     */
+    sealed interface Builder permits CircuitBreakerImpl.BuilderImpl {
+
+        /**
+         * Sets the share of failed requests at which the circuit opens
+         *
+         * <p>Must be greater than 0 and at most 1</p>
+         *
+         * @param failureRateThreshold the failure rate threshold
+         * @return the builder
+         * @see CircuitBreaker#DEFAULT_FAILURE_RATE_THRESHOLD
+         */
+        @Contract(value = "_ -> this", mutates = "this")
+        Builder failureRateThreshold(double failureRateThreshold);
+
+        /**
+         * Sets the share of slow requests at which the circuit opens
+         *
+         * <p>Must be greater than 0 and at most 1</p>
+         *
+         * @param slowCallRateThreshold the slow call rate threshold
+         * @return the builder
+         * @see CircuitBreaker#DEFAULT_SLOW_CALL_RATE_THRESHOLD
+         */
+        @Contract(value = "_ -> this", mutates = "this")
+        Builder slowCallRateThreshold(double slowCallRateThreshold);
+
+        /**
+         * Sets the duration after which a request is considered slow
+         *
+         * <p>Must be positive and non-zero</p>
+         *
+         * @param slowCallDuration the slow call duration
+         * @return the builder
+         * @see CircuitBreaker#DEFAULT_SLOW_CALL_DURATION
+         */
+        @Contract(value = "_ -> this", mutates = "this")
+        Builder slowCallDuration(Duration slowCallDuration);
+
+        /**
+         * Sets the number of most recent requests used to calculate the failure and slow call rates
+         *
+         * <p>Must be positive and non-zero</p>
+         *
+         * @param windowSize the number of requests
+         * @return the builder
+         * @see CircuitBreaker#DEFAULT_WINDOW_SIZE
+         */
+        @Contract(value = "_ -> this", mutates = "this")
+        Builder windowSize(int windowSize);
+
+        /**
+         * Sets the number of requests that must be recorded before the circuit can open
+         *
+         * <p>Must be positive and non-zero</p>
+         *
+         * @param minimumCalls the number of requests
+         * @return the builder
+         * @see CircuitBreaker#DEFAULT_MINIMUM_CALLS
+         */
+        @Contract(value = "_ -> this", mutates = "this")
+        Builder minimumCalls(int minimumCalls);
+
+        /**
+         * Sets how long the circuit stays open before letting trial requests through
+         *
+         * <p>Must be positive and non-zero</p>
+         *
+         * @param openDuration the open duration
+         * @return the builder
+         * @see CircuitBreaker#DEFAULT_OPEN_DURATION
+         */
+        @Contract(value = "_ -> this", mutates = "this")
+        Builder openDuration(Duration openDuration);
+
+        /**
+         * Sets the number of trial requests let through while the circuit is half-open
+         *
+         * <p>Must be positive and non-zero</p>
+         *
+         * @param halfOpenCalls the number of requests
+         * @return the builder
+         * @see CircuitBreaker#DEFAULT_HALF_OPEN_CALLS
+         */
+        @Contract(value = "_ -> this", mutates = "this")
+        Builder halfOpenCalls(int halfOpenCalls);
+
+        /**
+         * Sets the listener which is called whenever a circuit changes state
+         *
+         * @param listener the listener
+         * @return the builder
+         */
+        @Contract(value = "_ -> this", mutates = "this")
+        Builder listener(Listener listener);
+
+        /**
+         * Builds the circuit breaker
+         *
+         * @return a new circuit breaker
+         * @throws IllegalStateException if the minimum number of calls or the number of half-open calls is larger than the window size
+         */
+        @Contract(value = "-> new", pure = true)
+        CircuitBreaker build();
+
+    }
+
+}
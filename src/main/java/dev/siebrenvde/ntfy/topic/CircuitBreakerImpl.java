@@ -0,0 +1,357 @@
+package dev.siebrenvde.ntfy.topic;
+
+import org.jetbrains.annotations.VisibleForTesting;
+import org.jspecify.annotations.Nullable;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+import static dev.siebrenvde.ntfy.internal.Util.checkArgument;
+import static dev.siebrenvde.ntfy.internal.Util.checkNotNull;
+
+final class CircuitBreakerImpl implements CircuitBreaker {
+
+    /**
+     * Returned by {@link #tryAcquire(URI)} when the request should be rejected
+     */
+    static final long REJECTED = -1;
+
+    private static final byte FAILED = 1;
+    private static final byte SLOW = 2;
+
+    private final double failureRateThreshold;
+    private final double slowCallRateThreshold;
+    private final Duration slowCallDuration;
+    private final int windowSize;
+    private final int minimumCalls;
+    private final Duration openDuration;
+    private final int halfOpenCalls;
+    private final @Nullable Listener listener;
+
+    private final long slowCallNanos;
+    private final long openNanos;
+    private final LongSupplier clock;
+    private final ConcurrentHashMap<URI, Circuit> circuits = new ConcurrentHashMap<>();
+
+    @VisibleForTesting
+    CircuitBreakerImpl(
+        final double failureRateThreshold,
+        final double slowCallRateThreshold,
+        final Duration slowCallDuration,
+        final int windowSize,
+        final int minimumCalls,
+        final Duration openDuration,
+        final int halfOpenCalls,
+        @Nullable final Listener listener,
+        final LongSupplier clock
+    ) {
+        this.failureRateThreshold = failureRateThreshold;
+        this.slowCallRateThreshold = slowCallRateThreshold;
+        this.slowCallDuration = slowCallDuration;
+        this.windowSize = windowSize;
+        this.minimumCalls = minimumCalls;
+        this.openDuration = openDuration;
+        this.halfOpenCalls = halfOpenCalls;
+        this.listener = listener;
+        this.slowCallNanos = slowCallDuration.toNanos();
+        this.openNanos = openDuration.toNanos();
+        this.clock = clock;
+    }
+
+    @Override
+    public double failureRateThreshold() {
+        return this.failureRateThreshold;
+    }
+
+    @Override
+    public double slowCallRateThreshold() {
+        return this.slowCallRateThreshold;
+    }
+
+    @Override
+    public Duration slowCallDuration() {
+        return this.slowCallDuration;
+    }
+
+    @Override
+    public int windowSize() {
+        return this.windowSize;
+    }
+
+    @Override
+    public int minimumCalls() {
+        return this.minimumCalls;
+    }
+
+    @Override
+    public Duration openDuration() {
+        return this.openDuration;
+    }
+
+    @Override
+    public int halfOpenCalls() {
+        return this.halfOpenCalls;
+    }
+
+    @Override
+    public State state(final Topic topic) {
+        return this.state(((TopicImpl) topic).hostUri());
+    }
+
+    @VisibleForTesting
+    State state(final URI host) {
+        final Circuit circuit = this.circuits.get(host);
+        return circuit == null ? State.CLOSED : circuit.state();
+    }
+
+    /**
+     * Asks the circuit of a host for permission to send a request
+     *
+     * @param host the host
+     * @return a ticket to pass to {@link #record(URI, long, boolean, long)} once the request completes,
+     *     or {@link #REJECTED} if the circuit is open
+     */
+    long tryAcquire(final URI host) {
+        return this.circuits.computeIfAbsent(host, Circuit::new).tryAcquire();
+    }
+
+    /**
+     * Records the outcome of a request
+     *
+     * @param host the host
+     * @param ticket the ticket returned by {@link #tryAcquire(URI)}
+     * @param failed whether the request failed
+     * @param durationNanos how long the request took
+     */
+    void record(final URI host, final long ticket, final boolean failed, final long durationNanos) {
+        final Circuit circuit = this.circuits.get(host);
+        if (circuit != null) circuit.record(ticket, failed, durationNanos);
+    }
+
+    /**
+     * {@return whether a response with a status code counts as a failed request}
+     *
+     * @param status the http status code
+     */
+    static boolean isFailure(final int status) {
+        return status >= 500 || status == 408;
+    }
+
+    @Override
+    public String toString() {
+        return "CircuitBreakerImpl{" +
+            "failureRateThreshold=" + this.failureRateThreshold +
+            ", slowCallRateThreshold=" + this.slowCallRateThreshold +
+            ", slowCallDuration=" + this.slowCallDuration +
+            ", windowSize=" + this.windowSize +
+            ", minimumCalls=" + this.minimumCalls +
+            ", openDuration=" + this.openDuration +
+            ", halfOpenCalls=" + this.halfOpenCalls +
+            '}';
+    }
+
+    /**
+     * The circuit of a single host
+     *
+     * <p>Every state change starts a new generation, outcomes of requests
+     * that were let through in an earlier generation are ignored.</p>
+     */
+    private final class Circuit {
+
+        private final URI host;
+        private final byte[] outcomes = new byte[CircuitBreakerImpl.this.windowSize];
+        private int next;
+        private int calls;
+        private int failures;
+        private int slowCalls;
+        private State state = State.CLOSED;
+        private long generation;
+        private long openedAt;
+        private int permits;
+
+        Circuit(final URI host) {
+            this.host = host;
+        }
+
+        synchronized State state() {
+            return this.state;
+        }
+
+        long tryAcquire() {
+            final State from;
+            final State to;
+            final long ticket;
+            synchronized (this) {
+                from = this.state;
+                if (this.state == State.OPEN && CircuitBreakerImpl.this.clock.getAsLong() - this.openedAt >= CircuitBreakerImpl.this.openNanos) {
+                    this.transition(State.HALF_OPEN);
+                    this.permits = CircuitBreakerImpl.this.halfOpenCalls;
+                }
+                if (this.state == State.CLOSED) {
+                    ticket = this.generation;
+                } else if (this.state == State.HALF_OPEN && this.permits > 0) {
+                    this.permits--;
+                    ticket = this.generation;
+                } else {
+                    ticket = REJECTED;
+                }
+                to = this.state;
+            }
+            this.notifyListener(from, to);
+            return ticket;
+        }
+
+        void record(final long ticket, final boolean failed, final long durationNanos) {
+            final State from;
+            final State to;
+            synchronized (this) {
+                if (ticket != this.generation || this.state == State.OPEN) return;
+                from = this.state;
+                this.add((byte) ((failed ? FAILED : 0) | (durationNanos >= CircuitBreakerImpl.this.slowCallNanos ? SLOW : 0)));
+
+                final int required = from == State.HALF_OPEN ? CircuitBreakerImpl.this.halfOpenCalls : CircuitBreakerImpl.this.minimumCalls;
+                if (this.calls >= required) {
+                    if (this.failures >= CircuitBreakerImpl.this.failureRateThreshold * this.calls
+                        || this.slowCalls >= CircuitBreakerImpl.this.slowCallRateThreshold * this.calls) {
+                        this.transition(State.OPEN);
+                        this.openedAt = CircuitBreakerImpl.this.clock.getAsLong();
+                    } else if (from == State.HALF_OPEN) {
+                        this.transition(State.CLOSED);
+                    }
+                }
+                to = this.state;
+            }
+            this.notifyListener(from, to);
+        }
+
+        /**
+         * Adds an outcome to the window, replacing the oldest outcome once the window is full
+         */
+        private void add(final byte outcome) {
+            if (this.calls == this.outcomes.length) {
+                final byte oldest = this.outcomes[this.next];
+                if ((oldest & FAILED) != 0) this.failures--;
+                if ((oldest & SLOW) != 0) this.slowCalls--;
+            } else {
+                this.calls++;
+            }
+            this.outcomes[this.next] = outcome;
+            this.next = (this.next + 1) % this.outcomes.length;
+            if ((outcome & FAILED) != 0) this.failures++;
+            if ((outcome & SLOW) != 0) this.slowCalls++;
+        }
+
+        private void transition(final State state) {
+            this.state = state;
+            this.generation++;
+            this.next = 0;
+            this.calls = 0;
+            this.failures = 0;
+            this.slowCalls = 0;
+        }
+
+        private void notifyListener(final State from, final State to) {
+            if (from != to && CircuitBreakerImpl.this.listener != null) {
+                CircuitBreakerImpl.this.listener.onStateChange(this.host, from, to);
+            }
+        }
+
+    }
+
+    static final class BuilderImpl implements CircuitBreaker.Builder {
+
+        private double failureRateThreshold = DEFAULT_FAILURE_RATE_THRESHOLD;
+        private double slowCallRateThreshold = DEFAULT_SLOW_CALL_RATE_THRESHOLD;
+        private Duration slowCallDuration = DEFAULT_SLOW_CALL_DURATION;
+        private int windowSize = DEFAULT_WINDOW_SIZE;
+        private int minimumCalls = DEFAULT_MINIMUM_CALLS;
+        private Duration openDuration = DEFAULT_OPEN_DURATION;
+        private int halfOpenCalls = DEFAULT_HALF_OPEN_CALLS;
+        private @Nullable Listener listener;
+
+        @Override
+        public Builder failureRateThreshold(final double failureRateThreshold) {
+            checkArgument(failureRateThreshold > 0 && failureRateThreshold <= 1, "failureRateThreshold must be greater than 0 and at most 1");
+            this.failureRateThreshold = failureRateThreshold;
+            return this;
+        }
+
+        @Override
+        public Builder slowCallRateThreshold(final double slowCallRateThreshold) {
+            checkArgument(slowCallRateThreshold > 0 && slowCallRateThreshold <= 1, "slowCallRateThreshold must be greater than 0 and at most 1");
+            this.slowCallRateThreshold = slowCallRateThreshold;
+            return this;
+        }
+
+        @Override
+        public Builder slowCallDuration(final Duration slowCallDuration) {
+            checkNotNull(slowCallDuration, "slowCallDuration");
+            checkArgument(!slowCallDuration.isNegative(), "slowCallDuration must be positive");
+            checkArgument(!slowCallDuration.isZero(), "slowCallDuration must not be zero");
+            this.slowCallDuration = slowCallDuration;
+            return this;
+        }
+
+        @Override
+        public Builder windowSize(final int windowSize) {
+            checkArgument(windowSize > 0, "windowSize must be positive");
+            this.windowSize = windowSize;
+            return this;
+        }
+
+        @Override
+        public Builder minimumCalls(final int minimumCalls) {
+            checkArgument(minimumCalls > 0, "minimumCalls must be positive");
+            this.minimumCalls = minimumCalls;
+            return this;
+        }
+
+        @Override
+        public Builder openDuration(final Duration openDuration) {
+            checkNotNull(openDuration, "openDuration");
+            checkArgument(!openDuration.isNegative(), "openDuration must be positive");
+            checkArgument(!openDuration.isZero(), "openDuration must not be zero");
+            this.openDuration = openDuration;
+            return this;
+        }
+
+        @Override
+        public Builder halfOpenCalls(final int halfOpenCalls) {
+            checkArgument(halfOpenCalls > 0, "halfOpenCalls must be positive");
+            this.halfOpenCalls = halfOpenCalls;
+            return this;
+        }
+
+        @Override
+        public Builder listener(final Listener listener) {
+            checkNotNull(listener, "listener");
+            this.listener = listener;
+            return this;
+        }
+
+        @Override
+        public CircuitBreaker build() {
+            if (this.minimumCalls > this.windowSize) {
+                throw new IllegalStateException("minimumCalls cannot be larger than windowSize");
+            }
+            if (this.halfOpenCalls > this.windowSize) {
+                throw new IllegalStateException("halfOpenCalls cannot be larger than windowSize");
+            }
+            return new CircuitBreakerImpl(
+                this.failureRateThreshold,
+                this.slowCallRateThreshold,
+                this.slowCallDuration,
+                this.windowSize,
+                this.minimumCalls,
+                this.openDuration,
+                this.halfOpenCalls,
+                this.listener,
+                System::nanoTime
+            );
+        }
+
+    }
+
+}
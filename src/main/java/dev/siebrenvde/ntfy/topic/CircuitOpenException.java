@@ -0,0 +1,35 @@
+package dev.siebrenvde.ntfy.topic;
+
+import java.io.Serial;
+import java.net.URI;
+
+/**
+ * Thrown when a publish is rejected because the circuit for its host is open
+ *
+ * @see CircuitBreaker
+ */
+public class CircuitOpenException extends PublishRejectedException {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    private final URI host;
+
+    /**
+     * Creates a new exception
+     *
+     * @param host the host whose circuit is open
+     */
+    public CircuitOpenException(final URI host) {
+        super("Circuit for " + host + " is open");
+        this.host = host;
+    }
+
+    /**
+     * {@return the host whose circuit is open}
+     */
+    public URI host() {
+        return this.host;
+    }
+
+}
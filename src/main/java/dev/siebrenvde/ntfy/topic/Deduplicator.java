@@ -0,0 +1,130 @@
+package dev.siebrenvde.ntfy.topic;
+
+import dev.siebrenvde.ntfy.response.ReceivedMessage;
+import org.jetbrains.annotations.Contract;
+
+import java.time.Duration;
+import java.util.function.Predicate;
+
+/**
+ * Drops messages whose id was seen recently, for consumers that receive the same message more than once
+ *
+ * <p>Resumed subscriptions repeat the messages published within the same second as the last received message,
+ * and subscribing to the same topic on several connections or hosts delivers every message on each of them.
+ * As a {@link Predicate} a deduplicator accepts the first message with an id and rejects the ones after it,
+ * so it can be added to a subscription through {@link SubscriptionFilter.Builder#matching(Predicate)}
+ * or to a {@link SubscriptionManager} through {@link #listener(SubscriptionManager.Listener)}.</p>
+ *
+ * <p>Ids are remembered as 64-bit hashes in open-addressing tables of a fixed size, so checking an id takes constant time and no allocation.
+ * Ids are kept in generations: a new generation is started every {@link #window()}, or as soon as the current one holds {@link #capacity()} ids,
+ * and the generation before the previous one is forgotten. An id is therefore remembered for at least one window,
+ * unless more than {@link #capacity()} ids are seen within it.
+ * The two tables take <code>16</code> to <code>32</code> bytes per id of capacity.
+ * Two ids with the same hash count as the same id, which is unlikely to happen for fewer than billions of ids.</p>
+ *
+ * <p>Safe for use by multiple threads</p>
+ */
+public sealed interface Deduplicator extends Predicate<ReceivedMessage> permits DeduplicatorImpl {
+
+    int DEFAULT_CAPACITY = 1 << 20;
+    Duration DEFAULT_WINDOW = Duration.ofHours(1);
+
+    /**
+     * Creates a new deduplicator builder
+     *
+     * @return a deduplicator builder
+     */
+    @Contract(value = "-> new", pure = true)
+    static Builder deduplicator() {
+        return new DeduplicatorImpl.BuilderImpl();
+    }
+
+    /**
+     * {@return the number of ids a generation holds}
+     */
+    @Contract(pure = true)
+    int capacity();
+
+    /**
+     * {@return how long a generation of ids lasts}
+     */
+    @Contract(pure = true)
+    Duration window();
+
+    /**
+     * Checks whether a message is the first with its id, remembering the id
+     *
+     * @param message the message
+     * @return whether the message's id was not seen recently
+     */
+    @Override
+    boolean test(ReceivedMessage message);
+
+    /**
+     * Checks whether an id is seen for the first time, remembering it
+     *
+     * @param id the id
+     * @return whether the id was not seen recently
+     */
+    boolean firstSeen(String id);
+
+    /**
+     * {@return the number of ids that were seen before}
+     */
+    long hits();
+
+    /**
+     * {@return the number of ids that were seen for the first time}
+     */
+    long misses();
+
+    /**
+     * Wraps a listener so only the first message with an id is passed to it
+     *
+     * @param listener the listener
+     * @return a listener dropping repeated messages
+     * @see SubscriptionManager#subscribe(Topic, SubscriptionManager.Listener)
+     */
+    @Contract(value = "_ -> new", pure = true)
+    SubscriptionManager.Listener listener(SubscriptionManager.Listener listener);
+
+    /**
+     * Builder for {@link Deduplicator}
+     */
+    sealed interface Builder permits DeduplicatorImpl.BuilderImpl {
+
+        /**
+         * Sets the number of ids a generation holds, which fixes the memory used
+         *
+         * <p>Must be positive and non-zero, and at most <code>2^29</code></p>
+         *
+         * @param capacity the capacity
+         * @return the builder
+         * @see Deduplicator#DEFAULT_CAPACITY
+         */
+        @Contract(value = "_ -> this", mutates = "this")
+        Builder capacity(int capacity);
+
+        /**
+         * Sets how long a generation of ids lasts, which is how long an id is remembered at least
+         *
+         * <p>Must be positive and non-zero</p>
+         *
+         * @param window the window
+         * @return the builder
+         * @see Deduplicator#DEFAULT_WINDOW
+         */
+        @Contract(value = "_ -> this", mutates = "this")
+        Builder window(Duration window);
+
+        /**
+         * Builds the deduplicator
+         *
+         * @return a new deduplicator
+         */
+        @Contract(value = "-> new", pure = true)
+        Deduplicator build();
+
+    }
+
+}
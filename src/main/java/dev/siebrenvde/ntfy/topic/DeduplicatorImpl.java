@@ -0,0 +1,227 @@
+package dev.siebrenvde.ntfy.topic;
+
+import dev.siebrenvde.ntfy.response.ReceivedMessage;
+import org.jetbrains.annotations.VisibleForTesting;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+import static dev.siebrenvde.ntfy.internal.Util.checkArgument;
+import static dev.siebrenvde.ntfy.internal.Util.checkNotNull;
+
+/**
+ * Two generations of id hashes, each in a linear probing table at most half full
+ *
+ * <p>Tables are never removed from, so they need no tombstones: a generation is forgotten by clearing its table,
+ * which is then reused for the next generation.</p>
+ */
+final class DeduplicatorImpl implements Deduplicator {
+
+    static final int MAX_CAPACITY = 1 << 29;
+
+    // Marks an empty slot, ids hashing to it are stored as 1
+    private static final long EMPTY = 0;
+
+    private final int capacity;
+    private final Duration window;
+
+    private final long windowNanos;
+    private final LongSupplier clock;
+    private final ReentrantLock lock = new ReentrantLock();
+    private long[] current;
+    private long[] previous;
+    private int size;
+    private long started;
+    private volatile long hits;
+    private volatile long misses;
+
+    @VisibleForTesting
+    DeduplicatorImpl(final int capacity, final Duration window, final LongSupplier clock) {
+        this.capacity = capacity;
+        this.window = window;
+        this.windowNanos = nanos(window);
+        this.clock = clock;
+        // The smallest power of two that keeps a full generation at most half full
+        final int slots = Integer.highestOneBit(capacity * 2 - 1) << 1;
+        this.current = new long[slots];
+        this.previous = new long[slots];
+        this.started = clock.getAsLong();
+    }
+
+    @Override
+    public int capacity() {
+        return this.capacity;
+    }
+
+    @Override
+    public Duration window() {
+        return this.window;
+    }
+
+    @Override
+    public boolean test(final ReceivedMessage message) {
+        checkNotNull(message, "message");
+        return this.firstSeen(message.id());
+    }
+
+    @Override
+    public boolean firstSeen(final String id) {
+        checkNotNull(id, "id");
+        final long hash = hash(id);
+        this.lock.lock();
+        try {
+            final long now = this.clock.getAsLong();
+            final long elapsed = now - this.started;
+            if (elapsed >= this.windowNanos) {
+                this.rotate(now);
+                // Both generations are older than a window
+                if (elapsed >= this.windowNanos * 2) Arrays.fill(this.previous, EMPTY);
+            }
+            if (contains(this.previous, hash) || !insert(this.current, hash)) {
+                this.hits++;
+                return false;
+            }
+            this.misses++;
+            if (++this.size == this.capacity) this.rotate(now);
+            return true;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    @Override
+    public long hits() {
+        return this.hits;
+    }
+
+    @Override
+    public long misses() {
+        return this.misses;
+    }
+
+    @Override
+    public SubscriptionManager.Listener listener(final SubscriptionManager.Listener listener) {
+        checkNotNull(listener, "listener");
+        return new SubscriptionManager.Listener() {
+            @Override
+            public void onMessage(final ReceivedMessage message) {
+                if (DeduplicatorImpl.this.test(message)) listener.onMessage(message);
+            }
+
+            @Override
+            public void onError(final Throwable error) {
+                listener.onError(error);
+            }
+        };
+    }
+
+    @Override
+    public String toString() {
+        return "DeduplicatorImpl{" +
+            "capacity=" + this.capacity +
+            ", window=" + this.window +
+            ", hits=" + this.hits +
+            ", misses=" + this.misses +
+            '}';
+    }
+
+    /**
+     * Forgets the previous generation and starts a new one
+     *
+     * <p>Must be called while holding the lock</p>
+     *
+     * @param now the time the new generation starts
+     */
+    private void rotate(final long now) {
+        final long[] table = this.previous;
+        Arrays.fill(table, EMPTY);
+        this.previous = this.current;
+        this.current = table;
+        this.size = 0;
+        this.started = now;
+    }
+
+    private static boolean contains(final long[] table, final long hash) {
+        final int mask = table.length - 1;
+        for (int slot = (int) hash & mask; ; slot = (slot + 1) & mask) {
+            final long value = table[slot];
+            if (value == hash) return true;
+            if (value == EMPTY) return false;
+        }
+    }
+
+    /**
+     * Adds a hash to a table
+     *
+     * @return whether the table did not contain the hash
+     */
+    private static boolean insert(final long[] table, final long hash) {
+        final int mask = table.length - 1;
+        for (int slot = (int) hash & mask; ; slot = (slot + 1) & mask) {
+            final long value = table[slot];
+            if (value == hash) return false;
+            if (value == EMPTY) {
+                table[slot] = hash;
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Hashes an id with 64-bit FNV-1a followed by MurmurHash3's finalizer, so the low bits used for the slot are well mixed
+     */
+    @VisibleForTesting
+    static long hash(final String id) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < id.length(); i++) {
+            hash ^= id.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash == EMPTY ? 1 : hash;
+    }
+
+    private static long nanos(final Duration duration) {
+        try {
+            return Math.min(duration.toNanos(), Long.MAX_VALUE / 2);
+        } catch (final ArithmeticException e) {
+            return Long.MAX_VALUE / 2;
+        }
+    }
+
+    static final class BuilderImpl implements Deduplicator.Builder {
+
+        private int capacity = DEFAULT_CAPACITY;
+        private Duration window = DEFAULT_WINDOW;
+
+        @Override
+        public Builder capacity(final int capacity) {
+            checkArgument(capacity > 0, "capacity must be positive");
+            checkArgument(capacity <= MAX_CAPACITY, "capacity must be at most " + MAX_CAPACITY);
+            this.capacity = capacity;
+            return this;
+        }
+
+        @Override
+        public Builder window(final Duration window) {
+            checkNotNull(window, "window");
+            checkArgument(!window.isNegative(), "window must be positive");
+            checkArgument(!window.isZero(), "window must not be zero");
+            this.window = window;
+            return this;
+        }
+
+        @Override
+        public Deduplicator build() {
+            return new DeduplicatorImpl(this.capacity, this.window, System::nanoTime);
+        }
+
+    }
+
+}
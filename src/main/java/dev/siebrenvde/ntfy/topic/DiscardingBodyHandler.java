@@ -0,0 +1,33 @@
+package dev.siebrenvde.ntfy.topic;
+
+import dev.siebrenvde.ntfy.internal.LimitedBodySubscriber;
+import dev.siebrenvde.ntfy.response.ErrorResponse;
+import org.jspecify.annotations.Nullable;
+
+import java.net.http.HttpResponse.BodyHandler;
+import java.net.http.HttpResponse.BodySubscriber;
+import java.net.http.HttpResponse.BodySubscribers;
+import java.net.http.HttpResponse.ResponseInfo;
+
+/**
+ * Discards the body of successful responses and decodes the body of other responses into an {@link ErrorResponse}
+ *
+ * @see Topic#send(dev.siebrenvde.ntfy.message.Message)
+ */
+final class DiscardingBodyHandler implements BodyHandler<@Nullable ErrorResponse> {
+
+    static final DiscardingBodyHandler INSTANCE = new DiscardingBodyHandler();
+
+    private DiscardingBodyHandler() {
+
+    }
+
+    @Override
+    public BodySubscriber<@Nullable ErrorResponse> apply(final ResponseInfo info) {
+        final int status = info.statusCode();
+        if (status == 200) return BodySubscribers.replacing(null);
+        final long contentLength = info.headers().firstValueAsLong("Content-Length").orElse(-1);
+        return new LimitedBodySubscriber<>(ResponseBodyHandler.MAX_BODY_SIZE, contentLength, (bytes, length, truncated) -> ErrorResponse.fromResponse(status, bytes, length));
+    }
+
+}
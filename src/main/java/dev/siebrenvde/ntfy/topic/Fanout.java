@@ -0,0 +1,125 @@
+package dev.siebrenvde.ntfy.topic;
+
+import dev.siebrenvde.ntfy.message.PreparedMessage;
+import dev.siebrenvde.ntfy.response.ErrorResponse;
+import dev.siebrenvde.ntfy.response.PublishResponse;
+import dev.siebrenvde.ntfy.util.Result;
+import org.jspecify.annotations.Nullable;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Publishes a prepared message to multiple topics, running at most
+ * {@link FanoutOptions#maxConcurrencyPerHost()} lanes per host
+ *
+ * <p>Every lane takes the next topic of its host once its previous request has completed,
+ * so no more requests than there are lanes are ever in flight for a host</p>
+ */
+final class Fanout {
+
+    private final List<Topic> topics;
+    private final PreparedMessage message;
+    private final FanoutOptions options;
+    private final @Nullable Object[] outcomes;
+    private final AtomicInteger remaining;
+    private final CompletableFuture<FanoutReport> future = new CompletableFuture<>();
+
+    Fanout(final Collection<? extends Topic> topics, final PreparedMessage message, final FanoutOptions options) {
+        this.topics = List.copyOf(topics);
+        this.message = message;
+        this.options = options;
+        this.outcomes = new Object[this.topics.size()];
+        this.remaining = new AtomicInteger(this.topics.size());
+    }
+
+    CompletableFuture<FanoutReport> start() {
+        if (this.topics.isEmpty()) {
+            this.future.complete(new FanoutReportImpl(Map.of(), Map.of()));
+            return this.future;
+        }
+
+        final Map<String, Queue<Integer>> hosts = new LinkedHashMap<>();
+        for (int i = 0; i < this.topics.size(); i++) {
+            hosts.computeIfAbsent(this.topics.get(i).host(), host -> new ConcurrentLinkedQueue<>()).add(i);
+        }
+
+        for (final Queue<Integer> queue : hosts.values()) {
+            final int lanes = Math.min(queue.size(), this.options.maxConcurrencyPerHost());
+            for (int i = 0; i < lanes; i++) {
+                this.next(queue);
+            }
+        }
+
+        return this.future;
+    }
+
+    private void next(final Queue<Integer> queue) {
+        Integer index;
+        while ((index = queue.poll()) != null) {
+            CompletableFuture<Result<PublishResponse, ErrorResponse>> request;
+            try {
+                request = this.topics.get(index).publishAsync(this.message);
+            } catch (final RuntimeException e) {
+                request = CompletableFuture.failedFuture(e);
+            }
+
+            final int i = index;
+            if (!request.isDone()) {
+                request.whenComplete((result, throwable) -> {
+                    this.complete(i, result, throwable);
+                    this.next(queue);
+                });
+                return;
+            }
+
+            // Completed immediately, keep going on this thread instead of recursing
+            try {
+                this.complete(i, request.join(), null);
+            } catch (final CompletionException e) {
+                this.complete(i, null, e);
+            }
+        }
+    }
+
+    private void complete(final int index, @Nullable final Result<PublishResponse, ErrorResponse> result, @Nullable final Throwable throwable) {
+        this.outcomes[index] = throwable != null ? unwrap(throwable) : result;
+        if (this.remaining.decrementAndGet() == 0) {
+            this.future.complete(this.report());
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private FanoutReport report() {
+        final Map<Topic, Result<PublishResponse, ErrorResponse>> results = new LinkedHashMap<>();
+        final Map<Topic, Throwable> failures = new LinkedHashMap<>();
+        for (int i = 0; i < this.outcomes.length; i++) {
+            final Object outcome = this.outcomes[i];
+            if (outcome instanceof final Throwable throwable) {
+                failures.put(this.topics.get(i), throwable);
+            } else if (outcome != null) {
+                results.put(this.topics.get(i), (Result<PublishResponse, ErrorResponse>) outcome);
+            }
+        }
+        return new FanoutReportImpl(
+            Collections.unmodifiableMap(results),
+            Collections.unmodifiableMap(failures)
+        );
+    }
+
+    private static Throwable unwrap(final Throwable throwable) {
+        if (throwable instanceof CompletionException && throwable.getCause() != null) {
+            return throwable.getCause();
+        }
+        return throwable;
+    }
+
+}
@@ -0,0 +1,73 @@
+package dev.siebrenvde.ntfy.topic;
+
+import org.jetbrains.annotations.Contract;
+
+/**
+ * Options used when publishing a message to multiple topics
+ *
+ * @see Topics#publishAll(java.util.Collection, dev.siebrenvde.ntfy.message.Message, FanoutOptions)
+ */
+public sealed interface FanoutOptions permits FanoutOptionsImpl {
+
+    int DEFAULT_MAX_CONCURRENCY_PER_HOST = 8;
+
+    /**
+     * Creates a new fan-out options builder
+     *
+     * @return a fan-out options builder
+     */
+    @Contract(value = "-> new", pure = true)
+    static Builder options() {
+        return new FanoutOptionsImpl.BuilderImpl();
+    }
+
+    /**
+     * {@return the default fan-out options}
+     */
+    @Contract(pure = true)
+    static FanoutOptions defaults() {
+        return FanoutOptionsImpl.DEFAULTS;
+    }
+
+    /**
+     * {@return the maximum number of requests in flight per host}
+     */
+    @Contract(pure = true)
+    int maxConcurrencyPerHost();
+
+    /**
+     * Creates a new builder from these options
+     *
+     * @return a new builder
+     */
+    @Contract(value = "-> new", pure = true)
+    Builder toBuilder();
+
+    /**
+     * Builder for {@link FanoutOptions}
+     */
+    sealed interface Builder permits FanoutOptionsImpl.BuilderImpl {
+
+        /**
+         * Sets the maximum number of requests in flight per host
+         *
+         * <p>Must be positive and non-zero</p>
+         *
+         * @param maxConcurrencyPerHost the maximum number of requests
+         * @return the builder
+         * @see FanoutOptions#DEFAULT_MAX_CONCURRENCY_PER_HOST
+         */
+        @Contract(value = "_ -> this", mutates = "this")
+        Builder maxConcurrencyPerHost(int maxConcurrencyPerHost);
+
+        /**
+         * Builds the options
+         *
+         * @return new options
+         */
+        @Contract(value = "-> new", pure = true)
+        FanoutOptions build();
+
+    }
+
+}
@@ -0,0 +1,35 @@
+package dev.siebrenvde.ntfy.topic;
+
+import static dev.siebrenvde.ntfy.internal.Util.checkArgument;
+
+record FanoutOptionsImpl(
+    int maxConcurrencyPerHost
+) implements FanoutOptions {
+
+    static final FanoutOptions DEFAULTS = new FanoutOptionsImpl(DEFAULT_MAX_CONCURRENCY_PER_HOST);
+
+    @Override
+    public Builder toBuilder() {
+        return new BuilderImpl()
+            .maxConcurrencyPerHost(this.maxConcurrencyPerHost);
+    }
+
+    static final class BuilderImpl implements FanoutOptions.Builder {
+
+        private int maxConcurrencyPerHost = DEFAULT_MAX_CONCURRENCY_PER_HOST;
+
+        @Override
+        public Builder maxConcurrencyPerHost(final int maxConcurrencyPerHost) {
+            checkArgument(maxConcurrencyPerHost > 0, "maxConcurrencyPerHost must be positive");
+            this.maxConcurrencyPerHost = maxConcurrencyPerHost;
+            return this;
+        }
+
+        @Override
+        public FanoutOptions build() {
+            return new FanoutOptionsImpl(this.maxConcurrencyPerHost);
+        }
+
+    }
+
+}
@@ -0,0 +1,50 @@
+package dev.siebrenvde.ntfy.topic;
+
+import dev.siebrenvde.ntfy.response.ErrorResponse;
+import dev.siebrenvde.ntfy.response.PublishResponse;
+import dev.siebrenvde.ntfy.util.Result;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.Unmodifiable;
+
+import java.util.Map;
+
+/**
+ * Represents the outcome of publishing a message to multiple topics
+ *
+ * @see Topics#publishAll(java.util.Collection, dev.siebrenvde.ntfy.message.Message, FanoutOptions)
+ */
+public sealed interface FanoutReport permits FanoutReportImpl {
+
+    /**
+     * {@return the results of all topics the server responded for, in the order the topics were provided}
+     */
+    @Contract(pure = true)
+    @Unmodifiable Map<Topic, Result<PublishResponse, ErrorResponse>> results();
+
+    /**
+     * {@return the exceptions of all topics the message could not be sent to, in the order the topics were provided}
+     */
+    @Contract(pure = true)
+    @Unmodifiable Map<Topic, Throwable> failures();
+
+    /**
+     * {@return the number of topics the message was successfully published to}
+     */
+    @Contract(pure = true)
+    int successCount();
+
+    /**
+     * {@return the number of topics the message was not published to}
+     */
+    @Contract(pure = true)
+    int errorCount();
+
+    /**
+     * {@return whether the message was successfully published to all topics}
+     */
+    @Contract(pure = true)
+    default boolean isSuccess() {
+        return this.errorCount() == 0;
+    }
+
+}
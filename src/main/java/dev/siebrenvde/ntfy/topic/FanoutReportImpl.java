@@ -0,0 +1,28 @@
+package dev.siebrenvde.ntfy.topic;
+
+import dev.siebrenvde.ntfy.response.ErrorResponse;
+import dev.siebrenvde.ntfy.response.PublishResponse;
+import dev.siebrenvde.ntfy.util.Result;
+
+import java.util.Map;
+
+record FanoutReportImpl(
+    Map<Topic, Result<PublishResponse, ErrorResponse>> results,
+    Map<Topic, Throwable> failures
+) implements FanoutReport {
+
+    @Override
+    public int successCount() {
+        int count = 0;
+        for (final Result<PublishResponse, ErrorResponse> result : this.results.values()) {
+            if (result.isSuccess()) count++;
+        }
+        return count;
+    }
+
+    @Override
+    public int errorCount() {
+        return this.results.size() + this.failures.size() - this.successCount();
+    }
+
+}
@@ -0,0 +1,229 @@
+package dev.siebrenvde.ntfy.topic;
+
+import org.jspecify.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static dev.siebrenvde.ntfy.internal.Util.checkArgument;
+import static dev.siebrenvde.ntfy.internal.Util.checkNotNull;
+
+/**
+ * Stores checkpoints in an append-only file with a <code>topic id time</code> line, separated by tabs, for every save
+ *
+ * <p>The last line of a topic wins. Saved lines are buffered and written by a task on the store's own daemon thread
+ * {@link CheckpointStore#FILE_SYNC_INTERVAL} later, which then syncs the file once for the whole batch.
+ * Saving never waits for the disk, and a slow disk only holds up that thread.</p>
+ *
+ * <p>The file is rewritten with one line per topic when it is opened, which also drops a last line torn by a crash,
+ * and whenever it has more than {@link #COMPACT_RATIO} lines per topic.
+ * A rewrite goes through a temporary file which then replaces the file, so a crash leaves either the old or the new file.</p>
+ */
+final class FileCheckpointStore implements CheckpointStore {
+
+    private static final int COMPACT_RATIO = 8;
+    private static final int COMPACT_MIN_LINES = 1024;
+
+    private final Path file;
+    private final Map<String, Checkpoint> checkpoints;
+
+    private final ScheduledThreadPoolExecutor syncExecutor = new ScheduledThreadPoolExecutor(1, runnable -> {
+        final Thread thread = new Thread(runnable, "ntfy-checkpoint-sync");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final StringBuilder pending = new StringBuilder();
+    private int pendingLines;
+    private boolean syncScheduled;
+    private boolean closed;
+
+    // Only accessed while holding the sync lock, which is never held while saving
+    private final ReentrantLock syncLock = new ReentrantLock();
+    private @Nullable FileChannel channel;
+    private long lines;
+    private @Nullable IOException error;
+
+    private FileCheckpointStore(final Path file, final Map<String, Checkpoint> checkpoints) {
+        this.file = file;
+        this.checkpoints = checkpoints;
+        // Closing syncs the pending lines itself
+        this.syncExecutor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+    }
+
+    static FileCheckpointStore open(final Path file) throws IOException {
+        checkNotNull(file, "file");
+        final Map<String, Checkpoint> checkpoints = new ConcurrentHashMap<>();
+        if (Files.exists(file)) read(Files.readAllBytes(file), checkpoints);
+        final FileCheckpointStore store = new FileCheckpointStore(file, checkpoints);
+        store.syncLock.lock();
+        try {
+            store.compact();
+        } finally {
+            store.syncLock.unlock();
+        }
+        return store;
+    }
+
+    /**
+     * Reads the lines of a checkpoint file, skipping malformed lines and a last line without a line break
+     *
+     * @param bytes the contents of the file
+     * @param checkpoints the map to put the checkpoints in
+     */
+    private static void read(final byte[] bytes, final Map<String, Checkpoint> checkpoints) {
+        int start = 0;
+        for (int i = 0; i < bytes.length; i++) {
+            if (bytes[i] != '\n') continue;
+            final String[] fields = new String(bytes, start, i - start, StandardCharsets.UTF_8).split("\t", -1);
+            start = i + 1;
+            if (fields.length != 3 || fields[0].isEmpty() || fields[1].isEmpty()) continue;
+            try {
+                checkpoints.put(fields[0], new CheckpointImpl(fields[1], Instant.ofEpochSecond(Long.parseLong(fields[2]))));
+            } catch (final NumberFormatException ignored) {
+                // A damaged line, the topic's previous checkpoint is kept
+            }
+        }
+    }
+
+    @Override
+    public @Nullable Checkpoint load(final String topic) {
+        checkNotNull(topic, "topic");
+        return this.checkpoints.get(topic);
+    }
+
+    @Override
+    public void save(final String topic, final Checkpoint checkpoint) {
+        checkNotNull(topic, "topic");
+        checkNotNull(checkpoint, "checkpoint");
+        checkArgument(isField(topic), "topic must not contain tabs or line breaks");
+        checkArgument(isField(checkpoint.id()), "checkpoint id must not contain tabs or line breaks");
+        this.lock.lock();
+        try {
+            if (this.closed) throw new IllegalStateException("Checkpoint store is closed");
+            this.checkpoints.put(topic, checkpoint);
+            appendLine(this.pending, topic, checkpoint);
+            this.pendingLines++;
+            if (!this.syncScheduled) {
+                this.syncScheduled = true;
+                this.syncExecutor.schedule(this::sync, FILE_SYNC_INTERVAL.toNanos(), TimeUnit.NANOSECONDS);
+            }
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.lock.lock();
+        try {
+            if (this.closed) return;
+            this.closed = true;
+        } finally {
+            this.lock.unlock();
+        }
+        this.syncExecutor.shutdown();
+        this.sync();
+        this.syncLock.lock();
+        try {
+            if (this.channel != null) this.channel.close();
+            if (this.error != null) throw this.error;
+        } finally {
+            this.syncLock.unlock();
+        }
+    }
+
+    /**
+     * Writes the pending lines to the file and syncs it, compacting the file if it has grown too large
+     *
+     * <p>A failure is kept and thrown by {@link #close()}, the checkpoints stay available to {@link #load(String)}</p>
+     */
+    private void sync() {
+        this.syncLock.lock();
+        try {
+            final byte[] batch;
+            final int batchLines;
+            this.lock.lock();
+            try {
+                this.syncScheduled = false;
+                batch = this.pending.toString().getBytes(StandardCharsets.UTF_8);
+                batchLines = this.pendingLines;
+                this.pending.setLength(0);
+                this.pendingLines = 0;
+            } finally {
+                this.lock.unlock();
+            }
+            if (batch.length == 0 || this.channel == null) return;
+
+            write(this.channel, batch);
+            this.channel.force(false);
+            this.lines += batchLines;
+            if (this.lines > COMPACT_MIN_LINES && this.lines > (long) COMPACT_RATIO * this.checkpoints.size()) {
+                this.compact();
+            }
+        } catch (final IOException e) {
+            if (this.error == null) this.error = e;
+        } finally {
+            this.syncLock.unlock();
+        }
+    }
+
+    /**
+     * Replaces the file with one holding a line per topic and reopens it for appending
+     *
+     * <p>Must be called while holding the sync lock</p>
+     *
+     * @throws IOException if the file cannot be written
+     */
+    private void compact() throws IOException {
+        final StringBuilder snapshot = new StringBuilder();
+        int snapshotLines = 0;
+        for (final Map.Entry<String, Checkpoint> entry : this.checkpoints.entrySet()) {
+            appendLine(snapshot, entry.getKey(), entry.getValue());
+            snapshotLines++;
+        }
+        final Path temp = this.file.resolveSibling(this.file.getFileName() + ".tmp");
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            write(out, snapshot.toString().getBytes(StandardCharsets.UTF_8));
+            out.force(true);
+        }
+        Files.move(temp, this.file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        if (this.channel != null) this.channel.close();
+        this.channel = FileChannel.open(this.file, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        this.lines = snapshotLines;
+    }
+
+    private static void write(final FileChannel channel, final byte[] bytes) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        while (buffer.hasRemaining()) channel.write(buffer);
+    }
+
+    private static void appendLine(final StringBuilder builder, final String topic, final Checkpoint checkpoint) {
+        builder.append(topic).append('\t').append(checkpoint.id()).append('\t').append(checkpoint.time().getEpochSecond()).append('\n');
+    }
+
+    private static boolean isField(final String value) {
+        return value.indexOf('\t') < 0 && value.indexOf('\n') < 0;
+    }
+
+    @Override
+    public String toString() {
+        return "FileCheckpointStore{" +
+            "file=" + this.file +
+            '}';
+    }
+
+}
@@ -0,0 +1,794 @@
+package dev.siebrenvde.ntfy.topic;
+
+import dev.siebrenvde.ntfy.internal.EncodedJson;
+import dev.siebrenvde.ntfy.response.ReceivedMessage;
+import org.jspecify.annotations.Nullable;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32C;
+
+import static dev.siebrenvde.ntfy.internal.Util.checkArgument;
+import static dev.siebrenvde.ntfy.internal.Util.checkNotNull;
+
+/**
+ * Stores messages in segment files named after the position of their first byte in the log, such as <code>00000000000000000000.log</code>
+ *
+ * <p>Every message is a big-endian record of <code>length:int crc:int time:long idHash:int topicLength:short topic json</code>,
+ * where the length and the CRC-32C checksum cover everything after the checksum and the json is the event the message was decoded from.</p>
+ *
+ * <p>When the store is opened the lengths of all records are checked, and the records of the last segment,
+ * the only one a crash can leave torn, are also checked against their checksums.
+ * A segment is truncated at its first invalid record. Earlier segments were synced when the next one was started.</p>
+ *
+ * <p>Appends and retention hold the write lock and queries the read lock, so a query never reads a segment that is being deleted.
+ * Batched syncs run on the store's own daemon thread and hold neither while waiting for the disk.</p>
+ */
+final class FileMessageStore implements MessageStore {
+
+    private static final String SUFFIX = ".log";
+    private static final String LOCK_FILE = "store.lock";
+    private static final int HEADER = 2 * Integer.BYTES;
+    // The time, id hash and topic length preceding the topic
+    private static final int FIXED = Long.BYTES + Integer.BYTES + Short.BYTES;
+    private static final int MAX_TOPIC_LENGTH = 0xFFFF;
+
+    private final Path directory;
+    private final int segmentSize;
+    private final long maxBytes;
+    private final Duration maxAge;
+    private final Duration syncInterval;
+    private final FileChannel lockChannel;
+    private final ScheduledThreadPoolExecutor syncExecutor = new ScheduledThreadPoolExecutor(1, runnable -> {
+        final Thread thread = new Thread(runnable, "ntfy-message-store-sync");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final List<Segment> segments = new ArrayList<>();
+    private final Map<String, TopicIndex> topics = new HashMap<>();
+    private final IdIndex ids = new IdIndex();
+    private long size;
+    private boolean syncScheduled;
+    private boolean closed;
+    private @Nullable IOException error;
+
+    private FileMessageStore(
+        final Path directory,
+        final int segmentSize,
+        final long maxBytes,
+        final Duration maxAge,
+        final Duration syncInterval,
+        final FileChannel lockChannel
+    ) {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.maxBytes = maxBytes;
+        this.maxAge = maxAge;
+        this.syncInterval = syncInterval;
+        this.lockChannel = lockChannel;
+        // Closing syncs the active segment itself
+        this.syncExecutor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+    }
+
+    static FileMessageStore open(
+        final Path directory,
+        final int segmentSize,
+        final long maxBytes,
+        final Duration maxAge,
+        final Duration syncInterval
+    ) throws IOException {
+        Files.createDirectories(directory);
+        final FileChannel lockChannel = FileChannel.open(directory.resolve(LOCK_FILE), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        final FileMessageStore store = new FileMessageStore(directory, segmentSize, maxBytes, maxAge, syncInterval, lockChannel);
+        try {
+            try {
+                if (lockChannel.tryLock() == null) throw new IOException("Message store " + directory + " is already open");
+            } catch (final OverlappingFileLockException e) {
+                throw new IOException("Message store " + directory + " is already open", e);
+            }
+
+            final List<Path> files = new ArrayList<>();
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+                for (final Path file : stream) {
+                    if (base(file) >= 0) files.add(file);
+                }
+            }
+            files.sort(Comparator.comparingLong(FileMessageStore::base));
+            for (int i = 0; i < files.size(); i++) {
+                store.recover(files.get(i), i == files.size() - 1);
+            }
+            if (store.segments.isEmpty()) store.segments.add(Segment.create(directory, 0));
+            store.retain();
+            for (final TopicIndex index : store.topics.values()) {
+                index.lastId = store.read(index.offsets[index.end - 1]).id();
+            }
+        } catch (final IOException | RuntimeException e) {
+            store.releaseSegments();
+            lockChannel.close();
+            throw e;
+        }
+        return store;
+    }
+
+    /**
+     * Indexes the records of a segment and truncates it at its first invalid record
+     *
+     * @param file the segment
+     * @param last whether this is the last segment, whose records are checked against their checksums
+     * @throws IOException if the segment cannot be read or truncated
+     */
+    private void recover(final Path file, final boolean last) throws IOException {
+        final long base = base(file);
+        final FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            final long fileSize = channel.size();
+            if (fileSize > Integer.MAX_VALUE) throw new IOException("Segment " + file + " is too large");
+            MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize);
+            final CRC32C crc = new CRC32C();
+            final Segment segment = new Segment(base, file);
+            int position = 0;
+            while (position + HEADER + FIXED <= fileSize) {
+                final int length = map.getInt(position);
+                if (length < FIXED || length > fileSize - position - HEADER) break;
+                final int topicLength = Short.toUnsignedInt(map.getShort(position + HEADER + Long.BYTES + Integer.BYTES));
+                if (topicLength > length - FIXED) break;
+                if (last) {
+                    crc.reset();
+                    crc.update(map.slice(position + HEADER, length));
+                    if ((int) crc.getValue() != map.getInt(position + Integer.BYTES)) break;
+                }
+                final byte[] topic = new byte[topicLength];
+                map.get(position + HEADER + FIXED, topic);
+                final long time = map.getLong(position + HEADER);
+                final int idHash = map.getInt(position + HEADER + Long.BYTES);
+                this.topics.computeIfAbsent(new String(topic, StandardCharsets.UTF_8), name -> new TopicIndex()).add(base + position, time, idHash, null);
+                this.ids.add(base + position, idHash);
+                segment.maxTime = Math.max(segment.maxTime, time);
+                position += HEADER + length;
+            }
+            if (position < fileSize) {
+                channel.truncate(position);
+                channel.force(true);
+                map = channel.map(FileChannel.MapMode.READ_ONLY, 0, position);
+            }
+            segment.length = position;
+            this.size += position;
+            if (last) {
+                segment.channel = channel;
+            } else {
+                segment.map = map;
+                channel.close();
+            }
+            this.segments.add(segment);
+        } catch (final IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public Path directory() {
+        return this.directory;
+    }
+
+    @Override
+    public int segmentSize() {
+        return this.segmentSize;
+    }
+
+    @Override
+    public long maxBytes() {
+        return this.maxBytes;
+    }
+
+    @Override
+    public Duration maxAge() {
+        return this.maxAge;
+    }
+
+    @Override
+    public Duration syncInterval() {
+        return this.syncInterval;
+    }
+
+    @Override
+    public boolean append(final String topic, final ReceivedMessage message) throws IOException {
+        checkNotNull(topic, "topic");
+        checkNotNull(message, "message");
+        final byte[] topicBytes = topic.getBytes(StandardCharsets.UTF_8);
+        checkArgument(topicBytes.length <= MAX_TOPIC_LENGTH, "topic must not be longer than " + MAX_TOPIC_LENGTH + " bytes");
+        final byte[] json = ((EncodedJson) message).json();
+        final long time = message.time().getEpochSecond();
+        final int idHash = message.id().hashCode();
+        final int length = FIXED + topicBytes.length + json.length;
+        final ByteBuffer record = ByteBuffer.allocate(HEADER + length)
+            .putInt(length)
+            .putInt(0)
+            .putLong(time)
+            .putInt(idHash)
+            .putShort((short) topicBytes.length)
+            .put(topicBytes)
+            .put(json)
+            .flip();
+        final CRC32C crc = new CRC32C();
+        crc.update(record.array(), HEADER, length);
+        record.putInt(Integer.BYTES, (int) crc.getValue());
+
+        this.lock.writeLock().lock();
+        try {
+            this.checkOpen();
+            final @Nullable TopicIndex index = this.topics.get(topic);
+            if (index != null && this.containsRecent(index, message.id(), idHash, time)) return false;
+
+            Segment active = this.active();
+            if (active.length > 0 && (long) active.length + record.limit() > this.segmentSize) active = this.roll();
+            final FileChannel channel = Objects.requireNonNull(active.channel);
+            int position = active.length;
+            while (record.hasRemaining()) position += channel.write(record, position);
+
+            final long offset = active.base + active.length;
+            active.length = position;
+            active.maxTime = Math.max(active.maxTime, time);
+            this.size += record.limit();
+            this.topics.computeIfAbsent(topic, name -> new TopicIndex()).add(offset, time, idHash, message.id());
+            this.ids.add(offset, idHash);
+            this.retain();
+
+            if (this.syncInterval.isZero()) {
+                channel.force(false);
+            } else if (!this.syncScheduled) {
+                this.syncScheduled = true;
+                this.syncExecutor.schedule(this::sync, this.syncInterval.toNanos(), TimeUnit.NANOSECONDS);
+            }
+            return true;
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * {@return whether a message was appended to a topic within the same second as the last message}
+     *
+     * <p>Must be called while holding the lock</p>
+     */
+    private boolean containsRecent(final TopicIndex index, final String id, final int idHash, final long time) throws IOException {
+        for (int i = index.end - 1; i >= index.start && index.times[i] >= time; i--) {
+            if (index.idHashes[i] == idHash && this.read(index.offsets[i]).id().equals(id)) return true;
+        }
+        return false;
+    }
+
+    @Override
+    public List<ReceivedMessage> messages(final String topic, final Instant from, final Instant to) throws IOException {
+        checkNotNull(topic, "topic");
+        checkNotNull(from, "from");
+        checkNotNull(to, "to");
+        // Message times are whole seconds, so the range is rounded up to whole seconds
+        final long fromSecond = from.getEpochSecond() + (from.getNano() > 0 ? 1 : 0);
+        final long toSecond = to.getEpochSecond() + (to.getNano() > 0 ? 1 : 0);
+        this.lock.readLock().lock();
+        try {
+            this.checkOpen();
+            final @Nullable TopicIndex index = this.topics.get(topic);
+            if (index == null) return List.of();
+            final List<ReceivedMessage> messages = new ArrayList<>();
+            for (int i = index.first(fromSecond); i < index.end; i++) {
+                final long time = index.times[i];
+                if (time >= toSecond && index.ordered) break;
+                if (time >= fromSecond && time < toSecond) messages.add(this.read(index.offsets[i]));
+            }
+            return List.copyOf(messages);
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public @Nullable ReceivedMessage message(final String id) throws IOException {
+        checkNotNull(id, "id");
+        final int idHash = id.hashCode();
+        this.lock.readLock().lock();
+        try {
+            this.checkOpen();
+            for (long entry = this.ids.newest(idHash); entry >= 0; entry = this.ids.previous(entry, idHash)) {
+                final ReceivedMessage message = this.read(this.ids.offset(entry));
+                if (message.id().equals(id)) return message;
+            }
+            return null;
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public @Nullable Checkpoint checkpoint(final String topic) {
+        checkNotNull(topic, "topic");
+        this.lock.readLock().lock();
+        try {
+            final @Nullable TopicIndex index = this.topics.get(topic);
+            if (index == null || index.lastId == null) return null;
+            return new CheckpointImpl(index.lastId, Instant.ofEpochSecond(index.times[index.end - 1]));
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Set<String> topics() {
+        this.lock.readLock().lock();
+        try {
+            return Set.copyOf(this.topics.keySet());
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public long size() {
+        this.lock.readLock().lock();
+        try {
+            return this.size;
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.lock.writeLock().lock();
+        try {
+            if (this.closed) return;
+            this.closed = true;
+            this.syncExecutor.shutdown();
+            try {
+                final @Nullable FileChannel channel = this.active().channel;
+                if (channel != null) channel.force(true);
+            } finally {
+                this.releaseSegments();
+                this.lockChannel.close();
+            }
+            if (this.error != null) throw this.error;
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Reads the message of a record
+     *
+     * <p>Must be called while holding the lock</p>
+     *
+     * @param offset the position of the record in the log
+     * @return the message
+     * @throws IOException if the record cannot be read or does not hold a message
+     */
+    private ReceivedMessage read(final long offset) throws IOException {
+        int low = 0;
+        int high = this.segments.size() - 1;
+        while (low < high) {
+            final int middle = (low + high + 1) >>> 1;
+            if (this.segments.get(middle).base <= offset) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        final Segment segment = this.segments.get(low);
+        final int position = (int) (offset - segment.base);
+        final byte[] header = new byte[Integer.BYTES];
+        segment.read(position, header);
+        final byte[] payload = new byte[ByteBuffer.wrap(header).getInt()];
+        segment.read(position + HEADER, payload);
+        final int json = FIXED + Short.toUnsignedInt(ByteBuffer.wrap(payload).getShort(Long.BYTES + Integer.BYTES));
+        final @Nullable ReceivedMessage message = ReceivedMessage.fromJson(payload, json, payload.length - json);
+        if (message == null) throw new IOException("Segment " + segment.file + " holds an event that is not a message at " + position);
+        return message;
+    }
+
+    /**
+     * Syncs the current segment and starts a new one
+     *
+     * <p>Must be called while holding the write lock</p>
+     *
+     * @return the new segment
+     * @throws IOException if the current segment cannot be synced or the new one cannot be created
+     */
+    private Segment roll() throws IOException {
+        final Segment active = this.active();
+        final FileChannel channel = Objects.requireNonNull(active.channel);
+        channel.force(true);
+        active.map = channel.map(FileChannel.MapMode.READ_ONLY, 0, active.length);
+        active.channel = null;
+        channel.close();
+        final Segment segment = Segment.create(this.directory, active.base + active.length);
+        this.segments.add(segment);
+        return segment;
+    }
+
+    /**
+     * Deletes the oldest segments while the store is too large or they are too old
+     *
+     * <p>Must be called while holding the write lock</p>
+     *
+     * @throws IOException if a segment cannot be deleted
+     */
+    private void retain() throws IOException {
+        final long cutoff = Instant.now().minus(this.maxAge).getEpochSecond();
+        while (this.segments.size() > 1) {
+            final Segment oldest = this.segments.get(0);
+            if (this.size <= this.maxBytes && oldest.maxTime >= cutoff) return;
+            this.segments.remove(0);
+            this.size -= oldest.length;
+            final long end = oldest.base + oldest.length;
+            this.topics.values().removeIf(index -> index.dropBefore(end));
+            this.ids.dropBefore(end);
+            oldest.release();
+            Files.deleteIfExists(oldest.file);
+        }
+    }
+
+    /**
+     * Syncs the current segment, without holding the lock while waiting for the disk
+     */
+    private void sync() {
+        final @Nullable FileChannel channel;
+        this.lock.writeLock().lock();
+        try {
+            this.syncScheduled = false;
+            channel = this.closed ? null : this.active().channel;
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+        if (channel == null) return;
+        try {
+            channel.force(false);
+        } catch (final ClosedChannelException e) {
+            // The segment was synced when it was rolled over or the store was closed
+        } catch (final IOException e) {
+            this.lock.writeLock().lock();
+            try {
+                if (this.error == null) this.error = e;
+            } finally {
+                this.lock.writeLock().unlock();
+            }
+        }
+    }
+
+    private Segment active() {
+        return this.segments.get(this.segments.size() - 1);
+    }
+
+    private void checkOpen() {
+        if (this.closed) throw new IllegalStateException("Message store is closed");
+    }
+
+    private void releaseSegments() throws IOException {
+        for (final Segment segment : this.segments) segment.release();
+    }
+
+    /**
+     * {@return the position of a segment's first byte in the log, or <code>-1</code> if the file is not a segment}
+     *
+     * @param file the file
+     */
+    private static long base(final Path file) {
+        final String name = file.getFileName().toString();
+        if (!name.endsWith(SUFFIX) || name.length() != 20 + SUFFIX.length()) return -1;
+        try {
+            return Long.parseLong(name.substring(0, 20));
+        } catch (final NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "FileMessageStore{" +
+            "directory=" + this.directory +
+            ", segmentSize=" + this.segmentSize +
+            ", maxBytes=" + this.maxBytes +
+            ", maxAge=" + this.maxAge +
+            ", syncInterval=" + this.syncInterval +
+            '}';
+    }
+
+    /**
+     * A segment file, which is appended to through its channel until the next segment is started and read through a memory mapping afterwards
+     */
+    private static final class Segment {
+
+        private final long base;
+        private final Path file;
+        private @Nullable FileChannel channel;
+        private @Nullable MappedByteBuffer map;
+        private int length;
+        private long maxTime = Long.MIN_VALUE;
+
+        Segment(final long base, final Path file) {
+            this.base = base;
+            this.file = file;
+        }
+
+        static Segment create(final Path directory, final long base) throws IOException {
+            final Segment segment = new Segment(base, directory.resolve(String.format("%020d", base) + SUFFIX));
+            segment.channel = FileChannel.open(segment.file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            return segment;
+        }
+
+        void read(final int position, final byte[] bytes) throws IOException {
+            final @Nullable MappedByteBuffer map = this.map;
+            if (map != null) {
+                map.get(position, bytes);
+                return;
+            }
+            final FileChannel channel = Objects.requireNonNull(this.channel);
+            final ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, position + buffer.position()) < 0) throw new EOFException("Unexpected end of segment " + this.file);
+            }
+        }
+
+        /**
+         * Closes the channel and drops the mapping, which is unmapped once it is garbage collected
+         */
+        void release() throws IOException {
+            this.map = null;
+            if (this.channel != null) this.channel.close();
+            this.channel = null;
+        }
+
+    }
+
+    /**
+     * The time, position and id hash of every stored message of a topic, in the order they were appended
+     *
+     * <p>Entries are dropped from the front as segments are deleted. The times are binary searched as long as they never decreased.</p>
+     */
+    private static final class TopicIndex {
+
+        private long[] offsets = new long[16];
+        private long[] times = new long[16];
+        private int[] idHashes = new int[16];
+        private int start;
+        private int end;
+        private boolean ordered = true;
+        private @Nullable String lastId;
+
+        void add(final long offset, final long time, final int idHash, final @Nullable String id) {
+            if (this.end == this.offsets.length) {
+                if (this.start > this.offsets.length / 2) {
+                    final int size = this.end - this.start;
+                    System.arraycopy(this.offsets, this.start, this.offsets, 0, size);
+                    System.arraycopy(this.times, this.start, this.times, 0, size);
+                    System.arraycopy(this.idHashes, this.start, this.idHashes, 0, size);
+                    this.start = 0;
+                    this.end = size;
+                } else {
+                    this.offsets = Arrays.copyOf(this.offsets, 2 * this.offsets.length);
+                    this.times = Arrays.copyOf(this.times, 2 * this.times.length);
+                    this.idHashes = Arrays.copyOf(this.idHashes, 2 * this.idHashes.length);
+                }
+            }
+            if (this.end > this.start && time < this.times[this.end - 1]) this.ordered = false;
+            this.offsets[this.end] = offset;
+            this.times[this.end] = time;
+            this.idHashes[this.end] = idHash;
+            this.end++;
+            this.lastId = id;
+        }
+
+        /**
+         * Drops the entries before a position in the log
+         *
+         * @param offset the position
+         * @return whether the index is now empty
+         */
+        boolean dropBefore(final long offset) {
+            while (this.start < this.end && this.offsets[this.start] < offset) this.start++;
+            return this.start == this.end;
+        }
+
+        /**
+         * {@return the first entry that can be at or after a time}
+         *
+         * @param time the time
+         */
+        int first(final long time) {
+            if (!this.ordered) return this.start;
+            int low = this.start;
+            int high = this.end;
+            while (low < high) {
+                final int middle = (low + high) >>> 1;
+                if (this.times[middle] < time) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+    }
+
+    /**
+     * The position of every stored message by the hash of its id, in the order they were appended
+     *
+     * <p>Entries are numbered in the order they were appended and held in a ring.
+     * Each bucket holds its newest entry, and each entry links to the previous entry of its bucket,
+     * so a lookup follows the links until it reaches an entry that was dropped.
+     * Dropping entries from the front as segments are deleted therefore leaves the buckets as they are.</p>
+     */
+    private static final class IdIndex {
+
+        private static final long NONE = -1;
+
+        private long[] offsets = new long[16];
+        private int[] idHashes = new int[16];
+        private long[] links = new long[16];
+        private long[] buckets = empty(16);
+        private long start;
+        private long end;
+
+        void add(final long offset, final int idHash) {
+            if (this.end - this.start == this.offsets.length) this.grow();
+            final int index = this.index(this.end);
+            final int bucket = this.bucket(idHash);
+            this.offsets[index] = offset;
+            this.idHashes[index] = idHash;
+            this.links[index] = this.buckets[bucket];
+            this.buckets[bucket] = this.end++;
+        }
+
+        /**
+         * Drops the entries before a position in the log
+         *
+         * @param offset the position
+         */
+        void dropBefore(final long offset) {
+            while (this.start < this.end && this.offsets[this.index(this.start)] < offset) this.start++;
+        }
+
+        /**
+         * {@return the newest entry with an id hash, or a negative number if there is none}
+         *
+         * @param idHash the id hash
+         */
+        long newest(final int idHash) {
+            return this.matching(this.buckets[this.bucket(idHash)], idHash);
+        }
+
+        /**
+         * {@return the entry with an id hash before another, or a negative number if there is none}
+         *
+         * @param entry the entry
+         * @param idHash the id hash
+         */
+        long previous(final long entry, final int idHash) {
+            return this.matching(this.links[this.index(entry)], idHash);
+        }
+
+        long offset(final long entry) {
+            return this.offsets[this.index(entry)];
+        }
+
+        private long matching(long entry, final int idHash) {
+            while (entry >= this.start && this.idHashes[this.index(entry)] != idHash) entry = this.links[this.index(entry)];
+            return entry >= this.start ? entry : NONE;
+        }
+
+        /**
+         * Doubles the size of the ring and the number of buckets, linking the entries again
+         */
+        private void grow() {
+            final int capacity = 2 * this.offsets.length;
+            final long[] offsets = new long[capacity];
+            final int[] idHashes = new int[capacity];
+            for (long entry = this.start; entry < this.end; entry++) {
+                offsets[(int) (entry & (capacity - 1))] = this.offsets[this.index(entry)];
+                idHashes[(int) (entry & (capacity - 1))] = this.idHashes[this.index(entry)];
+            }
+            this.offsets = offsets;
+            this.idHashes = idHashes;
+            this.links = new long[capacity];
+            this.buckets = empty(capacity);
+            for (long entry = this.start; entry < this.end; entry++) {
+                final int index = this.index(entry);
+                final int bucket = this.bucket(this.idHashes[index]);
+                this.links[index] = this.buckets[bucket];
+                this.buckets[bucket] = entry;
+            }
+        }
+
+        private int index(final long entry) {
+            return (int) (entry & (this.offsets.length - 1));
+        }
+
+        private int bucket(final int idHash) {
+            return (idHash ^ (idHash >>> 16)) & (this.buckets.length - 1);
+        }
+
+        private static long[] empty(final int size) {
+            final long[] buckets = new long[size];
+            Arrays.fill(buckets, NONE);
+            return buckets;
+        }
+
+    }
+
+    static final class BuilderImpl implements MessageStore.Builder {
+
+        private final Path directory;
+        private int segmentSize = DEFAULT_SEGMENT_SIZE;
+        private long maxBytes = DEFAULT_MAX_BYTES;
+        private Duration maxAge = DEFAULT_MAX_AGE;
+        private Duration syncInterval = DEFAULT_SYNC_INTERVAL;
+
+        BuilderImpl(final Path directory) {
+            checkNotNull(directory, "directory");
+            this.directory = directory;
+        }
+
+        @Override
+        public Builder segmentSize(final int segmentSize) {
+            checkArgument(segmentSize > 0, "segmentSize must be positive");
+            this.segmentSize = segmentSize;
+            return this;
+        }
+
+        @Override
+        public Builder maxBytes(final long maxBytes) {
+            checkArgument(maxBytes > 0, "maxBytes must be positive");
+            this.maxBytes = maxBytes;
+            return this;
+        }
+
+        @Override
+        public Builder maxAge(final Duration maxAge) {
+            checkNotNull(maxAge, "maxAge");
+            checkArgument(!maxAge.isNegative(), "maxAge must be positive");
+            checkArgument(!maxAge.isZero(), "maxAge must not be zero");
+            this.maxAge = maxAge;
+            return this;
+        }
+
+        @Override
+        public Builder syncInterval(final Duration syncInterval) {
+            checkNotNull(syncInterval, "syncInterval");
+            checkArgument(!syncInterval.isNegative(), "syncInterval must not be negative");
+            this.syncInterval = syncInterval;
+            return this;
+        }
+
+        @Override
+        public MessageStore build() throws IOException {
+            return FileMessageStore.open(this.directory, this.segmentSize, this.maxBytes, this.maxAge, this.syncInterval);
+        }
+
+    }
+
+}
@@ -0,0 +1,132 @@
+package dev.siebrenvde.ntfy.topic;
+
+import dev.siebrenvde.ntfy.internal.LimitedBodySubscriber;
+import dev.siebrenvde.ntfy.response.ErrorResponse;
+import dev.siebrenvde.ntfy.response.ReceivedMessage;
+import org.jspecify.annotations.Nullable;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpResponse.BodySubscriber;
+import java.net.http.HttpResponse.ResponseInfo;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+import java.util.function.Predicate;
+
+/**
+ * Reads a line-based subscription stream from a long-lived http response
+ *
+ * <p>Lines are framed by a {@link LineFramer} as the body arrives and handed to the transport one at a time,
+ * so the stream is never buffered as a whole. Lines may end with <code>\n</code> or <code>\r\n</code>.</p>
+ */
+abstract sealed class HttpStreamSubscription extends StreamSubscription implements BodySubscriber<@Nullable ErrorResponse>
+    permits JsonStreamSubscription, SseStreamSubscription {
+
+    private final CompletableFuture<@Nullable ErrorResponse> body = new CompletableFuture<>();
+    private volatile @Nullable CompletableFuture<?> exchange;
+
+    // Only accessed from onNext and onComplete, which the http client calls serially
+    private final LineFramer framer = new LineFramer(MAX_EVENT_LENGTH);
+    private final LineFramer.LineHandler lines = this::onLine;
+
+    HttpStreamSubscription(final Flow.Subscriber<? super ReceivedMessage> downstream, @Nullable final Predicate<ReceivedMessage> filter) {
+        super(downstream, filter);
+    }
+
+    @Override
+    void connect(final HttpClient client, final HttpRequest request, final Duration idleTimeout) {
+        if (this.isCancelled()) return;
+        final CompletableFuture<HttpResponse<@Nullable ErrorResponse>> exchange = client.sendAsync(request, this::subscriber);
+        this.exchange = exchange;
+        exchange.whenComplete((response, throwable) -> {
+            if (throwable != null) {
+                this.fail(throwable instanceof CompletionException && throwable.getCause() != null ? throwable.getCause() : throwable);
+                return;
+            }
+            final @Nullable ErrorResponse error = response.body();
+            if (error != null) this.fail(new SubscriptionException(error));
+        });
+        if (this.isCancelled()) exchange.cancel(true);
+        this.watchIdle(idleTimeout);
+    }
+
+    private BodySubscriber<@Nullable ErrorResponse> subscriber(final ResponseInfo info) {
+        final int status = info.statusCode();
+        if (status == 200) return this;
+        return new LimitedBodySubscriber<>(ResponseBodyHandler.MAX_BODY_SIZE, -1, (bytes, length, truncated) -> ErrorResponse.fromResponse(status, bytes, length));
+    }
+
+    @Override
+    void cancelUpstream() {
+        super.cancelUpstream();
+        final @Nullable CompletableFuture<?> exchange = this.exchange;
+        if (exchange != null) exchange.cancel(true);
+    }
+
+    @Override
+    public CompletionStage<@Nullable ErrorResponse> getBody() {
+        return this.body;
+    }
+
+    @Override
+    public void onSubscribe(final Flow.Subscription subscription) {
+        this.upstream(subscription);
+    }
+
+    @Override
+    public void onNext(final List<ByteBuffer> buffers) {
+        this.received();
+        try {
+            for (final ByteBuffer buffer : buffers) {
+                this.framer.frame(buffer, this.lines);
+            }
+        } catch (final IOException e) {
+            this.cancelUpstream();
+            this.fail(e);
+        }
+        this.drain();
+    }
+
+    @Override
+    public void onError(final Throwable throwable) {
+        this.body.completeExceptionally(throwable);
+        this.fail(throwable);
+    }
+
+    @Override
+    public void onComplete() {
+        try {
+            this.framer.finish(this.lines);
+            this.onEnd();
+            this.complete();
+        } catch (final IOException e) {
+            this.fail(e);
+        }
+        this.body.complete(null);
+    }
+
+    /**
+     * Handles a line of the stream
+     *
+     * @param line the array holding the line, which is only valid until this method returns
+     * @param offset the offset of the line in the array
+     * @param length the length of the line, without the line terminator
+     * @throws IOException if the line cannot be decoded
+     */
+    abstract void onLine(byte[] line, int offset, int length) throws IOException;
+
+    /**
+     * Called once the stream has ended, after its last line
+     *
+     * @throws IOException if the end of the stream cannot be handled
+     */
+    abstract void onEnd() throws IOException;
+
+}
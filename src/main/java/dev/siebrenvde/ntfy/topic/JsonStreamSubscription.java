@@ -0,0 +1,33 @@
+package dev.siebrenvde.ntfy.topic;
+
+import dev.siebrenvde.ntfy.response.ReceivedMessage;
+import org.jspecify.annotations.Nullable;
+
+import java.io.IOException;
+import java.util.concurrent.Flow;
+import java.util.function.Predicate;
+
+/**
+ * Reads a <code>/json</code> stream, which has one JSON event per line
+ *
+ * @see <a href="https://docs.ntfy.sh/subscribe/api/#subscribe-as-json-stream">Subscribe as JSON stream</a>
+ */
+final class JsonStreamSubscription extends HttpStreamSubscription {
+
+    JsonStreamSubscription(final Flow.Subscriber<? super ReceivedMessage> downstream, @Nullable final Predicate<ReceivedMessage> filter) {
+        super(downstream, filter);
+    }
+
+    @Override
+    void onLine(final byte[] line, final int offset, final int length) throws IOException {
+        if (length == 0) return;
+        final @Nullable ReceivedMessage message = this.emit(line, offset, length);
+        if (message != null) this.lastEventId(message.id());
+    }
+
+    @Override
+    void onEnd() {
+
+    }
+
+}
@@ -0,0 +1,172 @@
+package dev.siebrenvde.ntfy.topic;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * Splits the chunks of a stream into lines ending with <code>\n</code> or <code>\r\n</code>
+ *
+ * <p>Heap buffers are searched for line breaks eight bytes at a time.
+ * A line that lies within one heap buffer is handed over as a slice of the buffer's own array, without copying it.
+ * Only lines crossing the boundary between chunks, and the lines of direct or read-only buffers,
+ * are stitched together in a reusable buffer, which grows up to the maximum line length.</p>
+ *
+ * <p>Not thread-safe, a framer belongs to one stream whose chunks arrive one at a time</p>
+ */
+final class LineFramer {
+
+    private static final VarHandle LONGS = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final long NEWLINES = 0x0A0A0A0A0A0A0A0AL;
+    private static final long LOW_BITS = 0x0101010101010101L;
+    private static final long HIGH_BITS = 0x8080808080808080L;
+
+    private final int maxLineLength;
+    private byte[] line = new byte[512];
+    private int lineLength;
+
+    LineFramer(final int maxLineLength) {
+        this.maxLineLength = maxLineLength;
+    }
+
+    /**
+     * Hands every line a chunk completes to the handler, keeping the rest for the next chunk
+     *
+     * @param buffer the chunk, which is consumed
+     * @param handler the handler
+     * @throws IOException if a line is too long or the handler fails
+     */
+    void frame(final ByteBuffer buffer, final LineHandler handler) throws IOException {
+        if (buffer.hasArray()) {
+            this.frameArray(buffer, handler);
+        } else {
+            this.frameBuffer(buffer, handler);
+        }
+    }
+
+    /**
+     * Hands the last line to the handler if the stream did not end with a line break
+     *
+     * @param handler the handler
+     * @throws IOException if the handler fails
+     */
+    void finish(final LineHandler handler) throws IOException {
+        if (this.lineLength == 0) return;
+        final int length = this.lineLength;
+        this.lineLength = 0;
+        complete(this.line, 0, length, handler);
+    }
+
+    private void frameArray(final ByteBuffer buffer, final LineHandler handler) throws IOException {
+        final byte[] array = buffer.array();
+        final int base = buffer.arrayOffset();
+        final int limit = base + buffer.limit();
+        int start = base + buffer.position();
+        buffer.position(buffer.limit());
+        while (start < limit) {
+            final int end = indexOfNewline(array, start, limit);
+            if (end < 0) {
+                this.append(array, start, limit - start);
+                return;
+            }
+            if (this.lineLength == 0) {
+                this.checkLength(end - start);
+                complete(array, start, end - start, handler);
+            } else {
+                this.append(array, start, end - start);
+                final int length = this.lineLength;
+                this.lineLength = 0;
+                complete(this.line, 0, length, handler);
+            }
+            start = end + 1;
+        }
+    }
+
+    private void frameBuffer(final ByteBuffer buffer, final LineHandler handler) throws IOException {
+        while (buffer.hasRemaining()) {
+            final int start = buffer.position();
+            final int limit = buffer.limit();
+            int end = start;
+            while (end < limit && buffer.get(end) != '\n') end++;
+            final int length = end - start;
+            this.ensureCapacity(length);
+            buffer.get(this.line, this.lineLength, length);
+            this.lineLength += length;
+            if (end < limit) {
+                buffer.get();
+                final int lineLength = this.lineLength;
+                this.lineLength = 0;
+                complete(this.line, 0, lineLength, handler);
+            }
+        }
+    }
+
+    /**
+     * Finds the first line break in a range of an array, comparing eight bytes at a time
+     *
+     * @param bytes the array
+     * @param from the start of the range
+     * @param to the end of the range
+     * @return the index of the line break, or <code>-1</code> if there is none
+     */
+    static int indexOfNewline(final byte[] bytes, final int from, final int to) {
+        int i = from;
+        for (; i + Long.BYTES <= to; i += Long.BYTES) {
+            // Zero bytes of word are line breaks, the lowest set high bit marks the first of them
+            final long word = (long) LONGS.get(bytes, i) ^ NEWLINES;
+            final long found = (word - LOW_BITS) & ~word & HIGH_BITS;
+            if (found != 0) return i + (Long.numberOfTrailingZeros(found) >>> 3);
+        }
+        for (; i < to; i++) {
+            if (bytes[i] == '\n') return i;
+        }
+        return -1;
+    }
+
+    private void append(final byte[] bytes, final int offset, final int length) throws IOException {
+        this.ensureCapacity(length);
+        System.arraycopy(bytes, offset, this.line, this.lineLength, length);
+        this.lineLength += length;
+    }
+
+    private void ensureCapacity(final int length) throws IOException {
+        final int required = this.lineLength + length;
+        this.checkLength(required);
+        if (this.line.length < required) {
+            this.line = Arrays.copyOf(this.line, Math.min(this.maxLineLength, Math.max(2 * this.line.length, required)));
+        }
+    }
+
+    private void checkLength(final int length) throws IOException {
+        if (length > this.maxLineLength) {
+            throw new IOException("Line exceeds the maximum length of " + this.maxLineLength + " bytes");
+        }
+    }
+
+    private static void complete(final byte[] bytes, final int offset, final int length, final LineHandler handler) throws IOException {
+        final int trimmed = length > 0 && bytes[offset + length - 1] == '\r' ? length - 1 : length;
+        handler.onLine(bytes, offset, trimmed);
+    }
+
+    /**
+     * Receives the lines of a stream
+     */
+    @FunctionalInterface
+    interface LineHandler {
+
+        /**
+         * Handles a line
+         *
+         * @param bytes the array holding the line, which may be the chunk's array or a buffer reused for the next line
+         * @param offset the offset of the line in the array
+         * @param length the length of the line, without the line terminator
+         * @throws IOException if the line cannot be handled
+         */
+        void onLine(byte[] bytes, int offset, int length) throws IOException;
+
+    }
+
+}
@@ -0,0 +1,189 @@
+package dev.siebrenvde.ntfy.topic;
+
+import dev.siebrenvde.ntfy.message.Priority;
+import dev.siebrenvde.ntfy.response.ReceivedMessage;
+import org.jetbrains.annotations.Contract;
+
+import java.util.concurrent.Flow;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Function;
+
+/**
+ * Hands received messages to a pool of workers, keeping the messages of each topic in order
+ *
+ * <p>Every message is assigned to one of {@link #workers()} partitions by the hash of its partition key,
+ * which is its topic unless a different key was chosen. Each partition is handled by a worker of its own,
+ * one message at a time and in the order they were dispatched, so slow handlers only hold up their own partition.
+ * Each partition queues at most {@link #queueCapacity()} messages, after which dispatching to it blocks,
+ * which in turn stops reading from the subscription that dispatched it.</p>
+ *
+ * <p>With {@link #urgentFirst()}, messages with {@link Priority#MAX} are handled before the other queued messages of their partition.
+ * Urgent messages stay in order among themselves, as do the others.</p>
+ *
+ * <p>Exceptions thrown by the handler are passed to the worker thread's uncaught exception handler,
+ * after which the worker continues with the next message.</p>
+ */
+public sealed interface MessageDispatcher extends AutoCloseable permits MessageDispatcherImpl {
+
+    int DEFAULT_QUEUE_CAPACITY = 256;
+
+    /**
+     * Creates a new message dispatcher builder
+     *
+     * @param handler the handler to pass messages to
+     * @return a message dispatcher builder
+     */
+    @Contract(value = "_ -> new", pure = true)
+    static Builder dispatcher(final Handler handler) {
+        return new MessageDispatcherImpl.BuilderImpl(handler);
+    }
+
+    /**
+     * {@return the number of workers, each handling one partition}
+     */
+    @Contract(pure = true)
+    int workers();
+
+    /**
+     * {@return the maximum number of queued messages per partition}
+     */
+    @Contract(pure = true)
+    int queueCapacity();
+
+    /**
+     * {@return whether messages with {@link Priority#MAX} are handled before the other queued messages of their partition}
+     */
+    @Contract(pure = true)
+    boolean urgentFirst();
+
+    /**
+     * Queues a message for the worker of its partition
+     *
+     * <p>Blocks while the partition's queue is full</p>
+     *
+     * @param message the message
+     * @throws InterruptedException if interrupted while waiting for space in the queue
+     * @throws RejectedExecutionException if the dispatcher is closed
+     */
+    void dispatch(ReceivedMessage message) throws InterruptedException;
+
+    /**
+     * Creates a subscriber that dispatches the messages of a subscription
+     *
+     * <p>The subscriber requests one message at a time and only requests the next once it was queued,
+     * so a full partition pushes back on the subscription.
+     * If the stream fails, the error is passed to {@link Handler#onError(Throwable)}.</p>
+     *
+     * @return a new subscriber
+     * @see Topic#subscribe()
+     */
+    @Contract(value = "-> new", pure = true)
+    Flow.Subscriber<ReceivedMessage> subscriber();
+
+    /**
+     * Stops accepting new messages, then waits for the workers to handle all queued messages
+     *
+     * <p>When called from a {@link Handler}, the queued messages are still handled but not waited for,
+     * as the calling worker cannot handle them until it returns</p>
+     */
+    @Override
+    void close();
+
+    /**
+     * Handles the messages passed on by a dispatcher
+     */
+    @FunctionalInterface
+    interface Handler {
+
+        /**
+         * Called on the worker of the message's partition for every dispatched message
+         *
+         * @param message the message
+         * @throws Exception if the message could not be handled
+         */
+        void handle(ReceivedMessage message) throws Exception;
+
+        /**
+         * Called when a subscription created with {@link MessageDispatcher#subscriber()} failed
+         *
+         * @param error the error
+         */
+        default void onError(final Throwable error) {
+
+        }
+
+    }
+
+    /**
+     * Builder for {@link MessageDispatcher}
+     */
+    sealed interface Builder permits MessageDispatcherImpl.BuilderImpl {
+
+        /**
+         * Sets the number of workers, each handling one partition
+         *
+         * <p>Must be positive and non-zero, defaults to the number of available processors</p>
+         *
+         * @param workers the number of workers
+         * @return the builder
+         */
+        @Contract(value = "_ -> this", mutates = "this")
+        Builder workers(int workers);
+
+        /**
+         * Sets the maximum number of queued messages per partition
+         *
+         * <p>Must be positive and non-zero</p>
+         *
+         * @param queueCapacity the maximum number of messages
+         * @return the builder
+         * @see MessageDispatcher#DEFAULT_QUEUE_CAPACITY
+         */
+        @Contract(value = "_ -> this", mutates = "this")
+        Builder queueCapacity(int queueCapacity);
+
+        /**
+         * Sets the key messages are partitioned by
+         *
+         * <p>Messages with equal keys are handled in order by the same worker.
+         * Defaults to {@link ReceivedMessage#topic()}.</p>
+         *
+         * @param partitionKey the function returning the key of a message
+         * @return the builder
+         */
+        @Contract(value = "_ -> this", mutates = "this")
+        Builder partitionKey(Function<? super ReceivedMessage, ?> partitionKey);
+
+        /**
+         * Sets whether messages with {@link Priority#MAX} are handled before the other queued messages of their partition
+         *
+         * <p>Defaults to <code>false</code></p>
+         *
+         * @param urgentFirst <code>true</code> to handle urgent messages first
+         * @return the builder
+         */
+        @Contract(value = "_ -> this", mutates = "this")
+        Builder urgentFirst(boolean urgentFirst);
+
+        /**
+         * Sets whether the workers run on virtual threads
+         *
+         * <p>Virtual threads require Java 21 or newer, on older versions this option has no effect</p>
+         *
+         * @param virtualThreads <code>true</code> to use virtual threads
+         * @return the builder
+         */
+        @Contract(value = "_ -> this", mutates = "this")
+        Builder virtualThreads(boolean virtualThreads);
+
+        /**
+         * Builds the message dispatcher and starts its workers
+         *
+         * @return a new message dispatcher
+         */
+        @Contract(value = "-> new", pure = true)
+        MessageDispatcher build();
+
+    }
+
+}
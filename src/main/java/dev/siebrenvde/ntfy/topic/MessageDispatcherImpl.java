@@ -0,0 +1,278 @@
+package dev.siebrenvde.ntfy.topic;
+
+import dev.siebrenvde.ntfy.internal.VirtualThreads;
+import dev.siebrenvde.ntfy.message.Priority;
+import dev.siebrenvde.ntfy.response.ReceivedMessage;
+import org.jspecify.annotations.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+import static dev.siebrenvde.ntfy.internal.Util.checkArgument;
+import static dev.siebrenvde.ntfy.internal.Util.checkNotNull;
+
+final class MessageDispatcherImpl implements MessageDispatcher {
+
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+    // The dispatcher whose worker is running on the current thread
+    private static final ThreadLocal<@Nullable MessageDispatcherImpl> WORKER = new ThreadLocal<>();
+
+    private final Handler handler;
+    private final int queueCapacity;
+    private final Function<? super ReceivedMessage, ?> partitionKey;
+    private final boolean urgentFirst;
+    private final Partition[] partitions;
+    private final ExecutorService executor;
+
+    MessageDispatcherImpl(
+        final Handler handler,
+        final int workers,
+        final int queueCapacity,
+        final Function<? super ReceivedMessage, ?> partitionKey,
+        final boolean urgentFirst,
+        final boolean virtualThreads
+    ) {
+        this.handler = handler;
+        this.queueCapacity = queueCapacity;
+        this.partitionKey = partitionKey;
+        this.urgentFirst = urgentFirst;
+        this.partitions = new Partition[workers];
+        this.executor = virtualThreads && VirtualThreads.isSupported()
+            ? VirtualThreads.newExecutor()
+            : Executors.newFixedThreadPool(workers, runnable -> {
+                final Thread thread = new Thread(runnable, "ntfy-dispatcher-" + THREAD_COUNT.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        for (int i = 0; i < workers; i++) {
+            final Partition partition = new Partition();
+            this.partitions[i] = partition;
+            this.executor.execute(() -> this.work(partition));
+        }
+        this.executor.shutdown();
+    }
+
+    @Override
+    public int workers() {
+        return this.partitions.length;
+    }
+
+    @Override
+    public int queueCapacity() {
+        return this.queueCapacity;
+    }
+
+    @Override
+    public boolean urgentFirst() {
+        return this.urgentFirst;
+    }
+
+    @Override
+    public void dispatch(final ReceivedMessage message) throws InterruptedException {
+        checkNotNull(message, "message");
+        // Spreads the high bits of the hash, which partition counts that are powers of two would otherwise ignore
+        final int hash = Objects.hashCode(this.partitionKey.apply(message));
+        final Partition partition = this.partitions[Math.floorMod(hash ^ (hash >>> 16), this.partitions.length)];
+        final boolean urgent = this.urgentFirst && message.priority() == Priority.MAX;
+
+        partition.lock.lockInterruptibly();
+        try {
+            while (!partition.closed && partition.size() >= this.queueCapacity) {
+                partition.notFull.await();
+            }
+            if (partition.closed) throw new RejectedExecutionException("Dispatcher is closed");
+            (urgent ? partition.urgent : partition.normal).add(message);
+            partition.notEmpty.signal();
+        } finally {
+            partition.lock.unlock();
+        }
+    }
+
+    @Override
+    public Flow.Subscriber<ReceivedMessage> subscriber() {
+        return new DispatchingSubscriber();
+    }
+
+    @Override
+    public void close() {
+        for (final Partition partition : this.partitions) {
+            partition.lock.lock();
+            try {
+                partition.closed = true;
+                partition.notEmpty.signalAll();
+                partition.notFull.signalAll();
+            } finally {
+                partition.lock.unlock();
+            }
+        }
+        // A handler closing its own dispatcher would wait for itself
+        if (WORKER.get() == this) return;
+        try {
+            while (!this.executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                // The workers are still handling queued messages
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Handles the messages of a partition until it is closed and drained
+     *
+     * @param partition the partition
+     */
+    private void work(final Partition partition) {
+        WORKER.set(this);
+        while (true) {
+            final ReceivedMessage message;
+            partition.lock.lock();
+            try {
+                while (partition.size() == 0) {
+                    if (partition.closed) return;
+                    partition.notEmpty.awaitUninterruptibly();
+                }
+                final @Nullable ReceivedMessage urgent = partition.urgent.poll();
+                message = urgent != null ? urgent : Objects.requireNonNull(partition.normal.poll());
+                partition.notFull.signal();
+            } finally {
+                partition.lock.unlock();
+            }
+
+            try {
+                this.handler.handle(message);
+            } catch (final Exception e) {
+                final Thread thread = Thread.currentThread();
+                thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "MessageDispatcherImpl{" +
+            "workers=" + this.partitions.length +
+            ", queueCapacity=" + this.queueCapacity +
+            ", urgentFirst=" + this.urgentFirst +
+            '}';
+    }
+
+    private static final class Partition {
+
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition notEmpty = this.lock.newCondition();
+        private final Condition notFull = this.lock.newCondition();
+        private final ArrayDeque<ReceivedMessage> urgent = new ArrayDeque<>();
+        private final ArrayDeque<ReceivedMessage> normal = new ArrayDeque<>();
+        private boolean closed;
+
+        int size() {
+            return this.urgent.size() + this.normal.size();
+        }
+
+    }
+
+    /**
+     * Requests one message at a time, requesting the next once the previous one was queued
+     */
+    private final class DispatchingSubscriber implements Flow.Subscriber<ReceivedMessage> {
+
+        private Flow.@Nullable Subscription subscription;
+
+        @Override
+        public void onSubscribe(final Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(1);
+        }
+
+        @Override
+        public void onNext(final ReceivedMessage message) {
+            final Flow.Subscription subscription = Objects.requireNonNull(this.subscription);
+            try {
+                MessageDispatcherImpl.this.dispatch(message);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                subscription.cancel();
+                return;
+            } catch (final RejectedExecutionException e) {
+                subscription.cancel();
+                return;
+            }
+            subscription.request(1);
+        }
+
+        @Override
+        public void onError(final Throwable throwable) {
+            MessageDispatcherImpl.this.handler.onError(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            // Queued messages are still handled, the dispatcher is only stopped by close()
+        }
+
+    }
+
+    static final class BuilderImpl implements MessageDispatcher.Builder {
+
+        private final Handler handler;
+        private int workers = Runtime.getRuntime().availableProcessors();
+        private int queueCapacity = DEFAULT_QUEUE_CAPACITY;
+        private Function<? super ReceivedMessage, ?> partitionKey = ReceivedMessage::topic;
+        private boolean urgentFirst = false;
+        private boolean virtualThreads = false;
+
+        BuilderImpl(final Handler handler) {
+            checkNotNull(handler, "handler");
+            this.handler = handler;
+        }
+
+        @Override
+        public Builder workers(final int workers) {
+            checkArgument(workers > 0, "workers must be positive");
+            this.workers = workers;
+            return this;
+        }
+
+        @Override
+        public Builder queueCapacity(final int queueCapacity) {
+            checkArgument(queueCapacity > 0, "queueCapacity must be positive");
+            this.queueCapacity = queueCapacity;
+            return this;
+        }
+
+        @Override
+        public Builder partitionKey(final Function<? super ReceivedMessage, ?> partitionKey) {
+            checkNotNull(partitionKey, "partitionKey");
+            this.partitionKey = partitionKey;
+            return this;
+        }
+
+        @Override
+        public Builder urgentFirst(final boolean urgentFirst) {
+            this.urgentFirst = urgentFirst;
+            return this;
+        }
+
+        @Override
+        public Builder virtualThreads(final boolean virtualThreads) {
+            this.virtualThreads = virtualThreads;
+            return this;
+        }
+
+        @Override
+        public MessageDispatcher build() {
+            return new MessageDispatcherImpl(this.handler, this.workers, this.queueCapacity, this.partitionKey, this.urgentFirst, this.virtualThreads);
+        }
+
+    }
+
+}
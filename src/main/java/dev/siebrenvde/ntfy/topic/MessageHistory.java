@@ -0,0 +1,152 @@
+package dev.siebrenvde.ntfy.topic;
+
+import dev.siebrenvde.ntfy.response.ReceivedMessage;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.Unmodifiable;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Keeps the most recent received messages of every topic in memory, so they can be shown or replayed without polling the server
+ *
+ * <p>Every topic has a ring of up to {@link #maxMessages()} messages taking up to {@link #maxBytes()} bytes,
+ * measured by the size of the messages' JSON. Adding a message evicts the oldest messages of its topic until both limits are met,
+ * and a message larger than {@link #maxBytes()} is not kept.
+ * With {@link #offHeap()}, the rings store the JSON of the messages in direct buffers of {@link #maxBytes()} bytes each,
+ * and messages are decoded again when they are read.</p>
+ *
+ * <p>Reading never blocks, also not while messages are added. A read that runs while messages of its topic are added
+ * returns the messages that were not evicted while it ran, and may return the newly added ones.
+ * Messages of different topics can be added concurrently; messages of the same topic are added one at a time.</p>
+ *
+ * <p>Topics are identified by their url, such as <code>https://ntfy.sh/mytopic</code>.</p>
+ *
+ * @see SubscriptionManager.Builder#messageHistory(MessageHistory)
+ */
+public sealed interface MessageHistory permits MessageHistoryImpl {
+
+    int DEFAULT_MAX_MESSAGES = 100;
+    int DEFAULT_MAX_BYTES = 256 * 1024;
+
+    /**
+     * Creates a new message history builder
+     *
+     * @return a message history builder
+     */
+    @Contract(value = "-> new", pure = true)
+    static Builder messageHistory() {
+        return new MessageHistoryImpl.BuilderImpl();
+    }
+
+    /**
+     * {@return the maximum number of messages held per topic}
+     */
+    @Contract(pure = true)
+    int maxMessages();
+
+    /**
+     * {@return the maximum number of bytes held per topic}
+     */
+    @Contract(pure = true)
+    int maxBytes();
+
+    /**
+     * {@return whether messages are stored outside the heap}
+     */
+    @Contract(pure = true)
+    boolean offHeap();
+
+    /**
+     * Adds a message to a topic's history, evicting the topic's oldest messages if it is full
+     *
+     * @param topic the url of the topic
+     * @param message the message
+     * @return whether the message was added, which it is not if it is larger than {@link #maxBytes()}
+     */
+    boolean add(String topic, ReceivedMessage message);
+
+    /**
+     * Reads the history of a topic
+     *
+     * @param topic the url of the topic
+     * @return the topic's messages, oldest first
+     */
+    @Unmodifiable List<ReceivedMessage> messages(String topic);
+
+    /**
+     * Passes the history of a topic to a listener, oldest first
+     *
+     * <p>To catch up a listener that is subscribed while the topic is already subscribed to, subscribe it first and then replay the history to it.
+     * Messages received in between are passed to it twice, which a {@link Deduplicator} can drop.</p>
+     *
+     * @param topic the url of the topic
+     * @param listener the listener
+     * @return the number of messages passed
+     */
+    int replay(String topic, SubscriptionManager.Listener listener);
+
+    /**
+     * {@return the urls of the topics with a history}
+     */
+    @Unmodifiable Set<String> topics();
+
+    /**
+     * Removes the history of a topic
+     *
+     * @param topic the url of the topic
+     * @return whether the topic had a history
+     */
+    boolean clear(String topic);
+
+    /**
+     * Builder for {@link MessageHistory}
+     */
+    sealed interface Builder permits MessageHistoryImpl.BuilderImpl {
+
+        /**
+         * Sets the maximum number of messages held per topic
+         *
+         * <p>Must be positive and non-zero</p>
+         *
+         * @param maxMessages the maximum number of messages
+         * @return the builder
+         * @see MessageHistory#DEFAULT_MAX_MESSAGES
+         */
+        @Contract(value = "_ -> this", mutates = "this")
+        Builder maxMessages(int maxMessages);
+
+        /**
+         * Sets the maximum number of bytes held per topic
+         *
+         * <p>Must be positive and non-zero</p>
+         *
+         * @param maxBytes the maximum number of bytes
+         * @return the builder
+         * @see MessageHistory#DEFAULT_MAX_BYTES
+         */
+        @Contract(value = "_ -> this", mutates = "this")
+        Builder maxBytes(int maxBytes);
+
+        /**
+         * Sets whether messages are stored outside the heap, in a direct buffer per topic
+         *
+         * <p>Defaults to <code>false</code></p>
+         *
+         * @param offHeap whether messages are stored outside the heap
+         * @return the builder
+         */
+        @Contract(value = "_ -> this", mutates = "this")
+        Builder offHeap(boolean offHeap);
+
+        /**
+         * Builds the message history
+         *
+         * @return a new message history
+         */
+        @Contract(value = "-> new", pure = true)
+        MessageHistory build();
+
+    }
+
+}
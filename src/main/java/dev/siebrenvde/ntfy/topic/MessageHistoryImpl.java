@@ -0,0 +1,238 @@
+package dev.siebrenvde.ntfy.topic;
+
+import dev.siebrenvde.ntfy.internal.EncodedJson;
+import dev.siebrenvde.ntfy.response.ReceivedMessage;
+import org.jspecify.annotations.Nullable;
+
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static dev.siebrenvde.ntfy.internal.Util.checkArgument;
+import static dev.siebrenvde.ntfy.internal.Util.checkNotNull;
+
+final class MessageHistoryImpl implements MessageHistory {
+
+    private final int maxMessages;
+    private final int maxBytes;
+    private final boolean offHeap;
+
+    private final ConcurrentHashMap<String, Ring> rings = new ConcurrentHashMap<>();
+
+    MessageHistoryImpl(final int maxMessages, final int maxBytes, final boolean offHeap) {
+        this.maxMessages = maxMessages;
+        this.maxBytes = maxBytes;
+        this.offHeap = offHeap;
+    }
+
+    @Override
+    public int maxMessages() {
+        return this.maxMessages;
+    }
+
+    @Override
+    public int maxBytes() {
+        return this.maxBytes;
+    }
+
+    @Override
+    public boolean offHeap() {
+        return this.offHeap;
+    }
+
+    @Override
+    public boolean add(final String topic, final ReceivedMessage message) {
+        checkNotNull(topic, "topic");
+        checkNotNull(message, "message");
+        final byte[] json = ((EncodedJson) message).json();
+        if (json.length > this.maxBytes) return false;
+        this.rings.computeIfAbsent(topic, key -> new Ring(this.maxMessages, this.maxBytes, this.offHeap)).add(message, json);
+        return true;
+    }
+
+    @Override
+    public List<ReceivedMessage> messages(final String topic) {
+        checkNotNull(topic, "topic");
+        final @Nullable Ring ring = this.rings.get(topic);
+        return ring != null ? ring.messages() : List.of();
+    }
+
+    @Override
+    public int replay(final String topic, final SubscriptionManager.Listener listener) {
+        checkNotNull(listener, "listener");
+        final List<ReceivedMessage> messages = this.messages(topic);
+        for (final ReceivedMessage message : messages) listener.onMessage(message);
+        return messages.size();
+    }
+
+    @Override
+    public Set<String> topics() {
+        return Set.copyOf(this.rings.keySet());
+    }
+
+    @Override
+    public boolean clear(final String topic) {
+        checkNotNull(topic, "topic");
+        return this.rings.remove(topic) != null;
+    }
+
+    @Override
+    public String toString() {
+        return "MessageHistoryImpl{" +
+            "maxMessages=" + this.maxMessages +
+            ", maxBytes=" + this.maxBytes +
+            ", offHeap=" + this.offHeap +
+            '}';
+    }
+
+    /**
+     * The messages of a topic, numbered in the order they were added
+     *
+     * <p>Messages are added while holding the lock and read without it.
+     * A slot is replaced rather than modified, and carries the number of its message, so a reader can tell whether it was reused.
+     * Off the heap, message <code>n</code>'s JSON is written at {@link Slot#position()} modulo the buffer's size, in a ring of bytes.
+     * The writer advances {@link #written} before overwriting bytes, so a reader checks after copying a message
+     * whether the bytes it copied were overwritten in the meantime, like with a sequence lock.</p>
+     */
+    private static final class Ring {
+
+        private final int maxBytes;
+        private final AtomicReferenceArray<@Nullable Slot> slots;
+        private final @Nullable ByteBuffer buffer;
+        private final ReentrantLock lock = new ReentrantLock();
+        // The messages from number first to next are held
+        private volatile long first;
+        private volatile long next;
+        private volatile long written;
+        private long bytes;
+
+        private Ring(final int maxMessages, final int maxBytes, final boolean offHeap) {
+            this.maxBytes = maxBytes;
+            this.slots = new AtomicReferenceArray<>(maxMessages);
+            this.buffer = offHeap ? ByteBuffer.allocateDirect(maxBytes) : null;
+        }
+
+        private void add(final ReceivedMessage message, final byte[] json) {
+            this.lock.lock();
+            try {
+                final long number = this.next;
+                long first = this.first;
+                if (number - first == this.slots.length()) this.bytes -= this.slot(first++).length();
+                while (this.bytes + json.length > this.maxBytes) this.bytes -= this.slot(first++).length();
+                this.first = first;
+
+                final long position = this.written;
+                if (this.buffer != null) {
+                    this.written = position + json.length;
+                    // Readers must see the new position before any of the bytes it overwrites
+                    VarHandle.storeStoreFence();
+                    final int offset = (int) (position % this.maxBytes);
+                    final int head = Math.min(json.length, this.maxBytes - offset);
+                    this.buffer.put(offset, json, 0, head);
+                    this.buffer.put(0, json, head, json.length - head);
+                }
+                this.slots.set(this.index(number), new Slot(number, this.buffer != null ? null : message, position, json.length));
+                this.bytes += json.length;
+                this.next = number + 1;
+            } finally {
+                this.lock.unlock();
+            }
+        }
+
+        private List<ReceivedMessage> messages() {
+            final long next = this.next;
+            final long first = Math.max(this.first, next - this.slots.length());
+            final List<ReceivedMessage> messages = new ArrayList<>((int) (next - first));
+            for (long number = first; number < next; number++) {
+                final @Nullable Slot slot = this.slots.get(this.index(number));
+                // Reused for a message added after this read started
+                if (slot == null || slot.number() != number) continue;
+                @Nullable ReceivedMessage message = slot.message();
+                if (message == null) message = this.read(slot);
+                if (message != null) messages.add(message);
+            }
+            return List.copyOf(messages);
+        }
+
+        /**
+         * Decodes a message stored off the heap
+         *
+         * @param slot the message's slot
+         * @return the message, or <code>null</code> if it was overwritten while it was read
+         */
+        private @Nullable ReceivedMessage read(final Slot slot) {
+            final ByteBuffer buffer = this.buffer;
+            if (buffer == null) return null;
+            final byte[] json = new byte[slot.length()];
+            final int offset = (int) (slot.position() % this.maxBytes);
+            final int head = Math.min(json.length, this.maxBytes - offset);
+            buffer.get(offset, json, 0, head);
+            buffer.get(0, json, head, json.length - head);
+            // The bytes must be copied before the position is checked
+            VarHandle.loadLoadFence();
+            if (this.written - slot.position() > this.maxBytes) return null;
+            return ReceivedMessage.fromJson(json, 0, json.length);
+        }
+
+        /**
+         * Must be called while holding the lock
+         */
+        private Slot slot(final long number) {
+            final @Nullable Slot slot = this.slots.get(this.index(number));
+            if (slot == null) throw new IllegalStateException("Missing message " + number);
+            return slot;
+        }
+
+        private int index(final long number) {
+            return (int) (number % this.slots.length());
+        }
+
+    }
+
+    /**
+     * @param number the number of the message
+     * @param message the message, or <code>null</code> if it is stored off the heap
+     * @param position the position of the message's JSON in the ring of bytes
+     * @param length the length of the message's JSON
+     */
+    private record Slot(long number, @Nullable ReceivedMessage message, long position, int length) {}
+
+    static final class BuilderImpl implements MessageHistory.Builder {
+
+        private int maxMessages = DEFAULT_MAX_MESSAGES;
+        private int maxBytes = DEFAULT_MAX_BYTES;
+        private boolean offHeap;
+
+        @Override
+        public Builder maxMessages(final int maxMessages) {
+            checkArgument(maxMessages > 0, "maxMessages must be positive");
+            this.maxMessages = maxMessages;
+            return this;
+        }
+
+        @Override
+        public Builder maxBytes(final int maxBytes) {
+            checkArgument(maxBytes > 0, "maxBytes must be positive");
+            this.maxBytes = maxBytes;
+            return this;
+        }
+
+        @Override
+        public Builder offHeap(final boolean offHeap) {
+            this.offHeap = offHeap;
+            return this;
+        }
+
+        @Override
+        public MessageHistory build() {
+            return new MessageHistoryImpl(this.maxMessages, this.maxBytes, this.offHeap);
+        }
+
+    }
+
+}
@@ -0,0 +1,138 @@
+package dev.siebrenvde.ntfy.topic;
+
+import dev.siebrenvde.ntfy.response.ReceivedMessage;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.Unmodifiable;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Indexes the words of received messages in memory, so they can be searched without scanning every message
+ *
+ * <p>The title, body and tags of every added message are split into lower-cased words, and the message is added to the postings list of each word and tag.
+ * Messages are numbered in the order they are added, and a postings list stores the gaps between the numbers of its messages as variable-length integers,
+ * so most postings take a single byte. Words are kept sorted, so a prefix only visits the words starting with it.</p>
+ *
+ * <p>The index keeps the messages it returns from searches. Messages are evicted, oldest first, once the index holds more than {@link #maxMessages()}
+ * or the oldest message is older than {@link #maxAge()}, and can be evicted along with a {@link MessageStore}'s retention through {@link #evictBefore(Instant)}.
+ * The postings of evicted messages are skipped by searches and dropped from the lists once as many messages were evicted as are left.</p>
+ *
+ * <p>Messages can be added from multiple threads, and searches run concurrently with each other but not with adding messages.</p>
+ *
+ * @see SearchQuery
+ */
+public sealed interface MessageIndex permits MessageIndexImpl {
+
+    int DEFAULT_MAX_MESSAGES = 100_000;
+    Duration DEFAULT_MAX_AGE = MessageStore.DEFAULT_MAX_AGE;
+    // Longer words, such as encoded data, are not indexed
+    int MAX_WORD_LENGTH = 64;
+
+    /**
+     * Creates a new message index builder
+     *
+     * @return a message index builder
+     */
+    @Contract(value = "-> new", pure = true)
+    static Builder messageIndex() {
+        return new MessageIndexImpl.BuilderImpl();
+    }
+
+    /**
+     * {@return the maximum number of messages held}
+     */
+    @Contract(pure = true)
+    int maxMessages();
+
+    /**
+     * {@return the age above which messages are evicted}
+     */
+    @Contract(pure = true)
+    Duration maxAge();
+
+    /**
+     * Adds a message, evicting the oldest messages if the index is full
+     *
+     * @param message the message
+     */
+    void add(ReceivedMessage message);
+
+    /**
+     * Searches the messages
+     *
+     * @param query the query
+     * @return the most recently added matching messages, up to the query's limit, most recent first
+     */
+    @Unmodifiable List<ReceivedMessage> search(SearchQuery query);
+
+    /**
+     * Evicts the oldest messages that were published before a time
+     *
+     * <p>Messages are evicted in the order they were added, so a message published before the time but added after a later message is kept</p>
+     *
+     * @param time the time
+     */
+    void evictBefore(Instant time);
+
+    /**
+     * {@return the number of messages held}
+     */
+    int size();
+
+    /**
+     * {@return the number of distinct words indexed}
+     */
+    int words();
+
+    /**
+     * Wraps a listener so messages are added to the index before they are passed to it
+     *
+     * @param listener the listener
+     * @return a listener adding messages to the index
+     * @see SubscriptionManager#subscribe(Topic, SubscriptionManager.Listener)
+     */
+    @Contract(value = "_ -> new", pure = true)
+    SubscriptionManager.Listener listener(SubscriptionManager.Listener listener);
+
+    /**
+     * Builder for {@link MessageIndex}
+     */
+    sealed interface Builder permits MessageIndexImpl.BuilderImpl {
+
+        /**
+         * Sets the maximum number of messages held
+         *
+         * <p>Must be positive and non-zero</p>
+         *
+         * @param maxMessages the maximum number of messages
+         * @return the builder
+         * @see MessageIndex#DEFAULT_MAX_MESSAGES
+         */
+        @Contract(value = "_ -> this", mutates = "this")
+        Builder maxMessages(int maxMessages);
+
+        /**
+         * Sets the age above which messages are evicted, measured from the time they were published
+         *
+         * <p>Must be positive and non-zero</p>
+         *
+         * @param maxAge the maximum age
+         * @return the builder
+         * @see MessageIndex#DEFAULT_MAX_AGE
+         */
+        @Contract(value = "_ -> this", mutates = "this")
+        Builder maxAge(Duration maxAge);
+
+        /**
+         * Builds the message index
+         *
+         * @return a new message index
+         */
+        @Contract(value = "-> new", pure = true)
+        MessageIndex build();
+
+    }
+
+}
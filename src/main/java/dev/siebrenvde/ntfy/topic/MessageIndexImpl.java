@@ -0,0 +1,419 @@
+package dev.siebrenvde.ntfy.topic;
+
+import dev.siebrenvde.ntfy.response.ReceivedMessage;
+import org.jspecify.annotations.Nullable;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+import static dev.siebrenvde.ntfy.internal.Util.checkArgument;
+import static dev.siebrenvde.ntfy.internal.Util.checkNotNull;
+
+final class MessageIndexImpl implements MessageIndex {
+
+    // Postings lists are swept once at least this many messages were evicted since the last sweep
+    private static final int MIN_SWEEP = 1024;
+
+    private final int maxMessages;
+    private final Duration maxAge;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final NavigableMap<String, Postings> words = new TreeMap<>();
+    private final Map<String, Postings> tags = new HashMap<>();
+    // The messages from number first to next, stored in a ring starting at head
+    private ReceivedMessage[] messages;
+    private long[] times;
+    private int head;
+    private long first;
+    private long next;
+    private long evicted;
+
+    MessageIndexImpl(final int maxMessages, final Duration maxAge) {
+        this.maxMessages = maxMessages;
+        this.maxAge = maxAge;
+        this.messages = new ReceivedMessage[Math.min(maxMessages, 1024)];
+        this.times = new long[this.messages.length];
+    }
+
+    @Override
+    public int maxMessages() {
+        return this.maxMessages;
+    }
+
+    @Override
+    public Duration maxAge() {
+        return this.maxAge;
+    }
+
+    @Override
+    public void add(final ReceivedMessage message) {
+        checkNotNull(message, "message");
+        final Set<String> words = new HashSet<>();
+        final @Nullable String title = message.title();
+        if (title != null) words(title, words::add);
+        final @Nullable String body = message.body();
+        if (body != null) words(body, words::add);
+        final List<String> tags = message.tags();
+        for (final String tag : tags) words(tag, words::add);
+
+        this.lock.writeLock().lock();
+        try {
+            if (this.count() == this.maxMessages) this.evict(1);
+            final long number = this.next++;
+            if (this.count() > this.messages.length) this.grow();
+            final int slot = this.slot(number);
+            this.messages[slot] = message;
+            this.times[slot] = message.time().getEpochSecond();
+            for (final String word : words) this.words.computeIfAbsent(word, key -> new Postings()).add(number);
+            for (final String tag : tags) this.tags.computeIfAbsent(tag.toLowerCase(Locale.ROOT), key -> new Postings()).add(number);
+            this.evictOlderThan(Instant.now().minus(this.maxAge).getEpochSecond());
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public List<ReceivedMessage> search(final SearchQuery query) {
+        checkNotNull(query, "query");
+        final long from = query.from() != null ? ceilSeconds(query.from()) : Long.MIN_VALUE;
+        final long to = query.to() != null ? ceilSeconds(query.to()) : Long.MAX_VALUE;
+        this.lock.readLock().lock();
+        try {
+            final long @Nullable [] candidates = this.candidates(query);
+            final List<ReceivedMessage> results = new ArrayList<>();
+            final int count = candidates != null ? candidates.length : this.count();
+            for (int i = count - 1; i >= 0 && results.size() < query.limit(); i--) {
+                final long number = candidates != null ? candidates[i] : this.first + i;
+                final int slot = this.slot(number);
+                final long time = this.times[slot];
+                if (time >= from && time < to) results.add(this.messages[slot]);
+            }
+            return List.copyOf(results);
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Intersects the postings of a query's terms, prefixes and tags
+     *
+     * <p>Must be called while holding the lock</p>
+     *
+     * @param query the query
+     * @return the numbers of the matching messages in ascending order, or <code>null</code> if the query has no terms, prefixes or tags
+     */
+    private long @Nullable [] candidates(final SearchQuery query) {
+        final List<long[]> lists = new ArrayList<>();
+        for (final String term : query.terms()) lists.add(this.decode(this.words.get(term)));
+        for (final String tag : query.tags()) lists.add(this.decode(this.tags.get(tag)));
+        for (final String prefix : query.prefixes()) {
+            final Collection<Postings> matches = this.words.subMap(prefix, true, prefix + Character.MAX_VALUE, false).values();
+            if (matches.size() == 1) {
+                lists.add(this.decode(matches.iterator().next()));
+                continue;
+            }
+            long[] union = new long[0];
+            int size = 0;
+            for (final Postings postings : matches) {
+                final long[] numbers = this.decode(postings);
+                if (size + numbers.length > union.length) union = Arrays.copyOf(union, Math.max(2 * union.length, size + numbers.length));
+                System.arraycopy(numbers, 0, union, size, numbers.length);
+                size += numbers.length;
+            }
+            Arrays.sort(union, 0, size);
+            int distinct = 0;
+            for (int i = 0; i < size; i++) {
+                if (distinct == 0 || union[i] != union[distinct - 1]) union[distinct++] = union[i];
+            }
+            lists.add(Arrays.copyOf(union, distinct));
+        }
+        if (lists.isEmpty()) return null;
+
+        // Intersecting from the shortest list keeps every intermediate result as short as possible
+        lists.sort((a, b) -> Integer.compare(a.length, b.length));
+        long[] result = lists.get(0);
+        for (int l = 1; l < lists.size() && result.length > 0; l++) {
+            final long[] other = lists.get(l);
+            int size = 0;
+            for (int i = 0, j = 0; i < result.length && j < other.length; ) {
+                if (result[i] < other[j]) {
+                    i++;
+                } else if (result[i] > other[j]) {
+                    j++;
+                } else {
+                    result[size++] = result[i];
+                    i++;
+                    j++;
+                }
+            }
+            result = Arrays.copyOf(result, size);
+        }
+        return result;
+    }
+
+    /**
+     * Decodes a postings list, skipping evicted messages
+     *
+     * <p>Must be called while holding the lock</p>
+     */
+    private long[] decode(final @Nullable Postings postings) {
+        return postings != null ? postings.decode(this.first) : new long[0];
+    }
+
+    @Override
+    public void evictBefore(final Instant time) {
+        checkNotNull(time, "time");
+        this.lock.writeLock().lock();
+        try {
+            this.evictOlderThan(ceilSeconds(time));
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Evicts the oldest messages while they were published before a time
+     *
+     * <p>Must be called while holding the write lock</p>
+     *
+     * @param time the time in epoch seconds
+     */
+    private void evictOlderThan(final long time) {
+        int count = 0;
+        while (count < this.count() && this.times[this.slot(this.first + count)] < time) count++;
+        if (count > 0) this.evict(count);
+    }
+
+    /**
+     * Evicts the oldest messages, sweeping their postings once as many messages were evicted as are left
+     *
+     * <p>Must be called while holding the write lock</p>
+     *
+     * @param count the number of messages
+     */
+    private void evict(final int count) {
+        for (int i = 0; i < count; i++) this.messages[this.slot(this.first + i)] = null;
+        this.head = (this.head + count) % this.messages.length;
+        this.first += count;
+        this.evicted += count;
+        if (this.evicted >= MIN_SWEEP && this.evicted >= this.count()) {
+            this.evicted = 0;
+            this.words.values().removeIf(postings -> postings.dropBefore(this.first));
+            this.tags.values().removeIf(postings -> postings.dropBefore(this.first));
+        }
+    }
+
+    private void grow() {
+        final int size = (int) (this.next - 1 - this.first);
+        final int capacity = (int) Math.min(this.maxMessages, 2L * this.messages.length);
+        final ReceivedMessage[] messages = new ReceivedMessage[capacity];
+        final long[] times = new long[capacity];
+        for (int i = 0; i < size; i++) {
+            final int slot = this.slot(this.first + i);
+            messages[i] = this.messages[slot];
+            times[i] = this.times[slot];
+        }
+        this.messages = messages;
+        this.times = times;
+        this.head = 0;
+    }
+
+    private int slot(final long number) {
+        return (int) ((this.head + (number - this.first)) % this.messages.length);
+    }
+
+    @Override
+    public int size() {
+        this.lock.readLock().lock();
+        try {
+            return this.count();
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    private int count() {
+        return (int) (this.next - this.first);
+    }
+
+    @Override
+    public int words() {
+        this.lock.readLock().lock();
+        try {
+            return this.words.size();
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public SubscriptionManager.Listener listener(final SubscriptionManager.Listener listener) {
+        checkNotNull(listener, "listener");
+        return new SubscriptionManager.Listener() {
+            @Override
+            public void onMessage(final ReceivedMessage message) {
+                MessageIndexImpl.this.add(message);
+                listener.onMessage(message);
+            }
+
+            @Override
+            public void onError(final Throwable error) {
+                listener.onError(error);
+            }
+        };
+    }
+
+    @Override
+    public String toString() {
+        return "MessageIndexImpl{" +
+            "maxMessages=" + this.maxMessages +
+            ", maxAge=" + this.maxAge +
+            '}';
+    }
+
+    /**
+     * Splits text into lower-cased runs of letters and digits, skipping runs longer than {@link #MAX_WORD_LENGTH}
+     *
+     * @param text the text
+     * @param consumer the consumer receiving the words
+     */
+    static void words(final String text, final Consumer<String> consumer) {
+        final StringBuilder word = new StringBuilder();
+        int length = 0;
+        for (int i = 0; i <= text.length(); ) {
+            final int codePoint = i < text.length() ? text.codePointAt(i) : ' ';
+            i += Character.charCount(codePoint);
+            if (Character.isLetterOrDigit(codePoint)) {
+                if (length++ < MAX_WORD_LENGTH) word.appendCodePoint(Character.toLowerCase(codePoint));
+                continue;
+            }
+            if (length > 0 && length <= MAX_WORD_LENGTH) consumer.accept(word.toString());
+            word.setLength(0);
+            length = 0;
+            if (i > text.length()) break;
+        }
+    }
+
+    private static long ceilSeconds(final Instant time) {
+        return time.getEpochSecond() + (time.getNano() > 0 ? 1 : 0);
+    }
+
+    /**
+     * The ascending numbers of the messages containing a word or tag, stored as the first number followed by the gaps between them as variable-length integers
+     */
+    private static final class Postings {
+
+        private byte[] bytes = new byte[4];
+        private int length;
+        private long first;
+        private long last;
+        private int count;
+
+        void add(final long number) {
+            if (this.count == 0) {
+                this.first = number;
+            } else {
+                this.write(number - this.last);
+            }
+            this.last = number;
+            this.count++;
+        }
+
+        /**
+         * Decodes the numbers at or after a number
+         *
+         * @param from the number
+         * @return the numbers
+         */
+        long[] decode(final long from) {
+            if (this.count == 0 || this.last < from) return new long[0];
+            final long[] numbers = new long[this.count];
+            int size = 0;
+            long number = this.first;
+            int position = 0;
+            for (int i = 0; i < this.count; i++) {
+                if (i > 0) {
+                    long gap = 0;
+                    int shift = 0;
+                    byte b;
+                    do {
+                        b = this.bytes[position++];
+                        gap |= (long) (b & 0x7F) << shift;
+                        shift += 7;
+                    } while (b < 0);
+                    number += gap;
+                }
+                if (number >= from) numbers[size++] = number;
+            }
+            return size == numbers.length ? numbers : Arrays.copyOf(numbers, size);
+        }
+
+        /**
+         * Drops the numbers before a number
+         *
+         * @param from the number
+         * @return whether the list is now empty
+         */
+        boolean dropBefore(final long from) {
+            if (this.count == 0 || this.first >= from) return this.count == 0;
+            final long[] numbers = this.decode(from);
+            this.bytes = new byte[Math.max(4, this.length)];
+            this.length = 0;
+            this.count = 0;
+            for (final long number : numbers) this.add(number);
+            return this.count == 0;
+        }
+
+        private void write(long value) {
+            if (this.length + 10 > this.bytes.length) this.bytes = Arrays.copyOf(this.bytes, Math.max(2 * this.bytes.length, this.length + 10));
+            while ((value & ~0x7FL) != 0) {
+                this.bytes[this.length++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            this.bytes[this.length++] = (byte) value;
+        }
+
+    }
+
+    static final class BuilderImpl implements MessageIndex.Builder {
+
+        private int maxMessages = DEFAULT_MAX_MESSAGES;
+        private Duration maxAge = DEFAULT_MAX_AGE;
+
+        @Override
+        public Builder maxMessages(final int maxMessages) {
+            checkArgument(maxMessages > 0, "maxMessages must be positive");
+            this.maxMessages = maxMessages;
+            return this;
+        }
+
+        @Override
+        public Builder maxAge(final Duration maxAge) {
+            checkNotNull(maxAge, "maxAge");
+            checkArgument(!maxAge.isNegative(), "maxAge must be positive");
+            checkArgument(!maxAge.isZero(), "maxAge must not be zero");
+            this.maxAge = maxAge;
+            return this;
+        }
+
+        @Override
+        public MessageIndex build() {
+            return new MessageIndexImpl(this.maxMessages, this.maxAge);
+        }
+
+    }
+
+}
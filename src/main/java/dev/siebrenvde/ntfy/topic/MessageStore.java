@@ -0,0 +1,209 @@
+package dev.siebrenvde.ntfy.topic;
+
+import dev.siebrenvde.ntfy.response.ReceivedMessage;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.Unmodifiable;
+import org.jspecify.annotations.Nullable;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Stores received messages on disk, so recent history can be read locally instead of being received from the server again
+ *
+ * <p>Messages are appended to a log of segment files in a directory, each holding up to {@link #segmentSize()} bytes.
+ * Every topic has an index of the time and position of its messages, which is kept in memory and rebuilt from the segments when the store is opened,
+ * so reading a time range of a topic or looking up a message by id only reads the messages it returns.
+ * Segments that are no longer appended to are read through memory mappings.</p>
+ *
+ * <p>Messages are written as they are appended and synced to disk in batches {@link #syncInterval()} later.
+ * A crash can lose the messages of the last interval. Every message is stored with a checksum,
+ * so a message torn by a crash is detected and cut off when the store is opened.</p>
+ *
+ * <p>Whole segments are deleted, oldest first, once the store is larger than {@link #maxBytes()}
+ * or all messages in a segment are older than {@link #maxAge()}. The segment being appended to is never deleted.</p>
+ *
+ * <p>Topics are identified by their url, such as <code>https://ntfy.sh/mytopic</code>. A store is safe for use by multiple threads,
+ * but a directory must only be opened by one store at a time.</p>
+ *
+ * @see SubscriptionManager.Builder#messageStore(MessageStore)
+ */
+public sealed interface MessageStore extends Closeable permits FileMessageStore {
+
+    int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+    long DEFAULT_MAX_BYTES = 1024L * 1024 * 1024;
+    Duration DEFAULT_MAX_AGE = Duration.ofDays(7);
+    Duration DEFAULT_SYNC_INTERVAL = Duration.ofSeconds(1);
+
+    /**
+     * Creates a new message store builder
+     *
+     * @param directory the directory holding the segments, which is created if it does not exist
+     * @return a message store builder
+     */
+    @Contract(value = "_ -> new", pure = true)
+    static Builder messageStore(final Path directory) {
+        return new FileMessageStore.BuilderImpl(directory);
+    }
+
+    /**
+     * {@return the directory holding the segments}
+     */
+    @Contract(pure = true)
+    Path directory();
+
+    /**
+     * {@return the size at which a new segment is started}
+     */
+    @Contract(pure = true)
+    int segmentSize();
+
+    /**
+     * {@return the size above which the oldest segments are deleted}
+     */
+    @Contract(pure = true)
+    long maxBytes();
+
+    /**
+     * {@return the age above which segments are deleted}
+     */
+    @Contract(pure = true)
+    Duration maxAge();
+
+    /**
+     * {@return how long appended messages may wait before they are synced to disk}
+     */
+    @Contract(pure = true)
+    Duration syncInterval();
+
+    /**
+     * Appends a message
+     *
+     * <p>A message whose id was already appended to the topic within the same second is skipped,
+     * as resumed subscriptions may receive the last messages again.</p>
+     *
+     * @param topic the url of the topic
+     * @param message the message
+     * @return whether the message was appended
+     * @throws IOException if the message could not be written
+     * @throws IllegalStateException if the store is closed
+     */
+    boolean append(String topic, ReceivedMessage message) throws IOException;
+
+    /**
+     * Reads the messages of a topic published within a time range, in the order they were appended
+     *
+     * @param topic the url of the topic
+     * @param from the start of the range, inclusive
+     * @param to the end of the range, exclusive
+     * @return the messages
+     * @throws IOException if the messages could not be read
+     * @throws IllegalStateException if the store is closed
+     */
+    @Unmodifiable List<ReceivedMessage> messages(String topic, Instant from, Instant to) throws IOException;
+
+    /**
+     * Looks up a message by id
+     *
+     * @param id the id of the message
+     * @return the message, or <code>null</code> if it is not stored
+     * @throws IOException if the message could not be read
+     * @throws IllegalStateException if the store is closed
+     */
+    @Nullable ReceivedMessage message(String id) throws IOException;
+
+    /**
+     * {@return the last message appended to a topic, or <code>null</code> if none is stored}
+     *
+     * @param topic the url of the topic
+     */
+    @Nullable Checkpoint checkpoint(String topic);
+
+    /**
+     * {@return the urls of the topics with stored messages}
+     */
+    @Unmodifiable Set<String> topics();
+
+    /**
+     * {@return the total size of the segments in bytes}
+     */
+    long size();
+
+    /**
+     * Syncs the appended messages to disk and releases the store's resources
+     *
+     * @throws IOException if the messages could not be synced
+     */
+    @Override
+    void close() throws IOException;
+
+    /**
+     * Builder for {@link MessageStore}
+     */
+    sealed interface Builder permits FileMessageStore.BuilderImpl {
+
+        /**
+         * Sets the size at which a new segment is started
+         *
+         * <p>Must be positive and non-zero. A message larger than a segment gets a segment of its own.</p>
+         *
+         * @param segmentSize the segment size in bytes
+         * @return the builder
+         * @see MessageStore#DEFAULT_SEGMENT_SIZE
+         */
+        @Contract(value = "_ -> this", mutates = "this")
+        Builder segmentSize(int segmentSize);
+
+        /**
+         * Sets the size above which the oldest segments are deleted
+         *
+         * <p>Must be positive and non-zero</p>
+         *
+         * @param maxBytes the maximum size in bytes
+         * @return the builder
+         * @see MessageStore#DEFAULT_MAX_BYTES
+         */
+        @Contract(value = "_ -> this", mutates = "this")
+        Builder maxBytes(long maxBytes);
+
+        /**
+         * Sets the age above which segments are deleted, measured from the time their last message was published
+         *
+         * <p>Must be positive and non-zero</p>
+         *
+         * @param maxAge the maximum age
+         * @return the builder
+         * @see MessageStore#DEFAULT_MAX_AGE
+         */
+        @Contract(value = "_ -> this", mutates = "this")
+        Builder maxAge(Duration maxAge);
+
+        /**
+         * Sets how long appended messages may wait before they are synced to disk
+         *
+         * <p>Must not be negative. With a zero interval every message is synced before {@link MessageStore#append(String, ReceivedMessage)} returns.</p>
+         *
+         * @param syncInterval the sync interval
+         * @return the builder
+         * @see MessageStore#DEFAULT_SYNC_INTERVAL
+         */
+        @Contract(value = "_ -> this", mutates = "this")
+        Builder syncInterval(Duration syncInterval);
+
+        /**
+         * Opens the message store, recovering the segments in its directory
+         *
+         * @return a new message store
+         * @throws IOException if the directory or its segments cannot be read
+         */
+        @Contract("-> new")
+        MessageStore build() throws IOException;
+
+    }
+
+}
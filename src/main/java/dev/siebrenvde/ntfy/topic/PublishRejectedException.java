@@ -0,0 +1,25 @@
+package dev.siebrenvde.ntfy.topic;
+
+import java.io.IOException;
+import java.io.Serial;
+
+/**
+ * Thrown when a publish is rejected by the client before it is sent to the server
+ *
+ * <p>Rejected publishes are never retried by a {@link RetryPolicy}</p>
+ */
+public class PublishRejectedException extends IOException {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Creates a new exception
+     *
+     * @param message the detail message
+     */
+    public PublishRejectedException(final String message) {
+        super(message);
+    }
+
+}
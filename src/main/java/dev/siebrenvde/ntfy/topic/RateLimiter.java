@@ -0,0 +1,123 @@
+package dev.siebrenvde.ntfy.topic;
+
+import org.jetbrains.annotations.Contract;
+
+import java.time.Duration;
+
+/**
+ * Limits the rate at which messages are published, so that the server's rate limits are not exceeded
+ *
+ * <p>Each host, or each topic if {@link #perTopic()} is enabled, has its own token bucket
+ * which holds up to {@link #burst()} tokens and regains one token every {@link #replenishInterval()}.
+ * Every attempt to publish takes one token. When no token is available, the publish waits for one,
+ * or fails with a {@link PublishRejectedException} if it would have to wait longer than {@link #maxWait()}.
+ * Asynchronous publishes wait without blocking a thread.</p>
+ *
+ * <p>A rate limiter can be shared between topics, in which case topics on the same host share a bucket.</p>
+ *
+ * @see Topic.Builder#rateLimiter(RateLimiter)
+ * @see <a href="https://docs.ntfy.sh/config/#rate-limiting">Rate limiting</a>
+ */
+public sealed interface RateLimiter permits RateLimiterImpl {
+
+    int DEFAULT_BURST = 60;
+    Duration DEFAULT_REPLENISH_INTERVAL = Duration.ofSeconds(5);
+    Duration DEFAULT_MAX_WAIT = Duration.ofSeconds(30);
+
+    /**
+     * Creates a new rate limiter builder
+     *
+     * <p>The defaults match the default request limits of a ntfy server</p>
+     *
+     * @return a rate limiter builder
+     */
+    @Contract(value = "-> new", pure = true)
+    static Builder rateLimiter() {
+        return new RateLimiterImpl.BuilderImpl();
+    }
+
+    /**
+     * {@return the maximum number of messages that can be published at once}
+     */
+    @Contract(pure = true)
+    int burst();
+
+    /**
+     * {@return the time it takes for one more message to be allowed}
+     */
+    @Contract(pure = true)
+    Duration replenishInterval();
+
+    /**
+     * {@return whether each topic is limited separately instead of each host}
+     */
+    @Contract(pure = true)
+    boolean perTopic();
+
+    /**
+     * {@return the maximum time a publish waits for the rate limit before it is rejected}
+     */
+    @Contract(pure = true)
+    Duration maxWait();
+
+    /**
+     * Builder for {@link RateLimiter}
+     */
+    sealed interface Builder permits RateLimiterImpl.BuilderImpl {
+
+        /**
+         * Sets the maximum number of messages that can be published at once
+         *
+         * <p>Must be positive and non-zero</p>
+         *
+         * @param burst the maximum number of messages
+         * @return the builder
+         * @see RateLimiter#DEFAULT_BURST
+         */
+        @Contract(value = "_ -> this", mutates = "this")
+        Builder burst(int burst);
+
+        /**
+         * Sets the time it takes for one more message to be allowed
+         *
+         * <p>Must be positive and non-zero</p>
+         *
+         * @param replenishInterval the replenish interval
+         * @return the builder
+         * @see RateLimiter#DEFAULT_REPLENISH_INTERVAL
+         */
+        @Contract(value = "_ -> this", mutates = "this")
+        Builder replenishInterval(Duration replenishInterval);
+
+        /**
+         * Sets whether each topic is limited separately instead of each host
+         *
+         * @param perTopic <code>true</code> to limit each topic separately
+         * @return the builder
+         */
+        @Contract(value = "_ -> this", mutates = "this")
+        Builder perTopic(boolean perTopic);
+
+        /**
+         * Sets the maximum time a publish waits for the rate limit before it is rejected
+         *
+         * <p>Must not be negative, {@link Duration#ZERO} rejects publishes immediately</p>
+         *
+         * @param maxWait the maximum wait time
+         * @return the builder
+         * @see RateLimiter#DEFAULT_MAX_WAIT
+         */
+        @Contract(value = "_ -> this", mutates = "this")
+        Builder maxWait(Duration maxWait);
+
+        /**
+         * Builds the rate limiter
+         *
+         * @return a new rate limiter
+         */
+        @Contract(value = "-> new", pure = true)
+        RateLimiter build();
+
+    }
+
+}
@@ -0,0 +1,198 @@
+package dev.siebrenvde.ntfy.topic;
+
+import org.jetbrains.annotations.VisibleForTesting;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import static dev.siebrenvde.ntfy.internal.Util.checkArgument;
+import static dev.siebrenvde.ntfy.internal.Util.checkNotNull;
+
+/**
+ * Token buckets implemented with the generic cell rate algorithm
+ *
+ * <p>Instead of counting tokens, each bucket only stores the theoretical arrival time of the next publish,
+ * which is advanced with a single compare-and-set per publish.</p>
+ *
+ * <p>A bucket whose theoretical arrival time has passed is full, just like a new bucket, so such idle buckets are evicted.
+ * Evictions run during publishes, once there were as many publishes since the last eviction as there were buckets left after it,
+ * and mark a bucket as evicted before removing it so a publish racing with the eviction retries with a new bucket.</p>
+ */
+final class RateLimiterImpl implements RateLimiter {
+
+    /**
+     * Returned by {@link #reserveNanos(URI, URI)} when the publish should be rejected
+     */
+    static final long REJECTED = -1;
+
+    // Marks an evicted bucket
+    private static final long EVICTED = Long.MIN_VALUE;
+    // Idle buckets are evicted at most once per this many publishes
+    private static final int MIN_EVICTION_INTERVAL = 1024;
+
+    private final int burst;
+    private final Duration replenishInterval;
+    private final boolean perTopic;
+    private final Duration maxWait;
+
+    private final long intervalNanos;
+    private final long toleranceNanos;
+    private final long maxWaitNanos;
+    private final LongSupplier clock;
+    private final ConcurrentHashMap<URI, AtomicLong> buckets = new ConcurrentHashMap<>();
+    private final AtomicInteger sinceEviction = new AtomicInteger();
+    private volatile int evictionInterval = MIN_EVICTION_INTERVAL;
+
+    @VisibleForTesting
+    RateLimiterImpl(final int burst, final Duration replenishInterval, final boolean perTopic, final Duration maxWait, final LongSupplier clock) {
+        this.burst = burst;
+        this.replenishInterval = replenishInterval;
+        this.perTopic = perTopic;
+        this.maxWait = maxWait;
+        this.intervalNanos = replenishInterval.toNanos();
+        this.toleranceNanos = saturatedMultiply(this.intervalNanos, burst - 1);
+        this.maxWaitNanos = maxWait.toNanos();
+        this.clock = clock;
+    }
+
+    @Override
+    public int burst() {
+        return this.burst;
+    }
+
+    @Override
+    public Duration replenishInterval() {
+        return this.replenishInterval;
+    }
+
+    @Override
+    public boolean perTopic() {
+        return this.perTopic;
+    }
+
+    @Override
+    public Duration maxWait() {
+        return this.maxWait;
+    }
+
+    /**
+     * Takes a token for a publish, waiting for it if needed
+     *
+     * @param host the uri of the host
+     * @param topic the uri of the topic
+     * @return the nanoseconds to wait before the publish may be sent, or {@link #REJECTED}
+     */
+    long reserveNanos(final URI host, final URI topic) {
+        final long now = this.clock.getAsLong();
+        final int publishes = this.sinceEviction.incrementAndGet();
+        if (publishes >= this.evictionInterval && this.sinceEviction.compareAndSet(publishes, 0)) {
+            this.evictIdle(now);
+        }
+        final URI key = this.perTopic ? topic : host;
+        while (true) {
+            final AtomicLong bucket = this.buckets.computeIfAbsent(key, k -> new AtomicLong(now));
+            final long wait = this.reserveNanos(bucket, now);
+            if (wait != EVICTED) return wait;
+        }
+    }
+
+    /**
+     * Takes a token from a bucket
+     *
+     * @return the nanoseconds to wait, {@link #REJECTED}, or {@link #EVICTED} if the bucket was evicted
+     */
+    private long reserveNanos(final AtomicLong bucket, final long now) {
+        while (true) {
+            final long arrival = bucket.get();
+            if (arrival == EVICTED) return EVICTED;
+            final long base = arrival - now > 0 ? arrival : now;
+            final long wait = base - now - this.toleranceNanos;
+            if (wait > this.maxWaitNanos) return REJECTED;
+            if (bucket.compareAndSet(arrival, base + this.intervalNanos)) {
+                return Math.max(wait, 0);
+            }
+        }
+    }
+
+    private void evictIdle(final long now) {
+        for (final Map.Entry<URI, AtomicLong> entry : this.buckets.entrySet()) {
+            final AtomicLong bucket = entry.getValue();
+            final long arrival = bucket.get();
+            if (arrival != EVICTED && arrival - now <= 0 && bucket.compareAndSet(arrival, EVICTED)) {
+                this.buckets.remove(entry.getKey(), bucket);
+            }
+        }
+        this.evictionInterval = Math.max(MIN_EVICTION_INTERVAL, this.buckets.size());
+    }
+
+    @VisibleForTesting
+    int buckets() {
+        return this.buckets.size();
+    }
+
+    private static long saturatedMultiply(final long a, final long b) {
+        final long high = Math.multiplyHigh(a, b);
+        final long low = a * b;
+        return (high == 0 && low >= 0) ? low : Long.MAX_VALUE;
+    }
+
+    @Override
+    public String toString() {
+        return "RateLimiterImpl{" +
+            "burst=" + this.burst +
+            ", replenishInterval=" + this.replenishInterval +
+            ", perTopic=" + this.perTopic +
+            ", maxWait=" + this.maxWait +
+            '}';
+    }
+
+    static final class BuilderImpl implements RateLimiter.Builder {
+
+        private int burst = DEFAULT_BURST;
+        private Duration replenishInterval = DEFAULT_REPLENISH_INTERVAL;
+        private boolean perTopic = false;
+        private Duration maxWait = DEFAULT_MAX_WAIT;
+
+        @Override
+        public Builder burst(final int burst) {
+            checkArgument(burst > 0, "burst must be positive");
+            this.burst = burst;
+            return this;
+        }
+
+        @Override
+        public Builder replenishInterval(final Duration replenishInterval) {
+            checkNotNull(replenishInterval, "replenishInterval");
+            checkArgument(!replenishInterval.isNegative(), "replenishInterval must be positive");
+            checkArgument(!replenishInterval.isZero(), "replenishInterval must not be zero");
+            this.replenishInterval = replenishInterval;
+            return this;
+        }
+
+        @Override
+        public Builder perTopic(final boolean perTopic) {
+            this.perTopic = perTopic;
+            return this;
+        }
+
+        @Override
+        public Builder maxWait(final Duration maxWait) {
+            checkNotNull(maxWait, "maxWait");
+            checkArgument(!maxWait.isNegative(), "maxWait must not be negative");
+            this.maxWait = maxWait;
+            return this;
+        }
+
+        @Override
+        public RateLimiter build() {
+            return new RateLimiterImpl(this.burst, this.replenishInterval, this.perTopic, this.maxWait, System::nanoTime);
+        }
+
+    }
+
+}
@@ -0,0 +1,49 @@
+package dev.siebrenvde.ntfy.topic;
+
+import com.google.gson.JsonParseException;
+import dev.siebrenvde.ntfy.internal.LimitedBodySubscriber;
+import dev.siebrenvde.ntfy.response.ErrorResponse;
+import dev.siebrenvde.ntfy.response.PublishResponse;
+import dev.siebrenvde.ntfy.util.Result;
+
+import java.net.http.HttpResponse.BodyHandler;
+import java.net.http.HttpResponse.BodySubscriber;
+import java.net.http.HttpResponse.ResponseInfo;
+
+/**
+ * Decodes publish responses straight from the received bytes
+ *
+ * <p>At most {@link #MAX_BODY_SIZE} bytes are read, ntfy's responses are far smaller
+ * so anything larger did not come from ntfy.
+ * A successful response that is too large or not a ntfy response results in a generic error,
+ * like any other unexpected response.</p>
+ */
+final class ResponseBodyHandler implements BodyHandler<Result<PublishResponse, ErrorResponse>> {
+
+    static final ResponseBodyHandler INSTANCE = new ResponseBodyHandler();
+
+    static final int MAX_BODY_SIZE = 64 * 1024;
+
+    private ResponseBodyHandler() {
+
+    }
+
+    @Override
+    public BodySubscriber<Result<PublishResponse, ErrorResponse>> apply(final ResponseInfo info) {
+        final int status = info.statusCode();
+        final long contentLength = info.headers().firstValueAsLong("Content-Length").orElse(-1);
+        return new LimitedBodySubscriber<>(MAX_BODY_SIZE, contentLength, (bytes, length, truncated) -> decode(status, bytes, length, truncated));
+    }
+
+    static Result<PublishResponse, ErrorResponse> decode(final int status, final byte[] bytes, final int length, final boolean truncated) {
+        if (status == 200 && !truncated) {
+            try {
+                return Result.success(PublishResponse.fromJson(bytes, length));
+            } catch (final JsonParseException ignored) {
+                // Not a ntfy response, use the generic error below
+            }
+        }
+        return Result.error(ErrorResponse.fromResponse(status, bytes, length));
+    }
+
+}
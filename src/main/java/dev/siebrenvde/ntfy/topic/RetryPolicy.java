@@ -0,0 +1,140 @@
+package dev.siebrenvde.ntfy.topic;
+
+import org.jetbrains.annotations.Contract;
+
+import java.time.Duration;
+
+/**
+ * Decides whether and when a failed publish is retried
+ *
+ * <p>A publish is retried when sending the request failed with an {@link java.io.IOException}
+ * other than a {@link PublishRejectedException}, or when the server responded with one of the http status codes
+ * <code>408</code>, <code>429</code>, <code>502</code>, <code>503</code> or <code>504</code>.
+ * A <code>429</code> response is only retried if it was caused by ntfy's request rate limit,
+ * not by a quota such as the daily message limit.
+ * Any other error is returned immediately.</p>
+ *
+ * <p>Between attempts the publisher waits for a random duration between zero and
+ * <code>initialBackoff * 2^(attempt - 1)</code>, capped at {@link #maxBackoff()}.
+ * If a <code>429</code> or <code>503</code> response has a <code>Retry-After</code> header,
+ * the publisher waits at least that long, and gives up if it is longer than {@link #maxBackoff()}.</p>
+ *
+ * <p>A request that failed after it was sent may still have been published,
+ * so retries can result in a message being delivered more than once.</p>
+ *
+ * <p>A {@link SubscriptionManager} uses the same rules to decide when a failed connection is reconnected.</p>
+ *
+ * @see Topic.Builder#retryPolicy(RetryPolicy)
+ * @see SubscriptionManager.Builder#reconnectPolicy(RetryPolicy)
+ */
+public sealed interface RetryPolicy permits RetryPolicyImpl {
+
+    int DEFAULT_MAX_ATTEMPTS = 3;
+    Duration DEFAULT_INITIAL_BACKOFF = Duration.ofMillis(200);
+    Duration DEFAULT_MAX_BACKOFF = Duration.ofSeconds(10);
+
+    /**
+     * Creates a new retry policy builder
+     *
+     * @return a retry policy builder
+     */
+    @Contract(value = "-> new", pure = true)
+    static Builder retryPolicy() {
+        return new RetryPolicyImpl.BuilderImpl();
+    }
+
+    /**
+     * {@return the default retry policy}
+     */
+    @Contract(pure = true)
+    static RetryPolicy defaults() {
+        return RetryPolicyImpl.DEFAULTS;
+    }
+
+    /**
+     * {@return a retry policy which never retries}
+     */
+    @Contract(pure = true)
+    static RetryPolicy none() {
+        return RetryPolicyImpl.NONE;
+    }
+
+    /**
+     * {@return the maximum number of attempts, including the first one}
+     */
+    @Contract(pure = true)
+    int maxAttempts();
+
+    /**
+     * {@return the upper bound of the backoff after the first failed attempt}
+     */
+    @Contract(pure = true)
+    Duration initialBackoff();
+
+    /**
+     * {@return the maximum time to wait between two attempts}
+     */
+    @Contract(pure = true)
+    Duration maxBackoff();
+
+    /**
+     * Creates a new builder from this retry policy
+     *
+     * @return a new builder
+     */
+    @Contract(value = "-> new", pure = true)
+    Builder toBuilder();
+
+    /**
+     * Builder for {@link RetryPolicy}
+     */
+    sealed interface Builder permits RetryPolicyImpl.BuilderImpl {
+
+        /**
+         * Sets the maximum number of attempts, including the first one
+         *
+         * <p>Must be positive and non-zero</p>
+         *
+         * @param maxAttempts the maximum number of attempts
+         * @return the builder
+         * @see RetryPolicy#DEFAULT_MAX_ATTEMPTS
+         */
+        @Contract(value = "_ -> this", mutates = "this")
+        Builder maxAttempts(int maxAttempts);
+
+        /**
+         * Sets the upper bound of the backoff after the first failed attempt
+         *
+         * <p>Must be positive and non-zero</p>
+         *
+         * @param initialBackoff the initial backoff
+         * @return the builder
+         * @see RetryPolicy#DEFAULT_INITIAL_BACKOFF
+         */
+        @Contract(value = "_ -> this", mutates = "this")
+        Builder initialBackoff(Duration initialBackoff);
+
+        /**
+         * Sets the maximum time to wait between two attempts
+         *
+         * <p>Must be positive and non-zero</p>
+         *
+         * @param maxBackoff the maximum backoff
+         * @return the builder
+         * @see RetryPolicy#DEFAULT_MAX_BACKOFF
+         */
+        @Contract(value = "_ -> this", mutates = "this")
+        Builder maxBackoff(Duration maxBackoff);
+
+        /**
+         * Builds the retry policy
+         *
+         * @return a new retry policy
+         * @throws IllegalStateException if the initial backoff is longer than the maximum backoff
+         */
+        @Contract(value = "-> new", pure = true)
+        RetryPolicy build();
+
+    }
+
+}
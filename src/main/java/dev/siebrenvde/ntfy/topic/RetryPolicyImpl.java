@@ -0,0 +1,171 @@
+package dev.siebrenvde.ntfy.topic;
+
+import dev.siebrenvde.ntfy.response.ErrorResponse;
+import org.jetbrains.annotations.VisibleForTesting;
+import org.jspecify.annotations.Nullable;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static dev.siebrenvde.ntfy.internal.Util.checkArgument;
+import static dev.siebrenvde.ntfy.internal.Util.checkNotNull;
+
+record RetryPolicyImpl(
+    int maxAttempts,
+    Duration initialBackoff,
+    Duration maxBackoff
+) implements RetryPolicy {
+
+    static final RetryPolicy DEFAULTS = new RetryPolicyImpl(DEFAULT_MAX_ATTEMPTS, DEFAULT_INITIAL_BACKOFF, DEFAULT_MAX_BACKOFF);
+    static final RetryPolicy NONE = new RetryPolicyImpl(1, DEFAULT_INITIAL_BACKOFF, DEFAULT_MAX_BACKOFF);
+
+    /**
+     * Returned by the delay methods when the publish should not be retried
+     */
+    static final long NO_RETRY = -1;
+
+    /**
+     * The ntfy error code of a <code>429</code> response caused by the request rate limit
+     */
+    static final int TOO_MANY_REQUESTS_CODE = 42901;
+
+    @Override
+    public Builder toBuilder() {
+        return new BuilderImpl()
+            .maxAttempts(this.maxAttempts)
+            .initialBackoff(this.initialBackoff)
+            .maxBackoff(this.maxBackoff);
+    }
+
+    /**
+     * {@return the nanoseconds to wait before retrying after sending the request failed, or {@link #NO_RETRY}}
+     *
+     * @param attempt the number of the attempt that failed, starting at 1
+     * @param error the error
+     */
+    long delayNanos(final int attempt, final Throwable error) {
+        if (attempt >= this.maxAttempts || !(error instanceof IOException) || error instanceof PublishRejectedException) return NO_RETRY;
+        return this.backoffNanos(attempt);
+    }
+
+    /**
+     * {@return the nanoseconds to wait before retrying after an error response, or {@link #NO_RETRY}}
+     *
+     * @param attempt the number of the attempt that failed, starting at 1
+     * @param error the decoded error response
+     * @param retryAfter the value of the <code>Retry-After</code> header
+     */
+    long delayNanos(final int attempt, final ErrorResponse error, @Nullable final String retryAfter) {
+        if (attempt >= this.maxAttempts || !isRetryable(error)) return NO_RETRY;
+        final int status = error.http();
+        final long backoff = this.backoffNanos(attempt);
+        if (retryAfter == null || (status != 429 && status != 503)) return backoff;
+
+        final long wait = parseRetryAfter(retryAfter, Instant.now());
+        if (wait < 0) return backoff;
+        if (wait > this.maxBackoff.toNanos()) return NO_RETRY;
+        return Math.max(wait, backoff);
+    }
+
+    /**
+     * {@return a random backoff between zero and the exponential backoff for an attempt}
+     *
+     * @param attempt the number of the attempt that failed, starting at 1
+     */
+    @VisibleForTesting
+    long backoffNanos(final int attempt) {
+        final long max = this.maxBackoff.toNanos();
+        final long initial = this.initialBackoff.toNanos();
+        final int shift = Math.min(attempt - 1, 62);
+        final long ceiling = initial > (max >> shift) ? max : initial << shift;
+        return ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+
+    /**
+     * Decides whether an error response is worth retrying
+     *
+     * <p>ntfy answers with <code>429</code> both when requests come in too fast and when a quota,
+     * such as the daily message limit, is used up. Only the former clears within a backoff,
+     * so a <code>429</code> carrying any other ntfy error code is not retried.</p>
+     *
+     * @param error the decoded error response
+     * @return whether the request should be retried
+     */
+    @VisibleForTesting
+    static boolean isRetryable(final ErrorResponse error) {
+        final int status = error.http();
+        if (status == 429) return error.code() == 0 || error.code() == TOO_MANY_REQUESTS_CODE;
+        return status == 408 || status == 502 || status == 503 || status == 504;
+    }
+
+    /**
+     * Parses a <code>Retry-After</code> header in either of its two forms
+     *
+     * @param value the header value, either a number of seconds or an http date
+     * @param now the current time
+     * @return the nanoseconds to wait, or <code>-1</code> if the value is invalid
+     */
+    @VisibleForTesting
+    static long parseRetryAfter(final String value, final Instant now) {
+        final String trimmed = value.trim();
+        try {
+            final long seconds = Long.parseLong(trimmed);
+            return seconds < 0 ? -1 : Duration.ofSeconds(seconds).toNanos();
+        } catch (final NumberFormatException | ArithmeticException ignored) {
+            // Not a number of seconds, try an http date instead
+        }
+        try {
+            final Instant date = ZonedDateTime.parse(trimmed, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant();
+            return date.isAfter(now) ? Duration.between(now, date).toNanos() : 0;
+        } catch (final DateTimeParseException | ArithmeticException ignored) {
+            return -1;
+        }
+    }
+
+    static final class BuilderImpl implements RetryPolicy.Builder {
+
+        private int maxAttempts = DEFAULT_MAX_ATTEMPTS;
+        private Duration initialBackoff = DEFAULT_INITIAL_BACKOFF;
+        private Duration maxBackoff = DEFAULT_MAX_BACKOFF;
+
+        @Override
+        public Builder maxAttempts(final int maxAttempts) {
+            checkArgument(maxAttempts > 0, "maxAttempts must be positive");
+            this.maxAttempts = maxAttempts;
+            return this;
+        }
+
+        @Override
+        public Builder initialBackoff(final Duration initialBackoff) {
+            checkNotNull(initialBackoff, "initialBackoff");
+            checkArgument(!initialBackoff.isNegative(), "initialBackoff must be positive");
+            checkArgument(!initialBackoff.isZero(), "initialBackoff must not be zero");
+            this.initialBackoff = initialBackoff;
+            return this;
+        }
+
+        @Override
+        public Builder maxBackoff(final Duration maxBackoff) {
+            checkNotNull(maxBackoff, "maxBackoff");
+            checkArgument(!maxBackoff.isNegative(), "maxBackoff must be positive");
+            checkArgument(!maxBackoff.isZero(), "maxBackoff must not be zero");
+            this.maxBackoff = maxBackoff;
+            return this;
+        }
+
+        @Override
+        public RetryPolicy build() {
+            if (this.initialBackoff.compareTo(this.maxBackoff) > 0) {
+                throw new IllegalStateException("initialBackoff cannot be longer than maxBackoff");
+            }
+            return new RetryPolicyImpl(this.maxAttempts, this.initialBackoff, this.maxBackoff);
+        }
+
+    }
+
+}
@@ -0,0 +1,152 @@
+package dev.siebrenvde.ntfy.topic;
+
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.Unmodifiable;
+import org.jspecify.annotations.Nullable;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * A search of a {@link MessageIndex}, matching the messages that satisfy all of its conditions
+ *
+ * <p>Terms and prefixes are matched against the words of a message's title, body and tags, ignoring case.
+ * A word is a run of letters and digits. Tags are matched as a whole, also ignoring case.</p>
+ *
+ * <p>Example:</p>
+ * <pre>{@code
+ * SearchQuery query = SearchQuery.searchQuery()
+ *     .term("disk")
+ *     .prefix("backup")
+ *     .tag("warning")
+ *     .from(Instant.now().minus(Duration.ofDays(1)))
+ *     .build();
+ * }</pre>
+ */
+public sealed interface SearchQuery permits SearchQueryImpl {
+
+    int DEFAULT_LIMIT = 100;
+
+    /**
+     * Creates a new search query builder
+     *
+     * @return a search query builder
+     */
+    @Contract(value = "-> new", pure = true)
+    static Builder searchQuery() {
+        return new SearchQueryImpl.BuilderImpl();
+    }
+
+    /**
+     * {@return the lower-cased words messages must contain}
+     */
+    @Contract(pure = true)
+    @Unmodifiable List<String> terms();
+
+    /**
+     * {@return the lower-cased prefixes messages must contain a word starting with}
+     */
+    @Contract(pure = true)
+    @Unmodifiable List<String> prefixes();
+
+    /**
+     * {@return the lower-cased tags messages must have}
+     */
+    @Contract(pure = true)
+    @Unmodifiable List<String> tags();
+
+    /**
+     * {@return the time messages must be published at or after, or <code>null</code> if there is no lower bound}
+     */
+    @Contract(pure = true)
+    @Nullable Instant from();
+
+    /**
+     * {@return the time messages must be published before, or <code>null</code> if there is no upper bound}
+     */
+    @Contract(pure = true)
+    @Nullable Instant to();
+
+    /**
+     * {@return the maximum number of messages returned}
+     */
+    @Contract(pure = true)
+    int limit();
+
+    /**
+     * Builder for {@link SearchQuery}
+     */
+    sealed interface Builder permits SearchQueryImpl.BuilderImpl {
+
+        /**
+         * Requires messages to contain words
+         *
+         * <p>The text is split into words, each of which must be contained in a message, in any order</p>
+         *
+         * @param text the text
+         * @return the builder
+         * @throws IllegalArgumentException if the text contains no words
+         */
+        @Contract(value = "_ -> this", mutates = "this")
+        Builder term(String text);
+
+        /**
+         * Requires messages to contain a word starting with a prefix
+         *
+         * @param prefix the prefix, which must be a single word
+         * @return the builder
+         * @throws IllegalArgumentException if the prefix is not a single word
+         */
+        @Contract(value = "_ -> this", mutates = "this")
+        Builder prefix(String prefix);
+
+        /**
+         * Requires messages to have a tag
+         *
+         * @param tag the tag
+         * @return the builder
+         */
+        @Contract(value = "_ -> this", mutates = "this")
+        Builder tag(String tag);
+
+        /**
+         * Requires messages to be published at or after a time
+         *
+         * @param from the time
+         * @return the builder
+         */
+        @Contract(value = "_ -> this", mutates = "this")
+        Builder from(Instant from);
+
+        /**
+         * Requires messages to be published before a time
+         *
+         * @param to the time
+         * @return the builder
+         */
+        @Contract(value = "_ -> this", mutates = "this")
+        Builder to(Instant to);
+
+        /**
+         * Sets the maximum number of messages returned, the most recent of which are returned
+         *
+         * <p>Must be positive and non-zero</p>
+         *
+         * @param limit the limit
+         * @return the builder
+         * @see SearchQuery#DEFAULT_LIMIT
+         */
+        @Contract(value = "_ -> this", mutates = "this")
+        Builder limit(int limit);
+
+        /**
+         * Builds the search query
+         *
+         * @return a new search query
+         */
+        @Contract(value = "-> new", pure = true)
+        SearchQuery build();
+
+    }
+
+}
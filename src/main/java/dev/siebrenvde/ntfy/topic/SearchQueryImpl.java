@@ -0,0 +1,85 @@
+package dev.siebrenvde.ntfy.topic;
+
+import org.jspecify.annotations.Nullable;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import static dev.siebrenvde.ntfy.internal.Util.checkArgument;
+import static dev.siebrenvde.ntfy.internal.Util.checkNotNull;
+
+record SearchQueryImpl(
+    List<String> terms,
+    List<String> prefixes,
+    List<String> tags,
+    @Nullable Instant from,
+    @Nullable Instant to,
+    int limit
+) implements SearchQuery {
+
+    static final class BuilderImpl implements SearchQuery.Builder {
+
+        private final List<String> terms = new ArrayList<>();
+        private final List<String> prefixes = new ArrayList<>();
+        private final List<String> tags = new ArrayList<>();
+        private @Nullable Instant from;
+        private @Nullable Instant to;
+        private int limit = DEFAULT_LIMIT;
+
+        @Override
+        public Builder term(final String text) {
+            checkNotNull(text, "text");
+            final int size = this.terms.size();
+            MessageIndexImpl.words(text, this.terms::add);
+            checkArgument(this.terms.size() > size, "text must contain a word");
+            return this;
+        }
+
+        @Override
+        public Builder prefix(final String prefix) {
+            checkNotNull(prefix, "prefix");
+            final List<String> words = new ArrayList<>();
+            MessageIndexImpl.words(prefix, words::add);
+            checkArgument(words.size() == 1, "prefix must be a single word");
+            this.prefixes.add(words.get(0));
+            return this;
+        }
+
+        @Override
+        public Builder tag(final String tag) {
+            checkNotNull(tag, "tag");
+            this.tags.add(tag.toLowerCase(Locale.ROOT));
+            return this;
+        }
+
+        @Override
+        public Builder from(final Instant from) {
+            checkNotNull(from, "from");
+            this.from = from;
+            return this;
+        }
+
+        @Override
+        public Builder to(final Instant to) {
+            checkNotNull(to, "to");
+            this.to = to;
+            return this;
+        }
+
+        @Override
+        public Builder limit(final int limit) {
+            checkArgument(limit > 0, "limit must be positive");
+            this.limit = limit;
+            return this;
+        }
+
+        @Override
+        public SearchQuery build() {
+            return new SearchQueryImpl(List.copyOf(this.terms), List.copyOf(this.prefixes), List.copyOf(this.tags), this.from, this.to, this.limit);
+        }
+
+    }
+
+}
@@ -0,0 +1,98 @@
+package dev.siebrenvde.ntfy.topic;
+
+import dev.siebrenvde.ntfy.response.ReceivedMessage;
+import org.jspecify.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.Flow;
+import java.util.function.Predicate;
+
+/**
+ * Reads an <code>/sse</code> stream of server-sent events, whose data is the same JSON as a <code>/json</code> stream
+ *
+ * <p>Fields are parsed as described by the HTML specification:
+ * <code>data</code> lines are joined with newlines, <code>id</code> sets the last event id,
+ * <code>event</code> sets the event type and lines starting with a colon are comments.
+ * An event is dispatched by an empty line, an incomplete event at the end of the stream is dropped.
+ * Events with a type other than <code>message</code>, such as ntfy's keepalives, are dropped without decoding their data.</p>
+ *
+ * @see <a href="https://docs.ntfy.sh/subscribe/api/#subscribe-as-sse-stream">Subscribe as SSE stream</a>
+ * @see <a href="https://html.spec.whatwg.org/multipage/server-sent-events.html#event-stream-interpretation">Event stream interpretation</a>
+ */
+final class SseStreamSubscription extends HttpStreamSubscription {
+
+    private static final byte[] DATA = "data".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] ID = "id".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] EVENT = "event".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] MESSAGE = "message".getBytes(StandardCharsets.US_ASCII);
+
+    private byte[] data = new byte[512];
+    private int dataLength;
+    private boolean message = true;
+    private @Nullable String id;
+
+    SseStreamSubscription(final Flow.Subscriber<? super ReceivedMessage> downstream, @Nullable final Predicate<ReceivedMessage> filter) {
+        super(downstream, filter);
+    }
+
+    @Override
+    void onLine(final byte[] line, final int offset, final int length) throws IOException {
+        if (length == 0) {
+            this.dispatch();
+            return;
+        }
+        if (line[offset] == ':') return;
+
+        final int end = offset + length;
+        int colon = offset;
+        while (colon < end && line[colon] != ':') colon++;
+        int value = colon + 1;
+        if (value < end && line[value] == ' ') value++;
+        value = Math.min(value, end);
+
+        if (matches(line, offset, colon, DATA)) {
+            this.appendData(line, value, end - value);
+        } else if (matches(line, offset, colon, ID)) {
+            final String id = new String(line, value, end - value, StandardCharsets.UTF_8);
+            if (id.indexOf('\0') < 0) this.id = id;
+        } else if (matches(line, offset, colon, EVENT)) {
+            this.message = value == end || matches(line, value, end, MESSAGE);
+        }
+    }
+
+    @Override
+    void onEnd() {
+        this.dataLength = 0;
+    }
+
+    private void dispatch() throws IOException {
+        final @Nullable String id = this.id;
+        if (id != null) this.lastEventId(id);
+        if (this.dataLength > 0 && this.message) {
+            // Leave out the newline appended after the last data line
+            this.emit(this.data, 0, this.dataLength - 1);
+        }
+        this.dataLength = 0;
+        this.message = true;
+    }
+
+    private void appendData(final byte[] line, final int offset, final int length) throws IOException {
+        final int required = this.dataLength + length + 1;
+        if (required > MAX_EVENT_LENGTH) {
+            throw new IOException("Event exceeds the maximum length of " + MAX_EVENT_LENGTH + " bytes");
+        }
+        if (this.data.length < required) {
+            this.data = Arrays.copyOf(this.data, Math.min(MAX_EVENT_LENGTH, Math.max(2 * this.data.length, required)));
+        }
+        System.arraycopy(line, offset, this.data, this.dataLength, length);
+        this.dataLength += length;
+        this.data[this.dataLength++] = '\n';
+    }
+
+    private static boolean matches(final byte[] line, final int from, final int to, final byte[] name) {
+        return Arrays.equals(line, from, to, name, 0, name.length);
+    }
+
+}
@@ -0,0 +1,57 @@
+package dev.siebrenvde.ntfy.topic;
+
+import dev.siebrenvde.ntfy.response.ReceivedMessage;
+import org.jspecify.annotations.Nullable;
+
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.Flow;
+import java.util.function.Predicate;
+
+/**
+ * Publishes the messages of a topic's subscription stream
+ *
+ * <p>Every subscriber opens its own connection, which is closed when the subscription is cancelled.</p>
+ */
+final class StreamPublisher implements Flow.Publisher<ReceivedMessage> {
+
+    private final HttpClient client;
+    private final HttpRequest request;
+    private final SubscriptionTransport transport;
+    private final Duration idleTimeout;
+    private final @Nullable Predicate<ReceivedMessage> filter;
+
+    StreamPublisher(final HttpClient client, final HttpRequest request, final SubscriptionTransport transport, @Nullable final Predicate<ReceivedMessage> filter) {
+        this(client, request, transport, StreamSubscription.IDLE_TIMEOUT, filter);
+    }
+
+    StreamPublisher(
+        final HttpClient client,
+        final HttpRequest request,
+        final SubscriptionTransport transport,
+        final Duration idleTimeout,
+        @Nullable final Predicate<ReceivedMessage> filter
+    ) {
+        this.client = client;
+        this.request = request;
+        this.transport = transport;
+        this.idleTimeout = idleTimeout;
+        this.filter = filter;
+    }
+
+    @Override
+    public void subscribe(final Flow.Subscriber<? super ReceivedMessage> subscriber) {
+        // Flow requires a NullPointerException rather than the usual IllegalArgumentException
+        Objects.requireNonNull(subscriber, "subscriber");
+        final StreamSubscription subscription = switch (this.transport) {
+            case JSON -> new JsonStreamSubscription(subscriber, this.filter);
+            case SSE -> new SseStreamSubscription(subscriber, this.filter);
+            case WEBSOCKET -> new WebSocketSubscription(subscriber, this.filter);
+        };
+        subscriber.onSubscribe(subscription);
+        subscription.connect(this.client, this.request, this.idleTimeout);
+    }
+
+}
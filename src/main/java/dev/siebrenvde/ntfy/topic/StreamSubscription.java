@@ -0,0 +1,263 @@
+package dev.siebrenvde.ntfy.topic;
+
+import com.google.gson.JsonParseException;
+import dev.siebrenvde.ntfy.response.ReceivedMessage;
+import org.jetbrains.annotations.VisibleForTesting;
+import org.jspecify.annotations.Nullable;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * Reads a subscription stream and passes its messages on to a subscriber as they are requested
+ *
+ * <p>The transport reads one chunk of the stream at a time from its upstream and decodes the events in it.
+ * Keepalive, open and other events are dropped, as are messages that do not pass the subscription's filter.</p>
+ *
+ * <p>At most {@link #PREFETCH} decoded messages are queued for the subscriber.
+ * Once the queue is full no more of the stream is requested, which stops reading from the connection
+ * so a slow subscriber pushes back on the server instead of filling the heap.</p>
+ *
+ * <p>ntfy sends a keepalive event every 45 seconds,
+ * so the stream fails with an {@link HttpTimeoutException} if nothing arrives for the idle timeout while waiting for data,
+ * which is {@link #IDLE_TIMEOUT} unless the subscriber chose a different one.
+ * Halfway through, the transport is given the chance to check the connection with {@link #onIdle()}.</p>
+ */
+abstract sealed class StreamSubscription implements Flow.Subscription permits HttpStreamSubscription, WebSocketSubscription {
+
+    @VisibleForTesting static final int PREFETCH = 128;
+    static final int MAX_EVENT_LENGTH = 1024 * 1024;
+    static final Duration IDLE_TIMEOUT = Duration.ofSeconds(120);
+
+    private final Flow.Subscriber<? super ReceivedMessage> downstream;
+    private final @Nullable Predicate<ReceivedMessage> filter;
+    private final ConcurrentLinkedQueue<ReceivedMessage> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicLong demand = new AtomicLong();
+    private final AtomicInteger wip = new AtomicInteger();
+    private final AtomicBoolean requested = new AtomicBoolean();
+
+    private volatile Flow.@Nullable Subscription upstream;
+    private volatile boolean done;
+    private volatile @Nullable Throwable error;
+    private volatile boolean cancelled;
+    private volatile long lastActivity = System.nanoTime();
+    private volatile @Nullable String lastEventId;
+
+    StreamSubscription(final Flow.Subscriber<? super ReceivedMessage> downstream, @Nullable final Predicate<ReceivedMessage> filter) {
+        this.downstream = downstream;
+        this.filter = filter;
+    }
+
+    final boolean isCancelled() {
+        return this.cancelled;
+    }
+
+    /**
+     * Connects to the stream, called once the subscriber has been given the subscription
+     *
+     * @param client the http client
+     * @param request the request for the stream
+     * @param idleTimeout how long the stream may receive nothing while waiting for data before it fails
+     */
+    abstract void connect(HttpClient client, HttpRequest request, Duration idleTimeout);
+
+    /**
+     * Starts watching for an idle connection, called by the transport once it starts connecting
+     *
+     * @param idleTimeout how long the stream may receive nothing while waiting for data before it fails
+     */
+    final void watchIdle(final Duration idleTimeout) {
+        final long timeout = idleTimeout.toNanos();
+        CompletableFuture.delayedExecutor(timeout / 2, TimeUnit.NANOSECONDS).execute(() -> {
+            if (this.done || this.cancelled) return;
+            final long idle = System.nanoTime() - this.lastActivity;
+            if (this.requested.get() && idle >= timeout) {
+                // Failing first, as cancelling the exchange fails the stream with a CancellationException
+                this.fail(new HttpTimeoutException("No data received for " + idleTimeout.toSeconds() + " seconds"));
+                this.cancelUpstream();
+                return;
+            }
+            if (this.requested.get() && idle >= timeout / 2) this.onIdle();
+            this.watchIdle(idleTimeout);
+        });
+    }
+
+    /**
+     * Called when nothing has been received for half of the idle timeout while waiting for data
+     */
+    void onIdle() {
+
+    }
+
+    @Override
+    public void request(final long n) {
+        if (n <= 0) {
+            this.cancelUpstream();
+            this.fail(new IllegalArgumentException("non-positive subscription request: " + n));
+            return;
+        }
+        this.demand.getAndUpdate(current -> current + n < 0 ? Long.MAX_VALUE : current + n);
+        this.drain();
+    }
+
+    @Override
+    public void cancel() {
+        this.cancelled = true;
+        this.cancelUpstream();
+    }
+
+    void cancelUpstream() {
+        final Flow.@Nullable Subscription upstream = this.upstream;
+        if (upstream != null) upstream.cancel();
+    }
+
+    /**
+     * Sets the subscription chunks of the stream are requested from, once the transport is connected
+     *
+     * @param upstream the upstream subscription
+     */
+    final void upstream(final Flow.Subscription upstream) {
+        if (this.cancelled) {
+            upstream.cancel();
+            return;
+        }
+        this.upstream = upstream;
+        this.drain();
+    }
+
+    /**
+     * Called by the transport when the requested chunk of the stream arrives, before decoding it
+     */
+    final void received() {
+        this.lastActivity = System.nanoTime();
+        this.requested.set(false);
+    }
+
+    /**
+     * Called by the transport when it received something that is not part of the stream, such as a pong
+     */
+    final void active() {
+        this.lastActivity = System.nanoTime();
+    }
+
+    /**
+     * Decodes an event and queues it for the subscriber if it is a message that passes the filter
+     *
+     * @param json the array holding the event
+     * @param offset the offset of the event in the array
+     * @param length the length of the event
+     * @return the message, or <code>null</code> if the event is not a message
+     * @throws IOException if the event cannot be decoded or the filter throws
+     */
+    final @Nullable ReceivedMessage emit(final byte[] json, final int offset, final int length) throws IOException {
+        final @Nullable ReceivedMessage message;
+        try {
+            message = ReceivedMessage.fromJson(json, offset, length);
+        } catch (final JsonParseException e) {
+            throw new IOException("Malformed message in stream", e);
+        }
+        if (message != null && this.passes(message)) {
+            this.queue.offer(message);
+            this.queued.incrementAndGet();
+        }
+        return message;
+    }
+
+    private boolean passes(final ReceivedMessage message) throws IOException {
+        if (this.filter == null) return true;
+        try {
+            return this.filter.test(message);
+        } catch (final RuntimeException e) {
+            throw new IOException("Subscription filter failed", e);
+        }
+    }
+
+    /**
+     * {@return the id of the last event received, which a new subscription can resume after}
+     */
+    final @Nullable String lastEventId() {
+        return this.lastEventId;
+    }
+
+    final void lastEventId(final String lastEventId) {
+        this.lastEventId = lastEventId;
+    }
+
+    /**
+     * Completes the subscriber once the queued messages have been passed on
+     */
+    final void complete() {
+        this.done = true;
+        this.drain();
+    }
+
+    /**
+     * Fails the subscriber, dropping the queued messages
+     *
+     * @param throwable the error
+     */
+    final void fail(final Throwable throwable) {
+        if (this.done) return;
+        this.error = throwable;
+        this.done = true;
+        this.drain();
+    }
+
+    /**
+     * Passes queued messages on while there is demand, signals termination once the queue is drained
+     * and requests more of the stream while the queue has room
+     *
+     * <p>Only one thread drains at a time, calls made while another thread is draining make it loop again.</p>
+     */
+    final void drain() {
+        if (this.wip.getAndIncrement() != 0) return;
+        int missed = 1;
+        do {
+            if (this.cancelled) {
+                this.queue.clear();
+                return;
+            }
+            final @Nullable Throwable error = this.error;
+            if (error != null) {
+                this.cancelled = true;
+                this.queue.clear();
+                this.downstream.onError(error);
+                return;
+            }
+            final long requested = this.demand.get();
+            long emitted = 0;
+            while (emitted != requested && !this.cancelled) {
+                final @Nullable ReceivedMessage message = this.queue.poll();
+                if (message == null) break;
+                this.queued.decrementAndGet();
+                this.downstream.onNext(message);
+                emitted++;
+            }
+            if (emitted != 0 && requested != Long.MAX_VALUE) this.demand.addAndGet(-emitted);
+            if (this.done && this.error == null && this.queue.isEmpty() && !this.cancelled) {
+                this.cancelled = true;
+                this.downstream.onComplete();
+                return;
+            }
+            final Flow.@Nullable Subscription upstream = this.upstream;
+            if (!this.done && upstream != null && this.queued.get() < PREFETCH && this.requested.compareAndSet(false, true)) {
+                this.lastActivity = System.nanoTime();
+                upstream.request(1);
+            }
+            missed = this.wip.addAndGet(-missed);
+        } while (missed != 0);
+    }
+
+}
@@ -0,0 +1,37 @@
+package dev.siebrenvde.ntfy.topic;
+
+import dev.siebrenvde.ntfy.response.ErrorResponse;
+
+import java.io.IOException;
+import java.io.Serial;
+
+/**
+ * Signalled to subscribers when the server refuses a subscription
+ *
+ * @see Topic#subscribe()
+ */
+public class SubscriptionException extends IOException {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    private final transient ErrorResponse error;
+
+    /**
+     * Creates a new exception
+     *
+     * @param error the error returned by the server
+     */
+    public SubscriptionException(final ErrorResponse error) {
+        super(error.error() + " (HTTP " + error.http() + ")");
+        this.error = error;
+    }
+
+    /**
+     * {@return the error returned by the server}
+     */
+    public ErrorResponse error() {
+        return this.error;
+    }
+
+}
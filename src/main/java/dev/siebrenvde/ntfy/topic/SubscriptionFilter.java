@@ -0,0 +1,174 @@
+package dev.siebrenvde.ntfy.topic;
+
+import dev.siebrenvde.ntfy.message.Priority;
+import dev.siebrenvde.ntfy.response.ReceivedMessage;
+import org.jetbrains.annotations.Contract;
+
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+/**
+ * Decides which messages of a subscription are received
+ *
+ * <p>Conditions ntfy supports as query parameters, such as {@link Builder#priorities(Priority...)},
+ * {@link Builder#tags(String...)}, {@link Builder#title(String)} and {@link Builder#message(String)},
+ * are sent to the server, so messages that do not match them are never sent over the connection.
+ * The remaining conditions are combined into one predicate when the filter is built,
+ * which is tested on every received message before it is passed to the subscriber.</p>
+ *
+ * <p>A message is received if it matches all conditions of the filter.</p>
+ *
+ * @see Topic#subscribe(SubscriptionFilter)
+ * @see <a href="https://docs.ntfy.sh/subscribe/api/#filter-messages">Filter messages</a>
+ */
+public sealed interface SubscriptionFilter extends Predicate<ReceivedMessage> permits SubscriptionFilterImpl {
+
+    /**
+     * Creates a new subscription filter builder
+     *
+     * @return a subscription filter builder
+     */
+    @Contract(value = "-> new", pure = true)
+    static Builder subscriptionFilter() {
+        return new SubscriptionFilterImpl.BuilderImpl();
+    }
+
+    /**
+     * Tests a message against all conditions of the filter, including those sent to the server
+     *
+     * @param message the message
+     * @return whether the message matches the filter
+     */
+    @Override
+    boolean test(ReceivedMessage message);
+
+    /**
+     * Builder for {@link SubscriptionFilter}
+     */
+    sealed interface Builder permits SubscriptionFilterImpl.BuilderImpl {
+
+        /**
+         * Only receives messages with one of the given priorities
+         *
+         * <p>Sent to the server. Combined with other priority conditions, only the priorities allowed by all of them are received.</p>
+         *
+         * @param priorities the priorities
+         * @return the builder
+         */
+        @Contract(value = "_ -> this", mutates = "this")
+        Builder priorities(Priority... priorities);
+
+        /**
+         * Only receives messages with at least the given priority
+         *
+         * <p>Sent to the server as the list of matching priorities</p>
+         *
+         * @param priority the minimum priority
+         * @return the builder
+         */
+        @Contract(value = "_ -> this", mutates = "this")
+        Builder minPriority(Priority priority);
+
+        /**
+         * Only receives messages with at most the given priority
+         *
+         * <p>Sent to the server as the list of matching priorities</p>
+         *
+         * @param priority the maximum priority
+         * @return the builder
+         */
+        @Contract(value = "_ -> this", mutates = "this")
+        Builder maxPriority(Priority priority);
+
+        /**
+         * Only receives messages with all of the given tags
+         *
+         * <p>Sent to the server</p>
+         *
+         * @param tags the tags
+         * @return the builder
+         */
+        @Contract(value = "_ -> this", mutates = "this")
+        Builder tags(String... tags);
+
+        /**
+         * Only receives messages with at least one of the given tags
+         *
+         * @param tags the tags
+         * @return the builder
+         */
+        @Contract(value = "_ -> this", mutates = "this")
+        Builder anyTag(String... tags);
+
+        /**
+         * Only receives messages with none of the given tags
+         *
+         * @param tags the tags
+         * @return the builder
+         */
+        @Contract(value = "_ -> this", mutates = "this")
+        Builder excludeTags(String... tags);
+
+        /**
+         * Only receives messages with exactly the given title
+         *
+         * <p>Sent to the server</p>
+         *
+         * @param title the title
+         * @return the builder
+         */
+        @Contract(value = "_ -> this", mutates = "this")
+        Builder title(String title);
+
+        /**
+         * Only receives messages with exactly the given body
+         *
+         * <p>Sent to the server</p>
+         *
+         * @param message the body
+         * @return the builder
+         */
+        @Contract(value = "_ -> this", mutates = "this")
+        Builder message(String message);
+
+        /**
+         * Only receives messages with a title containing a match of the given pattern
+         *
+         * @param pattern the pattern
+         * @return the builder
+         */
+        @Contract(value = "_ -> this", mutates = "this")
+        Builder titleMatches(Pattern pattern);
+
+        /**
+         * Only receives messages with a body containing a match of the given pattern
+         *
+         * @param pattern the pattern
+         * @return the builder
+         */
+        @Contract(value = "_ -> this", mutates = "this")
+        Builder bodyMatches(Pattern pattern);
+
+        /**
+         * Only receives messages matching the given predicate
+         *
+         * <p>The predicate is called on the connection's thread and should not block</p>
+         *
+         * @param predicate the predicate
+         * @return the builder
+         */
+        @Contract(value = "_ -> this", mutates = "this")
+        Builder matching(Predicate<? super ReceivedMessage> predicate);
+
+        /**
+         * Builds the subscription filter
+         *
+         * @return a new subscription filter
+         * @throws IllegalArgumentException if the priority conditions exclude every priority
+         */
+        @Contract(value = "-> new", pure = true)
+        SubscriptionFilter build();
+
+    }
+
+}
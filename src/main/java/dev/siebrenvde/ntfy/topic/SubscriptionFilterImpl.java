@@ -0,0 +1,289 @@
+package dev.siebrenvde.ntfy.topic;
+
+import dev.siebrenvde.ntfy.message.Priority;
+import dev.siebrenvde.ntfy.response.ReceivedMessage;
+import org.jspecify.annotations.Nullable;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+import static dev.siebrenvde.ntfy.internal.Util.checkArgument;
+import static dev.siebrenvde.ntfy.internal.Util.checkNotNull;
+
+final class SubscriptionFilterImpl implements SubscriptionFilter {
+
+    // One bit per priority level, from 1 to 5
+    private static final int ALL_PRIORITIES = 0b111110;
+
+    private final @Nullable String query;
+    private final @Nullable Predicate<ReceivedMessage> local;
+    private final Predicate<ReceivedMessage> predicate;
+    private final int conditions;
+
+    private SubscriptionFilterImpl(
+        @Nullable final String query,
+        final List<Predicate<ReceivedMessage>> server,
+        final List<Predicate<ReceivedMessage>> local
+    ) {
+        this.query = query;
+        this.local = local.isEmpty() ? null : compile(local);
+        final List<Predicate<ReceivedMessage>> all = new ArrayList<>(server);
+        all.addAll(local);
+        this.predicate = compile(all);
+        this.conditions = all.size();
+    }
+
+    /**
+     * {@return the query parameters of the conditions sent to the server, or <code>null</code> if there are none}
+     */
+    @Nullable String query() {
+        return this.query;
+    }
+
+    /**
+     * {@return the conditions the server does not check, or <code>null</code> if there are none}
+     */
+    @Nullable Predicate<ReceivedMessage> local() {
+        return this.local;
+    }
+
+    @Override
+    public boolean test(final ReceivedMessage message) {
+        return this.predicate.test(message);
+    }
+
+    /**
+     * Combines conditions into one predicate, testing them in order until one fails
+     *
+     * @param conditions the conditions
+     * @return the predicate
+     */
+    private static Predicate<ReceivedMessage> compile(final List<Predicate<ReceivedMessage>> conditions) {
+        return switch (conditions.size()) {
+            case 0 -> message -> true;
+            case 1 -> conditions.get(0);
+            case 2 -> {
+                final Predicate<ReceivedMessage> first = conditions.get(0);
+                final Predicate<ReceivedMessage> second = conditions.get(1);
+                yield message -> first.test(message) && second.test(message);
+            }
+            default -> {
+                final List<Predicate<ReceivedMessage>> copy = List.copyOf(conditions);
+                final int size = copy.size();
+                yield message -> {
+                    for (int i = 0; i < size; i++) {
+                        if (!copy.get(i).test(message)) return false;
+                    }
+                    return true;
+                };
+            }
+        };
+    }
+
+    @Override
+    public String toString() {
+        return "SubscriptionFilterImpl{" +
+            "query='" + this.query + '\'' +
+            ", conditions=" + this.conditions +
+            '}';
+    }
+
+    static final class BuilderImpl implements SubscriptionFilter.Builder {
+
+        private int priorities = ALL_PRIORITIES;
+        private @Nullable Priority minPriority;
+        private @Nullable Priority maxPriority;
+        private Set<String> tags = Set.of();
+        private Set<String> anyTag = Set.of();
+        private Set<String> excludeTags = Set.of();
+        private @Nullable String title;
+        private @Nullable String message;
+        private @Nullable Pattern titlePattern;
+        private @Nullable Pattern bodyPattern;
+        private @Nullable Predicate<? super ReceivedMessage> predicate;
+
+        @Override
+        public Builder priorities(final Priority... priorities) {
+            checkNotNull(priorities, "priorities");
+            checkArgument(priorities.length > 0, "priorities cannot be empty");
+            int mask = 0;
+            for (final Priority priority : priorities) {
+                checkNotNull(priority, "priority");
+                mask |= 1 << priority.level();
+            }
+            this.priorities = mask;
+            return this;
+        }
+
+        @Override
+        public Builder minPriority(final Priority priority) {
+            checkNotNull(priority, "priority");
+            this.minPriority = priority;
+            return this;
+        }
+
+        @Override
+        public Builder maxPriority(final Priority priority) {
+            checkNotNull(priority, "priority");
+            this.maxPriority = priority;
+            return this;
+        }
+
+        @Override
+        public Builder tags(final String... tags) {
+            this.tags = tagSet(tags);
+            return this;
+        }
+
+        @Override
+        public Builder anyTag(final String... tags) {
+            this.anyTag = tagSet(tags);
+            return this;
+        }
+
+        @Override
+        public Builder excludeTags(final String... tags) {
+            this.excludeTags = tagSet(tags);
+            return this;
+        }
+
+        @Override
+        public Builder title(final String title) {
+            checkNotNull(title, "title");
+            this.title = title;
+            return this;
+        }
+
+        @Override
+        public Builder message(final String message) {
+            checkNotNull(message, "message");
+            this.message = message;
+            return this;
+        }
+
+        @Override
+        public Builder titleMatches(final Pattern pattern) {
+            checkNotNull(pattern, "pattern");
+            this.titlePattern = pattern;
+            return this;
+        }
+
+        @Override
+        public Builder bodyMatches(final Pattern pattern) {
+            checkNotNull(pattern, "pattern");
+            this.bodyPattern = pattern;
+            return this;
+        }
+
+        @Override
+        public Builder matching(final Predicate<? super ReceivedMessage> predicate) {
+            checkNotNull(predicate, "predicate");
+            this.predicate = predicate;
+            return this;
+        }
+
+        @Override
+        public SubscriptionFilter build() {
+            final StringJoiner query = new StringJoiner("&");
+            final List<Predicate<ReceivedMessage>> server = new ArrayList<>();
+            final List<Predicate<ReceivedMessage>> local = new ArrayList<>();
+
+            int priorities = this.priorities;
+            if (this.minPriority != null) priorities &= ALL_PRIORITIES & -(1 << this.minPriority.level());
+            if (this.maxPriority != null) priorities &= (2 << this.maxPriority.level()) - 1;
+            checkArgument(priorities != 0, "priority conditions exclude every priority");
+            if (priorities != ALL_PRIORITIES) {
+                final StringJoiner levels = new StringJoiner(",");
+                for (int level = Priority.MIN.level(); level <= Priority.MAX.level(); level++) {
+                    if ((priorities & 1 << level) != 0) levels.add(String.valueOf(level));
+                }
+                query.add("priority=" + levels);
+                final int mask = priorities;
+                server.add(message -> (mask & 1 << message.priority().level()) != 0);
+            }
+
+            if (!this.tags.isEmpty()) {
+                final Set<String> tags = this.tags;
+                query.add("tags=" + encode(String.join(",", tags)));
+                server.add(message -> message.tags().containsAll(tags));
+            }
+
+            if (this.title != null) {
+                final String title = this.title;
+                query.add("title=" + encode(title));
+                server.add(message -> title.equals(message.title()));
+            }
+
+            if (this.message != null) {
+                final String body = this.message;
+                query.add("message=" + encode(body));
+                server.add(message -> body.equals(message.body()));
+            }
+
+            // The server does not support these, cheaper conditions first
+            if (!this.anyTag.isEmpty()) {
+                final Set<String> tags = this.anyTag;
+                local.add(message -> containsAny(tags, message.tags()));
+            }
+
+            if (!this.excludeTags.isEmpty()) {
+                final Set<String> tags = this.excludeTags;
+                local.add(message -> !containsAny(tags, message.tags()));
+            }
+
+            if (this.titlePattern != null) {
+                final Pattern pattern = this.titlePattern;
+                local.add(message -> {
+                    final @Nullable String title = message.title();
+                    return title != null && pattern.matcher(title).find();
+                });
+            }
+
+            if (this.bodyPattern != null) {
+                final Pattern pattern = this.bodyPattern;
+                local.add(message -> {
+                    final @Nullable String body = message.body();
+                    return body != null && pattern.matcher(body).find();
+                });
+            }
+
+            if (this.predicate != null) {
+                local.add(this.predicate::test);
+            }
+
+            return new SubscriptionFilterImpl(query.length() > 0 ? query.toString() : null, server, local);
+        }
+
+        private static Set<String> tagSet(final String... tags) {
+            checkNotNull(tags, "tags");
+            final Set<String> set = new LinkedHashSet<>();
+            for (final String tag : tags) {
+                checkNotNull(tag, "tag");
+                checkArgument(!tag.isEmpty(), "tag cannot be empty");
+                checkArgument(tag.indexOf(',') < 0, "tag cannot contain commas");
+                set.add(tag);
+            }
+            return set;
+        }
+
+        private static boolean containsAny(final Set<String> tags, final List<String> messageTags) {
+            for (int i = 0; i < messageTags.size(); i++) {
+                if (tags.contains(messageTags.get(i))) return true;
+            }
+            return false;
+        }
+
+        private static String encode(final String value) {
+            return URLEncoder.encode(value, StandardCharsets.UTF_8);
+        }
+
+    }
+
+}
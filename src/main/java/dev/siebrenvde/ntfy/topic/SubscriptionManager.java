@@ -0,0 +1,267 @@
+package dev.siebrenvde.ntfy.topic;
+
+import dev.siebrenvde.ntfy.response.ReceivedMessage;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.Unmodifiable;
+import org.jspecify.annotations.Nullable;
+
+import java.time.Duration;
+import java.util.Set;
+
+/**
+ * Subscribes to many topics over as few connections as possible
+ *
+ * <p>ntfy accepts several comma-separated topics in one subscription, such as <code>/a,b,c/json</code>.
+ * Topics sharing a host, http client, {@link SubscriptionTransport} and credentials are packed into connections
+ * whose urls stay within {@link #maxUrlLength()}, and received messages are passed to the listener of their topic.</p>
+ *
+ * <p>A connection's topics cannot be changed while it is open, so adding or removing a topic reconnects the one connection it belongs to.
+ * Other connections are left alone. Changes are applied after {@link #rebalanceDelay()},
+ * so a burst of changes reconnects every affected connection only once.
+ * A reconnected connection resumes after the last message it received, so no messages are missed in between.</p>
+ *
+ * <p>A connection that fails or stops receiving data for {@link #keepaliveTimeout()} is reconnected after a backoff
+ * decided by {@link #reconnectPolicy()}, resuming after the last message of each topic.
+ * Topics whose connection is given up on are dropped and their listeners' {@link Listener#onError(Throwable)} is called.
+ * With a {@link CheckpointStore} the last message of each topic is also saved,
+ * so subscribing to a topic again, even after a restart, resumes where it left off.
+ * With a {@link MessageStore} every received message is also stored, and topics without a checkpoint resume after their last stored message.
+ * Resuming relies on the server's cache and may repeat messages published within the same second as the last received message.</p>
+ *
+ * <p>Listeners are called on the connection's thread, one message at a time.
+ * The next message of a connection is only read once its listener has returned,
+ * so a slow listener holds up the other topics of its connection.</p>
+ */
+public sealed interface SubscriptionManager extends AutoCloseable permits SubscriptionManagerImpl {
+
+    int DEFAULT_MAX_URL_LENGTH = 4096;
+    Duration DEFAULT_REBALANCE_DELAY = Duration.ofMillis(50);
+    RetryPolicy DEFAULT_RECONNECT_POLICY = RetryPolicy.retryPolicy()
+        .maxAttempts(Integer.MAX_VALUE)
+        .initialBackoff(Duration.ofSeconds(1))
+        .maxBackoff(Duration.ofMinutes(1))
+        .build();
+    // ntfy sends a keepalive event every 45 seconds by default
+    Duration DEFAULT_KEEPALIVE_TIMEOUT = Duration.ofSeconds(120);
+
+    /**
+     * Creates a new subscription manager builder
+     *
+     * @return a subscription manager builder
+     */
+    @Contract(value = "-> new", pure = true)
+    static Builder subscriptionManager() {
+        return new SubscriptionManagerImpl.BuilderImpl();
+    }
+
+    /**
+     * {@return the maximum length of a subscription url}
+     */
+    @Contract(pure = true)
+    int maxUrlLength();
+
+    /**
+     * {@return how long changes are collected before the affected connections are reconnected}
+     */
+    @Contract(pure = true)
+    Duration rebalanceDelay();
+
+    /**
+     * {@return the policy deciding whether and when a failed connection is reconnected}
+     */
+    @Contract(pure = true)
+    RetryPolicy reconnectPolicy();
+
+    /**
+     * {@return how long a connection may go without receiving data before it is considered dead}
+     */
+    @Contract(pure = true)
+    Duration keepaliveTimeout();
+
+    /**
+     * {@return the store the last message of each topic is saved to, or <code>null</code> if there is none}
+     */
+    @Contract(pure = true)
+    @Nullable CheckpointStore checkpointStore();
+
+    /**
+     * {@return the store received messages are appended to, or <code>null</code> if there is none}
+     */
+    @Contract(pure = true)
+    @Nullable MessageStore messageStore();
+
+    /**
+     * {@return the history received messages are added to, or <code>null</code> if there is none}
+     */
+    @Contract(pure = true)
+    @Nullable MessageHistory messageHistory();
+
+    /**
+     * Subscribes to a topic
+     *
+     * <p>Subscribing to a topic that is already subscribed to replaces its listener without reconnecting.
+     * A topic with the same name as a subscribed topic that could share its connection counts as the same topic.</p>
+     *
+     * @param topic the topic
+     * @param listener the listener to pass the topic's messages to
+     * @throws IllegalStateException if the manager is closed
+     */
+    void subscribe(Topic topic, Listener listener);
+
+    /**
+     * Unsubscribes from a topic
+     *
+     * @param topic the topic
+     * @return whether the topic was subscribed to
+     */
+    boolean unsubscribe(Topic topic);
+
+    /**
+     * {@return the last message received from a topic, or <code>null</code> if it is not subscribed to or nothing was received yet}
+     *
+     * @param topic the topic
+     */
+    @Nullable Checkpoint checkpoint(Topic topic);
+
+    /**
+     * {@return the topics currently subscribed to}
+     */
+    @Unmodifiable Set<Topic> topics();
+
+    /**
+     * {@return the number of connections the topics are packed into}
+     */
+    int connections();
+
+    /**
+     * Closes all connections and unsubscribes from all topics
+     *
+     * <p>The checkpoints of all topics are saved to the {@link #checkpointStore()}, which is not closed, nor is the {@link #messageStore()}</p>
+     */
+    @Override
+    void close();
+
+    /**
+     * Receives the messages of a topic
+     */
+    @FunctionalInterface
+    interface Listener {
+
+        /**
+         * Called for every message published to the topic
+         *
+         * @param message the message
+         */
+        void onMessage(ReceivedMessage message);
+
+        /**
+         * Called when the topic's connection failed and will not be reconnected, after which the topic is no longer subscribed to
+         *
+         * @param error the error
+         */
+        default void onError(final Throwable error) {
+
+        }
+
+    }
+
+    /**
+     * Builder for {@link SubscriptionManager}
+     */
+    sealed interface Builder permits SubscriptionManagerImpl.BuilderImpl {
+
+        /**
+         * Sets the maximum length of a subscription url
+         *
+         * <p>Must be positive and non-zero.
+         * Proxies commonly reject request lines longer than 4 or 8 KiB.
+         * A topic whose name alone does not fit gets a connection of its own.</p>
+         *
+         * @param maxUrlLength the maximum length
+         * @return the builder
+         * @see SubscriptionManager#DEFAULT_MAX_URL_LENGTH
+         */
+        @Contract(value = "_ -> this", mutates = "this")
+        Builder maxUrlLength(int maxUrlLength);
+
+        /**
+         * Sets how long changes are collected before the affected connections are reconnected
+         *
+         * <p>Must not be negative</p>
+         *
+         * @param rebalanceDelay the delay
+         * @return the builder
+         * @see SubscriptionManager#DEFAULT_REBALANCE_DELAY
+         */
+        @Contract(value = "_ -> this", mutates = "this")
+        Builder rebalanceDelay(Duration rebalanceDelay);
+
+        /**
+         * Sets the policy deciding whether and when a failed connection is reconnected
+         *
+         * <p>Attempts are counted from the last message received, or from the last connection that stayed open
+         * for longer than the policy's {@link RetryPolicy#maxBackoff()}.</p>
+         *
+         * @param reconnectPolicy the reconnect policy
+         * @return the builder
+         * @see SubscriptionManager#DEFAULT_RECONNECT_POLICY
+         */
+        @Contract(value = "_ -> this", mutates = "this")
+        Builder reconnectPolicy(RetryPolicy reconnectPolicy);
+
+        /**
+         * Sets how long a connection may go without receiving data before it is considered dead
+         *
+         * <p>Must be positive and non-zero, and should be well above the server's keepalive interval</p>
+         *
+         * @param keepaliveTimeout the timeout
+         * @return the builder
+         * @see SubscriptionManager#DEFAULT_KEEPALIVE_TIMEOUT
+         */
+        @Contract(value = "_ -> this", mutates = "this")
+        Builder keepaliveTimeout(Duration keepaliveTimeout);
+
+        /**
+         * Sets the store the last message of each topic is saved to and resumed from
+         *
+         * @param checkpointStore the checkpoint store
+         * @return the builder
+         * @see CheckpointStore#file(java.nio.file.Path)
+         */
+        @Contract(value = "_ -> this", mutates = "this")
+        Builder checkpointStore(CheckpointStore checkpointStore);
+
+        /**
+         * Sets the store every received message is appended to before it is passed to its listener
+         *
+         * <p>A message that cannot be stored is still passed to its listener,
+         * the error is passed to the thread's {@link Thread.UncaughtExceptionHandler}</p>
+         *
+         * @param messageStore the message store
+         * @return the builder
+         * @see MessageStore#messageStore(java.nio.file.Path)
+         */
+        @Contract(value = "_ -> this", mutates = "this")
+        Builder messageStore(MessageStore messageStore);
+
+        /**
+         * Sets the history every received message is added to before it is passed to its listener
+         *
+         * @param messageHistory the message history
+         * @return the builder
+         * @see MessageHistory#messageHistory()
+         */
+        @Contract(value = "_ -> this", mutates = "this")
+        Builder messageHistory(MessageHistory messageHistory);
+
+        /**
+         * Builds the subscription manager
+         *
+         * @return a new subscription manager
+         */
+        @Contract(value = "-> new", pure = true)
+        SubscriptionManager build();
+
+    }
+
+}
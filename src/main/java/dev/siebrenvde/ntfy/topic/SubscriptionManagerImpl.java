@@ -0,0 +1,673 @@
+package dev.siebrenvde.ntfy.topic;
+
+import dev.siebrenvde.ntfy.response.ReceivedMessage;
+import dev.siebrenvde.ntfy.topic.TopicImpl.SubscriptionKey;
+import org.jetbrains.annotations.VisibleForTesting;
+import org.jspecify.annotations.Nullable;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static dev.siebrenvde.ntfy.internal.Util.checkArgument;
+import static dev.siebrenvde.ntfy.internal.Util.checkNotNull;
+
+final class SubscriptionManagerImpl implements SubscriptionManager {
+
+    // Room left in the url for the since parameter
+    private static final int SINCE_LENGTH = 32;
+
+    private final int maxUrlLength;
+    private final Duration rebalanceDelay;
+    private final RetryPolicyImpl reconnectPolicy;
+    private final Duration keepaliveTimeout;
+    private final @Nullable CheckpointStore checkpointStore;
+    private final @Nullable MessageStore messageStore;
+    private final @Nullable MessageHistory messageHistory;
+    private final Executor rebalanceExecutor;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<SubscriptionKey, Group> groups = new HashMap<>();
+    private final Set<Connection> dirty = new LinkedHashSet<>();
+    private boolean rebalanceScheduled;
+    private boolean closed;
+
+    SubscriptionManagerImpl(
+        final int maxUrlLength,
+        final Duration rebalanceDelay,
+        final RetryPolicy reconnectPolicy,
+        final Duration keepaliveTimeout,
+        @Nullable final CheckpointStore checkpointStore,
+        @Nullable final MessageStore messageStore,
+        @Nullable final MessageHistory messageHistory
+    ) {
+        this(maxUrlLength, rebalanceDelay, reconnectPolicy, keepaliveTimeout, checkpointStore, messageStore, messageHistory, CompletableFuture.delayedExecutor(rebalanceDelay.toNanos(), TimeUnit.NANOSECONDS));
+    }
+
+    @VisibleForTesting
+    SubscriptionManagerImpl(
+        final int maxUrlLength,
+        final Duration rebalanceDelay,
+        final RetryPolicy reconnectPolicy,
+        final Duration keepaliveTimeout,
+        @Nullable final CheckpointStore checkpointStore,
+        @Nullable final MessageStore messageStore,
+        @Nullable final MessageHistory messageHistory,
+        final Executor rebalanceExecutor
+    ) {
+        this.maxUrlLength = maxUrlLength;
+        this.rebalanceDelay = rebalanceDelay;
+        this.reconnectPolicy = (RetryPolicyImpl) reconnectPolicy;
+        this.keepaliveTimeout = keepaliveTimeout;
+        this.checkpointStore = checkpointStore;
+        this.messageStore = messageStore;
+        this.messageHistory = messageHistory;
+        this.rebalanceExecutor = rebalanceExecutor;
+    }
+
+    @Override
+    public int maxUrlLength() {
+        return this.maxUrlLength;
+    }
+
+    @Override
+    public Duration rebalanceDelay() {
+        return this.rebalanceDelay;
+    }
+
+    @Override
+    public RetryPolicy reconnectPolicy() {
+        return this.reconnectPolicy;
+    }
+
+    @Override
+    public Duration keepaliveTimeout() {
+        return this.keepaliveTimeout;
+    }
+
+    @Override
+    public @Nullable CheckpointStore checkpointStore() {
+        return this.checkpointStore;
+    }
+
+    @Override
+    public @Nullable MessageStore messageStore() {
+        return this.messageStore;
+    }
+
+    @Override
+    public @Nullable MessageHistory messageHistory() {
+        return this.messageHistory;
+    }
+
+    @Override
+    public void subscribe(final Topic topic, final Listener listener) {
+        checkNotNull(topic, "topic");
+        checkNotNull(listener, "listener");
+        final TopicImpl impl = (TopicImpl) topic;
+        final String name = topic.name();
+        final String url = impl.uri().toString();
+        @Nullable Checkpoint checkpoint = this.checkpointStore != null ? this.checkpointStore.load(url) : null;
+        if (checkpoint == null && this.messageStore != null) checkpoint = this.messageStore.checkpoint(url);
+        this.lock.lock();
+        try {
+            if (this.closed) throw new IllegalStateException("Subscription manager is closed");
+            final Group group = this.groups.computeIfAbsent(impl.subscriptionKey(), key -> new Group(impl));
+            final @Nullable Connection existing = group.byName.get(name);
+            if (existing != null) {
+                final @Nullable Entry entry = existing.entries.get(name);
+                if (entry != null) entry.listener = listener;
+                return;
+            }
+            final Position position = checkpoint != null
+                ? new Position(checkpoint.id(), checkpoint.time().getEpochSecond())
+                : new Position(null, Instant.now().getEpochSecond());
+            final Connection connection = group.place(name, this.maxUrlLength);
+            connection.entries.put(name, new Entry(topic, url, listener, position));
+            connection.namesLength += name.length() + 1;
+            group.byName.put(name, connection);
+            this.markDirty(connection);
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean unsubscribe(final Topic topic) {
+        checkNotNull(topic, "topic");
+        final String name = topic.name();
+        this.lock.lock();
+        try {
+            final @Nullable Group group = this.groups.get(((TopicImpl) topic).subscriptionKey());
+            if (group == null) return false;
+            final @Nullable Connection connection = group.byName.remove(name);
+            if (connection == null) return false;
+            connection.entries.remove(name);
+            connection.namesLength -= name.length() + 1;
+            this.markDirty(connection);
+            return true;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    @Override
+    public @Nullable Checkpoint checkpoint(final Topic topic) {
+        checkNotNull(topic, "topic");
+        final String name = topic.name();
+        final Position position;
+        this.lock.lock();
+        try {
+            final @Nullable Group group = this.groups.get(((TopicImpl) topic).subscriptionKey());
+            final @Nullable Connection connection = group != null ? group.byName.get(name) : null;
+            final @Nullable Entry entry = connection != null ? connection.entries.get(name) : null;
+            if (entry == null) return null;
+            position = entry.position;
+        } finally {
+            this.lock.unlock();
+        }
+        return position.checkpoint();
+    }
+
+    @Override
+    public Set<Topic> topics() {
+        final List<Topic> topics = new ArrayList<>();
+        this.lock.lock();
+        try {
+            for (final Group group : this.groups.values()) {
+                for (final Connection connection : group.connections) {
+                    for (final Entry entry : connection.entries.values()) topics.add(entry.topic);
+                }
+            }
+        } finally {
+            this.lock.unlock();
+        }
+        return Set.copyOf(topics);
+    }
+
+    @Override
+    public int connections() {
+        this.lock.lock();
+        try {
+            int connections = 0;
+            for (final Group group : this.groups.values()) {
+                for (final Connection connection : group.connections) {
+                    if (!connection.entries.isEmpty()) connections++;
+                }
+            }
+            return connections;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        final List<Stream> streams = new ArrayList<>();
+        final Map<String, Checkpoint> checkpoints = new LinkedHashMap<>();
+        this.lock.lock();
+        try {
+            if (this.closed) return;
+            this.closed = true;
+            for (final Group group : this.groups.values()) {
+                for (final Connection connection : group.connections) {
+                    final @Nullable Stream stream = connection.close();
+                    if (stream != null) streams.add(stream);
+                    for (final Entry entry : connection.entries.values()) {
+                        final @Nullable Checkpoint checkpoint = entry.position.checkpoint();
+                        if (checkpoint != null) checkpoints.put(entry.url, checkpoint);
+                    }
+                }
+            }
+            this.groups.clear();
+            this.dirty.clear();
+        } finally {
+            this.lock.unlock();
+        }
+        for (final Stream stream : streams) stream.cancel();
+        // Quiet topics have been caught up to their connection's last message, so later subscriptions resume from there
+        if (this.checkpointStore != null) checkpoints.forEach(this.checkpointStore::save);
+    }
+
+    /**
+     * Schedules a connection to be reconnected with its new topics, or closed if it has none left
+     *
+     * <p>Must be called while holding the lock</p>
+     *
+     * @param connection the connection
+     */
+    private void markDirty(final Connection connection) {
+        this.dirty.add(connection);
+        if (!this.rebalanceScheduled) {
+            this.rebalanceScheduled = true;
+            this.rebalanceExecutor.execute(this::rebalance);
+        }
+    }
+
+    /**
+     * Reconnects every connection whose topics changed since the last rebalance
+     */
+    private void rebalance() {
+        final List<Stream> cancelled = new ArrayList<>();
+        final List<Runnable> started = new ArrayList<>();
+        this.lock.lock();
+        try {
+            this.rebalanceScheduled = false;
+            for (final Connection connection : this.dirty) {
+                if (connection.entries.isEmpty()) {
+                    connection.group.connections.remove(connection);
+                    if (connection.group.connections.isEmpty()) this.groups.remove(connection.group.topic.subscriptionKey());
+                    final @Nullable Stream previous = connection.close();
+                    if (previous != null) cancelled.add(previous);
+                    continue;
+                }
+                final List<String> names = List.copyOf(connection.entries.keySet());
+                final Stream stream = new Stream(connection);
+                final @Nullable Stream previous = connection.stream;
+                final String since = connection.open(stream).since();
+                if (previous != null) cancelled.add(previous);
+                started.add(() -> connection.group.topic.subscribe(names, since, this.keepaliveTimeout).subscribe(stream));
+            }
+            this.dirty.clear();
+        } finally {
+            this.lock.unlock();
+        }
+        for (final Stream stream : cancelled) stream.cancel();
+        for (final Runnable start : started) start.run();
+    }
+
+    /**
+     * Schedules a failed connection to be reconnected,
+     * or drops it and passes the error to the listeners of its topics once the reconnect policy gives up
+     *
+     * @param stream the stream that failed
+     * @param error the error
+     */
+    private void fail(final Stream stream, final Throwable error) {
+        final Connection connection = stream.connection;
+        final long delay;
+        final List<Entry> entries;
+        this.lock.lock();
+        try {
+            final int attempt = connection.failed(stream, this.reconnectPolicy.maxBackoff());
+            if (attempt == 0 || this.closed) return;
+            delay = this.reconnectDelay(attempt, error);
+            if (delay != RetryPolicyImpl.NO_RETRY) {
+                entries = List.of();
+            } else {
+                entries = List.copyOf(connection.entries.values());
+                for (final Entry entry : entries) connection.group.byName.remove(entry.topic.name());
+                connection.entries.clear();
+                connection.namesLength = 0;
+                connection.group.connections.remove(connection);
+                if (connection.group.connections.isEmpty()) this.groups.remove(connection.group.topic.subscriptionKey());
+                this.dirty.remove(connection);
+            }
+        } finally {
+            this.lock.unlock();
+        }
+        if (delay == RetryPolicyImpl.NO_RETRY) {
+            for (final Entry entry : entries) entry.listener.onError(error);
+            return;
+        }
+        CompletableFuture.delayedExecutor(delay, TimeUnit.NANOSECONDS).execute(() -> this.reconnect(connection));
+    }
+
+    private long reconnectDelay(final int attempt, final Throwable error) {
+        if (error instanceof final SubscriptionException e) {
+            return this.reconnectPolicy.delayNanos(attempt, e.error(), null);
+        }
+        return this.reconnectPolicy.delayNanos(attempt, error);
+    }
+
+    private void reconnect(final Connection connection) {
+        this.lock.lock();
+        try {
+            // A rebalance may have reconnected or dropped the connection in the meantime
+            if (this.closed || connection.isOpen() || !connection.group.connections.contains(connection)) return;
+            this.dirty.add(connection);
+        } finally {
+            this.lock.unlock();
+        }
+        this.rebalance();
+    }
+
+    @Override
+    public String toString() {
+        return "SubscriptionManagerImpl{" +
+            "maxUrlLength=" + this.maxUrlLength +
+            ", rebalanceDelay=" + this.rebalanceDelay +
+            ", reconnectPolicy=" + this.reconnectPolicy +
+            ", keepaliveTimeout=" + this.keepaliveTimeout +
+            ", checkpointStore=" + this.checkpointStore +
+            ", messageStore=" + this.messageStore +
+            ", messageHistory=" + this.messageHistory +
+            '}';
+    }
+
+    /**
+     * The connections of topics that can share a connection
+     */
+    private static final class Group {
+
+        // The topic whose client, transport and credentials are used for every connection of the group
+        private final TopicImpl topic;
+        private final int baseLength;
+        private final List<Connection> connections = new ArrayList<>();
+        private final Map<String, Connection> byName = new HashMap<>();
+
+        Group(final TopicImpl topic) {
+            this.topic = topic;
+            final SubscriptionKey key = topic.subscriptionKey();
+            this.baseLength = key.root().toString().length() + 1 + key.transport().path().length() + SINCE_LENGTH;
+        }
+
+        /**
+         * Finds the first connection with room for a topic, or adds a connection if none has room
+         *
+         * @param name the name of the topic
+         * @param maxUrlLength the maximum length of a subscription url
+         * @return the connection
+         */
+        Connection place(final String name, final int maxUrlLength) {
+            for (final Connection connection : this.connections) {
+                if (this.baseLength + connection.namesLength + name.length() <= maxUrlLength) return connection;
+            }
+            final Connection connection = new Connection(this);
+            this.connections.add(connection);
+            return connection;
+        }
+
+    }
+
+    /**
+     * A set of topics subscribed to over one connection, which gets a new stream whenever the set changes or the stream fails
+     */
+    private static final class Connection {
+
+        private final Group group;
+        // Written while holding the manager's lock, read by the connection's stream
+        private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+        private int namesLength;
+
+        // Guarded by this connection, so a replaced stream can no longer pass on messages once its replacement resumes
+        private @Nullable Stream stream;
+        private @Nullable Position resumed;
+        private @Nullable Position received;
+        private int attempts;
+        private long openedAt;
+
+        Connection(final Group group) {
+            this.group = group;
+        }
+
+        synchronized boolean isOpen() {
+            return this.stream != null;
+        }
+
+        /**
+         * Replaces the stream of this connection, resuming after the earliest position one of its topics has reached
+         *
+         * <p>Topics that were part of the previous stream have reached at least the last message it received.
+         * Must be called while holding the manager's lock.</p>
+         *
+         * @param stream the new stream
+         * @return the position the stream resumes after
+         */
+        synchronized Position open(final Stream stream) {
+            final @Nullable Position reached = this.received != null ? this.received : this.resumed;
+            @Nullable Position since = null;
+            for (final Entry entry : this.entries.values()) {
+                if (entry.streamed && reached != null) entry.advance(reached);
+                entry.streamed = true;
+                final Position position = entry.position;
+                if (since == null || position.time < since.time || (position.time == since.time && position.id == null)) since = position;
+            }
+            if (since == null) throw new IllegalStateException("Connection has no topics");
+            this.stream = stream;
+            this.resumed = since;
+            this.received = null;
+            this.openedAt = System.nanoTime();
+            return since;
+        }
+
+        /**
+         * Closes this connection, catching its topics up to the last message it received
+         *
+         * <p>Must be called while holding the manager's lock</p>
+         *
+         * @return the stream to cancel
+         */
+        synchronized @Nullable Stream close() {
+            final @Nullable Stream stream = this.stream;
+            this.stream = null;
+            final @Nullable Position reached = this.received != null ? this.received : this.resumed;
+            if (reached != null) {
+                for (final Entry entry : this.entries.values()) {
+                    if (entry.streamed) entry.advance(reached);
+                }
+            }
+            return stream;
+        }
+
+        /**
+         * Marks the current stream as failed
+         *
+         * @param stream the stream that failed
+         * @param maxBackoff the maximum backoff, a stream that lasted longer than this starts counting attempts over
+         * @return the number of consecutive failed attempts, or <code>0</code> if the stream is not the current stream
+         */
+        synchronized int failed(final Stream stream, final Duration maxBackoff) {
+            if (this.stream != stream) return 0;
+            this.stream = null;
+            if (System.nanoTime() - this.openedAt > maxBackoff.toNanos()) this.attempts = 0;
+            return ++this.attempts;
+        }
+
+        synchronized boolean received(final Stream stream, final ReceivedMessage message) {
+            if (this.stream != stream) return false;
+            this.received = new Position(message.id(), message.time().getEpochSecond());
+            this.attempts = 0;
+            return true;
+        }
+
+    }
+
+    /**
+     * A point in the message stream, the id of a message or a time if no message has been received yet
+     */
+    private record Position(@Nullable String id, long time) {
+
+        String since() {
+            return this.id != null ? this.id : String.valueOf(this.time);
+        }
+
+        @Nullable Checkpoint checkpoint() {
+            return this.id != null ? new CheckpointImpl(this.id, Instant.ofEpochSecond(this.time)) : null;
+        }
+
+    }
+
+    private static final class Entry {
+
+        private final Topic topic;
+        private final String url;
+        private volatile Listener listener;
+        // Messages up to this position are not passed on again when a stream resumes from an earlier position
+        private volatile Position position;
+        // Whether the entry was part of its connection's previous stream, guarded by the manager's lock
+        private boolean streamed;
+
+        Entry(final Topic topic, final String url, final Listener listener, final Position position) {
+            this.topic = topic;
+            this.url = url;
+            this.listener = listener;
+            this.position = position;
+        }
+
+        synchronized boolean accept(final ReceivedMessage message) {
+            final long time = message.time().getEpochSecond();
+            if (time < this.position.time || message.id().equals(this.position.id)) return false;
+            this.position = new Position(message.id(), time);
+            return true;
+        }
+
+        synchronized void advance(final Position position) {
+            if (position.time > this.position.time) this.position = position;
+        }
+
+    }
+
+    /**
+     * One stream of a connection, requesting one message at a time and passing it to the listener of its topic
+     */
+    private final class Stream implements Flow.Subscriber<ReceivedMessage> {
+
+        private final Connection connection;
+        private volatile Flow.@Nullable Subscription subscription;
+        private volatile boolean cancelled;
+
+        Stream(final Connection connection) {
+            this.connection = connection;
+        }
+
+        void cancel() {
+            this.cancelled = true;
+            final Flow.@Nullable Subscription subscription = this.subscription;
+            if (subscription != null) subscription.cancel();
+        }
+
+        @Override
+        public void onSubscribe(final Flow.Subscription subscription) {
+            this.subscription = subscription;
+            if (this.cancelled) {
+                subscription.cancel();
+                return;
+            }
+            subscription.request(1);
+        }
+
+        @Override
+        public void onNext(final ReceivedMessage message) {
+            if (!this.connection.received(this, message)) return;
+            final @Nullable Entry entry = this.connection.entries.get(message.topic());
+            if (entry != null && entry.accept(message)) {
+                final @Nullable MessageStore messageStore = SubscriptionManagerImpl.this.messageStore;
+                if (messageStore != null) {
+                    try {
+                        messageStore.append(entry.url, message);
+                    } catch (final IOException | RuntimeException e) {
+                        final Thread thread = Thread.currentThread();
+                        thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+                    }
+                }
+                final @Nullable MessageHistory messageHistory = SubscriptionManagerImpl.this.messageHistory;
+                if (messageHistory != null) messageHistory.add(entry.url, message);
+                try {
+                    final @Nullable CheckpointStore store = SubscriptionManagerImpl.this.checkpointStore;
+                    if (store != null) store.save(entry.url, new CheckpointImpl(message.id(), message.time()));
+                    entry.listener.onMessage(message);
+                } catch (final RuntimeException e) {
+                    final Thread thread = Thread.currentThread();
+                    thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+                }
+            }
+            final Flow.@Nullable Subscription subscription = this.subscription;
+            if (subscription != null) subscription.request(1);
+        }
+
+        @Override
+        public void onError(final Throwable throwable) {
+            SubscriptionManagerImpl.this.fail(this, throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            SubscriptionManagerImpl.this.fail(this, new IOException("Subscription closed by the server"));
+        }
+
+    }
+
+    static final class BuilderImpl implements SubscriptionManager.Builder {
+
+        private int maxUrlLength = DEFAULT_MAX_URL_LENGTH;
+        private Duration rebalanceDelay = DEFAULT_REBALANCE_DELAY;
+        private RetryPolicy reconnectPolicy = DEFAULT_RECONNECT_POLICY;
+        private Duration keepaliveTimeout = DEFAULT_KEEPALIVE_TIMEOUT;
+        private @Nullable CheckpointStore checkpointStore;
+        private @Nullable MessageStore messageStore;
+        private @Nullable MessageHistory messageHistory;
+
+        @Override
+        public Builder maxUrlLength(final int maxUrlLength) {
+            checkArgument(maxUrlLength > 0, "maxUrlLength must be positive");
+            this.maxUrlLength = maxUrlLength;
+            return this;
+        }
+
+        @Override
+        public Builder rebalanceDelay(final Duration rebalanceDelay) {
+            checkNotNull(rebalanceDelay, "rebalanceDelay");
+            checkArgument(!rebalanceDelay.isNegative(), "rebalanceDelay must not be negative");
+            this.rebalanceDelay = rebalanceDelay;
+            return this;
+        }
+
+        @Override
+        public Builder reconnectPolicy(final RetryPolicy reconnectPolicy) {
+            checkNotNull(reconnectPolicy, "reconnectPolicy");
+            this.reconnectPolicy = reconnectPolicy;
+            return this;
+        }
+
+        @Override
+        public Builder keepaliveTimeout(final Duration keepaliveTimeout) {
+            checkNotNull(keepaliveTimeout, "keepaliveTimeout");
+            checkArgument(!keepaliveTimeout.isNegative(), "keepaliveTimeout must be positive");
+            checkArgument(!keepaliveTimeout.isZero(), "keepaliveTimeout must not be zero");
+            this.keepaliveTimeout = keepaliveTimeout;
+            return this;
+        }
+
+        @Override
+        public Builder checkpointStore(final CheckpointStore checkpointStore) {
+            checkNotNull(checkpointStore, "checkpointStore");
+            this.checkpointStore = checkpointStore;
+            return this;
+        }
+
+        @Override
+        public Builder messageStore(final MessageStore messageStore) {
+            checkNotNull(messageStore, "messageStore");
+            this.messageStore = messageStore;
+            return this;
+        }
+
+        @Override
+        public Builder messageHistory(final MessageHistory messageHistory) {
+            checkNotNull(messageHistory, "messageHistory");
+            this.messageHistory = messageHistory;
+            return this;
+        }
+
+        @Override
+        public SubscriptionManager build() {
+            return new SubscriptionManagerImpl(this.maxUrlLength, this.rebalanceDelay, this.reconnectPolicy, this.keepaliveTimeout, this.checkpointStore, this.messageStore, this.messageHistory);
+        }
+
+    }
+
+}
@@ -0,0 +1,36 @@
+package dev.siebrenvde.ntfy.topic;
+
+/**
+ * An enum representing the ways messages can be streamed from a topic
+ *
+ * <p>All transports deliver the same messages, so switching between them requires no other changes.</p>
+ *
+ * @see Topic.Builder#transport(SubscriptionTransport)
+ * @see <a href="https://docs.ntfy.sh/subscribe/api/">Subscribe via API</a>
+ */
+public enum SubscriptionTransport {
+    /**
+     * Newline-delimited JSON from the <code>/json</code> endpoint
+     */
+    JSON("json"),
+    /**
+     * Server-sent events from the <code>/sse</code> endpoint,
+     * for proxies that only pass <code>text/event-stream</code> responses through unbuffered
+     */
+    SSE("sse"),
+    /**
+     * JSON text messages from the <code>/ws</code> web socket endpoint,
+     * which has less framing overhead than a long-lived http response
+     */
+    WEBSOCKET("ws");
+
+    private final String path;
+
+    SubscriptionTransport(final String path) {
+        this.path = path;
+    }
+
+    String path() {
+        return this.path;
+    }
+}
@@ -1,8 +1,10 @@
 package dev.siebrenvde.ntfy.topic;
 
 import dev.siebrenvde.ntfy.message.Message;
+import dev.siebrenvde.ntfy.message.PreparedMessage;
 import dev.siebrenvde.ntfy.response.ErrorResponse;
 import dev.siebrenvde.ntfy.response.PublishResponse;
+import dev.siebrenvde.ntfy.response.ReceivedMessage;
 import dev.siebrenvde.ntfy.util.Result;
 import org.jetbrains.annotations.Contract;
 import org.jspecify.annotations.Nullable;
@@ -15,6 +17,7 @@ import java.time.Duration;
 import java.time.Instant;
 import java.time.temporal.TemporalUnit;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
 
 /**
  * Represents a topic to publish messages to
@@ -55,6 +58,15 @@ public sealed interface Topic permits TopicImpl {
      */
     Result<PublishResponse, ErrorResponse> publish(Message message) throws IOException, InterruptedException;
 
+    /**
+     * Publishes a prepared message to the topic
+     *
+     * @param message the prepared message
+     * @return a {@link Result} with either a {@link PublishResponse} or an {@link ErrorResponse}
+     * @see Message#prepare()
+     */
+    Result<PublishResponse, ErrorResponse> publish(PreparedMessage message) throws IOException, InterruptedException;
+
     /**
      * Publishes a message to the topic
      *
@@ -88,6 +100,17 @@ public sealed interface Topic permits TopicImpl {
      */
     Result<PublishResponse, ErrorResponse> scheduleAt(Message message, Instant time) throws IOException, InterruptedException;
 
+    /**
+     * Schedules a prepared message to be published to the topic at a specified time
+     *
+     * @param message the prepared message
+     * @param time the time
+     * @return a {@link Result} with either a {@link PublishResponse} or an {@link ErrorResponse}
+     * @see Message#prepare()
+     * @see <a href="https://docs.ntfy.sh/publish/#scheduled-delivery">Scheduled delivery</a>
+     */
+    Result<PublishResponse, ErrorResponse> scheduleAt(PreparedMessage message, Instant time) throws IOException, InterruptedException;
+
     /**
      * Schedules a message to be published to the topic at a specified time
      *
@@ -126,6 +149,18 @@ public sealed interface Topic permits TopicImpl {
      */
     Result<PublishResponse, ErrorResponse> scheduleIn(Message message, long delay, TemporalUnit unit) throws IOException, InterruptedException;
 
+    /**
+     * Schedules a prepared message to be published to the topic after a specified delay
+     *
+     * @param message the prepared message
+     * @param delay the delay
+     * @param unit the temporal unit the delay is in
+     * @return a {@link Result} with either a {@link PublishResponse} or an {@link ErrorResponse}
+     * @see Message#prepare()
+     * @see <a href="https://docs.ntfy.sh/publish/#scheduled-delivery">Scheduled delivery</a>
+     */
+    Result<PublishResponse, ErrorResponse> scheduleIn(PreparedMessage message, long delay, TemporalUnit unit) throws IOException, InterruptedException;
+
     /**
      * Schedules a message to be published to the topic after a specified delay
      *
@@ -162,6 +197,15 @@ public sealed interface Topic permits TopicImpl {
      */
     CompletableFuture<Result<PublishResponse, ErrorResponse>> publishAsync(Message message);
 
+    /**
+     * Asynchronously publishes a prepared message to the topic
+     *
+     * @param message the prepared message
+     * @return a {@link Result} with either a {@link PublishResponse} or an {@link ErrorResponse}
+     * @see Message#prepare()
+     */
+    CompletableFuture<Result<PublishResponse, ErrorResponse>> publishAsync(PreparedMessage message);
+
     /**
      * Asynchronously publishes a message to the topic
      *
@@ -192,6 +236,17 @@ public sealed interface Topic permits TopicImpl {
      */
     CompletableFuture<Result<PublishResponse, ErrorResponse>> scheduleAtAsync(Message message, Instant time);
 
+    /**
+     * Asynchronously schedules a prepared message to be published to the topic at a specified time
+     *
+     * @param message the prepared message
+     * @param time the time
+     * @return a {@link Result} with either a {@link PublishResponse} or an {@link ErrorResponse}
+     * @see Message#prepare()
+     * @see <a href="https://docs.ntfy.sh/publish/#scheduled-delivery">Scheduled delivery</a>
+     */
+    CompletableFuture<Result<PublishResponse, ErrorResponse>> scheduleAtAsync(PreparedMessage message, Instant time);
+
     /**
      * Asynchronously schedules a message to be published to the topic at a specified time
      *
@@ -227,6 +282,18 @@ public sealed interface Topic permits TopicImpl {
      */
     CompletableFuture<Result<PublishResponse, ErrorResponse>> scheduleInAsync(Message message, long delay, TemporalUnit unit);
 
+    /**
+     * Asynchronously schedules a prepared message to be published to the topic after a specified delay
+     *
+     * @param message the prepared message
+     * @param delay the delay
+     * @param unit the temporal unit the delay is in
+     * @return a {@link Result} with either a {@link PublishResponse} or an {@link ErrorResponse}
+     * @see Message#prepare()
+     * @see <a href="https://docs.ntfy.sh/publish/#scheduled-delivery">Scheduled delivery</a>
+     */
+    CompletableFuture<Result<PublishResponse, ErrorResponse>> scheduleInAsync(PreparedMessage message, long delay, TemporalUnit unit);
+
     /**
      * Asynchronously schedules a message to be published to the topic after a specified delay
      *
@@ -253,6 +320,149 @@ public sealed interface Topic permits TopicImpl {
         return this.scheduleInAsync(Message.message(message), delay, unit);
     }
 
+    /**
+     * Publishes a message to the topic without reading the response
+     *
+     * <p>Unlike {@link #publish(Message)}, the body of a successful response is discarded
+     * instead of being parsed into a {@link PublishResponse}, for when many messages are published
+     * and their responses are not needed.</p>
+     *
+     * @param message the message
+     * @return <code>null</code> if the message was published, otherwise an {@link ErrorResponse}
+     * @throws FileNotFoundException if the file for a file attachment was not found
+     */
+    @Nullable ErrorResponse send(Message message) throws IOException, InterruptedException;
+
+    /**
+     * Publishes a prepared message to the topic without reading the response
+     *
+     * @param message the prepared message
+     * @return <code>null</code> if the message was published, otherwise an {@link ErrorResponse}
+     * @see #send(Message)
+     * @see Message#prepare()
+     */
+    @Nullable ErrorResponse send(PreparedMessage message) throws IOException, InterruptedException;
+
+    /**
+     * Publishes a message to the topic without reading the response
+     *
+     * @param builder the message builder
+     * @return <code>null</code> if the message was published, otherwise an {@link ErrorResponse}
+     * @see #send(Message)
+     */
+    default @Nullable ErrorResponse send(final Message.Builder builder) throws IOException, InterruptedException {
+        return this.send(builder.build());
+    }
+
+    /**
+     * Publishes a message to the topic without reading the response
+     *
+     * @param message the message
+     * @return <code>null</code> if the message was published, otherwise an {@link ErrorResponse}
+     * @see #send(Message)
+     */
+    default @Nullable ErrorResponse send(final String message) throws IOException, InterruptedException {
+        return this.send(Message.message(message));
+    }
+
+    /**
+     * Asynchronously publishes a message to the topic without reading the response
+     *
+     * @param message the message
+     * @return <code>null</code> if the message was published, otherwise an {@link ErrorResponse}
+     * @see #send(Message)
+     */
+    CompletableFuture<@Nullable ErrorResponse> sendAsync(Message message);
+
+    /**
+     * Asynchronously publishes a prepared message to the topic without reading the response
+     *
+     * @param message the prepared message
+     * @return <code>null</code> if the message was published, otherwise an {@link ErrorResponse}
+     * @see #send(Message)
+     * @see Message#prepare()
+     */
+    CompletableFuture<@Nullable ErrorResponse> sendAsync(PreparedMessage message);
+
+    /**
+     * Asynchronously publishes a message to the topic without reading the response
+     *
+     * @param builder the message builder
+     * @return <code>null</code> if the message was published, otherwise an {@link ErrorResponse}
+     * @see #send(Message)
+     */
+    default CompletableFuture<@Nullable ErrorResponse> sendAsync(final Message.Builder builder) {
+        return this.sendAsync(builder.build());
+    }
+
+    /**
+     * Asynchronously publishes a message to the topic without reading the response
+     *
+     * @param message the message
+     * @return <code>null</code> if the message was published, otherwise an {@link ErrorResponse}
+     * @see #send(Message)
+     */
+    default CompletableFuture<@Nullable ErrorResponse> sendAsync(final String message) {
+        return this.sendAsync(Message.message(message));
+    }
+
+    /**
+     * Subscribes to the topic
+     *
+     * <p>Every subscriber to the returned publisher opens its own connection to the topic's <code>/json</code> stream
+     * and receives the messages published from then on, as it requests them.
+     * Messages are read from the connection only as fast as they are requested,
+     * with a small number of messages read ahead.
+     * Cancelling the subscription closes the connection.</p>
+     *
+     * <p>If the server refuses the subscription, the subscriber receives a {@link SubscriptionException}.</p>
+     *
+     * @return a publisher of the messages published to the topic
+     * @see <a href="https://docs.ntfy.sh/subscribe/api/#json-message-format">JSON message format</a>
+     */
+    @Contract(value = "-> new", pure = true)
+    Flow.Publisher<ReceivedMessage> subscribe();
+
+    /**
+     * Subscribes to the topic, starting after a previously received message
+     *
+     * <p>Behaves like {@link #subscribe()}, but first receives the cached messages published after the given message,
+     * so a subscriber can resume where a previous subscription left off.
+     * The {@link SubscriptionTransport#SSE} transport also sends the id as the <code>Last-Event-ID</code> header.</p>
+     *
+     * @param since the id of the last message received, or a unix timestamp, a duration such as <code>10m</code> or <code>all</code>
+     * @return a publisher of the messages published to the topic
+     * @see <a href="https://docs.ntfy.sh/subscribe/api/#fetch-cached-messages">Fetch cached messages</a>
+     */
+    @Contract(value = "_ -> new", pure = true)
+    Flow.Publisher<ReceivedMessage> subscribe(String since);
+
+    /**
+     * Subscribes to the topic, only receiving the messages that match a filter
+     *
+     * <p>Behaves like {@link #subscribe()}. The conditions of the filter that ntfy supports are sent to the server,
+     * the others are tested on every received message before it is passed to the subscriber.</p>
+     *
+     * @param filter the filter
+     * @return a publisher of the messages published to the topic that match the filter
+     * @see SubscriptionFilter
+     */
+    @Contract(value = "_ -> new", pure = true)
+    Flow.Publisher<ReceivedMessage> subscribe(SubscriptionFilter filter);
+
+    /**
+     * Subscribes to the topic, starting after a previously received message and only receiving the messages that match a filter
+     *
+     * <p>Behaves like {@link #subscribe(String)} combined with {@link #subscribe(SubscriptionFilter)}</p>
+     *
+     * @param filter the filter
+     * @param since the id of the last message received, or a unix timestamp, a duration such as <code>10m</code> or <code>all</code>
+     * @return a publisher of the messages published to the topic that match the filter
+     * @see SubscriptionFilter
+     */
+    @Contract(value = "_, _ -> new", pure = true)
+    Flow.Publisher<ReceivedMessage> subscribe(SubscriptionFilter filter, String since);
+
     /**
      * Creates a new builder from this topic
      *
@@ -301,6 +511,95 @@ public sealed interface Topic permits TopicImpl {
         @Contract(value = "_ -> this", mutates = "this")
         Builder timeout(@Nullable Duration timeout);
 
+        /**
+         * Sets whether messages are published as a JSON body instead of as headers
+         *
+         * <p>JSON messages are sent to the root of the host as a compact UTF-8 body,
+         * which avoids Base64 encoding non-ASCII header values</p>
+         *
+         * <p>Messages with a file attachment are always published using headers</p>
+         *
+         * @param json <code>true</code> to publish messages as JSON
+         * @return the builder
+         * @see <a href="https://docs.ntfy.sh/publish/#publish-as-json">Publish as JSON</a>
+         */
+        @Contract(value = "_ -> this", mutates = "this")
+        Builder json(boolean json);
+
+        /**
+         * Sets whether the http client should run on virtual threads
+         *
+         * <p>When enabled, response handling for both {@link Topic#publish(Message)} and
+         * {@link Topic#publishAsync(Message)} runs on virtual threads instead of a platform thread pool,
+         * which makes it cheap to publish from thousands of (virtual) threads at once</p>
+         *
+         * <p>Virtual threads require Java 21 or newer, on older versions this option has no effect</p>
+         *
+         * <p>Cannot be used together with {@link #httpClient(HttpClient)}</p>
+         *
+         * @param virtualThreads <code>true</code> to use virtual threads
+         * @return the builder
+         */
+        @Contract(value = "_ -> this", mutates = "this")
+        Builder virtualThreads(boolean virtualThreads);
+
+        /**
+         * Sets the policy used to retry publishes that failed with a transient error
+         *
+         * <p>Applies to both blocking and asynchronous publishes.
+         * By default, failed publishes are not retried.</p>
+         *
+         * @param retryPolicy the retry policy
+         * @return the builder
+         * @see RetryPolicy#defaults()
+         */
+        @Contract(value = "_ -> this", mutates = "this")
+        Builder retryPolicy(RetryPolicy retryPolicy);
+
+        /**
+         * Sets the rate limiter used to stay within the server's rate limits
+         *
+         * <p>Retried publishes also take a permit from the rate limiter.
+         * By default, publishes are not rate limited.</p>
+         *
+         * @param rateLimiter the rate limiter, which may be shared between topics
+         * @return the builder
+         */
+        @Contract(value = "_ -> this", mutates = "this")
+        Builder rateLimiter(RateLimiter rateLimiter);
+
+        /**
+         * Sets the circuit breaker used to fail fast while the host keeps failing
+         *
+         * <p>By default, there is no circuit breaker.</p>
+         *
+         * @param circuitBreaker the circuit breaker, which may be shared between topics
+         * @return the builder
+         */
+        @Contract(value = "_ -> this", mutates = "this")
+        Builder circuitBreaker(CircuitBreaker circuitBreaker);
+
+        /**
+         * Sets the bulkhead used to limit the number of requests in flight to the host
+         *
+         * <p>By default, the number of requests is not limited.</p>
+         *
+         * @param bulkhead the bulkhead, which may be shared between topics
+         * @return the builder
+         */
+        @Contract(value = "_ -> this", mutates = "this")
+        Builder bulkhead(Bulkhead bulkhead);
+
+        /**
+         * Sets the transport used by {@link Topic#subscribe()}
+         *
+         * <p>Defaults to {@link SubscriptionTransport#JSON}.</p>
+         *
+         * @param transport the transport
+         * @return the builder
+         */
+        @Contract(value = "_ -> this", mutates = "this")
+        Builder transport(SubscriptionTransport transport);
 
         /**
          * Sets the access token to use for bearer authentication
@@ -1,17 +1,15 @@
 package dev.siebrenvde.ntfy.topic;
 
 import dev.siebrenvde.ntfy.internal.BuildParameters;
+import dev.siebrenvde.ntfy.internal.JsonBodyWriter;
+import dev.siebrenvde.ntfy.internal.RequestFactory;
+import dev.siebrenvde.ntfy.internal.VirtualThreads;
 import dev.siebrenvde.ntfy.message.Message;
-import dev.siebrenvde.ntfy.message.Priority;
-import dev.siebrenvde.ntfy.message.action.Action;
-import dev.siebrenvde.ntfy.message.action.BroadcastAction;
-import dev.siebrenvde.ntfy.message.action.HttpAction;
-import dev.siebrenvde.ntfy.message.action.ViewAction;
-import dev.siebrenvde.ntfy.message.attachment.Attachment;
+import dev.siebrenvde.ntfy.message.PreparedMessage;
 import dev.siebrenvde.ntfy.message.attachment.FileAttachment;
-import dev.siebrenvde.ntfy.message.attachment.UrlAttachment;
 import dev.siebrenvde.ntfy.response.ErrorResponse;
 import dev.siebrenvde.ntfy.response.PublishResponse;
+import dev.siebrenvde.ntfy.response.ReceivedMessage;
 import dev.siebrenvde.ntfy.util.Result;
 import org.jetbrains.annotations.VisibleForTesting;
 import org.jspecify.annotations.Nullable;
@@ -21,22 +19,24 @@ import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.net.URLEncoder;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
-import java.net.http.HttpRequest.BodyPublishers;
 import java.net.http.HttpResponse;
-import java.net.http.HttpResponse.BodyHandlers;
+import java.net.http.HttpResponse.BodyHandler;
 import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.time.Instant;
 import java.time.temporal.TemporalUnit;
-import java.util.ArrayList;
 import java.util.Base64;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.util.Collection;
 import java.util.Objects;
+import java.util.StringJoiner;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 
 import static dev.siebrenvde.ntfy.internal.Util.checkArgument;
 import static dev.siebrenvde.ntfy.internal.Util.checkNotNull;
@@ -51,8 +51,11 @@ sealed class TopicImpl implements Topic permits TopicImpl.Protected {
     private final URI uri;
     private final HttpClient client;
     private final @Nullable Duration timeout;
+    private final Options options;
+    private final URI root;
+    private final byte[] jsonTopic;
 
-    TopicImpl(final String host, final String name, final HttpClient client, @Nullable final Duration timeout) {
+    TopicImpl(final String host, final String name, final HttpClient client, @Nullable final Duration timeout, final Options options) {
         this.host = host;
         this.name = name;
         try {
@@ -64,6 +67,9 @@ sealed class TopicImpl implements Topic permits TopicImpl.Protected {
         }
         this.client = client;
         this.timeout = timeout;
+        this.options = options;
+        this.root = this.uri.resolve(".");
+        this.jsonTopic = JsonBodyWriter.writer().beginObject().name("topic").value(name).toByteArray();
     }
 
     @Override
@@ -76,18 +82,47 @@ sealed class TopicImpl implements Topic permits TopicImpl.Protected {
         return this.name;
     }
 
+    /**
+     * {@return the uri of the topic}
+     */
+    URI uri() {
+        return this.uri;
+    }
+
+    /**
+     * {@return the uri of the host, used to look up per-host state}
+     */
+    URI hostUri() {
+        return this.root;
+    }
+
     @Override
     public Result<PublishResponse, ErrorResponse> publish(final Message message) throws IOException, InterruptedException {
+        return this.sendRequest(message.prepare(), null);
+    }
+
+    @Override
+    public Result<PublishResponse, ErrorResponse> publish(final PreparedMessage message) throws IOException, InterruptedException {
         return this.sendRequest(message, null);
     }
 
     @Override
     public Result<PublishResponse, ErrorResponse> scheduleAt(final Message message, final Instant time) throws IOException, InterruptedException {
+        return this.sendRequest(message.prepare(), time);
+    }
+
+    @Override
+    public Result<PublishResponse, ErrorResponse> scheduleAt(final PreparedMessage message, final Instant time) throws IOException, InterruptedException {
         return this.sendRequest(message, time);
     }
 
     @Override
     public Result<PublishResponse, ErrorResponse> scheduleIn(final Message message, final long delay, final TemporalUnit unit) throws IOException, InterruptedException {
+        return this.sendRequest(message.prepare(), Instant.now().plus(delay, unit));
+    }
+
+    @Override
+    public Result<PublishResponse, ErrorResponse> scheduleIn(final PreparedMessage message, final long delay, final TemporalUnit unit) throws IOException, InterruptedException {
         return this.sendRequest(message, Instant.now().plus(delay, unit));
     }
 
@@ -96,171 +131,285 @@ sealed class TopicImpl implements Topic permits TopicImpl.Protected {
         return this.sendRequestAsync(message, null);
     }
 
+    @Override
+    public CompletableFuture<Result<PublishResponse, ErrorResponse>> publishAsync(final PreparedMessage message) {
+        return this.sendRequestAsync(message, null);
+    }
+
     @Override
     public CompletableFuture<Result<PublishResponse, ErrorResponse>> scheduleAtAsync(final Message message, final Instant time) {
         return this.sendRequestAsync(message, time);
     }
 
+    @Override
+    public CompletableFuture<Result<PublishResponse, ErrorResponse>> scheduleAtAsync(final PreparedMessage message, final Instant time) {
+        return this.sendRequestAsync(message, time);
+    }
+
     @Override
     public CompletableFuture<Result<PublishResponse, ErrorResponse>> scheduleInAsync(final Message message, final long delay, final TemporalUnit unit) {
         return this.sendRequestAsync(message, Instant.now().plus(delay, unit));
     }
 
     @Override
-    public Builder toBuilder() {
-        return new BuilderImpl(this.name)
-            .host(this.host)
-            .httpClient(this.client)
-            .timeout(this.timeout);
+    public CompletableFuture<Result<PublishResponse, ErrorResponse>> scheduleInAsync(final PreparedMessage message, final long delay, final TemporalUnit unit) {
+        return this.sendRequestAsync(message, Instant.now().plus(delay, unit));
     }
 
-    private Result<PublishResponse, ErrorResponse> sendRequest(final Message message, @Nullable final Instant time) throws IOException, InterruptedException {
-        final HttpResponse<String> response = this.client.send(this.createRequest(message, time), BodyHandlers.ofString());
-        if (response.statusCode() == 200) {
-            return Result.success(PublishResponse.fromJson(response.body()));
-        } else {
-            return Result.error(ErrorResponse.fromJson(response.body()));
-        }
+    @Override
+    public @Nullable ErrorResponse send(final Message message) throws IOException, InterruptedException {
+        return this.exchange(message.prepare(), null, DiscardingBodyHandler.INSTANCE).body();
     }
 
-    private CompletableFuture<Result<PublishResponse, ErrorResponse>> sendRequestAsync(final Message message, @Nullable final Instant time) {
-        final HttpRequest request;
-        try {
-            request = this.createRequest(message, time);
-        } catch (final FileNotFoundException e) {
-            return CompletableFuture.failedFuture(e);
-        }
-        return this.client.sendAsync(request, BodyHandlers.ofString())
-            .thenApply(response -> {
-                if (response.statusCode() == 200) {
-                    return Result.success(PublishResponse.fromJson(response.body()));
-                } else {
-                    return Result.error(ErrorResponse.fromJson(response.body()));
-                }
-            });
+    @Override
+    public @Nullable ErrorResponse send(final PreparedMessage message) throws IOException, InterruptedException {
+        return this.exchange(message, null, DiscardingBodyHandler.INSTANCE).body();
     }
 
-    @SuppressWarnings("UastIncorrectHttpHeaderInspection")
-    private HttpRequest createRequest(final Message message, @Nullable final Instant time) throws FileNotFoundException {
-        final HttpRequest.Builder builder = HttpRequest.newBuilder(this.uri);
-
-        builder.header("User-Agent", USER_AGENT);
+    @Override
+    public CompletableFuture<@Nullable ErrorResponse> sendAsync(final Message message) {
+        return this.exchangeAsync(message, null, DiscardingBodyHandler.INSTANCE).thenApply(HttpResponse::body);
+    }
 
-        if (message.body() != null) {
-            builder.header("Message", this.encodeBase64(message.body()));
-        }
+    @Override
+    public CompletableFuture<@Nullable ErrorResponse> sendAsync(final PreparedMessage message) {
+        return this.exchangeAsync(message, null, 1, DiscardingBodyHandler.INSTANCE).thenApply(HttpResponse::body);
+    }
 
-        if (message.title() != null) {
-            builder.header("Title", this.encodeBase64(message.title()));
-        }
+    @Override
+    public Flow.Publisher<ReceivedMessage> subscribe() {
+        return new StreamPublisher(this.client, this.createSubscribeRequest(null), this.options.transport(), null);
+    }
 
-        if (message.priority() != Priority.DEFAULT) {
-            builder.header("Priority", message.priority().name());
-        }
+    @Override
+    public Flow.Publisher<ReceivedMessage> subscribe(final String since) {
+        checkNotNull(since, "since");
+        return new StreamPublisher(this.client, this.createSubscribeRequest(since), this.options.transport(), null);
+    }
 
-        if (!message.tags().isEmpty()) {
-            builder.header("Tags", this.encodeBase64(String.join(",", message.tags())));
-        }
+    @Override
+    public Flow.Publisher<ReceivedMessage> subscribe(final SubscriptionFilter filter) {
+        checkNotNull(filter, "filter");
+        final SubscriptionFilterImpl impl = (SubscriptionFilterImpl) filter;
+        return new StreamPublisher(this.client, this.createSubscribeRequest(null, impl), this.options.transport(), impl.local());
+    }
 
-        if (message.markdown()) {
-            builder.header("Markdown", "true");
-        }
+    @Override
+    public Flow.Publisher<ReceivedMessage> subscribe(final SubscriptionFilter filter, final String since) {
+        checkNotNull(filter, "filter");
+        checkNotNull(since, "since");
+        final SubscriptionFilterImpl impl = (SubscriptionFilterImpl) filter;
+        return new StreamPublisher(this.client, this.createSubscribeRequest(since, impl), this.options.transport(), impl.local());
+    }
 
-        if (!message.actions().isEmpty()) {
-            final List<String> actions = new ArrayList<>();
+    @Override
+    public Builder toBuilder() {
+        final Builder builder = new BuilderImpl(this.name)
+            .host(this.host)
+            .timeout(this.timeout)
+            .json(this.options.json())
+            .virtualThreads(this.options.virtualThreads())
+            .retryPolicy(this.options.retryPolicy())
+            .transport(this.options.transport());
+        final @Nullable RateLimiter rateLimiter = this.options.rateLimiter();
+        if (rateLimiter != null) {
+            builder.rateLimiter(rateLimiter);
+        }
+        final @Nullable CircuitBreaker circuitBreaker = this.options.circuitBreaker();
+        if (circuitBreaker != null) {
+            builder.circuitBreaker(circuitBreaker);
+        }
+        final @Nullable Bulkhead bulkhead = this.options.bulkhead();
+        if (bulkhead != null) {
+            builder.bulkhead(bulkhead);
+        }
+        if (!this.options.virtualThreads()) {
+            builder.httpClient(this.client);
+        }
+        return builder;
+    }
 
-            for (final Action action : message.actions()) {
-                final Map<String, String> parts = new HashMap<>();
+    private Result<PublishResponse, ErrorResponse> sendRequest(final PreparedMessage message, @Nullable final Instant time) throws IOException, InterruptedException {
+        return this.exchange(message, time, ResponseBodyHandler.INSTANCE).body();
+    }
 
-                parts.put("action", action.action());
-                parts.put("label", action.label());
-                if (action.clear()) parts.put("clear", "true");
+    /**
+     * Sends a message, retrying according to the retry policy
+     *
+     * @param message the message
+     * @param time the time to schedule the message at
+     * @param handler the response body handler
+     * @return the successful response, or the last response if it cannot be retried
+     * @param <T> the response body type
+     */
+    private <T> HttpResponse<T> exchange(final PreparedMessage message, @Nullable final Instant time, final BodyHandler<T> handler) throws IOException, InterruptedException {
+        final RetryPolicyImpl retryPolicy = (RetryPolicyImpl) this.options.retryPolicy();
+        for (int attempt = 1; ; attempt++) {
+            final long wait = this.reservePermit();
+            if (wait > 0) TimeUnit.NANOSECONDS.sleep(wait);
+            final HttpResponse<T> response;
+            try {
+                response = this.call(message, time, handler);
+            } catch (final IOException e) {
+                final long delay = retryPolicy.delayNanos(attempt, e);
+                if (delay == RetryPolicyImpl.NO_RETRY) throw e;
+                TimeUnit.NANOSECONDS.sleep(delay);
+                continue;
+            }
+            if (response.statusCode() == 200) return response;
+            final long delay = retryPolicy.delayNanos(attempt, errorOf(response), response.headers().firstValue("Retry-After").orElse(null));
+            if (delay == RetryPolicyImpl.NO_RETRY) return response;
+            TimeUnit.NANOSECONDS.sleep(delay);
+        }
+    }
 
-                if (action instanceof final ViewAction view) {
-                    parts.put("url", view.url());
-                } else if (action instanceof final BroadcastAction broadcast) {
-                    if (!broadcast.intent().equals(BroadcastAction.DEFAULT_INTENT)) {
-                        parts.put("intent", broadcast.intent());
-                    }
+    private CompletableFuture<Result<PublishResponse, ErrorResponse>> sendRequestAsync(final Message message, @Nullable final Instant time) {
+        return this.exchangeAsync(message, time, ResponseBodyHandler.INSTANCE).thenApply(HttpResponse::body);
+    }
 
-                    if (!broadcast.extras().isEmpty()) {
-                        broadcast.extras().forEach((key, value) -> parts.put("extras." + key, value));
-                    }
-                } else if (action instanceof final HttpAction http) {
-                    parts.put("url", http.url());
+    private CompletableFuture<Result<PublishResponse, ErrorResponse>> sendRequestAsync(final PreparedMessage message, @Nullable final Instant time) {
+        return this.exchangeAsync(message, time, 1, ResponseBodyHandler.INSTANCE).thenApply(HttpResponse::body);
+    }
 
-                    if (http.method() != HttpAction.DEFAULT_METHOD) {
-                        parts.put("method", http.method().name());
-                    }
+    private <T> CompletableFuture<HttpResponse<T>> exchangeAsync(final Message message, @Nullable final Instant time, final BodyHandler<T> handler) {
+        final PreparedMessage prepared;
+        try {
+            prepared = message.prepare();
+        } catch (final FileNotFoundException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return this.exchangeAsync(prepared, time, 1, handler);
+    }
 
-                    if (!http.headers().isEmpty()) {
-                        http.headers().forEach((header, value) -> parts.put("headers." + header, value));
-                    }
+    private <T> CompletableFuture<HttpResponse<T>> exchangeAsync(final PreparedMessage message, @Nullable final Instant time, final int attempt, final BodyHandler<T> handler) {
+        final long wait;
+        try {
+            wait = this.reservePermit();
+        } catch (final PublishRejectedException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        if (wait > 0) {
+            return CompletableFuture.runAsync(() -> { }, CompletableFuture.delayedExecutor(wait, TimeUnit.NANOSECONDS))
+                .thenCompose(ignored -> this.attemptAsync(message, time, attempt, handler));
+        }
+        return this.attemptAsync(message, time, attempt, handler);
+    }
 
-                    if (http.body() != null) {
-                        parts.put("body", http.body());
-                    }
+    private <T> CompletableFuture<HttpResponse<T>> attemptAsync(final PreparedMessage message, @Nullable final Instant time, final int attempt, final BodyHandler<T> handler) {
+        final RetryPolicyImpl retryPolicy = (RetryPolicyImpl) this.options.retryPolicy();
+        return this.callAsync(message, time, handler)
+            .handle((response, throwable) -> {
+                if (throwable != null) {
+                    final Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null ? throwable.getCause() : throwable;
+                    final long delay = retryPolicy.delayNanos(attempt, cause);
+                    if (delay == RetryPolicyImpl.NO_RETRY) return CompletableFuture.<HttpResponse<T>>failedFuture(cause);
+                    return this.retryAsync(message, time, attempt, delay, handler);
                 }
+                if (response.statusCode() == 200) return CompletableFuture.completedFuture(response);
+                final long delay = retryPolicy.delayNanos(attempt, errorOf(response), response.headers().firstValue("Retry-After").orElse(null));
+                if (delay == RetryPolicyImpl.NO_RETRY) return CompletableFuture.completedFuture(response);
+                return this.retryAsync(message, time, attempt, delay, handler);
+            })
+            .thenCompose(Function.identity());
+    }
 
-                actions.add(String.join(
-                    ",",
-                    parts.entrySet().stream().map(entry -> {
-                        String value = entry.getValue();
-                        if (value.contains(",") || value.contains(";") || value.contains("\"")) {
-                            value = value.replace("\"", "\\\"");
-                            value = "\"" + value + "\"";
-                        }
-                        return entry.getKey() + "=" + value;
-                    }).toList()
-                ));
-            }
+    private <T> CompletableFuture<HttpResponse<T>> retryAsync(final PreparedMessage message, @Nullable final Instant time, final int attempt, final long delay, final BodyHandler<T> handler) {
+        return CompletableFuture.runAsync(() -> { }, CompletableFuture.delayedExecutor(delay, TimeUnit.NANOSECONDS))
+            .thenCompose(ignored -> this.exchangeAsync(message, time, attempt + 1, handler));
+    }
 
-            builder.header("Actions", this.encodeBase64(String.join(";", actions)));
-        }
+    /**
+     * {@return the error that the body handler decoded from a response that was not successful}
+     *
+     * @param response the response
+     */
+    private static ErrorResponse errorOf(final HttpResponse<?> response) {
+        if (response.body() instanceof final Result<?, ?> result && result.error().orElse(null) instanceof final ErrorResponse error) return error;
+        if (response.body() instanceof final ErrorResponse error) return error;
+        return ErrorResponse.fromResponse(response.statusCode(), "");
+    }
 
-        if (message.clickAction() != null) {
-            builder.header("Click", this.encodeBase64(message.clickAction()));
+    private <T> HttpResponse<T> call(final PreparedMessage message, @Nullable final Instant time, final BodyHandler<T> handler) throws IOException, InterruptedException {
+        final HttpRequest request = this.createRequest(message, time);
+        final long ticket = this.beginCall();
+        final long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            final HttpResponse<T> response = this.client.send(request, handler);
+            failed = CircuitBreakerImpl.isFailure(response.statusCode());
+            return response;
+        } finally {
+            this.endCall(ticket, start, failed);
         }
+    }
 
-        final Attachment attachment = message.attachment();
-        if (attachment != null) {
-            if (attachment.fileName() != null) {
-                builder.header("Filename", this.encodeBase64(attachment.fileName()));
-            }
-
-            if (attachment instanceof final UrlAttachment url) {
-                builder.header("Attach", this.encodeBase64(url.url()));
-                builder.POST(BodyPublishers.noBody());
-            } else if (attachment instanceof final FileAttachment file) {
-                builder.PUT(BodyPublishers.ofFile(file.file()));
+    private <T> CompletableFuture<HttpResponse<T>> callAsync(final PreparedMessage message, @Nullable final Instant time, final BodyHandler<T> handler) {
+        final HttpRequest request = this.createRequest(message, time);
+        final long ticket;
+        try {
+            ticket = this.beginCall();
+        } catch (final PublishRejectedException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        final long start = System.nanoTime();
+        return this.client.sendAsync(request, handler)
+            .whenComplete((response, throwable) -> this.endCall(ticket, start, throwable != null || CircuitBreakerImpl.isFailure(response.statusCode())));
+    }
 
-                if (file.fileName() == null) {
-                    builder.header("Filename", this.encodeBase64(file.file().getFileName().toString()));
-                }
+    /**
+     * Asks the bulkhead and the circuit breaker for permission to send a request
+     *
+     * @return the circuit breaker ticket to pass to {@link #endCall(long, long, boolean)}
+     * @throws PublishRejectedException if the bulkhead is full or the circuit is open
+     */
+    private long beginCall() throws PublishRejectedException {
+        if (this.options.bulkhead() instanceof final BulkheadImpl bulkhead && !bulkhead.tryAcquire(this.root)) {
+            throw new PublishRejectedException("Too many concurrent requests to " + this.root);
+        }
+        if (this.options.circuitBreaker() instanceof final CircuitBreakerImpl circuitBreaker) {
+            final long ticket = circuitBreaker.tryAcquire(this.root);
+            if (ticket == CircuitBreakerImpl.REJECTED) {
+                if (this.options.bulkhead() instanceof final BulkheadImpl bulkhead) bulkhead.release(this.root);
+                throw new CircuitOpenException(this.root);
             }
-        } else {
-            builder.POST(BodyPublishers.noBody());
+            return ticket;
         }
+        return 0;
+    }
 
-        if (message.icon() != null) {
-            builder.header("Icon", this.encodeBase64(message.icon()));
+    private void endCall(final long ticket, final long start, final boolean failed) {
+        if (this.options.bulkhead() instanceof final BulkheadImpl bulkhead) {
+            bulkhead.release(this.root);
         }
-
-        if (message.email() != null) {
-            builder.header("Email", this.encodeBase64(message.email()));
+        if (this.options.circuitBreaker() instanceof final CircuitBreakerImpl circuitBreaker) {
+            circuitBreaker.record(this.root, ticket, failed, System.nanoTime() - start);
         }
+    }
 
-        if (message.phone() != null) {
-            builder.header("Call", this.encodeBase64(message.phone()));
-        }
+    /**
+     * Takes a permit from the rate limiter
+     *
+     * @return the nanoseconds to wait before sending the request
+     * @throws PublishRejectedException if the rate limit would be exceeded for longer than the rate limiter allows
+     */
+    private long reservePermit() throws PublishRejectedException {
+        if (!(this.options.rateLimiter() instanceof final RateLimiterImpl rateLimiter)) return 0;
+        final long wait = rateLimiter.reserveNanos(this.root, this.uri);
+        if (wait == RateLimiterImpl.REJECTED) {
+            throw new PublishRejectedException("Rate limit exceeded for " + (rateLimiter.perTopic() ? this.uri : this.root));
+        }
+        return wait;
+    }
 
-        if (!message.cache()) {
-            builder.header("Cache", "no");
-        }
+    @VisibleForTesting
+    @SuppressWarnings("UastIncorrectHttpHeaderInspection")
+    HttpRequest createRequest(final PreparedMessage message, @Nullable final Instant time) {
+        final RequestFactory factory = (RequestFactory) message;
+        final HttpRequest.Builder builder = this.options.json() && !(message.message().attachment() instanceof FileAttachment)
+            ? factory.newJsonRequest(this.root, this.jsonTopic)
+            : factory.newRequest(this.uri);
 
-        if (!message.firebase()) {
-            builder.header("Firebase", "no");
-        }
+        builder.header("User-Agent", USER_AGENT);
 
         if (time != null) {
             builder.header("Delay", String.valueOf(time.getEpochSecond()));
@@ -277,25 +426,65 @@ sealed class TopicImpl implements Topic permits TopicImpl.Protected {
         return builder.build();
     }
 
-    private String encodeBase64(final String input) {
-        for (int i = 0; i < input.length(); i++) {
-            final int c = input.codePointAt(i);
-            if (c < 32 || c > 126) {
-                return "=?UTF-8?B?" + Base64.getEncoder().encodeToString(input.getBytes(StandardCharsets.UTF_8)) + "?=";
-            }
+    /**
+     * Subscribes to several topics of this topic's host over one connection, using this topic's client, transport and credentials
+     *
+     * @param names the names of the topics
+     * @param since the id or time to resume after, or <code>null</code> to only receive new messages
+     * @param idleTimeout how long the stream may receive nothing, not even a keepalive, before it fails
+     * @return a publisher of the messages published to the topics
+     */
+    Flow.Publisher<ReceivedMessage> subscribe(final Collection<String> names, @Nullable final String since, final Duration idleTimeout) {
+        return new StreamPublisher(this.client, this.createSubscribeRequest(names, since), this.options.transport(), idleTimeout, null);
+    }
+
+    /**
+     * {@return what decides whether topics can be subscribed to over the same connection}
+     */
+    SubscriptionKey subscriptionKey() {
+        return new SubscriptionKey(this.root, this.client, this.options.transport(), this instanceof final Protected auth ? auth.header : null);
+    }
+
+    HttpRequest createSubscribeRequest(@Nullable final String since) {
+        return this.createSubscribeRequest(since, null);
+    }
+
+    HttpRequest createSubscribeRequest(@Nullable final String since, @Nullable final SubscriptionFilterImpl filter) {
+        return this.createSubscribeRequest(this.uri.toString(), since, filter);
+    }
+
+    HttpRequest createSubscribeRequest(final Collection<String> names, @Nullable final String since) {
+        return this.createSubscribeRequest(this.root + String.join(",", names), since, null);
+    }
+
+    private HttpRequest createSubscribeRequest(final String topics, @Nullable final String since, @Nullable final SubscriptionFilterImpl filter) {
+        final StringJoiner query = new StringJoiner("&", "?", "").setEmptyValue("");
+        if (since != null) query.add("since=" + URLEncoder.encode(since, StandardCharsets.UTF_8));
+        final @Nullable String filterQuery = filter != null ? filter.query() : null;
+        if (filterQuery != null) query.add(filterQuery);
+        final HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(topics + "/" + this.options.transport().path() + query))
+            .header("User-Agent", USER_AGENT);
+
+        if (since != null && this.options.transport() == SubscriptionTransport.SSE) {
+            builder.header("Last-Event-ID", since);
+        }
+
+        if (this instanceof final Protected auth) {
+            builder.header("Authorization", auth.header);
         }
-        return input;
+
+        return builder.build();
     }
 
     @Override
     public boolean equals(final Object o) {
         if (!(o instanceof final TopicImpl topic)) return false;
-        return Objects.equals(this.host, topic.host) && Objects.equals(this.name, topic.name) && Objects.equals(this.uri, topic.uri) && Objects.equals(this.client, topic.client) && Objects.equals(this.timeout, topic.timeout);
+        return Objects.equals(this.host, topic.host) && Objects.equals(this.name, topic.name) && Objects.equals(this.uri, topic.uri) && Objects.equals(this.client, topic.client) && Objects.equals(this.timeout, topic.timeout) && Objects.equals(this.options, topic.options);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(this.host, this.name, this.uri, this.client, this.timeout);
+        return Objects.hash(this.host, this.name, this.uri, this.client, this.timeout, this.options);
     }
 
     @Override
@@ -306,20 +495,54 @@ sealed class TopicImpl implements Topic permits TopicImpl.Protected {
             ", uri=" + this.uri +
             ", client=" + this.client +
             ", timeout=" + this.timeout +
+            ", options=" + this.options +
             '}';
     }
 
+    record Options(
+        boolean json,
+        boolean virtualThreads,
+        RetryPolicy retryPolicy,
+        @Nullable RateLimiter rateLimiter,
+        @Nullable CircuitBreaker circuitBreaker,
+        @Nullable Bulkhead bulkhead,
+        SubscriptionTransport transport
+    ) {
+
+        static final Options DEFAULT = new Options(false, false, RetryPolicy.none(), null, null, null, SubscriptionTransport.JSON);
+
+    }
+
+    /**
+     * Topics with equal keys share their host, client, transport and credentials, so they can be subscribed to together
+     */
+    record SubscriptionKey(URI root, HttpClient client, SubscriptionTransport transport, @Nullable String authorization) {
+
+    }
+
+    /**
+     * Holds the http client that runs its response handling on virtual threads,
+     * so it is only created once a topic using virtual threads is built
+     */
+    private static final class VirtualThreadClient {
+
+        private static final HttpClient INSTANCE = HttpClient.newBuilder()
+            .executor(VirtualThreads.newExecutor())
+            .build();
+
+    }
+
     static final class Protected extends TopicImpl {
 
         @VisibleForTesting final String header;
 
-        Protected(final String host, final String name, final HttpClient client, @Nullable final Duration timeout, final String username, final String password) {
-            super(host, name, client, timeout);
+        Protected(final String host, final String name, final HttpClient client, @Nullable final Duration timeout, final Options options, final String username, final String password) {
+            super(host, name, client, timeout, options);
             this.header = "Basic " + Base64.getEncoder().encodeToString((username + ":" + password).getBytes(StandardCharsets.UTF_8));
         }
 
-        Protected(final String host, final String name, final HttpClient client, @Nullable final Duration timeout, final String token) {
-            super(host, name, client, timeout);
+        Protected(final String host, final String name, final HttpClient client, @Nullable final Duration timeout, final Options options, final String token) {
+            super(host, name, client, timeout, options);
             this.header = "Bearer " + token;
         }
 
@@ -341,8 +564,15 @@ sealed class TopicImpl implements Topic permits TopicImpl.Protected {
 
         private String host = Topic.DEFAULT_HOST;
         private final String name;
-        private HttpClient client = DEFAULT_CLIENT;
+        private @Nullable HttpClient client;
         private @Nullable Duration timeout;
+        private boolean json = false;
+        private boolean virtualThreads = false;
+        private RetryPolicy retryPolicy = RetryPolicy.none();
+        private @Nullable RateLimiter rateLimiter;
+        private @Nullable CircuitBreaker circuitBreaker;
+        private @Nullable Bulkhead bulkhead;
+        private SubscriptionTransport transport = SubscriptionTransport.JSON;
         private @Nullable String token;
         private @Nullable String username;
         private @Nullable String password;
@@ -376,6 +606,53 @@ sealed class TopicImpl implements Topic permits TopicImpl.Protected {
             return this;
         }
 
+        @Override
+        public Builder json(final boolean json) {
+            this.json = json;
+            return this;
+        }
+
+        @Override
+        public Builder virtualThreads(final boolean virtualThreads) {
+            this.virtualThreads = virtualThreads;
+            return this;
+        }
+
+        @Override
+        public Builder retryPolicy(final RetryPolicy retryPolicy) {
+            checkNotNull(retryPolicy, "retryPolicy");
+            this.retryPolicy = retryPolicy;
+            return this;
+        }
+
+        @Override
+        public Builder rateLimiter(final RateLimiter rateLimiter) {
+            checkNotNull(rateLimiter, "rateLimiter");
+            this.rateLimiter = rateLimiter;
+            return this;
+        }
+
+        @Override
+        public Builder circuitBreaker(final CircuitBreaker circuitBreaker) {
+            checkNotNull(circuitBreaker, "circuitBreaker");
+            this.circuitBreaker = circuitBreaker;
+            return this;
+        }
+
+        @Override
+        public Builder bulkhead(final Bulkhead bulkhead) {
+            checkNotNull(bulkhead, "bulkhead");
+            this.bulkhead = bulkhead;
+            return this;
+        }
+
+        @Override
+        public Builder transport(final SubscriptionTransport transport) {
+            checkNotNull(transport, "transport");
+            this.transport = transport;
+            return this;
+        }
+
         @Override
         public Builder token(final String token) {
             checkNotNull(token, "token");
@@ -399,17 +676,29 @@ sealed class TopicImpl implements Topic permits TopicImpl.Protected {
 
         @Override
         public Topic build() {
+            if (this.virtualThreads && this.client != null) {
+                throw new IllegalStateException("Topic cannot use virtual threads with a custom http client");
+            }
+            final HttpClient client;
+            if (this.client != null) {
+                client = this.client;
+            } else if (this.virtualThreads && VirtualThreads.isSupported()) {
+                client = VirtualThreadClient.INSTANCE;
+            } else {
+                client = DEFAULT_CLIENT;
+            }
+            final Options options = new Options(this.json, this.virtualThreads, this.retryPolicy, this.rateLimiter, this.circuitBreaker, this.bulkhead, this.transport);
             if (this.token == null && this.username == null && this.password == null) {
-                return new TopicImpl(this.host, this.name, this.client, this.timeout);
+                return new TopicImpl(this.host, this.name, client, this.timeout, options);
             }
             if (this.token != null && (this.username != null || this.password != null)) {
                 throw new IllegalStateException("Topic cannot have both token and basic authentication");
             }
             if (this.token != null) {
-                return new Protected(this.host, this.name, this.client, this.timeout, this.token);
+                return new Protected(this.host, this.name, client, this.timeout, options, this.token);
             }
             if (this.username != null && this.password != null) {
-                return new Protected(this.host, this.name, this.client, this.timeout, this.username, this.password);
+                return new Protected(this.host, this.name, client, this.timeout, options, this.username, this.password);
             }
             throw new IllegalStateException(
                 (this.username != null ? "Username" : "Password")
@@ -0,0 +1,83 @@
+package dev.siebrenvde.ntfy.topic;
+
+import dev.siebrenvde.ntfy.message.Message;
+import dev.siebrenvde.ntfy.message.PreparedMessage;
+import org.jetbrains.annotations.Contract;
+
+import java.io.FileNotFoundException;
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import static dev.siebrenvde.ntfy.internal.Util.checkArgument;
+import static dev.siebrenvde.ntfy.internal.Util.checkNotNull;
+
+/**
+ * Utilities for working with multiple topics at once
+ */
+public final class Topics {
+
+    /**
+     * Asynchronously publishes a message to multiple topics using the default options
+     *
+     * @param topics the topics
+     * @param message the message
+     * @return a {@link FanoutReport} with the outcome for every topic
+     * @throws IllegalArgumentException if a topic is passed more than once, as the report holds one outcome per topic
+     * @see FanoutOptions#defaults()
+     */
+    @Contract("_, _ -> new")
+    public static CompletableFuture<FanoutReport> publishAll(final Collection<? extends Topic> topics, final Message message) {
+        return publishAll(topics, message, FanoutOptions.defaults());
+    }
+
+    /**
+     * Asynchronously publishes a message to multiple topics
+     *
+     * <p>The message is only encoded once and the number of requests in flight
+     * is limited per host by {@link FanoutOptions#maxConcurrencyPerHost()}</p>
+     *
+     * @param topics the topics
+     * @param message the message
+     * @param options the options
+     * @return a {@link FanoutReport} with the outcome for every topic
+     * @throws IllegalArgumentException if a topic is passed more than once, as the report holds one outcome per topic
+     */
+    @Contract("_, _, _ -> new")
+    public static CompletableFuture<FanoutReport> publishAll(final Collection<? extends Topic> topics, final Message message, final FanoutOptions options) {
+        checkNotNull(message, "message");
+        final PreparedMessage prepared;
+        try {
+            prepared = message.prepare();
+        } catch (final FileNotFoundException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return publishAll(topics, prepared, options);
+    }
+
+    /**
+     * Asynchronously publishes a prepared message to multiple topics
+     *
+     * <p>The number of requests in flight is limited per host by {@link FanoutOptions#maxConcurrencyPerHost()}</p>
+     *
+     * @param topics the topics
+     * @param message the prepared message
+     * @param options the options
+     * @return a {@link FanoutReport} with the outcome for every topic
+     * @throws IllegalArgumentException if a topic is passed more than once, as the report holds one outcome per topic
+     */
+    @Contract("_, _, _ -> new")
+    public static CompletableFuture<FanoutReport> publishAll(final Collection<? extends Topic> topics, final PreparedMessage message, final FanoutOptions options) {
+        checkNotNull(topics, "topics");
+        for (final Topic topic : topics) checkNotNull(topic, "topic in topics");
+        checkArgument(Set.copyOf(topics).size() == topics.size(), "topics must not contain duplicates");
+        checkNotNull(message, "message");
+        checkNotNull(options, "options");
+        return new Fanout(topics, message, options).start();
+    }
+
+    private Topics() {
+
+    }
+
+}
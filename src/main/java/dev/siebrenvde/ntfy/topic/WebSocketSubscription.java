@@ -0,0 +1,242 @@
+package dev.siebrenvde.ntfy.topic;
+
+import dev.siebrenvde.ntfy.response.ErrorResponse;
+import dev.siebrenvde.ntfy.response.ReceivedMessage;
+import org.jspecify.annotations.Nullable;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.WebSocket;
+import java.net.http.WebSocketHandshakeException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+import java.util.function.Predicate;
+
+/**
+ * Reads a <code>/ws</code> stream, which has one JSON event per text message
+ *
+ * <p>Messages are requested from the web socket one at a time, in the same way as chunks of an http stream.
+ * A message split over several frames is reassembled without copying its parts:
+ * they are retained by not completing the stage returned for them until the last part has arrived,
+ * and are then encoded straight into a reused byte array for decoding.</p>
+ *
+ * <p>When the connection has been idle for a while a ping is sent, a dead connection then times out.</p>
+ *
+ * @see <a href="https://docs.ntfy.sh/subscribe/api/#websockets">Subscribe via WebSockets</a>
+ */
+final class WebSocketSubscription extends StreamSubscription implements WebSocket.Listener {
+
+    private static final ByteBuffer PING = ByteBuffer.allocate(0);
+
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+        .onMalformedInput(CodingErrorAction.REPLACE)
+        .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+    // Only accessed from the listener methods, which the web socket calls serially
+    private final List<CharSequence> parts = new ArrayList<>();
+    private int partsLength;
+    private CompletableFuture<@Nullable Void> partsReleased = new CompletableFuture<>();
+    private byte[] bytes = new byte[512];
+
+    private volatile @Nullable WebSocket webSocket;
+
+    WebSocketSubscription(final Flow.Subscriber<? super ReceivedMessage> downstream, @Nullable final Predicate<ReceivedMessage> filter) {
+        super(downstream, filter);
+    }
+
+    /**
+     * Opens the web socket
+     *
+     * @param client the http client
+     * @param request the request for the stream, whose http uri and headers are used for the handshake
+     * @param idleTimeout how long the stream may receive nothing while waiting for data before it fails
+     */
+    @Override
+    void connect(final HttpClient client, final HttpRequest request, final Duration idleTimeout) {
+        if (this.isCancelled()) return;
+        final WebSocket.Builder builder = client.newWebSocketBuilder();
+        request.headers().map().forEach((name, values) -> values.forEach(value -> builder.header(name, value)));
+        builder.buildAsync(webSocketUri(request.uri()), this).whenComplete((webSocket, throwable) -> {
+            if (throwable == null) return;
+            final Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null ? throwable.getCause() : throwable;
+            if (cause instanceof final WebSocketHandshakeException e) {
+                final int status = e.getResponse().statusCode();
+                this.fail(new SubscriptionException(ErrorResponse.fromResponse(status, new byte[0], 0)));
+            } else {
+                this.fail(cause);
+            }
+        });
+        this.watchIdle(idleTimeout);
+    }
+
+    static URI webSocketUri(final URI uri) {
+        final String scheme = "https".equalsIgnoreCase(uri.getScheme()) ? "wss" : "ws";
+        return URI.create(scheme + uri.toString().substring(uri.getScheme().length()));
+    }
+
+    @Override
+    void onIdle() {
+        final @Nullable WebSocket webSocket = this.webSocket;
+        if (webSocket != null) webSocket.sendPing(PING.duplicate());
+    }
+
+    @Override
+    void cancelUpstream() {
+        super.cancelUpstream();
+        final @Nullable WebSocket webSocket = this.webSocket;
+        if (webSocket != null) webSocket.abort();
+    }
+
+    @Override
+    public void onOpen(final WebSocket webSocket) {
+        this.webSocket = webSocket;
+        this.upstream(new Flow.Subscription() {
+            @Override
+            public void request(final long n) {
+                webSocket.request(n);
+            }
+
+            @Override
+            public void cancel() {
+                webSocket.abort();
+            }
+        });
+    }
+
+    @Override
+    public @Nullable CompletionStage<?> onText(final WebSocket webSocket, final CharSequence data, final boolean last) {
+        if (!last) {
+            this.partsLength += data.length();
+            if (this.partsLength > MAX_EVENT_LENGTH) {
+                this.releaseParts();
+                this.cancelUpstream();
+                this.fail(new IOException("Message exceeds the maximum length of " + MAX_EVENT_LENGTH + " characters"));
+                return null;
+            }
+            this.parts.add(data);
+            // Every part counts as a receive, so request the rest of the message regardless of demand
+            webSocket.request(1);
+            return this.partsReleased;
+        }
+        this.received();
+        try {
+            this.parts.add(data);
+            final int length = this.encode();
+            final @Nullable ReceivedMessage message = this.emit(this.bytes, 0, length);
+            if (message != null) this.lastEventId(message.id());
+        } catch (final IOException e) {
+            this.cancelUpstream();
+            this.fail(e);
+        } finally {
+            this.releaseParts();
+        }
+        this.drain();
+        return null;
+    }
+
+    /**
+     * Drops the parts of the current message and completes the stage that retains them
+     */
+    private void releaseParts() {
+        this.parts.clear();
+        this.partsLength = 0;
+        this.partsReleased.complete(null);
+        this.partsReleased = new CompletableFuture<>();
+    }
+
+    /**
+     * Encodes the parts of the current message into {@link #bytes}
+     *
+     * @return the length of the encoded message
+     * @throws IOException if the message is too long
+     */
+    private int encode() throws IOException {
+        this.encoder.reset();
+        ByteBuffer out = ByteBuffer.wrap(this.bytes);
+        // A part may end halfway through a surrogate pair, the encoder then leaves the high surrogate unread.
+        // It is kept until the next non-empty part and encoded together with that part's first char.
+        final CharBuffer pair = CharBuffer.allocate(2);
+        boolean carried = false;
+        for (int i = 0; i < this.parts.size(); i++) {
+            final CharSequence part = this.parts.get(i);
+            final boolean endOfInput = i == this.parts.size() - 1;
+            int start = 0;
+            if (carried && !part.isEmpty()) {
+                pair.put(part.charAt(0)).flip();
+                out = this.encode(pair, out, endOfInput && part.length() == 1);
+                carried = false;
+                // Left over if the part starts with another high surrogate, which is then encoded with the rest of the part
+                if (!pair.hasRemaining()) start = 1;
+            } else if (carried) {
+                if (!endOfInput) continue;
+                pair.flip();
+                out = this.encode(pair, out, true);
+                carried = false;
+            }
+            final CharBuffer in = CharBuffer.wrap(part, start, part.length());
+            out = this.encode(in, out, endOfInput);
+            if (in.hasRemaining()) {
+                pair.clear();
+                pair.put(in.get());
+                carried = true;
+            }
+        }
+        while (this.encoder.flush(out).isOverflow()) {
+            out = this.grow(out);
+        }
+        return out.position();
+    }
+
+    private ByteBuffer encode(final CharBuffer in, ByteBuffer out, final boolean endOfInput) throws IOException {
+        while (this.encoder.encode(in, out, endOfInput).isOverflow()) {
+            out = this.grow(out);
+        }
+        return out;
+    }
+
+    private ByteBuffer grow(final ByteBuffer out) throws IOException {
+        if (this.bytes.length >= MAX_EVENT_LENGTH) {
+            throw new IOException("Message exceeds the maximum length of " + MAX_EVENT_LENGTH + " bytes");
+        }
+        this.bytes = Arrays.copyOf(this.bytes, Math.min(MAX_EVENT_LENGTH, 2 * this.bytes.length));
+        return ByteBuffer.wrap(this.bytes).position(out.position());
+    }
+
+    @Override
+    public @Nullable CompletionStage<?> onPong(final WebSocket webSocket, final ByteBuffer message) {
+        this.active();
+        webSocket.request(1);
+        return null;
+    }
+
+    @Override
+    public @Nullable CompletionStage<?> onClose(final WebSocket webSocket, final int statusCode, final String reason) {
+        this.releaseParts();
+        if (statusCode == WebSocket.NORMAL_CLOSURE) {
+            this.complete();
+        } else {
+            this.fail(new IOException("Web socket closed with status " + statusCode + (reason.isEmpty() ? "" : ": " + reason)));
+        }
+        return null;
+    }
+
+    @Override
+    public void onError(final WebSocket webSocket, final Throwable error) {
+        this.releaseParts();
+        this.fail(error);
+    }
+
+}
@@ -13,6 +13,4 @@ module dev.siebrenvde.ntfy {
     exports dev.siebrenvde.ntfy.response;
     exports dev.siebrenvde.ntfy.topic;
     exports dev.siebrenvde.ntfy.util;
-
-    opens dev.siebrenvde.ntfy.response to com.google.gson;
 }
@@ -0,0 +1,60 @@
+package dev.siebrenvde.ntfy.internal;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class HeaderEncoderTest {
+
+    private static String expected(final String value) {
+        return "=?UTF-8?B?" + Base64.getEncoder().encodeToString(value.getBytes(StandardCharsets.UTF_8)) + "?=";
+    }
+
+    @Test
+    void testAsciiIsNotEncoded() {
+        final String value = "Hello, ntfy! ~{}[]";
+        assertSame(value, HeaderEncoder.encode(value));
+        assertSame("", HeaderEncoder.encode(""));
+    }
+
+    @Test
+    void testEncode() {
+        assertEquals("=?UTF-8?B?SGVsbG8sIG50ZnkhIPCfkYs=?=", HeaderEncoder.encode("Hello, ntfy! 👋"));
+        for (final String value : List.of(
+            "é",
+            "Ünïcödé",
+            "Zażółć gęślą jaźń",
+            "日本語のタイトル",
+            "🔥🚨🔥🚨",
+            "line\nbreak",
+            "tab\t",
+            String.valueOf((char) 127),
+            "a🙂",
+            "ab🙂",
+            "abc🙂"
+        )) {
+            assertEquals(expected(value), HeaderEncoder.encode(value), value);
+        }
+    }
+
+    @Test
+    void testLoneSurrogates() {
+        final String high = "a" + (char) 0xD83D + "b";
+        final String low = "a" + (char) 0xDE42;
+        assertEquals(expected(high), HeaderEncoder.encode(high));
+        assertEquals(expected(low), HeaderEncoder.encode(low));
+    }
+
+    @Test
+    void testLargeValue() {
+        final String value = "ä".repeat(10_000);
+        assertEquals(expected(value), HeaderEncoder.encode(value));
+        assertEquals(expected("ä"), HeaderEncoder.encode("ä"));
+    }
+
+}
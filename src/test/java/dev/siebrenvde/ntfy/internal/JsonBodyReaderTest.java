@@ -0,0 +1,114 @@
+package dev.siebrenvde.ntfy.internal;
+
+import com.google.gson.JsonSyntaxException;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JsonBodyReaderTest {
+
+    @Test
+    void testObject() {
+        final JsonBodyReader reader = reader("{ \"string\": \"value\", \"number\": -1234, \"boolean\": true, \"null\": null, \"skipped\": [1, {\"a\": [\"b\"]}, 2.5e3] }");
+        reader.beginObject();
+        assertTrue(reader.hasNext());
+        assertEquals("string", reader.nextName());
+        assertEquals("value", reader.nextString());
+        assertTrue(reader.hasNext());
+        assertEquals("number", reader.nextName());
+        assertEquals(-1234, reader.nextLong());
+        assertTrue(reader.hasNext());
+        assertEquals("boolean", reader.nextName());
+        assertTrue(reader.nextBoolean());
+        assertTrue(reader.hasNext());
+        assertEquals("null", reader.nextName());
+        assertTrue(reader.nextNull());
+        assertTrue(reader.hasNext());
+        assertEquals("skipped", reader.nextName());
+        reader.skipValue();
+        assertFalse(reader.hasNext());
+        reader.endObject();
+    }
+
+    @Test
+    void testEscapes() {
+        assertEquals("\"quote\" \\ / \n\t" + (char) 1 + "é", reader("\"\\\"quote\\\" \\\\ \\/ \\n\\t\\u0001\\u00e9\"").nextString());
+    }
+
+    @Test
+    void testUtf8() {
+        final String value = "héllo wörld ✓ 👋";
+        assertEquals(value, reader("\"" + value + "\"").nextString());
+    }
+
+    @Test
+    void testOffset() {
+        final byte[] bytes = "xx[1]xx".getBytes(StandardCharsets.UTF_8);
+        final JsonBodyReader reader = JsonBodyReader.reader(bytes, 2, 3);
+        reader.beginArray();
+        assertEquals(1, reader.nextLong());
+        reader.endArray();
+    }
+
+    @Test
+    void testNameLookup() {
+        final byte[][] names = {"id".getBytes(StandardCharsets.UTF_8), "time".getBytes(StandardCharsets.UTF_8)};
+        final String json = "{\"time\": 1, \"other\": 2, \"\\u0069d\": \"a\", \"i\": 3}";
+        final JsonBodyReader reader = reader(json);
+        reader.beginObject();
+        assertEquals(1, reader.nextName(names));
+        reader.skipValue();
+        assertTrue(reader.hasNext());
+        assertEquals(-1, reader.nextName(names));
+        reader.skipValue();
+        assertTrue(reader.hasNext());
+        assertEquals(0, reader.nextName(names), "escaped names are decoded");
+        assertEquals("a", reader.nextString());
+        assertTrue(reader.hasNext());
+        assertEquals(-1, reader.nextName(names));
+        assertEquals(json.indexOf('3'), reader.offset(), "the offset skips whitespace");
+        reader.skipValue();
+        assertFalse(reader.hasNext());
+        reader.endObject();
+    }
+
+    @Test
+    void testNumbers() {
+        assertEquals(Long.MAX_VALUE, reader(String.valueOf(Long.MAX_VALUE)).nextLong());
+        assertEquals(Long.MIN_VALUE, reader(String.valueOf(Long.MIN_VALUE)).nextLong());
+        assertEquals(-12, reader("-12").nextLong());
+        assertEquals(1500, reader("1.5e3").nextLong());
+        assertThrows(JsonSyntaxException.class, () -> reader("1-2").nextLong());
+        assertThrows(JsonSyntaxException.class, () -> reader("-").nextLong());
+    }
+
+    @Test
+    void testMalformed() {
+        assertThrows(JsonSyntaxException.class, () -> reader("<html>").beginObject());
+        assertThrows(JsonSyntaxException.class, () -> reader("\"unterminated").nextString());
+        assertThrows(JsonSyntaxException.class, () -> reader("{\"key\":").skipValue());
+        assertThrows(JsonSyntaxException.class, () -> reader("nul").nextNull());
+        assertThrows(JsonSyntaxException.class, () -> reader("").hasNext());
+    }
+
+    @Test
+    void testNesting() {
+        final int depth = JsonBodyReader.MAX_DEPTH;
+        final JsonBodyReader reader = reader("[".repeat(depth) + "{\"a\":1}" + "]".repeat(depth));
+        assertThrows(JsonSyntaxException.class, reader::skipValue, "one level too deep");
+        final JsonBodyReader nested = reader("[".repeat(depth - 1) + "{\"a\":1}" + "]".repeat(depth - 1) + "1");
+        nested.skipValue();
+        assertEquals(1, nested.nextLong());
+        assertThrows(JsonSyntaxException.class, () -> reader("[".repeat(60_000)).skipValue(), "does not overflow the stack");
+    }
+
+    private static JsonBodyReader reader(final String json) {
+        return JsonBodyReader.reader(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+}
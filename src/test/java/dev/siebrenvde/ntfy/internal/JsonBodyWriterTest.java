@@ -0,0 +1,50 @@
+package dev.siebrenvde.ntfy.internal;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class JsonBodyWriterTest {
+
+    @Test
+    void testObject() {
+        final byte[] json = JsonBodyWriter.writer()
+            .beginObject()
+            .name("string").value("value")
+            .name("number").value(-1234)
+            .name("boolean").value(true)
+            .name("array").beginArray().value("one").value("two").endArray()
+            .name("object").beginObject().name("key").value(0).endObject()
+            .endObject()
+            .toByteArray();
+        assertEquals(
+            "{\"string\":\"value\",\"number\":-1234,\"boolean\":true,\"array\":[\"one\",\"two\"],\"object\":{\"key\":0}}",
+            new String(json, StandardCharsets.UTF_8)
+        );
+    }
+
+    @Test
+    void testContinuation() {
+        final byte[] json = JsonBodyWriter.continuation()
+            .name("key").value("value")
+            .endObject()
+            .toByteArray();
+        assertEquals(",\"key\":\"value\"}", new String(json, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testEscapes() {
+        final byte[] json = JsonBodyWriter.writer().value("\"quote\" \\ \n\t" + (char) 1).toByteArray();
+        assertEquals("\"\\\"quote\\\" \\\\ \\n\\t\\u0001\"", new String(json, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testUtf8() {
+        final String value = "héllo wörld ✓ 👋";
+        final byte[] json = JsonBodyWriter.writer().value(value).toByteArray();
+        assertEquals("\"" + value + "\"", new String(json, StandardCharsets.UTF_8));
+    }
+
+}
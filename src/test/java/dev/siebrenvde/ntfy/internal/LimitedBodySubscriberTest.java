@@ -0,0 +1,85 @@
+package dev.siebrenvde.ntfy.internal;
+
+import com.google.gson.JsonSyntaxException;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Flow;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LimitedBodySubscriberTest {
+
+    @Test
+    void testCollect() throws ExecutionException, InterruptedException {
+        final LimitedBodySubscriber<String> subscriber = new LimitedBodySubscriber<>(8, -1, (bytes, length, truncated) -> new String(bytes, 0, length, StandardCharsets.UTF_8) + truncated);
+        subscriber.onSubscribe(new NoopSubscription());
+        subscriber.onNext(List.of(buffer("abc"), buffer("def")));
+        subscriber.onComplete();
+        assertEquals("abcdeffalse", subscriber.getBody().toCompletableFuture().get());
+    }
+
+    @Test
+    void testTruncate() throws ExecutionException, InterruptedException {
+        final NoopSubscription subscription = new NoopSubscription();
+        final LimitedBodySubscriber<String> subscriber = new LimitedBodySubscriber<>(8, 1_000_000, (bytes, length, truncated) -> new String(bytes, 0, length, StandardCharsets.UTF_8) + truncated);
+        subscriber.onSubscribe(subscription);
+        subscriber.onNext(List.of(buffer("abcdef")));
+        subscriber.onNext(List.of(buffer("ghijkl")));
+        subscriber.onNext(List.of(buffer("mnopqr")));
+        subscriber.onComplete();
+        assertEquals("abcdefghtrue", subscriber.getBody().toCompletableFuture().get());
+        assertTrue(subscription.cancelled);
+    }
+
+    @Test
+    void testNestedBody() {
+        final LimitedBodySubscriber<Boolean> subscriber = new LimitedBodySubscriber<>(1 << 20, -1, (bytes, length, truncated) -> {
+            JsonBodyReader.reader(bytes, 0, length).skipValue();
+            return true;
+        });
+        subscriber.onSubscribe(new NoopSubscription());
+        subscriber.onNext(List.of(buffer("[".repeat(60_000))));
+        subscriber.onComplete();
+        final ExecutionException e = assertThrows(ExecutionException.class, () -> subscriber.getBody().toCompletableFuture().get());
+        assertInstanceOf(JsonSyntaxException.class, e.getCause());
+    }
+
+    @Test
+    void testDecoderError() {
+        final LimitedBodySubscriber<String> subscriber = new LimitedBodySubscriber<>(8, -1, (bytes, length, truncated) -> {
+            throw new StackOverflowError();
+        });
+        subscriber.onSubscribe(new NoopSubscription());
+        subscriber.onComplete();
+        final ExecutionException e = assertThrows(ExecutionException.class, () -> subscriber.getBody().toCompletableFuture().get());
+        assertInstanceOf(StackOverflowError.class, e.getCause(), "errors complete the body too");
+    }
+
+    private static ByteBuffer buffer(final String value) {
+        return ByteBuffer.wrap(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static final class NoopSubscription implements Flow.Subscription {
+
+        private boolean cancelled;
+
+        @Override
+        public void request(final long n) {
+
+        }
+
+        @Override
+        public void cancel() {
+            this.cancelled = true;
+        }
+
+    }
+
+}
@@ -0,0 +1,95 @@
+package dev.siebrenvde.ntfy.message;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import dev.siebrenvde.ntfy.message.action.Action;
+import dev.siebrenvde.ntfy.message.attachment.Attachment;
+import org.junit.jupiter.api.Test;
+
+import java.io.FileNotFoundException;
+import java.net.URI;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+
+import static dev.siebrenvde.ntfy.message.Message.message;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PreparedMessageTest {
+
+    private static final URI TOPIC_URI = URI.create("https://example.com/topic");
+
+    private static final String BODY = "body";
+    private static final String TITLE = "Hello, ntfy! 👋";
+    private static final String TITLE_ENCODED = "=?UTF-8?B?SGVsbG8sIG50ZnkhIPCfkYs=?=";
+
+    private static final Message MESSAGE = message()
+        .body(BODY)
+        .title(TITLE)
+        .priority(Priority.HIGH)
+        .tags("one", "two")
+        .actions(Action.view("view", "https://example.com"))
+        .attachment(Attachment.url("https://example.com/file.txt"))
+        .cache(false)
+        .build();
+
+    @Test
+    void testPrepare() throws FileNotFoundException {
+        assertEquals(PreparedMessage.prepare(MESSAGE), MESSAGE.prepare());
+        assertEquals(MESSAGE, MESSAGE.prepare().message());
+    }
+
+    @Test
+    void testHeaders() throws FileNotFoundException {
+        final HttpRequest request = ((PreparedMessageImpl) MESSAGE.prepare()).newRequest(TOPIC_URI).build();
+        final HttpHeaders headers = request.headers();
+
+        assertEquals(TOPIC_URI, request.uri());
+        assertEquals("POST", request.method());
+        assertEquals(Optional.of(BODY), headers.firstValue("Message"));
+        assertEquals(Optional.of(TITLE_ENCODED), headers.firstValue("Title"));
+        assertEquals(Optional.of("HIGH"), headers.firstValue("Priority"));
+        assertEquals(Optional.of("one,two"), headers.firstValue("Tags"));
+        assertEquals(Optional.of("https://example.com/file.txt"), headers.firstValue("Attach"));
+        assertEquals(Optional.of("no"), headers.firstValue("Cache"));
+        assertTrue(headers.firstValue("Firebase").isEmpty());
+        assertTrue(headers.firstValue("Markdown").isEmpty());
+    }
+
+    @Test
+    void testReusable() throws FileNotFoundException {
+        final PreparedMessageImpl prepared = (PreparedMessageImpl) MESSAGE.prepare();
+        final HttpHeaders first = prepared.newRequest(TOPIC_URI).build().headers();
+        final HttpHeaders second = prepared.newRequest(TOPIC_URI.resolve("other")).build().headers();
+        assertEquals(first, second);
+        assertEquals(List.of(BODY), second.allValues("Message"));
+    }
+
+    @Test
+    void testJson() throws FileNotFoundException {
+        final byte[] fields = ((PreparedMessageImpl) MESSAGE.prepare()).json();
+        final JsonObject json = JsonParser.parseString("{\"topic\":\"topic\"" + new String(fields, StandardCharsets.UTF_8)).getAsJsonObject();
+
+        assertEquals("topic", json.get("topic").getAsString());
+        assertEquals(BODY, json.get("message").getAsString());
+        assertEquals(TITLE, json.get("title").getAsString());
+        assertEquals(4, json.get("priority").getAsInt());
+        assertEquals(2, json.getAsJsonArray("tags").size());
+        assertEquals("view", json.getAsJsonArray("actions").get(0).getAsJsonObject().get("action").getAsString());
+        assertEquals("https://example.com/file.txt", json.get("attach").getAsString());
+        assertFalse(json.has("markdown"));
+    }
+
+    @Test
+    void testMissingFileThrows() {
+        final Message message = message().attachment(Attachment.file(Path.of("does-not-exist"))).build();
+        assertThrows(FileNotFoundException.class, message::prepare);
+    }
+
+}
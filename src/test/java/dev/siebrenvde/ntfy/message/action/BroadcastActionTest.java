@@ -59,4 +59,13 @@ class BroadcastActionTest {
         assertNotEquals(two, broadcast(LABEL).setExtra(EXTRA_TWO_KEY, EXTRA_TWO_VALUE).extras(EXTRA_MAP_ONE).build());
     }
 
+    @Test
+    void testHeaderValue() {
+        assertEquals("action=broadcast,label=label", ((AbstractAction) broadcast(LABEL).build()).headerValue());
+        assertEquals(
+            "action=broadcast,label=label,clear=true,intent=intent,extras.key one=value one,extras.key two=value two",
+            ((AbstractAction) broadcast(LABEL).intent(INTENT).extras(EXTRA_MAP_TWO).clear(CLEAR).build()).headerValue()
+        );
+    }
+
 }
@@ -57,4 +57,13 @@ class HttpActionTest {
         assertNotEquals(two, http(LABEL, URL).setHeader(HEADER_TWO_KEY, HEADER_TWO_VALUE).headers(HEADER_MAP_ONE).build());
     }
 
+    @Test
+    void testHeaderValue() {
+        assertEquals("action=http,label=label,url=url", ((AbstractAction) http(LABEL, URL).build()).headerValue());
+        assertEquals(
+            "action=http,label=label,clear=true,url=url,method=DELETE,headers.key one=value one,headers.key two=value two,body=body",
+            ((AbstractAction) http(LABEL, URL).method(METHOD).headers(HEADER_MAP_TWO).body(BODY).clear(CLEAR).build()).headerValue()
+        );
+    }
+
 }
@@ -3,6 +3,7 @@ package dev.siebrenvde.ntfy.message.action;
 import org.junit.jupiter.api.Test;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
 
 class ViewActionTest {
 
@@ -26,4 +27,16 @@ class ViewActionTest {
         );
     }
 
+    @Test
+    void testHeaderValue() {
+        assertEquals("action=view,label=label,clear=true,url=url", ((AbstractAction) Action.view(LABEL, URL, CLEAR)).headerValue());
+        assertEquals("action=view,label=\"a, \\\"quoted\\\" label\",url=url", ((AbstractAction) Action.view("a, \"quoted\" label", URL)).headerValue());
+    }
+
+    @Test
+    void testHeaderValueIsCached() {
+        final AbstractAction action = (AbstractAction) Action.view(LABEL, URL);
+        assertSame(action.headerValue(), action.headerValue());
+    }
+
 }
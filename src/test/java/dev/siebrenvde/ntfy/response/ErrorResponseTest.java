@@ -0,0 +1,31 @@
+package dev.siebrenvde.ntfy.response;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ErrorResponseTest {
+
+    @Test
+    void testFromResponse() {
+        assertEquals(
+            new ErrorResponseImpl(42901, 429, "limit reached: too many requests", "https://ntfy.sh/docs/publish/#limitations"),
+            ErrorResponse.fromResponse(429, "{\"code\":42901,\"http\":429,\"error\":\"limit reached: too many requests\",\"link\":\"https://ntfy.sh/docs/publish/#limitations\"}")
+        );
+    }
+
+    @Test
+    void testFromHtmlResponse() {
+        final ErrorResponse response = ErrorResponse.fromResponse(502, "<html><body><h1>502 Bad Gateway</h1></body></html>");
+        assertEquals(0, response.code());
+        assertEquals(502, response.http());
+        assertEquals("Unexpected response from server (HTTP 502)", response.error());
+    }
+
+    @Test
+    void testFromEmptyResponse() {
+        assertEquals(503, ErrorResponse.fromResponse(503, "").http());
+        assertEquals(504, ErrorResponse.fromResponse(504, "{}").http());
+    }
+
+}
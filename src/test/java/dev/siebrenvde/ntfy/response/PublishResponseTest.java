@@ -0,0 +1,59 @@
+package dev.siebrenvde.ntfy.response;
+
+import com.google.gson.JsonSyntaxException;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class PublishResponseTest {
+
+    @Test
+    void testFromJson() {
+        final PublishResponse response = PublishResponse.fromJson(
+            "{\"id\":\"sPs71M8A2T\",\"time\":1673542291,\"expires\":1673585491,\"event\":\"message\",\"topic\":\"mytopic\",\"message\":\"triggered\",\"tags\":[\"warning\"]}"
+        );
+        assertEquals(new PublishResponseImpl("sPs71M8A2T", Instant.ofEpochSecond(1673542291), Instant.ofEpochSecond(1673585491)), response);
+        assertEquals("mytopic", response.topic());
+        assertEquals("message", response.event());
+        assertNull(response.attachment());
+    }
+
+    @Test
+    void testAttachment() {
+        final PublishResponse response = PublishResponse.fromJson(
+            "{\"id\":\"sPs71M8A2T\",\"time\":1673542291,\"attachment\":{\"name\":\"flower.jpg\",\"type\":\"image/jpeg\",\"size\":5694,\"expires\":1673553091,\"url\":\"https://ntfy.sh/file/sPs71M8A2T.jpg\"}}"
+        );
+        assertNull(response.expires());
+        final PublishResponse.Attachment attachment = response.attachment();
+        assertNotNull(attachment);
+        assertEquals("https://ntfy.sh/file/sPs71M8A2T.jpg", attachment.url());
+        assertEquals("flower.jpg", attachment.name());
+        assertEquals("image/jpeg", attachment.type());
+        assertEquals(5694, attachment.size());
+        assertEquals(Instant.ofEpochSecond(1673553091), attachment.expires());
+    }
+
+    @Test
+    void testExternalAttachment() {
+        final PublishResponse response = PublishResponse.fromJson(
+            "{\"id\":\"sPs71M8A2T\",\"time\":1673542291,\"attachment\":{\"name\":\"flower.jpg\",\"url\":\"https://example.com/flower.jpg\"}}"
+        );
+        final PublishResponse.Attachment attachment = response.attachment();
+        assertNotNull(attachment);
+        assertNull(attachment.type());
+        assertEquals(0, attachment.size());
+        assertNull(attachment.expires());
+    }
+
+    @Test
+    void testMissingFields() {
+        assertThrows(JsonSyntaxException.class, () -> PublishResponse.fromJson("{\"time\":1673542291}"));
+        assertThrows(JsonSyntaxException.class, () -> PublishResponse.fromJson("<html></html>"));
+    }
+
+}
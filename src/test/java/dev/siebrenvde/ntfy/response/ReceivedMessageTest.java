@@ -0,0 +1,102 @@
+package dev.siebrenvde.ntfy.response;
+
+import com.google.gson.JsonSyntaxException;
+import dev.siebrenvde.ntfy.message.Priority;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ReceivedMessageTest {
+
+    @Test
+    void testFromJson() {
+        final ReceivedMessage message = fromJson(
+            "{\"id\":\"sPs71M8A2T\",\"time\":1673542291,\"expires\":1673585491,\"event\":\"message\",\"topic\":\"mytopic\","
+                + "\"message\":\"Disk space is low\",\"title\":\"Warning\",\"priority\":4,\"tags\":[\"warning\",\"skull\"],\"click\":\"https://example.com\"}"
+        );
+        assertNotNull(message);
+        assertEquals("sPs71M8A2T", message.id());
+        assertEquals(Instant.ofEpochSecond(1673542291), message.time());
+        assertEquals(Instant.ofEpochSecond(1673585491), message.expires());
+        assertEquals("mytopic", message.topic());
+        assertEquals("Disk space is low", message.body());
+        assertEquals("Warning", message.title());
+        assertEquals(Priority.HIGH, message.priority());
+        assertEquals(List.of("warning", "skull"), message.tags());
+        assertEquals("https://example.com", message.click());
+        assertNull(message.attachment());
+    }
+
+    @Test
+    void testDefaults() {
+        final ReceivedMessage message = fromJson("{\"id\":\"sPs71M8A2T\",\"time\":1673542291,\"event\":\"message\",\"topic\":\"mytopic\"}");
+        assertNotNull(message);
+        assertNull(message.body());
+        assertEquals(Priority.DEFAULT, message.priority());
+        assertEquals(List.of(), message.tags());
+    }
+
+    @Test
+    void testAttachment() {
+        final ReceivedMessage message = fromJson(
+            "{\"id\":\"sPs71M8A2T\",\"time\":1673542291,\"event\":\"message\",\"topic\":\"mytopic\",\"attachment\":{\"name\":\"flower.jpg\",\"url\":\"https://example.com/flower.jpg\"}}"
+        );
+        assertNotNull(message);
+        final PublishResponse.Attachment attachment = message.attachment();
+        assertNotNull(attachment);
+        assertEquals("https://example.com/flower.jpg", attachment.url());
+    }
+
+    @Test
+    void testEscapes() {
+        final ReceivedMessage message = fromJson(
+            "{\"id\":\"sPs71M8A2T\",\"time\":1673542291,\"event\":\"message\",\"topic\":\"mytopic\",\"title\":null,"
+                + "\"message\":\"Line one\\nLine \\\"two\\\" \\u2713\",\"\\u0074ags\":[\"a\\\\b\"],\"extra\":{\"message\":\"nested\"}}"
+        );
+        assertNotNull(message);
+        assertEquals("Line one\nLine \"two\" \u2713", message.body());
+        assertNull(message.title());
+        assertEquals(List.of("a\\b"), message.tags());
+    }
+
+    @Test
+    void testReusedArray() {
+        final byte[] bytes = "{\"id\":\"sPs71M8A2T\",\"time\":1673542291,\"event\":\"message\",\"topic\":\"mytopic\",\"message\":\"first\"}"
+            .getBytes(StandardCharsets.UTF_8);
+        final ReceivedMessage message = ReceivedMessage.fromJson(bytes, 0, bytes.length);
+        assertNotNull(message);
+        Arrays.fill(bytes, (byte) ' ');
+        assertEquals("first", message.body(), "fields decoded later are unaffected by the reused line buffer");
+        assertEquals(message.body(), message.body());
+    }
+
+    @Test
+    void testOtherEvents() {
+        assertNull(fromJson("{\"id\":\"hwQ2YpKdmg\",\"time\":1673542291,\"event\":\"open\",\"topic\":\"mytopic\"}"));
+        assertNull(fromJson("{\"id\":\"hwQ2YpKdmg\",\"time\":1673542291,\"event\":\"keepalive\",\"topic\":\"mytopic\"}"));
+    }
+
+    @Test
+    void testMissingFields() {
+        assertThrows(JsonSyntaxException.class, () -> fromJson("{\"event\":\"message\",\"topic\":\"mytopic\"}"));
+    }
+
+    @Test
+    void testNestedUnknownField() {
+        assertThrows(JsonSyntaxException.class, () -> fromJson("{\"id\":\"abc\",\"time\":1,\"event\":\"message\",\"topic\":\"t\",\"unknown\":" + "[".repeat(60_000) + "}"));
+    }
+
+    private static ReceivedMessage fromJson(final String json) {
+        final byte[] bytes = ("  " + json).getBytes(StandardCharsets.UTF_8);
+        return ReceivedMessage.fromJson(bytes, 2, bytes.length - 2);
+    }
+
+}
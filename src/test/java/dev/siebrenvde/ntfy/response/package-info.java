@@ -0,0 +1,4 @@
+@NullMarked
+package dev.siebrenvde.ntfy.response;
+
+import org.jspecify.annotations.NullMarked;
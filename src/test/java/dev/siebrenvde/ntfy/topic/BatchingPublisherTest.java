@@ -0,0 +1,114 @@
+package dev.siebrenvde.ntfy.topic;
+
+import dev.siebrenvde.ntfy.response.ErrorResponse;
+import dev.siebrenvde.ntfy.response.PublishResponse;
+import dev.siebrenvde.ntfy.topic.BatchingPublisher.OverflowPolicy;
+import dev.siebrenvde.ntfy.util.Result;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static dev.siebrenvde.ntfy.topic.BatchingPublisher.batching;
+import static dev.siebrenvde.ntfy.topic.RateLimiter.rateLimiter;
+import static dev.siebrenvde.ntfy.topic.Topic.topic;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BatchingPublisherTest {
+
+    private static final Topic TOPIC = topic("name").host("http://127.0.0.1:1").build();
+    private static final Duration LONG_LINGER = Duration.ofHours(1);
+
+    @Test
+    void testBuilder() {
+        final BatchingPublisher publisher = batching(TOPIC)
+            .maxBatchSize(16)
+            .linger(Duration.ofSeconds(1))
+            .queueCapacity(32)
+            .overflowPolicy(OverflowPolicy.FAIL_FAST)
+            .build();
+        assertEquals(TOPIC, publisher.topic());
+        assertEquals(16, publisher.maxBatchSize());
+        assertEquals(Duration.ofSeconds(1), publisher.linger());
+        assertEquals(32, publisher.queueCapacity());
+        assertEquals(OverflowPolicy.FAIL_FAST, publisher.overflowPolicy());
+    }
+
+    @Test
+    void testInvalidBuilderValuesThrow() {
+        assertThrows(IllegalArgumentException.class, () -> batching(TOPIC).maxBatchSize(0));
+        assertThrows(IllegalArgumentException.class, () -> batching(TOPIC).queueCapacity(0));
+        assertThrows(IllegalArgumentException.class, () -> batching(TOPIC).linger(Duration.ofSeconds(-1)));
+    }
+
+    @Test
+    void testFailFastRejectsWhenFull() throws InterruptedException {
+        try (BatchingPublisher publisher = batching(TOPIC).maxBatchSize(8).queueCapacity(2).linger(LONG_LINGER).overflowPolicy(OverflowPolicy.FAIL_FAST).build()) {
+            final CompletableFuture<Result<PublishResponse, ErrorResponse>> first = publisher.submit("one");
+            publisher.submit("two");
+            final CompletableFuture<Result<PublishResponse, ErrorResponse>> third = publisher.submit("three");
+
+            assertFalse(first.isDone());
+            assertRejected(third);
+        }
+    }
+
+    @Test
+    void testDropOldestDropsWhenFull() throws InterruptedException {
+        try (BatchingPublisher publisher = batching(TOPIC).maxBatchSize(8).queueCapacity(2).linger(LONG_LINGER).overflowPolicy(OverflowPolicy.DROP_OLDEST).build()) {
+            final CompletableFuture<Result<PublishResponse, ErrorResponse>> first = publisher.submit("one");
+            publisher.submit("two");
+            final CompletableFuture<Result<PublishResponse, ErrorResponse>> third = publisher.submit("three");
+
+            assertRejected(first);
+            assertFalse(third.isDone());
+        }
+    }
+
+    @Test
+    void testFlushSendsQueuedMessages() throws InterruptedException {
+        try (BatchingPublisher publisher = batching(TOPIC).linger(LONG_LINGER).build()) {
+            final CompletableFuture<Result<PublishResponse, ErrorResponse>> future = publisher.submit("one");
+            publisher.flush().join();
+            assertTrue(future.isCompletedExceptionally());
+        }
+    }
+
+    @Test
+    void testSynchronousRejections() throws InterruptedException {
+        final RateLimiter limiter = rateLimiter().burst(1).replenishInterval(Duration.ofHours(1)).maxWait(Duration.ZERO).build();
+        final Topic topic = topic("name").host("http://127.0.0.1:1").rateLimiter(limiter).build();
+        final List<CompletableFuture<Result<PublishResponse, ErrorResponse>>> futures = new ArrayList<>();
+        final BatchingPublisher publisher = batching(topic).maxBatchSize(1).queueCapacity(10_000).linger(LONG_LINGER).build();
+        for (int i = 0; i < 5_000; i++) futures.add(publisher.submit("message " + i));
+        publisher.flush().orTimeout(10, TimeUnit.SECONDS).join();
+        publisher.close();
+        for (final CompletableFuture<Result<PublishResponse, ErrorResponse>> future : futures.subList(1, futures.size())) {
+            final CompletionException exception = assertThrows(CompletionException.class, future::join);
+            assertInstanceOf(PublishRejectedException.class, exception.getCause(), "every batch is sent");
+        }
+    }
+
+    @Test
+    void testClosedRejects() throws InterruptedException {
+        final BatchingPublisher publisher = batching(TOPIC).build();
+        publisher.close();
+        assertRejected(publisher.submit("one"));
+    }
+
+    private static void assertRejected(final CompletableFuture<?> future) {
+        assertTrue(future.isCompletedExceptionally());
+        final CompletionException exception = assertThrows(CompletionException.class, future::join);
+        assertInstanceOf(RejectedExecutionException.class, exception.getCause());
+    }
+
+}
@@ -0,0 +1,44 @@
+package dev.siebrenvde.ntfy.topic;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+
+import static dev.siebrenvde.ntfy.topic.Bulkhead.bulkhead;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BulkheadTest {
+
+    private static final URI HOST = URI.create("https://example.com/");
+    private static final URI OTHER_HOST = URI.create("https://example.org/");
+
+    @Test
+    void testZeroCallsThrows() {
+        assertThrows(IllegalArgumentException.class, () -> bulkhead(0));
+    }
+
+    @Test
+    void testLimitPerHost() {
+        final BulkheadImpl bulkhead = (BulkheadImpl) bulkhead(2);
+        assertTrue(bulkhead.tryAcquire(HOST));
+        assertTrue(bulkhead.tryAcquire(HOST));
+        assertFalse(bulkhead.tryAcquire(HOST));
+        assertTrue(bulkhead.tryAcquire(OTHER_HOST));
+
+        bulkhead.release(HOST);
+        assertTrue(bulkhead.tryAcquire(HOST));
+    }
+
+    @Test
+    void testActiveCalls() {
+        final Bulkhead bulkhead = bulkhead(4);
+        final Topic topic = Topic.topic("topic").host("https://example.com").bulkhead(bulkhead).build();
+        assertEquals(0, bulkhead.activeCalls(topic));
+        ((BulkheadImpl) bulkhead).tryAcquire(HOST);
+        assertEquals(1, bulkhead.activeCalls(topic));
+    }
+
+}
@@ -0,0 +1,152 @@
+package dev.siebrenvde.ntfy.topic;
+
+import dev.siebrenvde.ntfy.message.Message;
+import org.junit.jupiter.api.Test;
+
+import java.net.ConnectException;
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static dev.siebrenvde.ntfy.topic.CircuitBreaker.State.CLOSED;
+import static dev.siebrenvde.ntfy.topic.CircuitBreaker.State.HALF_OPEN;
+import static dev.siebrenvde.ntfy.topic.CircuitBreaker.State.OPEN;
+import static dev.siebrenvde.ntfy.topic.CircuitBreaker.circuitBreaker;
+import static dev.siebrenvde.ntfy.topic.CircuitBreakerImpl.REJECTED;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CircuitBreakerTest {
+
+    private static final URI HOST = URI.create("https://example.com/");
+    private static final URI OTHER_HOST = URI.create("https://example.org/");
+
+    private static final long FAST = Duration.ofMillis(10).toNanos();
+    private static final long SLOW = Duration.ofSeconds(2).toNanos();
+    private static final long OPEN_NANOS = Duration.ofSeconds(30).toNanos();
+
+    private final AtomicLong clock = new AtomicLong();
+    private final List<String> transitions = new ArrayList<>();
+    private final CircuitBreakerImpl breaker = new CircuitBreakerImpl(
+        0.5,
+        0.8,
+        Duration.ofSeconds(1),
+        4,
+        4,
+        Duration.ofNanos(OPEN_NANOS),
+        2,
+        (host, from, to) -> this.transitions.add(host + " " + from + " -> " + to),
+        this.clock::get
+    );
+
+    private void call(final URI host, final boolean failed, final long duration) {
+        final long ticket = this.breaker.tryAcquire(host);
+        assertNotEquals(REJECTED, ticket);
+        this.breaker.record(host, ticket, failed, duration);
+    }
+
+    @Test
+    void testInvalidValuesThrow() {
+        assertThrows(IllegalArgumentException.class, () -> circuitBreaker().failureRateThreshold(0));
+        assertThrows(IllegalArgumentException.class, () -> circuitBreaker().slowCallRateThreshold(1.5));
+        assertThrows(IllegalArgumentException.class, () -> circuitBreaker().windowSize(0));
+        assertThrows(IllegalArgumentException.class, () -> circuitBreaker().openDuration(Duration.ZERO));
+        assertThrows(IllegalStateException.class, () -> circuitBreaker().windowSize(5).minimumCalls(6).build());
+    }
+
+    @Test
+    void testOpensOnFailureRate() {
+        this.call(HOST, false, FAST);
+        this.call(HOST, true, FAST);
+        this.call(HOST, false, FAST);
+        assertEquals(CLOSED, this.breaker.state(HOST));
+        this.call(HOST, true, FAST);
+        assertEquals(OPEN, this.breaker.state(HOST));
+        assertEquals(REJECTED, this.breaker.tryAcquire(HOST));
+        assertEquals(CLOSED, this.breaker.state(OTHER_HOST));
+        assertEquals(List.of(HOST + " CLOSED -> OPEN"), this.transitions);
+    }
+
+    @Test
+    void testOpensOnSlowCallRate() {
+        this.call(HOST, false, FAST);
+        this.call(HOST, false, SLOW);
+        this.call(HOST, false, SLOW);
+        this.call(HOST, false, SLOW);
+        assertEquals(CLOSED, this.breaker.state(HOST));
+        // The fast call drops out of the window
+        this.call(HOST, false, SLOW);
+        assertEquals(OPEN, this.breaker.state(HOST));
+    }
+
+    @Test
+    void testSlidingWindow() {
+        for (int i = 0; i < 10; i++) {
+            this.call(HOST, i % 4 == 0, FAST);
+        }
+        assertEquals(CLOSED, this.breaker.state(HOST));
+    }
+
+    @Test
+    void testHalfOpenCloses() {
+        for (int i = 0; i < 4; i++) this.call(HOST, true, FAST);
+        this.clock.addAndGet(OPEN_NANOS);
+
+        final long first = this.breaker.tryAcquire(HOST);
+        final long second = this.breaker.tryAcquire(HOST);
+        assertEquals(HALF_OPEN, this.breaker.state(HOST));
+        assertEquals(REJECTED, this.breaker.tryAcquire(HOST));
+
+        this.breaker.record(HOST, first, false, FAST);
+        this.breaker.record(HOST, second, false, FAST);
+        assertEquals(CLOSED, this.breaker.state(HOST));
+        assertEquals(List.of(HOST + " CLOSED -> OPEN", HOST + " OPEN -> HALF_OPEN", HOST + " HALF_OPEN -> CLOSED"), this.transitions);
+    }
+
+    @Test
+    void testHalfOpenReopens() {
+        for (int i = 0; i < 4; i++) this.call(HOST, true, FAST);
+        this.clock.addAndGet(OPEN_NANOS);
+
+        this.call(HOST, false, FAST);
+        this.call(HOST, true, FAST);
+        assertEquals(OPEN, this.breaker.state(HOST));
+        assertEquals(REJECTED, this.breaker.tryAcquire(HOST));
+    }
+
+    @Test
+    void testStaleOutcomesIgnored() {
+        final long stale = this.breaker.tryAcquire(HOST);
+        for (int i = 0; i < 4; i++) this.call(HOST, true, FAST);
+        this.clock.addAndGet(OPEN_NANOS);
+        this.call(HOST, false, FAST);
+
+        // Let through while closed, so it does not count towards the half-open trial
+        this.breaker.record(HOST, stale, false, FAST);
+        assertEquals(HALF_OPEN, this.breaker.state(HOST));
+    }
+
+    @Test
+    void testFailureStatus() {
+        assertTrue(CircuitBreakerImpl.isFailure(503));
+        assertTrue(CircuitBreakerImpl.isFailure(408));
+        assertFalse(CircuitBreakerImpl.isFailure(429));
+        assertFalse(CircuitBreakerImpl.isFailure(200));
+    }
+
+    @Test
+    void testOpenCircuitFailsFast() {
+        final CircuitBreaker breaker = circuitBreaker().windowSize(2).minimumCalls(2).halfOpenCalls(1).build();
+        final Topic topic = Topic.topic("topic").host("http://127.0.0.1:1").circuitBreaker(breaker).build();
+        assertThrows(ConnectException.class, () -> topic.publish(Message.message("message")));
+        assertThrows(ConnectException.class, () -> topic.publish(Message.message("message")));
+        assertEquals(OPEN, breaker.state(topic));
+        assertThrows(CircuitOpenException.class, () -> topic.publish(Message.message("message")));
+    }
+
+}
@@ -0,0 +1,95 @@
+package dev.siebrenvde.ntfy.topic;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static dev.siebrenvde.ntfy.topic.Deduplicator.deduplicator;
+import static dev.siebrenvde.ntfy.topic.TestMessages.message;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DeduplicatorTest {
+
+    private static final long SECOND = 1_000_000_000L;
+
+    @Test
+    void testFirstSeen() {
+        final Deduplicator deduplicator = deduplicator().build();
+        assertTrue(deduplicator.firstSeen("a"));
+        assertTrue(deduplicator.firstSeen("b"));
+        assertFalse(deduplicator.firstSeen("a"));
+        assertFalse(deduplicator.firstSeen("a"));
+        assertEquals(2, deduplicator.hits());
+        assertEquals(2, deduplicator.misses());
+
+        for (int i = 0; i < 100_000; i++) assertTrue(deduplicator.firstSeen("id" + i));
+        for (int i = 0; i < 100_000; i++) assertFalse(deduplicator.firstSeen("id" + i));
+        assertEquals(100_002, deduplicator.hits());
+        assertEquals(100_002, deduplicator.misses());
+    }
+
+    @Test
+    void testWindow() {
+        final AtomicLong clock = new AtomicLong(-5);
+        final Deduplicator deduplicator = new DeduplicatorImpl(100, Duration.ofSeconds(10), clock::get);
+        assertTrue(deduplicator.firstSeen("a"));
+        clock.addAndGet(9 * SECOND);
+        assertTrue(deduplicator.firstSeen("b"));
+        clock.addAndGet(2 * SECOND);
+        assertFalse(deduplicator.firstSeen("a"), "ids are remembered for the previous generation");
+        clock.addAndGet(10 * SECOND);
+        assertTrue(deduplicator.firstSeen("b"), "ids are forgotten after two generations");
+
+        clock.addAndGet(25 * SECOND);
+        assertTrue(deduplicator.firstSeen("b"), "both generations are forgotten after two windows without ids");
+    }
+
+    @Test
+    void testCapacity() {
+        final Deduplicator deduplicator = new DeduplicatorImpl(3, Duration.ofHours(1), () -> 0);
+        for (final String id : List.of("a", "b", "c", "d")) assertTrue(deduplicator.firstSeen(id));
+        assertFalse(deduplicator.firstSeen("a"), "a full generation starts the next one early");
+        assertFalse(deduplicator.firstSeen("d"));
+        assertTrue(deduplicator.firstSeen("e"));
+        assertTrue(deduplicator.firstSeen("f"));
+        assertTrue(deduplicator.firstSeen("a"), "ids are forgotten after two full generations");
+        assertFalse(deduplicator.firstSeen("f"));
+    }
+
+    @Test
+    void testListener() {
+        final Deduplicator deduplicator = deduplicator().build();
+        final List<String> received = new ArrayList<>();
+        final SubscriptionManager.Listener listener = deduplicator.listener(message -> received.add(message.id()));
+        for (final String id : List.of("a", "b", "a", "c", "b")) listener.onMessage(message(id).build());
+        assertEquals(List.of("a", "b", "c"), received);
+        assertEquals(2, deduplicator.hits());
+        assertFalse(deduplicator.test(message("c").build()));
+    }
+
+    @Test
+    void testHash() {
+        final Set<Long> hashes = new HashSet<>();
+        for (int i = 0; i < 1_000_000; i++) hashes.add(DeduplicatorImpl.hash(Integer.toString(i, 36)));
+        assertEquals(1_000_000, hashes.size());
+        assertTrue(DeduplicatorImpl.hash("") != 0);
+    }
+
+    @Test
+    void testBuilder() {
+        assertEquals(Deduplicator.DEFAULT_CAPACITY, deduplicator().build().capacity());
+        assertEquals(Duration.ofMinutes(5), deduplicator().window(Duration.ofMinutes(5)).build().window());
+        assertThrows(IllegalArgumentException.class, () -> deduplicator().capacity(0));
+        assertThrows(IllegalArgumentException.class, () -> deduplicator().capacity(DeduplicatorImpl.MAX_CAPACITY + 1));
+        assertThrows(IllegalArgumentException.class, () -> deduplicator().window(Duration.ZERO));
+    }
+
+}
@@ -0,0 +1,105 @@
+package dev.siebrenvde.ntfy.topic;
+
+import dev.siebrenvde.ntfy.response.ErrorResponse;
+import org.jspecify.annotations.Nullable;
+import org.junit.jupiter.api.Test;
+
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpResponse.BodySubscriber;
+import java.net.http.HttpResponse.ResponseInfo;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Flow;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DiscardingBodyHandlerTest {
+
+    private static final String ERROR = "{\"code\":40301,\"http\":403,\"error\":\"forbidden\",\"link\":\"https://ntfy.sh/docs/publish/#authentication\"}";
+
+    @Test
+    void testSuccess() throws ExecutionException, InterruptedException {
+        final BodySubscriber<@Nullable ErrorResponse> subscriber = DiscardingBodyHandler.INSTANCE.apply(new Info(200));
+        subscriber.onSubscribe(new NoopSubscription());
+        subscriber.onNext(List.of(buffer("{\"id\":\"sPs71M8A2T\"}")));
+        subscriber.onComplete();
+        assertNull(subscriber.getBody().toCompletableFuture().get(), "the body of a successful response is discarded");
+    }
+
+    @Test
+    void testError() throws ExecutionException, InterruptedException {
+        final ErrorResponse error = receive(403, ERROR);
+        assertEquals(40301, error.code());
+        assertEquals(403, error.http());
+        assertEquals("forbidden", error.error());
+    }
+
+    @Test
+    void testTruncated() throws ExecutionException, InterruptedException {
+        final ErrorResponse error = receive(403, ERROR.substring(0, ERROR.length() / 2));
+        assertEquals(403, error.http());
+        assertEquals("Unexpected response from server (HTTP 403)", error.error());
+    }
+
+    @Test
+    void testOversized() throws ExecutionException, InterruptedException {
+        final NoopSubscription subscription = new NoopSubscription();
+        final BodySubscriber<@Nullable ErrorResponse> subscriber = DiscardingBodyHandler.INSTANCE.apply(new Info(502));
+        subscriber.onSubscribe(subscription);
+        subscriber.onNext(List.of(buffer("<html>" + " ".repeat(ResponseBodyHandler.MAX_BODY_SIZE) + "</html>")));
+        assertTrue(subscription.cancelled, "the rest of the body is not read");
+        final ErrorResponse error = Objects.requireNonNull(subscriber.getBody().toCompletableFuture().get());
+        assertEquals(502, error.http());
+        assertEquals("Unexpected response from server (HTTP 502)", error.error());
+    }
+
+    private static ErrorResponse receive(final int status, final String body) throws ExecutionException, InterruptedException {
+        final BodySubscriber<@Nullable ErrorResponse> subscriber = DiscardingBodyHandler.INSTANCE.apply(new Info(status));
+        subscriber.onSubscribe(new NoopSubscription());
+        subscriber.onNext(List.of(buffer(body)));
+        subscriber.onComplete();
+        return Objects.requireNonNull(subscriber.getBody().toCompletableFuture().get());
+    }
+
+    private static ByteBuffer buffer(final String value) {
+        return ByteBuffer.wrap(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private record Info(int statusCode) implements ResponseInfo {
+
+        @Override
+        public HttpHeaders headers() {
+            return HttpHeaders.of(Map.of(), (name, value) -> true);
+        }
+
+        @Override
+        public HttpClient.Version version() {
+            return HttpClient.Version.HTTP_1_1;
+        }
+
+    }
+
+    private static final class NoopSubscription implements Flow.Subscription {
+
+        private boolean cancelled;
+
+        @Override
+        public void request(final long n) {
+
+        }
+
+        @Override
+        public void cancel() {
+            this.cancelled = true;
+        }
+
+    }
+
+}
@@ -0,0 +1,40 @@
+package dev.siebrenvde.ntfy.topic;
+
+import org.junit.jupiter.api.Test;
+
+import static dev.siebrenvde.ntfy.topic.FanoutOptions.options;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class FanoutOptionsTest {
+
+    private static final int MAX_CONCURRENCY_PER_HOST = 32;
+
+    private static final FanoutOptions OPTIONS = new FanoutOptionsImpl(MAX_CONCURRENCY_PER_HOST);
+
+    @Test
+    void testBuilder() {
+        assertEquals(
+            OPTIONS,
+            options()
+                .maxConcurrencyPerHost(MAX_CONCURRENCY_PER_HOST)
+                .build()
+        );
+    }
+
+    @Test
+    void testDefaults() {
+        assertEquals(FanoutOptions.defaults(), options().build());
+    }
+
+    @Test
+    void testZeroConcurrencyThrows() {
+        assertThrows(IllegalArgumentException.class, () -> options().maxConcurrencyPerHost(0));
+    }
+
+    @Test
+    void testToBuilder() {
+        assertEquals(OPTIONS, OPTIONS.toBuilder().build());
+    }
+
+}
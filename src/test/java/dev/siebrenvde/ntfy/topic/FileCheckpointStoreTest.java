@@ -0,0 +1,81 @@
+package dev.siebrenvde.ntfy.topic;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+
+import static dev.siebrenvde.ntfy.topic.Checkpoint.checkpoint;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class FileCheckpointStoreTest {
+
+    private static final String TOPIC = "https://ntfy.sh/mytopic";
+
+    @Test
+    void testReopen() throws IOException {
+        final Path file = Files.createTempFile("checkpoints", ".log");
+        try {
+            try (CheckpointStore store = CheckpointStore.file(file)) {
+                assertNull(store.load(TOPIC));
+                store.save(TOPIC, checkpoint("a", Instant.ofEpochSecond(1)));
+                store.save(TOPIC, checkpoint("b", Instant.ofEpochSecond(2)));
+                store.save("https://ntfy.sh/other", checkpoint("c", Instant.ofEpochSecond(3)));
+                assertEquals(checkpoint("b", Instant.ofEpochSecond(2)), store.load(TOPIC));
+            }
+            try (CheckpointStore store = CheckpointStore.file(file)) {
+                assertEquals(checkpoint("b", Instant.ofEpochSecond(2)), store.load(TOPIC));
+                assertEquals(checkpoint("c", Instant.ofEpochSecond(3)), store.load("https://ntfy.sh/other"));
+            }
+            assertEquals(2, Files.readAllLines(file).size(), "the file is compacted when opened");
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    void testBatchedSync() throws IOException, InterruptedException {
+        final Path file = Files.createTempFile("checkpoints", ".log");
+        try (CheckpointStore store = CheckpointStore.file(file)) {
+            store.save(TOPIC, checkpoint("a", Instant.ofEpochSecond(1)));
+            final long deadline = System.nanoTime() + 10 * CheckpointStore.FILE_SYNC_INTERVAL.toNanos();
+            while (Files.size(file) == 0 && System.nanoTime() < deadline) Thread.sleep(10);
+            assertEquals(List.of(TOPIC + "\ta\t1"), Files.readAllLines(file), "saved checkpoints are written without closing the store");
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    void testTornLine() throws IOException {
+        final Path file = Files.createTempFile("checkpoints", ".log");
+        try {
+            Files.write(file, (TOPIC + "\ta\t1\n" + "garbage\n" + TOPIC + "\tb\t2").getBytes(StandardCharsets.UTF_8));
+            try (CheckpointStore store = CheckpointStore.file(file)) {
+                assertEquals(checkpoint("a", Instant.ofEpochSecond(1)), store.load(TOPIC), "an unterminated last line is ignored");
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    void testInvalidSave() throws IOException {
+        final Path file = Files.createTempFile("checkpoints", ".log");
+        try {
+            final CheckpointStore store = CheckpointStore.file(file);
+            assertThrows(IllegalArgumentException.class, () -> store.save(TOPIC, checkpoint("a\tb", Instant.EPOCH)));
+            store.close();
+            assertThrows(IllegalStateException.class, () -> store.save(TOPIC, checkpoint("a", Instant.EPOCH)));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+}
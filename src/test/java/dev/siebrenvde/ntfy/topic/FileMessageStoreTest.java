@@ -0,0 +1,148 @@
+package dev.siebrenvde.ntfy.topic;
+
+import dev.siebrenvde.ntfy.response.ReceivedMessage;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static dev.siebrenvde.ntfy.topic.Checkpoint.checkpoint;
+import static dev.siebrenvde.ntfy.topic.TestMessages.message;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FileMessageStoreTest {
+
+    private static final String TOPIC = "https://ntfy.sh/mytopic";
+    private static final String OTHER = "https://ntfy.sh/other";
+    private static final long TIME = Instant.now().getEpochSecond();
+
+    @Test
+    void testQueries(@TempDir final Path directory) throws IOException {
+        try (MessageStore store = MessageStore.messageStore(directory).build()) {
+            for (int i = 0; i < 10; i++) {
+                assertTrue(store.append(TOPIC, message("m" + i).time(TIME + i).body("body " + i).build()));
+                assertTrue(store.append(OTHER, message("o" + i).time(TIME + i).body("other " + i).build()));
+            }
+            assertFalse(store.append(TOPIC, message("m9").time(TIME + 9).body("body 9").build()), "repeated messages are skipped");
+
+            assertEquals(List.of("body 3", "body 4", "body 5"), bodies(store.messages(TOPIC, Instant.ofEpochSecond(TIME + 3), Instant.ofEpochSecond(TIME + 6))));
+            assertEquals(List.of("body 9"), bodies(store.messages(TOPIC, Instant.ofEpochSecond(TIME + 8, 1), Instant.ofEpochSecond(TIME + 100))));
+            assertEquals(List.of(), store.messages("https://ntfy.sh/unknown", Instant.EPOCH, Instant.ofEpochSecond(TIME + 100)));
+            assertEquals("other 7", Objects.requireNonNull(store.message("o7")).body());
+            assertNull(store.message("unknown"));
+            assertEquals(checkpoint("m9", Instant.ofEpochSecond(TIME + 9)), store.checkpoint(TOPIC));
+            assertEquals(Set.of(TOPIC, OTHER), store.topics());
+        }
+    }
+
+    @Test
+    void testMessageById(@TempDir final Path directory) throws IOException {
+        try (MessageStore store = MessageStore.messageStore(directory).build()) {
+            assertEquals("Aa".hashCode(), "BB".hashCode());
+            store.append(TOPIC, message("Aa").time(TIME).body("first").build());
+            store.append(OTHER, message("BB").time(TIME).body("second").build());
+            for (int i = 0; i < 1000; i++) store.append(TOPIC, message("m" + i).time(TIME + i).body("body " + i).build());
+            assertEquals("first", Objects.requireNonNull(store.message("Aa")).body(), "ids with the same hash are told apart");
+            assertEquals("second", Objects.requireNonNull(store.message("BB")).body());
+            for (int i = 0; i < 1000; i++) assertEquals("body " + i, Objects.requireNonNull(store.message("m" + i)).body());
+        }
+    }
+
+    @Test
+    void testReopen(@TempDir final Path directory) throws IOException {
+        try (MessageStore store = MessageStore.messageStore(directory).segmentSize(512).build()) {
+            for (int i = 0; i < 20; i++) store.append(TOPIC, message("m" + i).time(TIME + i).body("body " + i).build());
+            assertTrue(segments(directory) > 1, "the log is split into segments");
+        }
+        try (MessageStore store = MessageStore.messageStore(directory).segmentSize(512).build()) {
+            assertEquals(20, store.messages(TOPIC, Instant.EPOCH, Instant.ofEpochSecond(TIME + 100)).size());
+            assertEquals(checkpoint("m19", Instant.ofEpochSecond(TIME + 19)), store.checkpoint(TOPIC));
+            assertEquals("body 2", Objects.requireNonNull(store.message("m2")).body());
+            assertThrows(IOException.class, () -> MessageStore.messageStore(directory).build(), "a directory is opened by one store at a time");
+        }
+    }
+
+    @Test
+    void testTornRecord(@TempDir final Path directory) throws IOException {
+        try (MessageStore store = MessageStore.messageStore(directory).build()) {
+            store.append(TOPIC, message("a").time(TIME).body("first").build());
+            store.append(TOPIC, message("b").time(TIME + 1).body("second").build());
+        }
+        final Path segment = directory.resolve("00000000000000000000.log");
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 3);
+        }
+        try (MessageStore store = MessageStore.messageStore(directory).build()) {
+            assertEquals(List.of("first"), bodies(store.messages(TOPIC, Instant.EPOCH, Instant.ofEpochSecond(TIME + 100))), "the torn record is cut off");
+            assertEquals(checkpoint("a", Instant.ofEpochSecond(TIME)), store.checkpoint(TOPIC));
+            store.append(TOPIC, message("c").time(TIME + 2).body("third").build());
+            assertEquals(List.of("first", "third"), bodies(store.messages(TOPIC, Instant.EPOCH, Instant.ofEpochSecond(TIME + 100))));
+        }
+
+        final byte[] bytes = Files.readAllBytes(segment);
+        bytes[bytes.length - 5] ^= 1;
+        Files.write(segment, bytes);
+        try (MessageStore store = MessageStore.messageStore(directory).build()) {
+            assertEquals(List.of("first"), bodies(store.messages(TOPIC, Instant.EPOCH, Instant.ofEpochSecond(TIME + 100))), "a corrupted record is cut off");
+        }
+    }
+
+    @Test
+    void testRetention(@TempDir final Path directory) throws IOException {
+        try (MessageStore store = MessageStore.messageStore(directory).segmentSize(512).maxBytes(2048).maxAge(Duration.ofHours(1)).build()) {
+            for (int i = 0; i < 10; i++) store.append(OTHER, message("old" + i).time(TIME - 7200).body("expired").build());
+            for (int i = 0; i < 100; i++) store.append(TOPIC, message("m" + i).time(TIME + i).body("body " + i).build());
+            assertTrue(store.size() <= 2048, "the oldest segments are deleted");
+            assertEquals(store.size(), sizeOf(directory));
+            assertFalse(store.topics().contains(OTHER), "expired messages are deleted");
+            assertNull(store.message("old0"));
+            assertNull(store.message("m0"));
+            final List<ReceivedMessage> messages = store.messages(TOPIC, Instant.EPOCH, Instant.ofEpochSecond(TIME + 100));
+            assertEquals("body 99", messages.get(messages.size() - 1).body());
+            assertEquals("m" + (100 - messages.size()), messages.get(0).id(), "the remaining messages are the most recent ones");
+            for (final ReceivedMessage message : messages) assertEquals(message.body(), Objects.requireNonNull(store.message(message.id())).body());
+        }
+    }
+
+    @Test
+    void testClosed(@TempDir final Path directory) throws IOException {
+        final MessageStore store = MessageStore.messageStore(directory).build();
+        store.close();
+        assertThrows(IllegalStateException.class, () -> store.append(TOPIC, message("a").time(TIME).body("body").build()));
+        assertThrows(IllegalStateException.class, () -> store.message("a"));
+        assertThrows(IllegalArgumentException.class, () -> MessageStore.messageStore(directory).segmentSize(0));
+    }
+
+    private static List<String> bodies(final List<ReceivedMessage> messages) {
+        return messages.stream().map(message -> Objects.requireNonNull(message.body())).toList();
+    }
+
+    private static long segments(final Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.toString().endsWith(".log")).count();
+        }
+    }
+
+    private static long sizeOf(final Path directory) throws IOException {
+        long size = 0;
+        try (Stream<Path> files = Files.list(directory)) {
+            for (final Path file : files.filter(file -> file.toString().endsWith(".log")).toList()) size += Files.size(file);
+        }
+        return size;
+    }
+
+}
@@ -0,0 +1,147 @@
+package dev.siebrenvde.ntfy.topic;
+
+import dev.siebrenvde.ntfy.response.ReceivedMessage;
+import org.jspecify.annotations.Nullable;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Flow;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JsonStreamSubscriptionTest {
+
+    private static final String OPEN = "{\"id\":\"hwQ2YpKdmg\",\"time\":1673542291,\"event\":\"open\",\"topic\":\"mytopic\"}\n";
+    private static final String KEEPALIVE = "{\"id\":\"hwQ2YpKdmg\",\"time\":1673542291,\"event\":\"keepalive\",\"topic\":\"mytopic\"}\n";
+
+    @Test
+    void testFraming() {
+        final RecordingSubscriber subscriber = new RecordingSubscriber();
+        final JsonStreamSubscription subscription = new JsonStreamSubscription(subscriber, null);
+        subscriber.onSubscribe(subscription);
+        final RecordingUpstream upstream = new RecordingUpstream();
+        subscription.onSubscribe(upstream);
+        subscription.request(Long.MAX_VALUE);
+
+        final String stream = OPEN + message("one") + KEEPALIVE + message("two") + message("three");
+        final int split = stream.indexOf("two");
+        subscription.onNext(List.of(buffer(stream.substring(0, split))));
+        subscription.onNext(List.of(buffer(stream.substring(split, split + 5)), buffer(stream.substring(split + 5))));
+        subscription.onComplete();
+
+        assertEquals(List.of("one", "two", "three"), subscriber.bodies());
+        assertTrue(subscriber.completed);
+    }
+
+    @Test
+    void testBackpressure() {
+        final RecordingSubscriber subscriber = new RecordingSubscriber();
+        final JsonStreamSubscription subscription = new JsonStreamSubscription(subscriber, null);
+        subscriber.onSubscribe(subscription);
+        final RecordingUpstream upstream = new RecordingUpstream();
+        subscription.onSubscribe(upstream);
+        assertEquals(1L, upstream.requested);
+
+        final StringBuilder chunk = new StringBuilder();
+        for (int i = 0; i < StreamSubscription.PREFETCH; i++) chunk.append(message(String.valueOf(i)));
+        subscription.onNext(List.of(buffer(chunk.toString())));
+        assertEquals(1L, upstream.requested, "no more of the body is requested while the queue is full");
+        assertEquals(0, subscriber.messages.size());
+
+        subscription.request(2);
+        assertEquals(List.of("0", "1"), subscriber.bodies());
+        assertEquals(2L, upstream.requested);
+
+        subscription.cancel();
+        assertTrue(upstream.cancelled);
+    }
+
+    @Test
+    void testFilter() {
+        final RecordingSubscriber subscriber = new RecordingSubscriber();
+        final JsonStreamSubscription subscription = new JsonStreamSubscription(subscriber, message -> !"skip".equals(message.body()));
+        subscriber.onSubscribe(subscription);
+        final RecordingUpstream upstream = new RecordingUpstream();
+        subscription.onSubscribe(upstream);
+        subscription.request(2);
+
+        subscription.onNext(List.of(buffer(message("one") + message("skip") + message("skip") + message("two"))));
+        assertEquals(List.of("one", "two"), subscriber.bodies(), "filtered messages do not use up demand");
+    }
+
+    @Test
+    void testMalformedLine() {
+        final RecordingSubscriber subscriber = new RecordingSubscriber();
+        final JsonStreamSubscription subscription = new JsonStreamSubscription(subscriber, null);
+        subscriber.onSubscribe(subscription);
+        final RecordingUpstream upstream = new RecordingUpstream();
+        subscription.onSubscribe(upstream);
+        subscription.onNext(List.of(buffer("<html>\n")));
+        assertInstanceOf(IOException.class, subscriber.error);
+        assertTrue(upstream.cancelled);
+    }
+
+    private static String message(final String body) {
+        return "{\"id\":\"sPs71M8A2T\",\"time\":1673542291,\"event\":\"message\",\"topic\":\"mytopic\",\"message\":\"" + body + "\"}\n";
+    }
+
+    private static ByteBuffer buffer(final String value) {
+        return ByteBuffer.wrap(value.getBytes(StandardCharsets.UTF_8)).asReadOnlyBuffer();
+    }
+
+    private static final class RecordingUpstream implements Flow.Subscription {
+
+        private long requested;
+        private boolean cancelled;
+
+        @Override
+        public void request(final long n) {
+            this.requested += n;
+        }
+
+        @Override
+        public void cancel() {
+            this.cancelled = true;
+        }
+
+    }
+
+    private static final class RecordingSubscriber implements Flow.Subscriber<ReceivedMessage> {
+
+        private final List<ReceivedMessage> messages = new ArrayList<>();
+        private @Nullable Throwable error;
+        private boolean completed;
+
+        @Override
+        public void onSubscribe(final Flow.Subscription subscription) {
+
+        }
+
+        @Override
+        public void onNext(final ReceivedMessage item) {
+            this.messages.add(item);
+        }
+
+        @Override
+        public void onError(final Throwable throwable) {
+            this.error = throwable;
+        }
+
+        @Override
+        public void onComplete() {
+            this.completed = true;
+        }
+
+        List<String> bodies() {
+            return this.messages.stream().map(ReceivedMessage::body).toList();
+        }
+
+    }
+
+}
@@ -0,0 +1,97 @@
+package dev.siebrenvde.ntfy.topic;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class LineFramerTest {
+
+    private static final String STREAM = "one\ntwo\r\n\nthree and more\nfour";
+    private static final List<String> LINES = List.of("one", "two", "", "three and more", "four");
+
+    @Test
+    void testHeapBuffers() throws IOException {
+        assertEquals(LINES, frame(ByteBuffer::wrap));
+    }
+
+    @Test
+    void testDirectBuffers() throws IOException {
+        assertEquals(LINES, frame(bytes -> ByteBuffer.allocateDirect(bytes.length).put(bytes).flip()));
+        assertEquals(LINES, frame(bytes -> ByteBuffer.wrap(bytes).asReadOnlyBuffer()));
+    }
+
+    @Test
+    void testZeroCopy() throws IOException {
+        final byte[] chunk = "xx{\"a\":1}\n{\"b\":2}\nyy".getBytes(StandardCharsets.UTF_8);
+        final ByteBuffer buffer = ByteBuffer.wrap(chunk, 2, chunk.length - 4).slice();
+        final List<byte[]> arrays = new ArrayList<>();
+        final List<String> lines = new ArrayList<>();
+        new LineFramer(64).frame(buffer, (bytes, offset, length) -> {
+            arrays.add(bytes);
+            lines.add(new String(bytes, offset, length, StandardCharsets.UTF_8));
+        });
+        assertEquals(List.of("{\"a\":1}", "{\"b\":2}"), lines);
+        assertSame(chunk, arrays.get(0), "lines within a chunk are not copied");
+        assertSame(chunk, arrays.get(1));
+    }
+
+    @Test
+    void testIndexOfNewline() {
+        final byte[] bytes = new byte[40];
+        Arrays.fill(bytes, (byte) 0x8A);
+        assertEquals(-1, LineFramer.indexOfNewline(bytes, 0, bytes.length));
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = '\n';
+            assertEquals(i, LineFramer.indexOfNewline(bytes, 0, bytes.length));
+            assertEquals(i, LineFramer.indexOfNewline(bytes, i, bytes.length));
+            assertEquals(-1, LineFramer.indexOfNewline(bytes, 0, i));
+            assertEquals(-1, LineFramer.indexOfNewline(bytes, i + 1, bytes.length));
+            bytes[i] = 0x0B;
+        }
+    }
+
+    @Test
+    void testMaxLength() {
+        final LineFramer framer = new LineFramer(4);
+        assertThrows(IOException.class, () -> framer.frame(ByteBuffer.wrap("12345\n".getBytes(StandardCharsets.US_ASCII)), (bytes, offset, length) -> { }));
+        final LineFramer split = new LineFramer(4);
+        assertThrows(IOException.class, () -> {
+            split.frame(ByteBuffer.wrap("123".getBytes(StandardCharsets.US_ASCII)), (bytes, offset, length) -> { });
+            split.frame(ByteBuffer.wrap("45".getBytes(StandardCharsets.US_ASCII)), (bytes, offset, length) -> { });
+        });
+    }
+
+    /**
+     * Frames {@link #STREAM} split into chunks of every size from 1 to its length, checking every split gives the same lines
+     */
+    private static List<String> frame(final Function<byte[], ByteBuffer> wrap) throws IOException {
+        final byte[] stream = STREAM.getBytes(StandardCharsets.UTF_8);
+        final List<String> lines = frame(stream, stream.length, wrap);
+        for (int size = 1; size < stream.length; size++) {
+            assertEquals(lines, frame(stream, size, wrap), "chunks of " + size + " bytes");
+        }
+        return lines;
+    }
+
+    private static List<String> frame(final byte[] stream, final int size, final Function<byte[], ByteBuffer> wrap) throws IOException {
+        final List<String> lines = new ArrayList<>();
+        final LineFramer framer = new LineFramer(64);
+        final LineFramer.LineHandler handler = (bytes, offset, length) -> lines.add(new String(bytes, offset, length, StandardCharsets.UTF_8));
+        for (int start = 0; start < stream.length; start += size) {
+            framer.frame(wrap.apply(Arrays.copyOfRange(stream, start, Math.min(start + size, stream.length))), handler);
+        }
+        framer.finish(handler);
+        return lines;
+    }
+
+}
@@ -0,0 +1,90 @@
+package dev.siebrenvde.ntfy.topic;
+
+import org.jspecify.annotations.Nullable;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static dev.siebrenvde.ntfy.topic.MessageDispatcher.dispatcher;
+import static dev.siebrenvde.ntfy.topic.TestMessages.message;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MessageDispatcherTest {
+
+    @Test
+    void testOrderWithinTopic() throws InterruptedException {
+        final Map<String, List<String>> handled = new ConcurrentHashMap<>();
+        final MessageDispatcher dispatcher = dispatcher(message -> handled.computeIfAbsent(message.topic(), topic -> Collections.synchronizedList(new ArrayList<>())).add(message.body()))
+            .workers(4)
+            .queueCapacity(8)
+            .build();
+        final List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            for (int topic = 0; topic < 10; topic++) dispatcher.dispatch(message("m").topic("t" + topic).priority(3).body(String.valueOf(i)).build());
+            expected.add(String.valueOf(i));
+        }
+        dispatcher.close();
+
+        assertEquals(10, handled.size());
+        for (final List<String> bodies : handled.values()) assertEquals(expected, bodies);
+        assertThrows(RejectedExecutionException.class, () -> dispatcher.dispatch(message("m").topic("t0").priority(3).body("late").build()));
+    }
+
+    @Test
+    void testUrgentFirst() throws InterruptedException {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final List<String> handled = Collections.synchronizedList(new ArrayList<>());
+        final MessageDispatcher dispatcher = dispatcher(message -> {
+            if ("first".equals(message.body())) {
+                started.countDown();
+                release.await();
+            }
+            handled.add(message.body());
+        }).workers(1).urgentFirst(true).build();
+
+        dispatcher.dispatch(message("m").topic("t").priority(3).body("first").build());
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        dispatcher.dispatch(message("m").topic("t").priority(3).body("low 1").build());
+        dispatcher.dispatch(message("m").topic("t").priority(5).body("urgent 1").build());
+        dispatcher.dispatch(message("m").topic("t").priority(3).body("low 2").build());
+        dispatcher.dispatch(message("m").topic("t").priority(5).body("urgent 2").build());
+        release.countDown();
+        dispatcher.close();
+
+        assertEquals(List.of("first", "urgent 1", "urgent 2", "low 1", "low 2"), handled);
+    }
+
+    @Test
+    void testCloseFromHandler() throws InterruptedException {
+        final AtomicReference<@Nullable MessageDispatcher> self = new AtomicReference<>();
+        final CountDownLatch closed = new CountDownLatch(1);
+        final List<String> handled = Collections.synchronizedList(new ArrayList<>());
+        final MessageDispatcher dispatcher = dispatcher(message -> {
+            handled.add(message.body());
+            if ("fatal".equals(message.body())) {
+                Objects.requireNonNull(self.get()).close();
+                closed.countDown();
+            }
+        }).workers(1).build();
+        self.set(dispatcher);
+
+        dispatcher.dispatch(message("m").topic("t").priority(3).body("fatal").build());
+        assertTrue(closed.await(10, TimeUnit.SECONDS), "a handler closing its dispatcher does not wait for itself");
+        assertThrows(RejectedExecutionException.class, () -> dispatcher.dispatch(message("m").topic("t").priority(3).body("late").build()));
+        dispatcher.close();
+        assertEquals(List.of("fatal"), handled);
+    }
+
+}
@@ -0,0 +1,102 @@
+package dev.siebrenvde.ntfy.topic;
+
+import dev.siebrenvde.ntfy.internal.EncodedJson;
+import dev.siebrenvde.ntfy.response.ReceivedMessage;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static dev.siebrenvde.ntfy.topic.MessageHistory.messageHistory;
+import static dev.siebrenvde.ntfy.topic.TestMessages.message;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MessageHistoryTest {
+
+    private static final String TOPIC = "https://ntfy.sh/mytopic";
+
+    @Test
+    void testMaxMessages() {
+        for (final boolean offHeap : new boolean[] { false, true }) {
+            final MessageHistory history = messageHistory().maxMessages(3).offHeap(offHeap).build();
+            assertEquals(List.of(), history.messages(TOPIC));
+            for (int i = 0; i < 5; i++) assertTrue(history.add(TOPIC, message("m" + i).body("body").build()));
+            history.add("https://ntfy.sh/other", message("o").body("body").build());
+            assertEquals(List.of("m2", "m3", "m4"), ids(history.messages(TOPIC)), "oldest first");
+            assertEquals(List.of("o"), ids(history.messages("https://ntfy.sh/other")));
+            assertEquals(Set.of(TOPIC, "https://ntfy.sh/other"), history.topics());
+            assertEquals("body", history.messages(TOPIC).get(0).body());
+        }
+    }
+
+    @Test
+    void testMaxBytes() {
+        for (final boolean offHeap : new boolean[] { false, true }) {
+            final int length = ((EncodedJson) message("m0").body("x".repeat(100)).build()).json().length;
+            final MessageHistory history = messageHistory().maxBytes(length * 3 + 10).offHeap(offHeap).build();
+            for (int i = 0; i < 10; i++) history.add(TOPIC, message("m" + i).body("x".repeat(100)).build());
+            assertEquals(List.of("m7", "m8", "m9"), ids(history.messages(TOPIC)));
+            assertTrue(history.add(TOPIC, message("s").body("").build()), "messages are evicted until the new one fits");
+            assertEquals(List.of("m8", "m9", "s"), ids(history.messages(TOPIC)));
+            assertFalse(history.add(TOPIC, message("big").body("x".repeat(length * 3)).build()), "a message larger than the maximum is not kept");
+            assertEquals(List.of("m8", "m9", "s"), ids(history.messages(TOPIC)));
+        }
+    }
+
+    @Test
+    void testReplay() {
+        final MessageHistory history = messageHistory().build();
+        history.add(TOPIC, message("a").body("body").build());
+        history.add(TOPIC, message("b").body("body").build());
+        final List<String> received = new ArrayList<>();
+        assertEquals(2, history.replay(TOPIC, message -> received.add(message.id())));
+        assertEquals(List.of("a", "b"), received);
+
+        assertTrue(history.clear(TOPIC));
+        assertFalse(history.clear(TOPIC));
+        assertEquals(0, history.replay(TOPIC, message -> received.add(message.id())));
+    }
+
+    @Test
+    void testConcurrentReads() throws InterruptedException {
+        final MessageHistory history = messageHistory().maxMessages(16).maxBytes(2048).offHeap(true).build();
+        final AtomicBoolean done = new AtomicBoolean();
+        final List<String> errors = new ArrayList<>();
+        final Thread reader = new Thread(() -> {
+            while (!done.get()) {
+                long previous = -1;
+                for (final ReceivedMessage message : history.messages(TOPIC)) {
+                    final long number = Long.parseLong(message.id().substring(1));
+                    if (number <= previous || !("body of " + message.id()).equals(message.body())) errors.add(message.id());
+                    previous = number;
+                }
+            }
+        });
+        reader.start();
+        for (int i = 0; i < 200_000; i++) history.add(TOPIC, message("m" + i).body("body of m" + i).build());
+        done.set(true);
+        reader.join();
+        assertEquals(List.of(), errors, "reads never return torn or reordered messages");
+        assertEquals(16, history.messages(TOPIC).size());
+    }
+
+    @Test
+    void testBuilder() {
+        final MessageHistory history = messageHistory().build();
+        assertEquals(MessageHistory.DEFAULT_MAX_MESSAGES, history.maxMessages());
+        assertEquals(MessageHistory.DEFAULT_MAX_BYTES, history.maxBytes());
+        assertFalse(history.offHeap());
+        assertThrows(IllegalArgumentException.class, () -> messageHistory().maxMessages(0));
+        assertThrows(IllegalArgumentException.class, () -> messageHistory().maxBytes(0));
+    }
+
+    private static List<String> ids(final List<ReceivedMessage> messages) {
+        return messages.stream().map(ReceivedMessage::id).toList();
+    }
+
+}
@@ -0,0 +1,97 @@
+package dev.siebrenvde.ntfy.topic;
+
+import dev.siebrenvde.ntfy.response.ReceivedMessage;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static dev.siebrenvde.ntfy.topic.MessageIndex.messageIndex;
+import static dev.siebrenvde.ntfy.topic.SearchQuery.searchQuery;
+import static dev.siebrenvde.ntfy.topic.TestMessages.message;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MessageIndexTest {
+
+    private static final long TIME = Instant.now().getEpochSecond();
+
+    @Test
+    void testSearch() {
+        final MessageIndex index = messageIndex().build();
+        index.add(message("a").time(TIME).title("Backup finished").body("Backup of db-01 finished").tags("floppy_disk").build());
+        index.add(message("b").time(TIME + 1).title("Disk space low").body("Only 5% left on /var").tags("warning").build());
+        index.add(message("c").time(TIME + 2).body("Backups failed: disk full").tags("warning").build());
+        index.add(message("d").time(TIME + 3).title("Déjà vu").body("Ünïcode WORDS").build());
+
+        assertEquals(List.of("c", "b", "a"), ids(index.search(searchQuery().term("disk").build())), "most recent first, from the title, body and tags, ignoring case");
+        assertEquals(List.of("c"), ids(index.search(searchQuery().term("full DISK").build())), "every word must match");
+        assertEquals(List.of("c", "a"), ids(index.search(searchQuery().prefix("backup").build())));
+        assertEquals(List.of("b"), ids(index.search(searchQuery().prefix("sp").prefix("lo").term("disk").build())));
+        assertEquals(List.of("c", "b"), ids(index.search(searchQuery().tag("WARNING").build())));
+        assertEquals(List.of("a"), ids(index.search(searchQuery().term("floppy").build())));
+        assertEquals(List.of("d"), ids(index.search(searchQuery().term("déjà ünïcode").build())));
+        assertEquals(List.of(), ids(index.search(searchQuery().term("missing").build())));
+        assertEquals(List.of(), ids(index.search(searchQuery().prefix("missing").build())));
+
+        assertEquals(List.of("b"), ids(index.search(searchQuery().tag("warning").from(Instant.ofEpochSecond(TIME)).to(Instant.ofEpochSecond(TIME + 2)).build())));
+        assertEquals(List.of("d", "c", "b"), ids(index.search(searchQuery().from(Instant.ofEpochSecond(TIME + 1)).build())), "a query without words filters by time only");
+        assertEquals(List.of("d", "c"), ids(index.search(searchQuery().limit(2).build())));
+    }
+
+    @Test
+    void testEviction() {
+        final MessageIndex index = messageIndex().maxMessages(1500).maxAge(Duration.ofHours(1)).build();
+        index.add(message("old").time(TIME - 7200).body("expired").build());
+        assertEquals(0, index.size(), "messages older than the maximum age are evicted");
+
+        for (int i = 0; i < 5000; i++) index.add(message("m" + i).time(TIME).body("message number" + i + " common").build());
+        assertEquals(1500, index.size());
+        final List<ReceivedMessage> common = index.search(searchQuery().term("common").limit(5000).build());
+        assertEquals(1500, common.size());
+        assertEquals("m4999", common.get(0).id());
+        assertEquals("m3500", common.get(1499).id());
+        assertEquals(List.of(), index.search(searchQuery().term("number10").build()), "evicted messages are not found");
+        assertTrue(index.words() < 2500, "the postings of evicted messages are dropped");
+
+        index.evictBefore(Instant.ofEpochSecond(TIME + 1));
+        assertEquals(0, index.size());
+        assertEquals(List.of(), index.search(searchQuery().term("common").build()));
+    }
+
+    @Test
+    void testListener() {
+        final MessageIndex index = messageIndex().build();
+        final List<String> received = new ArrayList<>();
+        index.listener(message -> received.add(message.id())).onMessage(message("a").time(TIME).body("body").build());
+        assertEquals(List.of("a"), received);
+        assertEquals(List.of("a"), ids(index.search(searchQuery().term("body").build())));
+    }
+
+    @Test
+    void testQuery() {
+        final SearchQuery query = searchQuery().term("Disk, Space!").prefix("Back").tag("Warning").build();
+        assertEquals(List.of("disk", "space"), query.terms());
+        assertEquals(List.of("back"), query.prefixes());
+        assertEquals(List.of("warning"), query.tags());
+        assertEquals(SearchQuery.DEFAULT_LIMIT, query.limit());
+        assertThrows(IllegalArgumentException.class, () -> searchQuery().term("!?"));
+        assertThrows(IllegalArgumentException.class, () -> searchQuery().prefix("two words"));
+        assertThrows(IllegalArgumentException.class, () -> searchQuery().limit(0));
+    }
+
+    @Test
+    void testWords() {
+        final List<String> words = new ArrayList<>();
+        MessageIndexImpl.words("Hello, wörld! 42x " + "a".repeat(MessageIndex.MAX_WORD_LENGTH + 1) + " end", words::add);
+        assertEquals(List.of("hello", "wörld", "42x", "end"), words);
+    }
+
+    private static List<String> ids(final List<ReceivedMessage> messages) {
+        return messages.stream().map(ReceivedMessage::id).toList();
+    }
+
+}
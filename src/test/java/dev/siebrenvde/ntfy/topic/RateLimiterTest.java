@@ -0,0 +1,122 @@
+package dev.siebrenvde.ntfy.topic;
+
+import dev.siebrenvde.ntfy.message.Message;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static dev.siebrenvde.ntfy.topic.RateLimiter.rateLimiter;
+import static dev.siebrenvde.ntfy.topic.RateLimiterImpl.REJECTED;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RateLimiterTest {
+
+    private static final URI HOST = URI.create("https://example.com/");
+    private static final URI TOPIC = URI.create("https://example.com/topic");
+    private static final URI OTHER_TOPIC = URI.create("https://example.com/other");
+    private static final URI OTHER_HOST = URI.create("https://example.org/");
+
+    private static final long SECOND = Duration.ofSeconds(1).toNanos();
+
+    @Test
+    void testBuilder() {
+        final RateLimiter limiter = rateLimiter()
+            .burst(10)
+            .replenishInterval(Duration.ofSeconds(1))
+            .perTopic(true)
+            .maxWait(Duration.ZERO)
+            .build();
+        assertEquals(10, limiter.burst());
+        assertEquals(Duration.ofSeconds(1), limiter.replenishInterval());
+        assertTrue(limiter.perTopic());
+        assertEquals(Duration.ZERO, limiter.maxWait());
+    }
+
+    @Test
+    void testInvalidValuesThrow() {
+        assertThrows(IllegalArgumentException.class, () -> rateLimiter().burst(0));
+        assertThrows(IllegalArgumentException.class, () -> rateLimiter().replenishInterval(Duration.ZERO));
+        assertThrows(IllegalArgumentException.class, () -> rateLimiter().maxWait(Duration.ofSeconds(-1)));
+    }
+
+    @Test
+    void testBurstThenWait() {
+        final AtomicLong clock = new AtomicLong(123);
+        final RateLimiterImpl limiter = new RateLimiterImpl(3, Duration.ofSeconds(1), false, Duration.ofSeconds(10), clock::get);
+        assertEquals(0, limiter.reserveNanos(HOST, TOPIC));
+        assertEquals(0, limiter.reserveNanos(HOST, TOPIC));
+        assertEquals(0, limiter.reserveNanos(HOST, TOPIC));
+        assertEquals(SECOND, limiter.reserveNanos(HOST, TOPIC));
+        assertEquals(2 * SECOND, limiter.reserveNanos(HOST, TOPIC));
+
+        clock.addAndGet(10 * SECOND);
+        assertEquals(0, limiter.reserveNanos(HOST, TOPIC));
+    }
+
+    @Test
+    void testReplenish() {
+        final AtomicLong clock = new AtomicLong(-5);
+        final RateLimiterImpl limiter = new RateLimiterImpl(1, Duration.ofSeconds(1), false, Duration.ZERO, clock::get);
+        assertEquals(0, limiter.reserveNanos(HOST, TOPIC));
+        assertEquals(REJECTED, limiter.reserveNanos(HOST, TOPIC));
+        clock.addAndGet(SECOND / 2);
+        assertEquals(REJECTED, limiter.reserveNanos(HOST, TOPIC));
+        clock.addAndGet(SECOND / 2);
+        assertEquals(0, limiter.reserveNanos(HOST, TOPIC));
+    }
+
+    @Test
+    void testMaxWaitRejects() {
+        final AtomicLong clock = new AtomicLong();
+        final RateLimiterImpl limiter = new RateLimiterImpl(1, Duration.ofSeconds(1), false, Duration.ofSeconds(1), clock::get);
+        assertEquals(0, limiter.reserveNanos(HOST, TOPIC));
+        assertEquals(SECOND, limiter.reserveNanos(HOST, TOPIC));
+        assertEquals(REJECTED, limiter.reserveNanos(HOST, TOPIC));
+    }
+
+    @Test
+    void testKeys() {
+        final AtomicLong clock = new AtomicLong();
+        final RateLimiterImpl perHost = new RateLimiterImpl(1, Duration.ofSeconds(1), false, Duration.ZERO, clock::get);
+        assertEquals(0, perHost.reserveNanos(HOST, TOPIC));
+        assertEquals(REJECTED, perHost.reserveNanos(HOST, OTHER_TOPIC));
+        assertEquals(0, perHost.reserveNanos(OTHER_HOST, OTHER_HOST.resolve("topic")));
+
+        final RateLimiterImpl perTopic = new RateLimiterImpl(1, Duration.ofSeconds(1), true, Duration.ZERO, clock::get);
+        assertEquals(0, perTopic.reserveNanos(HOST, TOPIC));
+        assertEquals(0, perTopic.reserveNanos(HOST, OTHER_TOPIC));
+        assertEquals(REJECTED, perTopic.reserveNanos(HOST, TOPIC));
+    }
+
+    @Test
+    void testIdleBucketsEvicted() {
+        final AtomicLong clock = new AtomicLong();
+        final RateLimiterImpl limiter = new RateLimiterImpl(1, Duration.ofSeconds(1), true, Duration.ZERO, clock::get);
+        for (int i = 0; i < 5000; i++) assertEquals(0, limiter.reserveNanos(HOST, HOST.resolve("old" + i)));
+        assertEquals(5000, limiter.buckets(), "buckets that were just used are kept");
+
+        clock.addAndGet(SECOND);
+        for (int i = 0; i < 5000; i++) assertEquals(0, limiter.reserveNanos(HOST, HOST.resolve("new" + i)));
+        assertTrue(limiter.buckets() < 10_000, "full buckets are evicted");
+        assertEquals(0, limiter.reserveNanos(HOST, HOST.resolve("old0")), "an evicted bucket starts full again");
+        assertEquals(REJECTED, limiter.reserveNanos(HOST, HOST.resolve("new4999")), "buckets in use are kept");
+    }
+
+    @Test
+    void testRejectedPublish() throws Exception {
+        final RateLimiter limiter = rateLimiter().burst(1).replenishInterval(Duration.ofHours(1)).maxWait(Duration.ZERO).build();
+        final Topic topic = Topic.topic("topic").host("http://127.0.0.1:1").rateLimiter(limiter).build();
+        // The first publish takes the only permit, it fails because nothing is listening on the host
+        assertThrows(CompletionException.class, () -> topic.publishAsync(Message.message("message")).join());
+        assertThrows(PublishRejectedException.class, () -> topic.publish(Message.message("message")));
+        final CompletionException e = assertThrows(CompletionException.class, () -> topic.publishAsync(Message.message("message")).join());
+        assertInstanceOf(PublishRejectedException.class, e.getCause());
+    }
+
+}
@@ -0,0 +1,48 @@
+package dev.siebrenvde.ntfy.topic;
+
+import dev.siebrenvde.ntfy.response.ErrorResponse;
+import dev.siebrenvde.ntfy.response.PublishResponse;
+import dev.siebrenvde.ntfy.util.Result;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ResponseBodyHandlerTest {
+
+    private static final byte[] SUCCESS = "{\"id\":\"sPs71M8A2T\",\"time\":1673542291,\"topic\":\"mytopic\"}".getBytes(StandardCharsets.UTF_8);
+
+    @Test
+    void testSuccess() {
+        final Result<PublishResponse, ErrorResponse> result = ResponseBodyHandler.decode(200, SUCCESS, SUCCESS.length, false);
+        assertTrue(result.isSuccess());
+        assertEquals("sPs71M8A2T", result.getOrThrow().id());
+    }
+
+    @Test
+    void testTruncated() {
+        final Result<PublishResponse, ErrorResponse> result = ResponseBodyHandler.decode(200, SUCCESS, SUCCESS.length, true);
+        assertTrue(result.isError());
+        assertEquals(200, result.error().orElseThrow().http());
+    }
+
+    @Test
+    void testUnexpectedSuccess() {
+        final byte[] html = "<html></html>".getBytes(StandardCharsets.UTF_8);
+        final Result<PublishResponse, ErrorResponse> result = ResponseBodyHandler.decode(200, html, html.length, false);
+        assertTrue(result.isError());
+        assertEquals("Unexpected response from server (HTTP 200)", result.error().orElseThrow().error());
+    }
+
+    @Test
+    void testError() {
+        final byte[] json = "{\"code\":40401,\"http\":404,\"error\":\"page not found\",\"link\":null}".getBytes(StandardCharsets.UTF_8);
+        final Result<PublishResponse, ErrorResponse> result = ResponseBodyHandler.decode(404, json, json.length, false);
+        assertTrue(result.isError());
+        assertEquals(40401, result.error().orElseThrow().code());
+        assertEquals("page not found", result.error().orElseThrow().error());
+    }
+
+}
@@ -0,0 +1,124 @@
+package dev.siebrenvde.ntfy.topic;
+
+import dev.siebrenvde.ntfy.response.ErrorResponse;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.time.Duration;
+import java.time.Instant;
+
+import static dev.siebrenvde.ntfy.topic.RetryPolicy.retryPolicy;
+import static dev.siebrenvde.ntfy.topic.RetryPolicyImpl.NO_RETRY;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RetryPolicyTest {
+
+    private static final int MAX_ATTEMPTS = 5;
+    private static final Duration INITIAL_BACKOFF = Duration.ofMillis(100);
+    private static final Duration MAX_BACKOFF = Duration.ofSeconds(1);
+
+    private static final RetryPolicyImpl POLICY = new RetryPolicyImpl(MAX_ATTEMPTS, INITIAL_BACKOFF, MAX_BACKOFF);
+
+    @Test
+    void testBuilder() {
+        assertEquals(
+            POLICY,
+            retryPolicy()
+                .maxAttempts(MAX_ATTEMPTS)
+                .initialBackoff(INITIAL_BACKOFF)
+                .maxBackoff(MAX_BACKOFF)
+                .build()
+        );
+    }
+
+    @Test
+    void testDefaults() {
+        assertEquals(RetryPolicy.defaults(), retryPolicy().build());
+        assertEquals(1, RetryPolicy.none().maxAttempts());
+    }
+
+    @Test
+    void testInvalidValuesThrow() {
+        assertThrows(IllegalArgumentException.class, () -> retryPolicy().maxAttempts(0));
+        assertThrows(IllegalArgumentException.class, () -> retryPolicy().initialBackoff(Duration.ZERO));
+        assertThrows(IllegalArgumentException.class, () -> retryPolicy().maxBackoff(Duration.ofSeconds(-1)));
+        assertThrows(IllegalStateException.class, () -> retryPolicy().initialBackoff(Duration.ofSeconds(2)).maxBackoff(Duration.ofSeconds(1)).build());
+    }
+
+    @Test
+    void testToBuilder() {
+        assertEquals(POLICY, POLICY.toBuilder().build());
+    }
+
+    @Test
+    void testBackoffIsCapped() {
+        for (int attempt = 1; attempt <= 100; attempt++) {
+            final long ceiling = Math.min(MAX_BACKOFF.toNanos(), INITIAL_BACKOFF.toNanos() << Math.min(attempt - 1, 10));
+            final long backoff = POLICY.backoffNanos(attempt);
+            assertTrue(backoff >= 0 && backoff <= ceiling, "attempt " + attempt + " backoff " + backoff);
+        }
+    }
+
+    @Test
+    void testRetriesIOExceptions() {
+        assertTrue(POLICY.delayNanos(1, new ConnectException()) >= 0);
+        assertTrue(POLICY.delayNanos(1, new IOException()) >= 0);
+        assertEquals(NO_RETRY, POLICY.delayNanos(1, new IllegalStateException()));
+        assertEquals(NO_RETRY, POLICY.delayNanos(MAX_ATTEMPTS, new ConnectException()));
+        assertEquals(NO_RETRY, ((RetryPolicyImpl) RetryPolicy.none()).delayNanos(1, new ConnectException()));
+    }
+
+    @Test
+    void testRetryableStatus() {
+        assertTrue(RetryPolicyImpl.isRetryable(error(429)));
+        assertTrue(RetryPolicyImpl.isRetryable(error(502)));
+        assertTrue(RetryPolicyImpl.isRetryable(error(503)));
+        assertFalse(RetryPolicyImpl.isRetryable(error(400)));
+        assertFalse(RetryPolicyImpl.isRetryable(error(403)));
+        assertFalse(RetryPolicyImpl.isRetryable(error(500)));
+        assertEquals(NO_RETRY, POLICY.delayNanos(1, error(400), null));
+        assertEquals(NO_RETRY, POLICY.delayNanos(MAX_ATTEMPTS, error(503), null));
+    }
+
+    @Test
+    void testRetryableErrorCode() {
+        assertTrue(RetryPolicyImpl.isRetryable(ntfyError(429, RetryPolicyImpl.TOO_MANY_REQUESTS_CODE)), "the request rate limit clears within a backoff");
+        assertFalse(RetryPolicyImpl.isRetryable(ntfyError(429, 42908)), "a used up daily quota does not");
+        assertEquals(NO_RETRY, POLICY.delayNanos(1, ntfyError(429, 42908), "1"));
+        assertTrue(RetryPolicyImpl.isRetryable(ntfyError(503, 50301)));
+        assertFalse(RetryPolicyImpl.isRetryable(ntfyError(400, 40001)));
+    }
+
+    @Test
+    void testRetryAfter() {
+        assertTrue(POLICY.delayNanos(1, error(503), "1") >= Duration.ofSeconds(1).toNanos());
+        assertEquals(NO_RETRY, POLICY.delayNanos(1, error(429), "60"));
+        // Retry-After is only honoured on 429 and 503
+        assertTrue(POLICY.delayNanos(1, error(502), "60") >= 0);
+        // Invalid values fall back to the backoff
+        assertTrue(POLICY.delayNanos(1, error(503), "soon") >= 0);
+    }
+
+    @Test
+    void testParseRetryAfter() {
+        final Instant now = Instant.parse("2003-11-28T00:00:00Z");
+        assertEquals(Duration.ofSeconds(120).toNanos(), RetryPolicyImpl.parseRetryAfter(" 120 ", now));
+        assertEquals(Duration.ofSeconds(30).toNanos(), RetryPolicyImpl.parseRetryAfter("Fri, 28 Nov 2003 00:00:30 GMT", now));
+        assertEquals(0, RetryPolicyImpl.parseRetryAfter("Thu, 27 Nov 2003 00:00:00 GMT", now));
+        assertEquals(-1, RetryPolicyImpl.parseRetryAfter("-5", now));
+        assertEquals(-1, RetryPolicyImpl.parseRetryAfter("tomorrow", now));
+    }
+
+    private static ErrorResponse error(final int status) {
+        return ErrorResponse.fromResponse(status, "");
+    }
+
+    private static ErrorResponse ntfyError(final int status, final int code) {
+        return ErrorResponse.fromJson("{\"code\":" + code + ",\"http\":" + status + ",\"error\":\"error\"}");
+    }
+
+}
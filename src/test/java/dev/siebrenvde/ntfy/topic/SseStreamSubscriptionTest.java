@@ -0,0 +1,117 @@
+package dev.siebrenvde.ntfy.topic;
+
+import dev.siebrenvde.ntfy.response.ReceivedMessage;
+import org.jspecify.annotations.Nullable;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Flow;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SseStreamSubscriptionTest {
+
+    @Test
+    void testEvents() {
+        final RecordingSubscriber subscriber = new RecordingSubscriber();
+        final SseStreamSubscription subscription = subscribe(subscriber);
+
+        final String stream = "event: open\r\n"
+            + "data: {\"id\":\"hwQ2YpKdmg\",\"time\":1673542291,\"event\":\"open\",\"topic\":\"mytopic\"}\r\n"
+            + "\r\n"
+            + ": comment\n"
+            + "id: one\n"
+            + "event: message\n"
+            + "data: " + message("one") + "\n"
+            + "\n"
+            + "event: keepalive\n"
+            + "data: not decoded\n"
+            + "\n"
+            + "id:two\n"
+            + "data:{\"id\":\"two\",\"time\":1673542291,\n"
+            + "data: \"event\":\"message\",\"topic\":\"mytopic\",\"message\":\"two\"}\n"
+            + "\n"
+            + "data: " + message("incomplete") + "\n";
+        final int split = stream.indexOf("id:two") + 3;
+        subscription.onNext(List.of(buffer(stream.substring(0, split))));
+        subscription.onNext(List.of(buffer(stream.substring(split))));
+        subscription.onComplete();
+
+        assertEquals(List.of("one", "two"), subscriber.bodies());
+        assertEquals("two", subscription.lastEventId());
+        assertTrue(subscriber.completed);
+        assertNull(subscriber.error);
+    }
+
+    @Test
+    void testIdWithoutData() {
+        final RecordingSubscriber subscriber = new RecordingSubscriber();
+        final SseStreamSubscription subscription = subscribe(subscriber);
+        subscription.onNext(List.of(buffer("id: one\n\n")));
+        assertEquals("one", subscription.lastEventId());
+        assertEquals(List.of(), subscriber.bodies());
+    }
+
+    private static SseStreamSubscription subscribe(final RecordingSubscriber subscriber) {
+        final SseStreamSubscription subscription = new SseStreamSubscription(subscriber, null);
+        subscription.onSubscribe(new Flow.Subscription() {
+            @Override
+            public void request(final long n) {
+
+            }
+
+            @Override
+            public void cancel() {
+
+            }
+        });
+        subscription.request(Long.MAX_VALUE);
+        return subscription;
+    }
+
+    private static String message(final String body) {
+        return "{\"id\":\"" + body + "\",\"time\":1673542291,\"event\":\"message\",\"topic\":\"mytopic\",\"message\":\"" + body + "\"}";
+    }
+
+    private static ByteBuffer buffer(final String value) {
+        return ByteBuffer.wrap(value.getBytes(StandardCharsets.UTF_8)).asReadOnlyBuffer();
+    }
+
+    private static final class RecordingSubscriber implements Flow.Subscriber<ReceivedMessage> {
+
+        private final List<ReceivedMessage> messages = new ArrayList<>();
+        private @Nullable Throwable error;
+        private boolean completed;
+
+        @Override
+        public void onSubscribe(final Flow.Subscription subscription) {
+
+        }
+
+        @Override
+        public void onNext(final ReceivedMessage item) {
+            this.messages.add(item);
+        }
+
+        @Override
+        public void onError(final Throwable throwable) {
+            this.error = throwable;
+        }
+
+        @Override
+        public void onComplete() {
+            this.completed = true;
+        }
+
+        List<String> bodies() {
+            return this.messages.stream().map(ReceivedMessage::body).toList();
+        }
+
+    }
+
+}
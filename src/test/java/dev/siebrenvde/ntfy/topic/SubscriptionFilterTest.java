@@ -0,0 +1,60 @@
+package dev.siebrenvde.ntfy.topic;
+
+import dev.siebrenvde.ntfy.message.Priority;
+import org.junit.jupiter.api.Test;
+
+import java.util.Objects;
+import java.util.regex.Pattern;
+
+import static dev.siebrenvde.ntfy.topic.SubscriptionFilter.subscriptionFilter;
+import static dev.siebrenvde.ntfy.topic.TestMessages.message;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SubscriptionFilterTest {
+
+    @Test
+    void testServerConditions() {
+        final SubscriptionFilterImpl filter = (SubscriptionFilterImpl) subscriptionFilter()
+            .priorities(Priority.DEFAULT, Priority.HIGH, Priority.MAX)
+            .maxPriority(Priority.HIGH)
+            .tags("warning")
+            .title("Disk full")
+            .message("sda1 & sdb1")
+            .build();
+        assertEquals("priority=3,4&tags=warning&title=Disk+full&message=sda1+%26+sdb1", filter.query());
+        assertNull(filter.local(), "the server checks every condition");
+
+        assertTrue(filter.test(message("a").priority(4).title("Disk full").body("sda1 & sdb1").tags("warning", "disk").build()));
+        assertFalse(filter.test(message("a").priority(5).title("Disk full").body("sda1 & sdb1").tags("warning").build()));
+        assertFalse(filter.test(message("a").priority(4).title("Disk full").body("sda1 & sdb1").tags("disk").build()));
+        assertFalse(filter.test(message("a").priority(4).title("Disk").body("sda1 & sdb1").tags("warning").build()));
+    }
+
+    @Test
+    void testLocalConditions() {
+        final SubscriptionFilterImpl filter = (SubscriptionFilterImpl) subscriptionFilter()
+            .anyTag("a", "b")
+            .excludeTags("muted")
+            .bodyMatches(Pattern.compile("err(or)?"))
+            .matching(message -> !"".equals(message.title()))
+            .build();
+        assertNull(filter.query());
+        assertTrue(Objects.requireNonNull(filter.local()).test(message("a").title("t").body("an error").tags("b").build()));
+        assertFalse(filter.test(message("a").title("t").body("an error").tags("c").build()));
+        assertFalse(filter.test(message("a").title("t").body("an error").tags("a", "muted").build()));
+        assertFalse(filter.test(message("a").title("t").body("fine").tags("a").build()));
+        assertFalse(filter.test(message("a").title("").body("err").tags("a").build()));
+    }
+
+    @Test
+    void testInvalidConditions() {
+        assertThrows(IllegalArgumentException.class, () -> subscriptionFilter().priorities());
+        assertThrows(IllegalArgumentException.class, () -> subscriptionFilter().tags("a,b"));
+        assertThrows(IllegalArgumentException.class, () -> subscriptionFilter().minPriority(Priority.HIGH).maxPriority(Priority.LOW).build());
+    }
+
+}
@@ -0,0 +1,341 @@
+package dev.siebrenvde.ntfy.topic;
+
+import dev.siebrenvde.ntfy.response.ReceivedMessage;
+import org.jspecify.annotations.Nullable;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static dev.siebrenvde.ntfy.topic.SubscriptionManager.subscriptionManager;
+import static dev.siebrenvde.ntfy.topic.TestMessages.message;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SubscriptionManagerTest {
+
+    private static final String HOST = "http://127.0.0.1:1";
+    // Fits three two-character topic names next to the host, transport and room for the since parameter
+    private static final int MAX_URL_LENGTH = 64;
+
+    @Test
+    void testBuilder() {
+        final SubscriptionManager manager = subscriptionManager()
+            .maxUrlLength(2048)
+            .rebalanceDelay(Duration.ofSeconds(1))
+            .reconnectPolicy(RetryPolicy.none())
+            .keepaliveTimeout(Duration.ofMinutes(5))
+            .build();
+        assertEquals(2048, manager.maxUrlLength());
+        assertEquals(Duration.ofSeconds(1), manager.rebalanceDelay());
+        assertEquals(RetryPolicy.none(), manager.reconnectPolicy());
+        assertEquals(Duration.ofMinutes(5), manager.keepaliveTimeout());
+        assertNull(manager.checkpointStore());
+        assertNull(manager.messageStore());
+        assertNull(manager.messageHistory());
+        final MessageHistory history = MessageHistory.messageHistory().build();
+        assertEquals(history, subscriptionManager().messageHistory(history).build().messageHistory());
+        assertThrows(IllegalArgumentException.class, () -> subscriptionManager().maxUrlLength(0));
+        assertThrows(IllegalArgumentException.class, () -> subscriptionManager().rebalanceDelay(Duration.ofMillis(-1)));
+        assertThrows(IllegalArgumentException.class, () -> subscriptionManager().keepaliveTimeout(Duration.ZERO));
+    }
+
+    @Test
+    void testPacking() {
+        final RecordingExecutor executor = new RecordingExecutor();
+        final SubscriptionManager manager = manager(executor, null);
+        for (int i = 0; i < 7; i++) manager.subscribe(topic(i), message -> { });
+        assertEquals(3, manager.connections());
+        assertEquals(7, manager.topics().size());
+        assertEquals(1, executor.tasks.size(), "changes are applied together");
+
+        assertTrue(manager.unsubscribe(topic(4)));
+        assertFalse(manager.unsubscribe(topic(4)));
+        manager.subscribe(topic(7), message -> { });
+        assertEquals(3, manager.connections(), "the freed room is reused");
+
+        manager.unsubscribe(topic(6));
+        assertEquals(2, manager.connections());
+        assertEquals(Set.of(topic(0), topic(1), topic(2), topic(3), topic(5), topic(7)), manager.topics());
+    }
+
+    @Test
+    void testSeparateConnections() {
+        final SubscriptionManager manager = manager(new RecordingExecutor(), null);
+        manager.subscribe(topic(0), message -> { });
+        manager.subscribe(Topic.topic("t1").host(HOST).token("token").build(), message -> { });
+        manager.subscribe(Topic.topic("t2").host(HOST).transport(SubscriptionTransport.SSE).build(), message -> { });
+        assertEquals(3, manager.connections(), "topics with different credentials or transports cannot share a connection");
+    }
+
+    @Test
+    void testReplaceListener() {
+        final RecordingExecutor executor = new RecordingExecutor();
+        final SubscriptionManager manager = manager(executor, null);
+        manager.subscribe(topic(0), message -> { });
+        executor.tasks.clear();
+        manager.subscribe(topic(0), message -> { });
+        assertEquals(1, manager.connections());
+        assertTrue(executor.tasks.isEmpty(), "replacing a listener does not reconnect");
+    }
+
+    @Test
+    void testClose() {
+        final SubscriptionManager manager = manager(new RecordingExecutor(), null);
+        manager.subscribe(topic(0), message -> { });
+        manager.close();
+        assertEquals(0, manager.connections());
+        assertThrows(IllegalStateException.class, () -> manager.subscribe(topic(0), message -> { }));
+    }
+
+    @Test
+    void testCheckpoints() {
+        final MapCheckpointStore store = new MapCheckpointStore();
+        final Checkpoint saved = Checkpoint.checkpoint("abc", Instant.ofEpochSecond(1700000000));
+        store.save(HOST + "/t0", saved);
+        final SubscriptionManager manager = manager(new RecordingExecutor(), store);
+        manager.subscribe(topic(0), message -> { });
+        manager.subscribe(topic(1), message -> { });
+        assertEquals(saved, manager.checkpoint(topic(0)), "subscriptions resume from the stored checkpoint");
+        assertNull(manager.checkpoint(topic(1)), "nothing was received yet");
+        assertNull(manager.checkpoint(topic(2)));
+
+        manager.close();
+        assertEquals(saved, store.checkpoints.get(HOST + "/t0"));
+        assertFalse(store.checkpoints.containsKey(HOST + "/t1"));
+    }
+
+    @Test
+    void testMessageStore(@TempDir final Path directory) throws IOException {
+        try (MessageStore store = MessageStore.messageStore(directory).build()) {
+            store.append(HOST + "/t0", message("abc").topic("t0").build());
+            final SubscriptionManager manager = manager(new RecordingExecutor(), null, store);
+            manager.subscribe(topic(0), message -> { });
+            assertEquals(Checkpoint.checkpoint("abc", Instant.ofEpochSecond(TestMessages.TIME)), manager.checkpoint(topic(0)), "subscriptions resume after the last stored message");
+            manager.close();
+        }
+    }
+
+    @Test
+    void testMessageHistory() throws IOException, InterruptedException {
+        final MessageHistory history = MessageHistory.messageHistory().build();
+        final long time = Instant.now().getEpochSecond() + 60;
+        final String line = "{\"id\":\"abc\",\"time\":" + time + ",\"event\":\"message\",\"topic\":\"t0\",\"message\":\"body\"}\n";
+        try (ServerSocket server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            final Thread serving = new Thread(() -> {
+                try (Socket socket = server.accept()) {
+                    final BufferedReader request = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+                    while (!Objects.requireNonNullElse(request.readLine(), "").isEmpty()) {
+                        // Skips the request headers
+                    }
+                    final OutputStream response = socket.getOutputStream();
+                    response.write(("HTTP/1.1 200 OK\r\nContent-Type: application/x-ndjson\r\nConnection: close\r\n\r\n" + line).getBytes(StandardCharsets.UTF_8));
+                    response.flush();
+                } catch (final IOException ignored) {
+                    // The test fails on the missing message
+                }
+            });
+            serving.start();
+
+            final String host = "http://127.0.0.1:" + server.getLocalPort();
+            final RecordingExecutor executor = new RecordingExecutor();
+            final SubscriptionManager manager = new SubscriptionManagerImpl(2048, Duration.ZERO, RetryPolicy.none(), SubscriptionManager.DEFAULT_KEEPALIVE_TIMEOUT, null, null, history, executor);
+            final CountDownLatch received = new CountDownLatch(1);
+            final List<List<ReceivedMessage>> seen = new ArrayList<>();
+            manager.subscribe(Topic.topic("t0").host(host).build(), message -> {
+                seen.add(history.messages(host + "/t0"));
+                received.countDown();
+            });
+            executor.tasks.forEach(Runnable::run);
+            assertTrue(received.await(10, TimeUnit.SECONDS));
+            assertEquals(List.of("abc"), seen.get(0).stream().map(ReceivedMessage::id).toList(), "messages are added to the history before they are passed to the listener");
+            manager.close();
+            serving.join();
+        }
+    }
+
+    @Test
+    void testReconnect() throws IOException, InterruptedException {
+        final long time = Instant.now().getEpochSecond() + 60;
+        try (SubscriptionServer server = new SubscriptionServer(true, line("a", time), line("b", time + 1), line("c", time + 2))) {
+            // Without resetting the attempts after a message, the second failure would be the last attempt
+            final RetryPolicy policy = RetryPolicy.retryPolicy().maxAttempts(2).initialBackoff(Duration.ofMillis(10)).maxBackoff(Duration.ofMinutes(1)).build();
+            final RecordingListener listener = new RecordingListener();
+            final RecordingExecutor executor = new RecordingExecutor();
+            final SubscriptionManager manager = new SubscriptionManagerImpl(2048, Duration.ZERO, policy, SubscriptionManager.DEFAULT_KEEPALIVE_TIMEOUT, null, null, null, executor);
+            manager.subscribe(Topic.topic("t0").host(server.host()).build(), listener);
+            executor.tasks.forEach(Runnable::run);
+
+            assertTrue(Objects.requireNonNull(server.request()).startsWith("GET /t0/json?since="));
+            assertEquals("GET /t0/json?since=a HTTP/1.1", server.request(), "a stream closed by the server resumes after the last message");
+            assertEquals("GET /t0/json?since=b HTTP/1.1", server.request(), "receiving a message resets the reconnect attempts");
+            manager.close();
+            assertEquals(List.of("a", "b"), listener.messages.subList(0, 2));
+            assertEquals(List.of(), listener.errors);
+        }
+    }
+
+    @Test
+    void testKeepaliveTimeout() throws IOException, InterruptedException {
+        final long time = Instant.now().getEpochSecond() + 60;
+        try (SubscriptionServer server = new SubscriptionServer(false, line("a", time), "")) {
+            final RetryPolicy policy = RetryPolicy.retryPolicy().initialBackoff(Duration.ofMillis(10)).build();
+            final RecordingListener listener = new RecordingListener();
+            final RecordingExecutor executor = new RecordingExecutor();
+            final SubscriptionManager manager = new SubscriptionManagerImpl(2048, Duration.ZERO, policy, Duration.ofMillis(500), null, null, null, executor);
+            manager.subscribe(Topic.topic("t0").host(server.host()).build(), listener);
+            executor.tasks.forEach(Runnable::run);
+
+            assertTrue(Objects.requireNonNull(server.request()).startsWith("GET /t0/json?since="));
+            assertEquals("GET /t0/json?since=a HTTP/1.1", server.request(), "a connection that went silent is replaced");
+            manager.close();
+            assertEquals(List.of("a"), listener.messages);
+            assertEquals(List.of(), listener.errors);
+        }
+    }
+
+    private static String line(final String id, final long time) {
+        return "{\"id\":\"" + id + "\",\"time\":" + time + ",\"event\":\"message\",\"topic\":\"t0\"}\n";
+    }
+
+    private static SubscriptionManager manager(final Executor executor, @Nullable final CheckpointStore store) {
+        return manager(executor, store, null);
+    }
+
+    private static SubscriptionManager manager(final Executor executor, @Nullable final CheckpointStore checkpointStore, @Nullable final MessageStore messageStore) {
+        return new SubscriptionManagerImpl(MAX_URL_LENGTH, Duration.ZERO, RetryPolicy.none(), SubscriptionManager.DEFAULT_KEEPALIVE_TIMEOUT, checkpointStore, messageStore, null, executor);
+    }
+
+    private static Topic topic(final int i) {
+        return Topic.topic("t" + i).host(HOST).build();
+    }
+
+    private static final class RecordingExecutor implements Executor {
+
+        private final List<Runnable> tasks = new ArrayList<>();
+
+        @Override
+        public void execute(final Runnable command) {
+            this.tasks.add(command);
+        }
+
+    }
+
+    private static final class RecordingListener implements SubscriptionManager.Listener {
+
+        private final List<String> messages = new CopyOnWriteArrayList<>();
+        private final List<Throwable> errors = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void onMessage(final ReceivedMessage message) {
+            this.messages.add(message.id());
+        }
+
+        @Override
+        public void onError(final Throwable error) {
+            this.errors.add(error);
+        }
+
+    }
+
+    /**
+     * Answers one subscription request per response, in order, and records the request lines
+     */
+    private static final class SubscriptionServer implements AutoCloseable {
+
+        private final ServerSocket server = new ServerSocket(0, 8, InetAddress.getLoopbackAddress());
+        private final BlockingQueue<String> requests = new LinkedBlockingQueue<>();
+        private final List<Socket> sockets = new CopyOnWriteArrayList<>();
+        private final Thread thread;
+
+        /**
+         * @param close whether to close a connection after its response, or leave it open without sending anything more
+         * @param responses the lines sent in response to each request
+         */
+        SubscriptionServer(final boolean close, final String... responses) throws IOException {
+            this.thread = new Thread(() -> {
+                try {
+                    for (final String lines : responses) {
+                        final Socket socket = this.server.accept();
+                        this.sockets.add(socket);
+                        final BufferedReader request = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+                        this.requests.add(Objects.requireNonNullElse(request.readLine(), ""));
+                        while (!Objects.requireNonNullElse(request.readLine(), "").isEmpty()) {
+                            // Skips the request headers
+                        }
+                        final OutputStream response = socket.getOutputStream();
+                        response.write(("HTTP/1.1 200 OK\r\nContent-Type: application/x-ndjson\r\nConnection: close\r\n\r\n" + lines).getBytes(StandardCharsets.UTF_8));
+                        response.flush();
+                        if (close) socket.close();
+                    }
+                } catch (final IOException ignored) {
+                    // The server was closed, the test fails on the missing request
+                }
+            });
+            this.thread.start();
+        }
+
+        String host() {
+            return "http://127.0.0.1:" + this.server.getLocalPort();
+        }
+
+        @Nullable String request() throws InterruptedException {
+            return this.requests.poll(10, TimeUnit.SECONDS);
+        }
+
+        @Override
+        public void close() throws IOException, InterruptedException {
+            this.server.close();
+            for (final Socket socket : this.sockets) socket.close();
+            this.thread.join();
+        }
+
+    }
+
+    private static final class MapCheckpointStore implements CheckpointStore {
+
+        private final Map<String, Checkpoint> checkpoints = new HashMap<>();
+
+        @Override
+        public @Nullable Checkpoint load(final String topic) {
+            return this.checkpoints.get(topic);
+        }
+
+        @Override
+        public void save(final String topic, final Checkpoint checkpoint) {
+            this.checkpoints.put(topic, checkpoint);
+        }
+
+        @Override
+        public void close() {
+
+        }
+
+    }
+
+}
@@ -0,0 +1,90 @@
+package dev.siebrenvde.ntfy.topic;
+
+import dev.siebrenvde.ntfy.response.ReceivedMessage;
+import org.jspecify.annotations.Nullable;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Builds received messages for tests, decoded from JSON like the lines of a subscription
+ */
+final class TestMessages {
+
+    static final long TIME = 1700000000;
+
+    private TestMessages() {
+
+    }
+
+    /**
+     * Creates a message builder, published at {@link #TIME} to <code>mytopic</code>
+     *
+     * @param id the message's id
+     * @return a message builder
+     */
+    static Builder message(final String id) {
+        return new Builder(id);
+    }
+
+    static final class Builder {
+
+        private final String id;
+        private long time = TIME;
+        private String topic = "mytopic";
+        private int priority = 3;
+        private @Nullable String title;
+        private @Nullable String body;
+        private List<String> tags = List.of();
+
+        private Builder(final String id) {
+            this.id = id;
+        }
+
+        Builder time(final long time) {
+            this.time = time;
+            return this;
+        }
+
+        Builder topic(final String topic) {
+            this.topic = topic;
+            return this;
+        }
+
+        Builder priority(final int priority) {
+            this.priority = priority;
+            return this;
+        }
+
+        Builder title(final String title) {
+            this.title = title;
+            return this;
+        }
+
+        Builder body(final String body) {
+            this.body = body;
+            return this;
+        }
+
+        Builder tags(final String... tags) {
+            this.tags = List.of(tags);
+            return this;
+        }
+
+        ReceivedMessage build() {
+            final StringBuilder json = new StringBuilder()
+                .append("{\"id\":\"").append(this.id)
+                .append("\",\"time\":").append(this.time)
+                .append(",\"event\":\"message\",\"topic\":\"").append(this.topic)
+                .append("\",\"priority\":").append(this.priority);
+            if (this.title != null) json.append(",\"title\":\"").append(this.title).append('"');
+            if (this.body != null) json.append(",\"message\":\"").append(this.body).append('"');
+            if (!this.tags.isEmpty()) json.append(",\"tags\":[\"").append(String.join("\",\"", this.tags)).append("\"]");
+            final byte[] bytes = json.append('}').toString().getBytes(StandardCharsets.UTF_8);
+            return Objects.requireNonNull(ReceivedMessage.fromJson(bytes, 0, bytes.length));
+        }
+
+    }
+
+}
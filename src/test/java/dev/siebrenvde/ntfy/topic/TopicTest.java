@@ -1,15 +1,24 @@
 package dev.siebrenvde.ntfy.topic;
 
+import dev.siebrenvde.ntfy.message.Message;
+import dev.siebrenvde.ntfy.message.PreparedMessage;
+import dev.siebrenvde.ntfy.message.Priority;
 import org.junit.jupiter.api.Test;
 
+import java.io.FileNotFoundException;
+import java.net.URI;
 import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
 import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
 
 import static dev.siebrenvde.ntfy.topic.Topic.DEFAULT_HOST;
 import static dev.siebrenvde.ntfy.topic.Topic.topic;
 import static dev.siebrenvde.ntfy.topic.TopicImpl.DEFAULT_CLIENT;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class TopicTest {
 
@@ -17,6 +26,7 @@ class TopicTest {
     private static final String NAME = "name";
     private static final HttpClient CLIENT = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(12345)).build();
     private static final Duration TIMEOUT = Duration.ofSeconds(12345);
+    private static final long DELAY = 1069977600;
 
     private static final String TOKEN = "token";
     private static final String TOKEN_HEADER = "Bearer token";
@@ -25,9 +35,10 @@ class TopicTest {
     private static final String PASSWORD = "password";
     private static final String BASIC_HEADER = "Basic dXNlcm5hbWU6cGFzc3dvcmQ="; // username:password -> base64
 
-    private static final Topic TOPIC = new TopicImpl(HOST, NAME, CLIENT, TIMEOUT);
-    private static final TopicImpl.Protected PROTECTED_TOPIC_TOKEN = new TopicImpl.Protected(DEFAULT_HOST, NAME, DEFAULT_CLIENT, null, TOKEN);
-    private static final TopicImpl.Protected PROTECTED_TOPIC_BASIC = new TopicImpl.Protected(DEFAULT_HOST, NAME, DEFAULT_CLIENT, null, USERNAME, PASSWORD);
+    private static final Topic TOPIC = new TopicImpl(HOST, NAME, CLIENT, TIMEOUT, TopicImpl.Options.DEFAULT);
+    private static final Topic JSON_TOPIC = new TopicImpl(HOST, NAME, CLIENT, TIMEOUT, new TopicImpl.Options(true, false, RetryPolicy.none(), null, null, null, SubscriptionTransport.JSON));
+    private static final TopicImpl.Protected PROTECTED_TOPIC_TOKEN = new TopicImpl.Protected(DEFAULT_HOST, NAME, DEFAULT_CLIENT, null, TopicImpl.Options.DEFAULT, TOKEN);
+    private static final TopicImpl.Protected PROTECTED_TOPIC_BASIC = new TopicImpl.Protected(DEFAULT_HOST, NAME, DEFAULT_CLIENT, null, TopicImpl.Options.DEFAULT, USERNAME, PASSWORD);
 
     @Test
     void testBuilder() {
@@ -41,6 +52,60 @@ class TopicTest {
         );
     }
 
+    @Test
+    void testJsonBuilder() {
+        assertEquals(
+            JSON_TOPIC,
+            topic(NAME)
+                .host(HOST)
+                .httpClient(CLIENT)
+                .timeout(TIMEOUT)
+                .json(true)
+                .build()
+        );
+    }
+
+    @Test
+    void testVirtualThreadsBuilder() {
+        final Topic topic = topic(NAME).virtualThreads(true).build();
+        assertEquals(topic, topic.toBuilder().build());
+    }
+
+    @Test
+    void testRetryPolicyBuilder() {
+        final Topic topic = topic(NAME).retryPolicy(RetryPolicy.defaults()).build();
+        assertEquals(new TopicImpl(DEFAULT_HOST, NAME, DEFAULT_CLIENT, null, new TopicImpl.Options(false, false, RetryPolicy.defaults(), null, null, null, SubscriptionTransport.JSON)), topic);
+        assertEquals(topic, topic.toBuilder().build());
+    }
+
+    @Test
+    void testTransportBuilder() {
+        final Topic topic = topic(NAME).transport(SubscriptionTransport.SSE).build();
+        assertEquals(topic, topic.toBuilder().build());
+        assertEquals(
+            URI.create(DEFAULT_HOST + "/" + NAME + "/sse?since=abc%2Fdef"),
+            ((TopicImpl) topic).createSubscribeRequest("abc/def").uri()
+        );
+        assertEquals("abc/def", ((TopicImpl) topic).createSubscribeRequest("abc/def").headers().firstValue("Last-Event-ID").orElseThrow());
+    }
+
+    @Test
+    void testFilterQuery() {
+        final SubscriptionFilterImpl filter = (SubscriptionFilterImpl) SubscriptionFilter.subscriptionFilter()
+            .minPriority(Priority.HIGH)
+            .tags("a b", "c")
+            .build();
+        assertEquals(
+            URI.create(DEFAULT_HOST + "/" + NAME + "/json?since=all&priority=4,5&tags=a+b%2Cc"),
+            ((TopicImpl) topic(NAME).build()).createSubscribeRequest("all", filter).uri()
+        );
+    }
+
+    @Test
+    void testVirtualThreadsWithHttpClientThrows() {
+        assertThrows(IllegalStateException.class, () -> topic(NAME).httpClient(CLIENT).virtualThreads(true).build());
+    }
+
     @Test
     void testInvalidHostThrows() {
         assertThrows(IllegalArgumentException.class, () -> topic(NAME).host("host").build());
@@ -99,8 +164,38 @@ class TopicTest {
     @Test
     void testToBuilder() {
         assertEquals(TOPIC, TOPIC.toBuilder().build());
+        assertEquals(JSON_TOPIC, JSON_TOPIC.toBuilder().build());
+    }
+
+    @Test
+    void testCreateRequest() throws FileNotFoundException {
+        final PreparedMessage message = Message.message("body").prepare();
+        final HttpRequest request = ((TopicImpl) TOPIC).createRequest(message, null);
+        assertEquals(URI.create(HOST + "/" + NAME), request.uri());
+        assertEquals(Optional.of(TIMEOUT), request.timeout());
+        assertEquals(Optional.of("body"), request.headers().firstValue("Message"));
+        assertTrue(request.headers().firstValue("Delay").isEmpty());
+        assertTrue(request.headers().firstValue("Authorization").isEmpty());
+    }
+
+    @Test
+    void testCreateRequestDelay() throws FileNotFoundException {
+        final HttpRequest request = ((TopicImpl) TOPIC).createRequest(Message.message("body").prepare(), Instant.ofEpochSecond(DELAY));
+        assertEquals(Optional.of(String.valueOf(DELAY)), request.headers().firstValue("Delay"));
     }
 
-    // TODO: Add createRequest tests
+    @Test
+    void testCreateJsonRequest() throws FileNotFoundException {
+        final HttpRequest request = ((TopicImpl) JSON_TOPIC).createRequest(Message.message("body").prepare(), null);
+        assertEquals(URI.create(HOST + "/"), request.uri());
+        assertEquals(Optional.of("application/json"), request.headers().firstValue("Content-Type"));
+        assertTrue(request.headers().firstValue("Message").isEmpty());
+    }
+
+    @Test
+    void testCreateRequestAuthorization() throws FileNotFoundException {
+        final HttpRequest request = PROTECTED_TOPIC_TOKEN.createRequest(Message.message("body").prepare(), null);
+        assertEquals(Optional.of(TOKEN_HEADER), request.headers().firstValue("Authorization"));
+    }
 
 }
@@ -0,0 +1,122 @@
+package dev.siebrenvde.ntfy.topic;
+
+import dev.siebrenvde.ntfy.message.Message;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static dev.siebrenvde.ntfy.topic.Topic.topic;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TopicsTest {
+
+    private static final String UNREACHABLE_HOST = "http://127.0.0.1:1";
+    private static final Message MESSAGE = Message.message("body");
+
+    @Test
+    void testPublishAllEmpty() {
+        final FanoutReport report = Topics.publishAll(List.of(), MESSAGE).join();
+        assertTrue(report.isSuccess());
+        assertTrue(report.results().isEmpty());
+        assertTrue(report.failures().isEmpty());
+    }
+
+    @Test
+    void testPublishAllReportsFailuresInOrder() {
+        final List<Topic> topics = List.of(
+            topic("one").host(UNREACHABLE_HOST).build(),
+            topic("two").host(UNREACHABLE_HOST).build(),
+            topic("three").host(UNREACHABLE_HOST).build()
+        );
+        final FanoutReport report = Topics.publishAll(
+            topics,
+            MESSAGE,
+            FanoutOptions.options().maxConcurrencyPerHost(1).build()
+        ).join();
+
+        assertEquals(topics, List.copyOf(report.failures().keySet()));
+        assertEquals(3, report.errorCount());
+        assertEquals(0, report.successCount());
+        report.failures().values().forEach(failure -> assertInstanceOf(IOException.class, failure));
+    }
+
+    @Test
+    void testPublishAllRejectsDuplicates() {
+        final Topic topic = topic("one").host(UNREACHABLE_HOST).build();
+        assertThrows(IllegalArgumentException.class, () -> Topics.publishAll(List.of(topic, topic("two").host(UNREACHABLE_HOST).build(), topic), MESSAGE));
+    }
+
+    @Test
+    void testPublishAllLimitsConcurrency() throws IOException, InterruptedException {
+        final AtomicInteger inFlight = new AtomicInteger();
+        final AtomicInteger maxInFlight = new AtomicInteger();
+        try (ServerSocket server = new ServerSocket(0, 16, InetAddress.getLoopbackAddress())) {
+            final Thread accepting = new Thread(() -> {
+                while (!server.isClosed()) {
+                    final Socket socket;
+                    try {
+                        socket = server.accept();
+                    } catch (final IOException e) {
+                        return;
+                    }
+                    new Thread(() -> respond(socket, inFlight, maxInFlight)).start();
+                }
+            });
+            accepting.start();
+
+            final String host = "http://127.0.0.1:" + server.getLocalPort();
+            final List<Topic> topics = new ArrayList<>();
+            for (int i = 0; i < 8; i++) topics.add(topic("t" + i).host(host).build());
+            final FanoutReport report = Topics.publishAll(topics, MESSAGE, FanoutOptions.options().maxConcurrencyPerHost(2).build()).join();
+
+            assertEquals(8, report.successCount(), report.failures().toString());
+            assertEquals(2, maxInFlight.get(), "no more requests than lanes are in flight for a host");
+            server.close();
+            accepting.join();
+        }
+    }
+
+    /**
+     * Answers a publish after a delay, tracking how many publishes are being answered at once
+     */
+    private static void respond(final Socket socket, final AtomicInteger inFlight, final AtomicInteger maxInFlight) {
+        try (socket) {
+            final InputStream input = socket.getInputStream();
+            final StringBuilder headers = new StringBuilder();
+            while (!headers.toString().endsWith("\r\n\r\n")) {
+                final int b = input.read();
+                if (b == -1) return;
+                headers.append((char) b);
+            }
+            final String lower = headers.toString().toLowerCase(Locale.ROOT);
+            final int start = lower.indexOf("content-length:");
+            if (start >= 0) {
+                final int length = Integer.parseInt(lower.substring(start + 15, lower.indexOf("\r\n", start)).trim());
+                input.readNBytes(length);
+            }
+
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            Thread.sleep(100);
+            inFlight.decrementAndGet();
+
+            final byte[] body = "{\"id\":\"sPs71M8A2T\",\"time\":1673542291,\"event\":\"message\",\"topic\":\"t\"}".getBytes(StandardCharsets.UTF_8);
+            socket.getOutputStream().write(("HTTP/1.1 200 OK\r\nContent-Type: application/json\r\nContent-Length: " + body.length + "\r\nConnection: close\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+            socket.getOutputStream().write(body);
+        } catch (final IOException | InterruptedException ignored) {
+            // The test fails on the missing response
+        }
+    }
+
+}
@@ -0,0 +1,206 @@
+package dev.siebrenvde.ntfy.topic;
+
+import dev.siebrenvde.ntfy.response.ReceivedMessage;
+import org.jspecify.annotations.Nullable;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.WebSocket;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WebSocketSubscriptionTest {
+
+    @Test
+    void testWebSocketUri() {
+        assertEquals(URI.create("wss://ntfy.sh/mytopic/ws?since=abc"), WebSocketSubscription.webSocketUri(URI.create("https://ntfy.sh/mytopic/ws?since=abc")));
+        assertEquals(URI.create("ws://localhost:8080/mytopic/ws"), WebSocketSubscription.webSocketUri(URI.create("http://localhost:8080/mytopic/ws")));
+    }
+
+    @Test
+    void testPartialMessages() {
+        final RecordingSubscriber subscriber = new RecordingSubscriber();
+        final WebSocketSubscription subscription = new WebSocketSubscription(subscriber, null);
+        final RecordingWebSocket webSocket = new RecordingWebSocket();
+        subscription.onOpen(webSocket);
+        subscription.request(Long.MAX_VALUE);
+        assertEquals(1L, webSocket.requested);
+
+        assertNull(subscription.onText(webSocket, "{\"id\":\"o\",\"time\":1673542291,\"event\":\"open\",\"topic\":\"mytopic\"}", true));
+        assertNull(subscription.onText(webSocket, message("one"), true));
+
+        // Split inside a surrogate pair, which must survive reassembly
+        final String two = message("two \uD83D\uDC4B");
+        final int split = two.indexOf('\uDC4B');
+        final CompletionStage<?> first = subscription.onText(webSocket, two.substring(0, split), false);
+        assertNotNull(first);
+        assertFalse(first.toCompletableFuture().isDone(), "parts are retained until the message is complete");
+        assertNull(subscription.onText(webSocket, two.substring(split), true));
+        assertTrue(first.toCompletableFuture().isDone());
+
+        assertEquals(List.of("one", "two \uD83D\uDC4B"), subscriber.bodies());
+        assertEquals("sPs71M8A2T", subscription.lastEventId());
+
+        subscription.onClose(webSocket, WebSocket.NORMAL_CLOSURE, "");
+        assertTrue(subscriber.completed);
+    }
+
+    @Test
+    void testSplitEmoji() {
+        final RecordingSubscriber subscriber = new RecordingSubscriber();
+        final WebSocketSubscription subscription = new WebSocketSubscription(subscriber, null);
+        final RecordingWebSocket webSocket = new RecordingWebSocket();
+        subscription.onOpen(webSocket);
+        subscription.request(Long.MAX_VALUE);
+
+        // The high surrogate ends one partial frame and the low surrogate starts the next, neither of them the last
+        final String wave = message("\uD83D\uDC4B wave");
+        final int split = wave.indexOf('\uDC4B');
+        subscription.onText(webSocket, wave.substring(0, split), false);
+        subscription.onText(webSocket, wave.substring(split, split + 3), false);
+        subscription.onText(webSocket, wave.substring(split + 3), true);
+
+        // An empty frame between the two halves
+        final String smile = message("smile \uD83D\uDE00");
+        final int middle = smile.indexOf('\uDE00');
+        subscription.onText(webSocket, smile.substring(0, middle), false);
+        subscription.onText(webSocket, "", false);
+        subscription.onText(webSocket, smile.substring(middle), true);
+
+        assertEquals(List.of("\uD83D\uDC4B wave", "smile \uD83D\uDE00"), subscriber.bodies());
+    }
+
+    @Test
+    void testOversizedMessage() {
+        final RecordingSubscriber subscriber = new RecordingSubscriber();
+        final WebSocketSubscription subscription = new WebSocketSubscription(subscriber, null);
+        final RecordingWebSocket webSocket = new RecordingWebSocket();
+        subscription.onOpen(webSocket);
+        subscription.request(Long.MAX_VALUE);
+
+        final String part = "x".repeat(StreamSubscription.MAX_EVENT_LENGTH / 2 + 1);
+        final CompletionStage<?> first = subscription.onText(webSocket, part, false);
+        assertNotNull(first);
+        assertNull(subscription.onText(webSocket, part, false));
+        assertTrue(first.toCompletableFuture().isDone(), "the retained parts are released");
+        assertInstanceOf(IOException.class, subscriber.error);
+        assertTrue(webSocket.aborted);
+    }
+
+    @Test
+    void testAbnormalClose() {
+        final RecordingSubscriber subscriber = new RecordingSubscriber();
+        final WebSocketSubscription subscription = new WebSocketSubscription(subscriber, null);
+        final RecordingWebSocket webSocket = new RecordingWebSocket();
+        subscription.onOpen(webSocket);
+        subscription.onClose(webSocket, 1011, "internal error");
+        assertInstanceOf(IOException.class, subscriber.error);
+        assertFalse(subscriber.completed);
+    }
+
+    private static String message(final String body) {
+        return "{\"id\":\"sPs71M8A2T\",\"time\":1673542291,\"event\":\"message\",\"topic\":\"mytopic\",\"message\":\"" + body + "\"}";
+    }
+
+    private static final class RecordingWebSocket implements WebSocket {
+
+        private long requested;
+        private boolean aborted;
+
+        @Override
+        public CompletableFuture<WebSocket> sendText(final CharSequence data, final boolean last) {
+            return CompletableFuture.completedFuture(this);
+        }
+
+        @Override
+        public CompletableFuture<WebSocket> sendBinary(final ByteBuffer data, final boolean last) {
+            return CompletableFuture.completedFuture(this);
+        }
+
+        @Override
+        public CompletableFuture<WebSocket> sendPing(final ByteBuffer message) {
+            return CompletableFuture.completedFuture(this);
+        }
+
+        @Override
+        public CompletableFuture<WebSocket> sendPong(final ByteBuffer message) {
+            return CompletableFuture.completedFuture(this);
+        }
+
+        @Override
+        public CompletableFuture<WebSocket> sendClose(final int statusCode, final String reason) {
+            return CompletableFuture.completedFuture(this);
+        }
+
+        @Override
+        public void request(final long n) {
+            this.requested += n;
+        }
+
+        @Override
+        public String getSubprotocol() {
+            return "";
+        }
+
+        @Override
+        public boolean isOutputClosed() {
+            return this.aborted;
+        }
+
+        @Override
+        public boolean isInputClosed() {
+            return this.aborted;
+        }
+
+        @Override
+        public void abort() {
+            this.aborted = true;
+        }
+
+    }
+
+    private static final class RecordingSubscriber implements Flow.Subscriber<ReceivedMessage> {
+
+        private final List<ReceivedMessage> messages = new ArrayList<>();
+        private @Nullable Throwable error;
+        private boolean completed;
+
+        @Override
+        public void onSubscribe(final Flow.Subscription subscription) {
+
+        }
+
+        @Override
+        public void onNext(final ReceivedMessage item) {
+            this.messages.add(item);
+        }
+
+        @Override
+        public void onError(final Throwable throwable) {
+            this.error = throwable;
+        }
+
+        @Override
+        public void onComplete() {
+            this.completed = true;
+        }
+
+        List<String> bodies() {
+            return this.messages.stream().map(ReceivedMessage::body).toList();
+        }
+
+    }
+
+}